@@ -30,11 +30,7 @@ import static com.microsoft.azuretools.telemetry.TelemetryConstants.BLOB_UPLOAD;
 import static com.microsoft.azuretools.telemetry.TelemetryConstants.STORAGE;
 
 import com.microsoft.tooling.msservices.serviceexplorer.WrappedTelemetryNodeActionListener;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
@@ -87,7 +83,6 @@ import org.eclipse.ui.part.EditorPart;
 
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
-import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azureexplorer.Activator;
 import com.microsoft.azuretools.azureexplorer.forms.UploadBlobFileForm;
 import com.microsoft.azuretools.azureexplorer.helpers.UIHelperImpl;
@@ -131,6 +126,7 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
 
     private LinkedList<BlobDirectory> directoryQueue = new LinkedList<BlobDirectory>();
     private java.util.List<BlobItem> blobItems = new ArrayList<BlobItem>();
+    private volatile int fillGeneration;
     private FileEditorVirtualNode<EditorPart> fileEditorVirtualNode;
 
     @Override
@@ -413,6 +409,10 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
     public void fillGrid() {
         setUIState(true);
 
+        // A newer fill or the editor disposal stops the pages still streaming in for the previous one
+        final int generation = ++fillGeneration;
+        final String query = queryTextField.getText();
+
         DefaultLoader.getIdeHelper().runInBackground(null, "Loading blobs...", false, true, "Loading blobs...", new Runnable() {
             @Override
             public void run() {
@@ -421,29 +421,52 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
                         directoryQueue.addLast(StorageClientSDKManager.getManager().getRootDirectory(connectionString, blobContainer));
                     }
 
-                    blobItems = StorageClientSDKManager.getManager().getBlobItems(connectionString, directoryQueue.peekLast());
+                    final BlobDirectory directory = directoryQueue.peekLast();
+                    final boolean[] isFirstSegment = {true};
+
+                    StorageClientSDKManager.getManager().forEachBlobItemSegment(connectionString, directory,
+                            StorageClientSDKManager.DEFAULT_BLOB_SEGMENT_SIZE,
+                            new CallableSingleArg<Boolean, java.util.List<BlobItem>>() {
+                                @Override
+                                public Boolean call(java.util.List<BlobItem> segment) {
+                                    if (generation != fillGeneration) {
+                                        return false;
+                                    }
 
-                    DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (!queryTextField.getText().isEmpty()) {
-                                for (int i = blobItems.size() - 1; i >= 0; i--) {
-                                    BlobItem blobItem = blobItems.get(i);
+                                    final java.util.List<BlobItem> items = new ArrayList<BlobItem>();
 
-                                    if (blobItem instanceof BlobFile && !blobItem.getName().startsWith(queryTextField.getText())) {
-                                        blobItems.remove(i);
+                                    for (BlobItem blobItem : segment) {
+                                        if (query.isEmpty() || !(blobItem instanceof BlobFile) || blobItem.getName().startsWith(query)) {
+                                            items.add(blobItem);
+                                        }
                                     }
-                                }
-                            }
 
-                            pathLabel.setText(directoryQueue.peekLast().getPath());
-                            tableViewer.setInput(blobItems);
-                            tableViewer.refresh();
-                            setUIState(false);
-//
-//                            blobListTable.clearSelection();
-                        }
-                    });
+                                    final boolean clear = isFirstSegment[0];
+                                    isFirstSegment[0] = false;
+
+                                    DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            if (generation != fillGeneration || blobListTable.isDisposed()) {
+                                                return;
+                                            }
+
+                                            if (clear) {
+                                                pathLabel.setText(directory.getPath());
+                                                blobItems = new ArrayList<BlobItem>(items);
+                                                tableViewer.setInput(blobItems);
+                                                tableViewer.refresh();
+                                                setUIState(false);
+                                            } else {
+                                                blobItems.addAll(items);
+                                                tableViewer.add(items.toArray());
+                                            }
+                                        }
+                                    });
+
+                                    return true;
+                                }
+                            });
                 } catch (AzureCmdException ex) {
                     DefaultLoader.getUIHelper().showException("Error querying blob list.", ex, "Error querying blobs", false, true);
                 }
@@ -578,58 +601,53 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
                             }
                         }
 
-                        final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(targetFile), 65536) {
-                            private long runningCount = 0;
+                        final CallableSingleArg<Void, Long> callable = new CallableSingleArg<Void, Long>() {
+                            private int reported = 0;
 
                             @Override
-                            public synchronized void write(@NotNull byte[] bytes, int i, int i1) throws IOException {
-                                super.write(bytes, i, i1);
-
-                                runningCount += i1;
-
-                                double progress = (double) runningCount / fileSelection.getSize();
-                                monitor.worked((int) (100 * progress));
+                            public Void call(Long downloadedBytes) {
+                                double progress = fileSelection.getSize() == 0 ? 1 : (double) downloadedBytes / fileSelection.getSize();
+                                monitor.worked((int) (100 * progress) - reported);
+                                reported = (int) (100 * progress);
                                 monitor.subTask(String.format("%s%% downloaded", (int) (progress * 100)));
+
+                                return null;
                             }
                         };
 
-                        try {
 //                            Future<?> future = DefaultLoader.getIdeHelper().executeOnPooledThread(new Runnable() {
 //                                @Override
 //                                public void run() {
-                            try {
-                                StorageClientSDKManager.getManager().downloadBlobFileContent(connectionString, fileSelection, bufferedOutputStream);
-
-                                if (open && targetFile.exists()) {
-                                    try {
-                                        final Process p;
-                                        Runtime runtime = Runtime.getRuntime();
-                                        p = runtime.exec(
-                                                new String[]{"open", "-R", targetFile.getName()},
-                                                null,
-                                                targetFile.getParentFile());
-
-                                        InputStream errorStream = p.getErrorStream();
-                                        String errResponse = new String(IOUtils.readFully(errorStream, -1));
-
-                                        if (p.waitFor() != 0) {
-                                            throw new Exception(errResponse);
-                                        }
-                                    } catch (Exception e) {
-                                        monitor.setTaskName("Error opening file");
-                                        monitor.subTask(e.getMessage());
+                        try {
+                            StorageClientSDKManager.getManager().downloadBlobFileContent(connectionString, fileSelection, targetFile, callable);
+
+                            if (open && targetFile.exists()) {
+                                try {
+                                    final Process p;
+                                    Runtime runtime = Runtime.getRuntime();
+                                    p = runtime.exec(
+                                            new String[]{"open", "-R", targetFile.getName()},
+                                            null,
+                                            targetFile.getParentFile());
+
+                                    InputStream errorStream = p.getErrorStream();
+                                    String errResponse = new String(IOUtils.readFully(errorStream, -1));
+
+                                    if (p.waitFor() != 0) {
+                                        throw new Exception(errResponse);
                                     }
-//                                            Desktop.getDesktop().open(targetFile);
+                                } catch (Exception e) {
+                                    monitor.setTaskName("Error opening file");
+                                    monitor.subTask(e.getMessage());
                                 }
-                            } catch (AzureCmdException e) {
-                                Throwable connectionFault = e.getCause().getCause();
-
-                                monitor.setTaskName("Error downloading Blob");
-                                monitor.subTask((connectionFault instanceof SocketTimeoutException) ? "Connection timed out" : connectionFault.getMessage());
-                                return Status.CANCEL_STATUS;
+//                                            Desktop.getDesktop().open(targetFile);
                             }
-                        } finally {
-                            bufferedOutputStream.close();
+                        } catch (AzureCmdException e) {
+                            Throwable connectionFault = e.getCause().getCause();
+
+                            monitor.setTaskName("Error downloading Blob");
+                            monitor.subTask((connectionFault instanceof SocketTimeoutException) ? "Connection timed out" : connectionFault.getMessage());
+                            return Status.CANCEL_STATUS;
                         }
                     } catch (IOException e) {
                         DefaultLoader.getUIHelper().showException("Error downloading Blob", e, "Error downloading Blob", false, true);
@@ -676,7 +694,6 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
                 monitor.beginTask("Uploading blob...", IProgressMonitor.UNKNOWN);
                 try {
                     final BlobDirectory blobDirectory = directoryQueue.peekLast();
-                    final BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(selectedFile));
                     monitor.subTask("0% uploaded");
                     try {
                         final CallableSingleArg<Void, Long> callable = new CallableSingleArg<Void, Long>() {
@@ -695,17 +712,10 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
                                     connectionString,
                                     blobContainer,
                                     path,
-                                    bufferedInputStream,
-                                    callable,
-                                    1024 * 1024,
-                                    selectedFile.length());
+                                    selectedFile,
+                                    callable);
                         } catch (AzureCmdException e) {
                             e.printStackTrace();
-                        } finally {
-                            try {
-                                bufferedInputStream.close();
-                            } catch (IOException ignored) {
-                            }
                         }
 //                        while (!future.isDone()) {
 //                            Thread.sleep(500);
@@ -713,7 +723,6 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
 
                         if (monitor.isCanceled()) {
 //                                future.cancel(true);
-                            bufferedInputStream.close();
 
                             for (BlobItem blobItem : StorageClientSDKManager.getManager().getBlobItems(connectionString, blobDirectory)) {
                                 if (blobItem instanceof BlobFile && blobItem.getPath().equals(path)) {
@@ -777,6 +786,12 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
     public void setFocus() {
     }
 
+    @Override
+    public void dispose() {
+        fillGeneration++;
+        super.dispose();
+    }
+
     private class BlobListContentProvider implements IStructuredContentProvider {
         @Override
         public void dispose() {
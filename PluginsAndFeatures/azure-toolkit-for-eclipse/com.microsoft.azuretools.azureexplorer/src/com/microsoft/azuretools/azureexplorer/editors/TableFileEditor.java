@@ -24,17 +24,14 @@ package com.microsoft.azuretools.azureexplorer.editors;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.ILabelProviderListener;
-import org.eclipse.jface.viewers.IStructuredContentProvider;
+import org.eclipse.jface.viewers.ILazyContentProvider;
 import org.eclipse.jface.viewers.ITableLabelProvider;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.Viewer;
@@ -61,7 +58,7 @@ import com.microsoft.azuretools.azureexplorer.Activator;
 import com.microsoft.azuretools.azureexplorer.forms.TableEntityForm;
 import com.microsoft.azuretools.core.utils.PluginUtil;
 import com.microsoft.azuretools.azurecommons.helpers.AzureCmdException;
-import com.microsoft.tooling.msservices.helpers.azure.sdk.StorageClientSDKManager;
+import com.microsoft.tooling.msservices.helpers.azure.sdk.TableEntityPager;
 import com.microsoft.tooling.msservices.model.storage.ClientStorageAccount;
 import com.microsoft.tooling.msservices.model.storage.Table;
 import com.microsoft.tooling.msservices.model.storage.TableEntity;
@@ -77,6 +74,8 @@ public class TableFileEditor extends EditorPart {
     private static final String DELETE = "Delete";
     private static final String REFRESH = "Refresh";
 
+    private static final int PAGE_SIZE = 500;
+
     private ClientStorageAccount storageAccount;
     private Table table;
     private Button refreshButton;
@@ -87,9 +86,11 @@ public class TableFileEditor extends EditorPart {
 //    private Button queryDesignerButton;
     private org.eclipse.swt.widgets.Table entitiesTable;
     private TableViewer tableViewer;
-    private List<TableEntity> tableEntities;
-    private Map<String, List<String>> columnData;
-    private List<String> data;
+    private String connectionString;
+    private TableEntityPager pager;
+    private volatile int fillGeneration;
+    private boolean isLoadingPage = false;
+    private List<String> data = new ArrayList<String>();
 
     private FileEditorVirtualNode<EditorPart> fileEditorVirtualNode;
 
@@ -106,6 +107,7 @@ public class TableFileEditor extends EditorPart {
         setSite(site);
         setInput(input);
 //        storageAccount = ((StorageEditorInput) input).getStorageAccount();
+        connectionString = ((StorageEditorInput) input).getConnectionString();
         table = (Table) ((StorageEditorInput) input).getItem();
         setPartName(table.getName() + " [Table]");
         fileEditorVirtualNode = createVirtualNode(table.getName());
@@ -245,8 +247,10 @@ public class TableFileEditor extends EditorPart {
             form.setOnFinish(new Runnable() {
                 @Override
                 public void run() {
-//                    tableEntities.set(entitiesTable.getSelectedRow(), form.getTableEntity());
-                    refreshGrid();
+                    if (pager != null && entitiesTable.getSelectionIndex() >= 0) {
+                        pager.setRowIfLoaded(entitiesTable.getSelectionIndex(), form.getTableEntity());
+                        refreshGrid();
+                    }
                 }
             });
             form.open();
@@ -256,73 +260,92 @@ public class TableFileEditor extends EditorPart {
     public void fillGrid() {
         final String queryText = queryTextField.getText();
 
+        // The pages still loading for the previous query are dropped once they arrive
+        fillGeneration++;
+        pager = new TableEntityPager(connectionString, table.getName(), queryText, null,
+                PAGE_SIZE, TableEntityPager.DEFAULT_MAX_PAGES_IN_MEMORY);
+        isLoadingPage = false;
+
+        tableViewer.setInput(pager);
+        refreshGrid();
+        loadPage(-1);
+    }
+
+    /**
+     * Fetches the next page for a negative row, or the page of the row evicted from memory. One page is fetched at
+     * a time, the virtual table asks again for the rows it still misses once the page arrives.
+     */
+    private void loadPage(final int row) {
+        if (pager == null || isLoadingPage) {
+            return;
+        }
+
+        final TableEntityPager loadingPager = pager;
+        final int generation = fillGeneration;
+        isLoadingPage = true;
+
         DefaultLoader.getIdeHelper().runInBackground(null, "Loading entities", false, true, "Loading entities", new Runnable() {
             public void run() {
-                /*try {
-                    tableEntities = StorageClientSDKManager.getManager().getTableEntities(storageAccount, table, queryText);
+                boolean isLoaded = true;
 
-                    refreshGrid();
+                try {
+                    if (row < 0) {
+                        loadingPager.loadNextPage();
+                    } else {
+                        loadingPager.loadPageOf(row);
+                    }
                 } catch (AzureCmdException e) {
+                    isLoaded = false;
                     DefaultLoader.getUIHelper().showException("Error querying entities", e, "Service Explorer", false, true);
-                }*/
-            }
-        });
-    }
+                }
 
-    private void refreshGrid() {
-        DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                columnData = new LinkedHashMap<String, List<String>>();
-                data = new ArrayList<String>();
-                data.add(PARTITION_KEY);
-                data.add(ROW_KEY);
-                data.add(TIMESTAMP);
-                columnData.put(PARTITION_KEY, new ArrayList<String>());
-                columnData.put(ROW_KEY, new ArrayList<String>());
-                columnData.put(TIMESTAMP, new ArrayList<String>());
-
-                for (TableEntity tableEntity : tableEntities) {
-                    columnData.get(PARTITION_KEY).add(tableEntity.getPartitionKey());
-                    columnData.get(ROW_KEY).add(tableEntity.getRowKey());
-                    columnData.get(TIMESTAMP).add(new SimpleDateFormat().format(tableEntity.getTimestamp().getTime()));
-
-                    for (String entityColumn : tableEntity.getProperties().keySet()) {
-                        if (!data.contains(entityColumn)) {
-                            data.add(entityColumn);
-                        }
-                        if (!columnData.keySet().contains(entityColumn)) {
-                            columnData.put(entityColumn, new ArrayList<String>());
+                final boolean isLoadedFinal = isLoaded;
+
+                DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != fillGeneration || entitiesTable.isDisposed()) {
+                            return;
                         }
-                    }
 
-                }
+                        isLoadingPage = false;
 
-                for (TableEntity tableEntity : tableEntities) {
-                    for (String column : columnData.keySet()) {
-                        if (!column.equals(PARTITION_KEY) && !column.equals(ROW_KEY) && !column.equals(TIMESTAMP)) {
-                            columnData.get(column).add(tableEntity.getProperties().containsKey(column)
-                                    ? getFormattedProperty(tableEntity.getProperties().get(column))
-                                    : "");
+                        // Don't retry a failed page over and over, the next scroll or query will
+                        if (isLoadedFinal) {
+                            refreshGrid();
                         }
                     }
-                }
-                entitiesTable.setRedraw(false);
-                while (entitiesTable.getColumnCount() > 0 ) {
-                    entitiesTable.getColumns()[0].dispose();
-                }
-                for (String columnName : data) {
-                    TableColumn tableColumn = new TableColumn(entitiesTable, SWT.FILL);
-                    tableColumn.setText(columnName);
-                    tableColumn.setWidth(100);
-                }
-                entitiesTable.setRedraw(true);
-
-                tableViewer.setInput(tableEntities);
+                });
             }
         });
     }
 
+    private void refreshGrid() {
+        List<String> columns = new ArrayList<String>();
+        columns.add(PARTITION_KEY);
+        columns.add(ROW_KEY);
+        columns.add(TIMESTAMP);
+        columns.addAll(pager.getColumns());
+
+        if (!columns.equals(data)) {
+            data = columns;
+
+            entitiesTable.setRedraw(false);
+            while (entitiesTable.getColumnCount() > 0 ) {
+                entitiesTable.getColumns()[0].dispose();
+            }
+            for (String columnName : data) {
+                TableColumn tableColumn = new TableColumn(entitiesTable, SWT.FILL);
+                tableColumn.setText(columnName);
+                tableColumn.setWidth(100);
+            }
+            entitiesTable.setRedraw(true);
+        }
+
+        tableViewer.setItemCount(pager.getRowCount());
+        tableViewer.refresh();
+    }
+
     private void deleteSelection() {
         final TableEntity[] selectedEntities = getSelectedEntities();
 
@@ -340,9 +363,7 @@ public class TableFileEditor extends EditorPart {
                         DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
                             @Override
                             public void run() {
-                                tableEntities.removeAll(Arrays.asList(selectedEntities));
-
-                                refreshGrid();
+                                fillGrid();
                             }
                         });
                     }
@@ -357,7 +378,7 @@ public class TableFileEditor extends EditorPart {
     }
 
     private TableEntity[] getSelectedEntities() {
-        if (tableEntities == null) {
+        if (pager == null) {
             return null;
         }
 
@@ -419,7 +440,7 @@ public class TableFileEditor extends EditorPart {
     }
 
     private void createTable(Composite parent) {
-        entitiesTable = new org.eclipse.swt.widgets.Table(parent, SWT.MULTI | SWT.BORDER | SWT.FULL_SELECTION);
+        entitiesTable = new org.eclipse.swt.widgets.Table(parent, SWT.MULTI | SWT.BORDER | SWT.FULL_SELECTION | SWT.VIRTUAL);
 
         entitiesTable.setHeaderVisible(true);
         entitiesTable.setLinesVisible(true);
@@ -443,7 +464,17 @@ public class TableFileEditor extends EditorPart {
 
     }
 
-    private class TableContentProvider implements IStructuredContentProvider {
+    @Override
+    public void dispose() {
+        fillGeneration++;
+        super.dispose();
+    }
+
+    /**
+     * Feeds the virtual table from the pager, fetching the pages of the rows it asks for and the next page once
+     * the rows near the end are shown.
+     */
+    private class TableContentProvider implements ILazyContentProvider {
         public void dispose() {
 
         }
@@ -452,8 +483,22 @@ public class TableFileEditor extends EditorPart {
 
         }
 
-        public Object[] getElements(Object o) {
-            return tableEntities.toArray();
+        public void updateElement(int index) {
+            if (pager == null) {
+                return;
+            }
+
+            TableEntity tableEntity = pager.getRowIfLoaded(index);
+
+            if (tableEntity != null) {
+                tableViewer.replace(tableEntity, index);
+            } else if (!pager.isPageOfRowLoaded(index)) {
+                loadPage(index);
+            }
+
+            if (!pager.isComplete() && index >= pager.getRowCount() - PAGE_SIZE / 4) {
+                loadPage(-1);
+            }
         }
     }
 
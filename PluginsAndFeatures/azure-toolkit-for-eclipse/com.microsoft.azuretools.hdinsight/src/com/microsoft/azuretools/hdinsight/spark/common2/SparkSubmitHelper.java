@@ -61,7 +61,6 @@ import com.microsoft.azure.hdinsight.spark.common.SparkBatchSubmission;
 import com.microsoft.azure.hdinsight.spark.common.SparkJobLog;
 import com.microsoft.azure.hdinsight.spark.common.SparkSubmitResponse;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
-import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.StringHelper;
 import com.microsoft.azuretools.azurecommons.helpers.AzureCmdException;
@@ -236,35 +235,23 @@ public class SparkSubmitHelper {
             String defaultContainerName, String uploadFolderPath) throws Exception {
         final File file = new File(localFile);
         if (storageAccount.getAccountType() == StorageAccountType.BLOB) {
-            try (FileInputStream fileInputStream = new FileInputStream(file)) {
-                try (BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream)) {
-                    final CallableSingleArg<Void, Long> callable = new CallableSingleArg<Void, Long>() {
-                        @Override
-                        public Void call(Long uploadedBytes) throws Exception {
-                            double progress = ((double) uploadedBytes) / file.length();
-                            return null;
-                        }
-                    };
-
-                    HDStorageAccount blobStorageAccount = (HDStorageAccount) storageAccount;
-                    BlobContainer defaultContainer = getSparkClusterDefaultContainer(blobStorageAccount,
-                            defaultContainerName);
-                    String path = String.format("SparkSubmission/%s/%s", uploadFolderPath, file.getName());
-                    String uploadedPath = String.format("wasbs://%s@%s/%s", defaultContainerName,
-                            blobStorageAccount.getFullStorageBlobName(), path);
+            HDStorageAccount blobStorageAccount = (HDStorageAccount) storageAccount;
+            BlobContainer defaultContainer = getSparkClusterDefaultContainer(blobStorageAccount,
+                    defaultContainerName);
+            String path = String.format("SparkSubmission/%s/%s", uploadFolderPath, file.getName());
+            String uploadedPath = String.format("wasbs://%s@%s/%s", defaultContainerName,
+                    blobStorageAccount.getFullStorageBlobName(), path);
 
-                    HDInsightUtil.showInfoOnSubmissionMessageWindow(
-                            String.format("Info : Begin uploading file %s to Azure Blob Storage Account %s ...",
-                                    localFile, uploadedPath));
+            HDInsightUtil.showInfoOnSubmissionMessageWindow(
+                    String.format("Info : Begin uploading file %s to Azure Blob Storage Account %s ...",
+                            localFile, uploadedPath));
 
-                    StorageClientSDKManager.getManager().uploadBlobFileContent(blobStorageAccount.getConnectionString(),
-                            defaultContainer, path, bufferedInputStream, callable, 1024 * 1024, file.length());
+            StorageClientSDKManager.getManager().uploadBlobFileContent(blobStorageAccount.getConnectionString(),
+                    defaultContainer, path, file, null);
 
-                    HDInsightUtil.showInfoOnSubmissionMessageWindow(
-                            String.format("Info : Submit file to azure blob '%s' successfully.", uploadedPath));
-                    return uploadedPath;
-                }
-            }
+            HDInsightUtil.showInfoOnSubmissionMessageWindow(
+                    String.format("Info : Submit file to azure blob '%s' successfully.", uploadedPath));
+            return uploadedPath;
         } else if (storageAccount.getAccountType() == StorageAccountType.ADLS) {
             String uploadPath = String.format("adl://%s.azuredatalakestore.net/%s/%s", storageAccount.getName(),
                     storageAccount.getDefaultContainerOrRootPath(), "SparkSubmission");
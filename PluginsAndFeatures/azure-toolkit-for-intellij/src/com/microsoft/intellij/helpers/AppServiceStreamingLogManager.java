@@ -261,7 +261,7 @@ public enum AppServiceStreamingLogManager {
 
         private WebApp getWebApp() throws IOException {
             if (webApp == null) {
-                webApp = AzureWebAppMvpModel.getInstance().getWebAppById(
+                webApp = AzureWebAppMvpModel.getInstance().getFreshWebAppById(
                         AzureMvpModel.getSegment(resourceId, SUBSCRIPTIONS), resourceId);
             }
             return webApp;
@@ -300,7 +300,7 @@ public enum AppServiceStreamingLogManager {
             if (deploymentSlot == null) {
                 final String subscriptionId = AzureMvpModel.getSegment(resourceId, SUBSCRIPTIONS);
                 final String webAppId = resourceId.substring(0, resourceId.indexOf("/slots"));
-                final WebApp webApp = AzureWebAppMvpModel.getInstance().getWebAppById(subscriptionId, webAppId);
+                final WebApp webApp = AzureWebAppMvpModel.getInstance().getFreshWebAppById(subscriptionId, webAppId);
                 deploymentSlot = webApp.deploymentSlots().getById(resourceId);
             }
             return deploymentSlot;
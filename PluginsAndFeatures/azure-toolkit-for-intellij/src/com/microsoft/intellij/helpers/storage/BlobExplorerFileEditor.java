@@ -106,7 +106,8 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
     private Project project;
 
     private LinkedList<BlobDirectory> directoryQueue = new LinkedList<BlobDirectory>();
-    private List<BlobItem> blobItems;
+    private List<BlobItem> blobItems = new ArrayList<BlobItem>();
+    private volatile int fillGeneration;
 
     private ISubscriptionSelectionListener subscriptionListener;
     private FileEditorVirtualNode fileEditorVirtualNode;
@@ -316,6 +317,10 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
     public void fillGrid() {
         setUIState(true);
 
+        // A newer fill or the editor disposal stops the pages still streaming in for the previous one
+        final int generation = ++fillGeneration;
+        final String query = queryTextField.getText();
+
         ProgressManager.getInstance().run(new Task.Backgroundable(project, "Loading blobs...", false) {
             @Override
             public void run(@NotNull ProgressIndicator progressIndicator) {
@@ -326,58 +331,49 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
                         directoryQueue.addLast(StorageClientSDKManager.getManager().getRootDirectory(connectionString, blobContainer));
                     }
 
-                    blobItems = StorageClientSDKManager.getManager().getBlobItems(connectionString, directoryQueue.peekLast());
+                    final BlobDirectory directory = directoryQueue.peekLast();
+                    final boolean[] isFirstSegment = {true};
 
-                    if (!queryTextField.getText().isEmpty()) {
-                        for (int i = blobItems.size() - 1; i >= 0; i--) {
-                            BlobItem blobItem = blobItems.get(i);
+                    StorageClientSDKManager.getManager().forEachBlobItemSegment(connectionString, directory,
+                            StorageClientSDKManager.DEFAULT_BLOB_SEGMENT_SIZE,
+                            new CallableSingleArg<Boolean, List<BlobItem>>() {
+                                @Override
+                                public Boolean call(List<BlobItem> segment) {
+                                    if (generation != fillGeneration) {
+                                        return false;
+                                    }
 
-                            if (blobItem instanceof BlobFile && !blobItem.getName().startsWith(queryTextField.getText())) {
-                                blobItems.remove(i);
-                            }
-                        }
-                    }
+                                    final List<BlobItem> items = new ArrayList<BlobItem>();
 
-                    ApplicationManager.getApplication().invokeLater(new Runnable() {
-                        @Override
-                        public void run() {
+                                    for (BlobItem blobItem : segment) {
+                                        if (query.isEmpty() || !(blobItem instanceof BlobFile) || blobItem.getName().startsWith(query)) {
+                                            items.add(blobItem);
+                                        }
+                                    }
 
-                            pathLabel.setText(directoryQueue.peekLast().getPath());
-                            DefaultTableModel model = (DefaultTableModel) blobListTable.getModel();
+                                    final boolean clear = isFirstSegment[0];
+                                    isFirstSegment[0] = false;
 
-                            while (model.getRowCount() > 0) {
-                                model.removeRow(0);
-                            }
+                                    ApplicationManager.getApplication().invokeLater(new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            if (generation != fillGeneration) {
+                                                return;
+                                            }
 
-                            for (BlobItem blobItem : blobItems) {
-                                if (blobItem instanceof BlobDirectory) {
-                                    model.addRow(new Object[]{
-                                        UIHelperImpl.loadIcon("storagefolder.png"),
-                                        blobItem.getName(),
-                                        "",
-                                        "",
-                                        "",
-                                        blobItem.getUri()
-                                    });
-                                } else {
-                                    BlobFile blobFile = (BlobFile) blobItem;
-
-                                    model.addRow(new String[]{
-                                        "",
-                                        blobFile.getName(),
-                                        UIHelperImpl.readableFileSize(blobFile.getSize()),
-                                        new SimpleDateFormat().format(blobFile.getLastModified().getTime()),
-                                        blobFile.getContentType(),
-                                        blobFile.getUri()
+                                            if (clear) {
+                                                showBlobItems(directory, items);
+                                            } else {
+                                                appendBlobItems(items);
+                                            }
+                                        }
                                     });
-                                }
-                            }
 
-                            setUIState(false);
+                                    progressIndicator.setText2(String.format("Loaded a page of %d blob items", segment.size()));
 
-                            blobListTable.clearSelection();
-                        }
-                    });
+                                    return true;
+                                }
+                            });
                 } catch (AzureCmdException ex) {
                     String msg = "An error occurred while attempting to query blob list." + "\n" + String.format(message("webappExpMsg"), ex.getMessage());
                     PluginUtil.displayErrorDialogAndLog(message("errTtl"), msg, ex);
@@ -386,6 +382,49 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
         });
     }
 
+    private void showBlobItems(BlobDirectory directory, List<BlobItem> items) {
+        pathLabel.setText(directory.getPath());
+        DefaultTableModel model = (DefaultTableModel) blobListTable.getModel();
+        model.setRowCount(0);
+
+        blobItems = new ArrayList<BlobItem>();
+        appendBlobItems(items);
+
+        setUIState(false);
+
+        blobListTable.clearSelection();
+    }
+
+    private void appendBlobItems(List<BlobItem> items) {
+        DefaultTableModel model = (DefaultTableModel) blobListTable.getModel();
+
+        for (BlobItem blobItem : items) {
+            if (blobItem instanceof BlobDirectory) {
+                model.addRow(new Object[]{
+                    UIHelperImpl.loadIcon("storagefolder.png"),
+                    blobItem.getName(),
+                    "",
+                    "",
+                    "",
+                    blobItem.getUri()
+                });
+            } else {
+                BlobFile blobFile = (BlobFile) blobItem;
+
+                model.addRow(new String[]{
+                    "",
+                    blobFile.getName(),
+                    UIHelperImpl.readableFileSize(blobFile.getSize()),
+                    new SimpleDateFormat().format(blobFile.getLastModified().getTime()),
+                    blobFile.getContentType(),
+                    blobFile.getUri()
+                });
+            }
+        }
+
+        blobItems.addAll(items);
+    }
+
     private void setUIState(boolean loading) {
         if (loading) {
             blobListTable.setEnabled(false);
@@ -604,69 +643,61 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
                             }
                         }
 
-                        final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(targetFile), 65536) {
-                            private long runningCount = 0;
-
+                        final CallableSingleArg<Void, Long> callable = new CallableSingleArg<Void, Long>() {
                             @Override
-                            public synchronized void write(@NotNull byte[] bytes, int i, int i1) throws IOException {
-                                super.write(bytes, i, i1);
-
-                                runningCount += i1;
-
-                                double progress = (double) runningCount / fileSelection.getSize();
+                            public Void call(Long downloadedBytes) {
+                                double progress = fileSelection.getSize() == 0 ? 1 : (double) downloadedBytes / fileSelection.getSize();
                                 progressIndicator.setFraction(progress);
                                 progressIndicator.setText2(String.format("%s%% downloaded", (int) (progress * 100)));
+
+                                return null;
                             }
                         };
 
-                        try {
-                            Future<?> future = ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    try {
-                                        StorageClientSDKManager.getManager().downloadBlobFileContent(connectionString, fileSelection, bufferedOutputStream);
+                        Future<?> future = ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    StorageClientSDKManager.getManager().downloadBlobFileContent(connectionString, fileSelection, targetFile, callable);
 
-                                        if (open && targetFile.exists()) {
-                                            Desktop.getDesktop().open(targetFile);
-                                        }
-                                    } catch (AzureCmdException e) {
-                                        Throwable connectionFault = e.getCause().getCause();
-
-                                        progressIndicator.setText("Error downloading Blob");
-                                        progressIndicator.setText2((connectionFault instanceof SocketTimeoutException) ?
-                                                                   "Connection timed out" : connectionFault.getMessage());
-                                    } catch (IOException ex) {
-                                        try {
-                                            final Process p;
-                                            Runtime runtime = Runtime.getRuntime();
-                                            p = runtime.exec(
-                                                    new String[]{"open", "-R", targetFile.getName()},
-                                                    null,
-                                                    targetFile.getParentFile());
-
-                                            InputStream errorStream = p.getErrorStream();
-                                            String errResponse = new String(IOUtils.readFully(errorStream, -1));
-
-                                            if (p.waitFor() != 0) {
-                                                throw new Exception(errResponse);
-                                            }
-                                        } catch (Exception e) {
-                                            progressIndicator.setText("Error openning file");
-                                            progressIndicator.setText2(ex.getMessage());
+                                    if (open && targetFile.exists()) {
+                                        Desktop.getDesktop().open(targetFile);
+                                    }
+                                } catch (AzureCmdException e) {
+                                    Throwable connectionFault = e.getCause().getCause();
+
+                                    progressIndicator.setText("Error downloading Blob");
+                                    progressIndicator.setText2((connectionFault instanceof SocketTimeoutException) ?
+                                                               "Connection timed out" : connectionFault.getMessage());
+                                } catch (IOException ex) {
+                                    try {
+                                        final Process p;
+                                        Runtime runtime = Runtime.getRuntime();
+                                        p = runtime.exec(
+                                                new String[]{"open", "-R", targetFile.getName()},
+                                                null,
+                                                targetFile.getParentFile());
+
+                                        InputStream errorStream = p.getErrorStream();
+                                        String errResponse = new String(IOUtils.readFully(errorStream, -1));
+
+                                        if (p.waitFor() != 0) {
+                                            throw new Exception(errResponse);
                                         }
+                                    } catch (Exception e) {
+                                        progressIndicator.setText("Error openning file");
+                                        progressIndicator.setText2(ex.getMessage());
                                     }
                                 }
-                            });
+                            }
+                        });
 
-                            while (!future.isDone()) {
-                                progressIndicator.checkCanceled();
+                        while (!future.isDone()) {
+                            progressIndicator.checkCanceled();
 
-                                if (progressIndicator.isCanceled()) {
-                                    future.cancel(true);
-                                }
+                            if (progressIndicator.isCanceled()) {
+                                future.cancel(true);
                             }
-                        } finally {
-                            bufferedOutputStream.close();
                         }
                     } catch (IOException e) {
                         PluginUtil.displayErrorDialogAndLog(message("errTtl"), "An error occurred while attempting to download Blob.", e);
@@ -708,8 +739,6 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
                 try {
                     final BlobDirectory blobDirectory = directoryQueue.peekLast();
 
-                    final BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(selectedFile));
-
                     progressIndicator.setIndeterminate(false);
                     progressIndicator.setText("Uploading blob...");
                     progressIndicator.setText2("0% uploaded");
@@ -730,21 +759,12 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
                         Future<Void> future = ApplicationManager.getApplication().executeOnPooledThread(new Callable<Void>() {
                             @Override
                             public Void call() throws AzureCmdException {
-                                try {
-                                    StorageClientSDKManager.getManager().uploadBlobFileContent(
-                                            connectionString,
-                                            blobContainer,
-                                            path,
-                                            bufferedInputStream,
-                                            callable,
-                                            1024 * 1024,
-                                            selectedFile.length());
-                                } finally {
-                                    try {
-                                        bufferedInputStream.close();
-                                    } catch (IOException ignored) {
-                                    }
-                                }
+                                StorageClientSDKManager.getManager().uploadBlobFileContent(
+                                        connectionString,
+                                        blobContainer,
+                                        path,
+                                        selectedFile,
+                                        callable);
 
                                 return null;
                             }
@@ -756,7 +776,6 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
 
                             if (progressIndicator.isCanceled()) {
                                 future.cancel(true);
-                                bufferedInputStream.close();
 
                                 for (BlobItem blobItem : StorageClientSDKManager.getManager().getBlobItems(connectionString, blobDirectory)) {
                                     if (blobItem instanceof BlobFile && blobItem.getPath().equals(path)) {
@@ -886,6 +905,8 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
 
     @Override
     public void dispose() {
+        fillGeneration++;
+
         try {
             AzureManager azureManager = AuthMethodManager.getInstance().getAzureManager();
             // not signed in
@@ -37,6 +37,8 @@ import com.intellij.openapi.util.Key;
 import com.microsoft.azuretools.azurecommons.helpers.AzureCmdException;
 import com.microsoft.intellij.forms.TableEntityForm;
 import com.microsoft.intellij.forms.TablesQueryDesigner;
+import com.microsoft.intellij.util.PluginUtil;
+import com.microsoft.tooling.msservices.helpers.azure.sdk.TableEntityPager;
 import com.microsoft.tooling.msservices.model.storage.ClientStorageAccount;
 import com.microsoft.tooling.msservices.model.storage.Table;
 import com.microsoft.tooling.msservices.model.storage.TableEntity;
@@ -46,16 +48,19 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
 import java.awt.event.*;
 import java.beans.PropertyChangeListener;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+
+import static com.microsoft.intellij.ui.messages.AzureBundle.message;
 
 public class TableFileEditor implements FileEditor {
     public static final String PARTITION_KEY = "Partition key";
@@ -68,6 +73,8 @@ public class TableFileEditor implements FileEditor {
     private static final String QUERY_DESIGNER = "QueryDesigner";
     private static final String NEW_ENTITY = "NewEntity";
 
+    private static final int PAGE_SIZE = 500;
+
     private ClientStorageAccount storageAccount;
     private Project project;
     private Table table;
@@ -79,7 +86,10 @@ public class TableFileEditor implements FileEditor {
     private JButton queryButton;
     private JButton queryDesignerButton;
     private JTable entitiesTable;
-    private List<TableEntity> tableEntities;
+    private TableEntityPager pager;
+    private EntitiesTableModel entitiesTableModel;
+    private volatile int fillGeneration;
+    private boolean isLoadingPage = false;
 
     private FileEditorVirtualNode fileEditorVirtualNode;
 
@@ -149,6 +159,16 @@ public class TableFileEditor implements FileEditor {
             }
         });
 
+        // Fetch the pages of the rows scrolled into the view
+        if (entitiesTable.getParent() instanceof JViewport) {
+            ((JViewport) entitiesTable.getParent()).addChangeListener(new ChangeListener() {
+                @Override
+                public void stateChanged(ChangeEvent changeEvent) {
+                    loadVisiblePages();
+                }
+            });
+        }
+
         entitiesTable.addKeyListener(new KeyListener() {
             @Override
             public void keyTyped(KeyEvent keyEvent) {
@@ -207,16 +227,15 @@ public class TableFileEditor implements FileEditor {
                 form.setTableName(table.getName());
                 form.setStorageAccount(storageAccount);
                 form.setTableEntity(null);
-                form.setTableEntityList(tableEntities);
+                form.setTableEntityList(pager == null ? new ArrayList<TableEntity>() : pager.getLoadedRows());
 
                 form.setTitle("Add Entity");
 
                 form.setOnFinish(new Runnable() {
                     @Override
                     public void run() {
-                        tableEntities.add(form.getTableEntity());
-
-                        refreshGrid();
+                        // The service decides where the new entity goes in the query order
+                        fillGrid();
                     }
                 });
 
@@ -249,8 +268,12 @@ public class TableFileEditor implements FileEditor {
             form.setOnFinish(new Runnable() {
                 @Override
                 public void run() {
-                    tableEntities.set(entitiesTable.getSelectedRow(), form.getTableEntity());
-                    refreshGrid();
+                    int row = entitiesTable.getSelectedRow();
+
+                    if (pager != null && row >= 0) {
+                        pager.setRowIfLoaded(row, form.getTableEntity());
+                        entitiesTableModel.refresh();
+                    }
                 }
             });
 
@@ -261,69 +284,102 @@ public class TableFileEditor implements FileEditor {
     public void fillGrid() {
         final String queryText = queryTextField.getText();
 
+        // The pages still loading for the previous query are dropped once they arrive
+        fillGeneration++;
+        pager = new TableEntityPager(storageAccount.getConnectionString(), table.getName(), queryText, null,
+                PAGE_SIZE, TableEntityPager.DEFAULT_MAX_PAGES_IN_MEMORY);
+        entitiesTableModel = new EntitiesTableModel(pager);
+        entitiesTable.setModel(entitiesTableModel);
+        isLoadingPage = false;
+
+        for (int i = 0; i != entitiesTable.getColumnCount(); i++) {
+            entitiesTable.getColumnModel().getColumn(i).setPreferredWidth(100);
+        }
+
+        loadVisiblePages();
+    }
+
+    /**
+     * Fetches the next page when the view is scrolled near the last known row, or the page of the first visible row
+     * evicted from memory. One page is fetched at a time, the view is checked again once it arrives.
+     */
+    private void loadVisiblePages() {
+        if (pager == null || isLoadingPage) {
+            return;
+        }
+
+        Rectangle viewRect = entitiesTable.getVisibleRect();
+        int rowCount = pager.getRowCount();
+        int firstRow = Math.max(entitiesTable.rowAtPoint(viewRect.getLocation()), 0);
+        int lastRow = entitiesTable.rowAtPoint(new Point(viewRect.x, viewRect.y + viewRect.height - 1));
+        int visibleRows = Math.max(viewRect.height / Math.max(entitiesTable.getRowHeight(), 1), 1);
+
+        if (lastRow < 0) {
+            lastRow = rowCount - 1;
+        }
+
+        int missingRow = -1;
+
+        for (int row = firstRow; row <= lastRow && row < rowCount; row++) {
+            if (!pager.isPageOfRowLoaded(row)) {
+                missingRow = row;
+                break;
+            }
+        }
+
+        if (missingRow >= 0) {
+            loadPage(missingRow);
+        } else if (!pager.isComplete() && lastRow + visibleRows >= rowCount) {
+            loadPage(-1);
+        }
+    }
+
+    private void loadPage(final int row) {
+        final TableEntityPager loadingPager = pager;
+        final int generation = fillGeneration;
+        isLoadingPage = true;
+
         ProgressManager.getInstance().run(new Task.Backgroundable(project, "Loading entities", false) {
             @Override
             public void run(@NotNull ProgressIndicator progressIndicator) {
                 progressIndicator.setIndeterminate(true);
-                /*try {
-                    tableEntities = StorageClientSDKManager.getManager().getTableEntities(storageAccount, table, queryText);
-                    refreshGrid();
+                boolean isLoaded = true;
+
+                try {
+                    if (row < 0) {
+                        loadingPager.loadNextPage();
+                    } else {
+                        loadingPager.loadPageOf(row);
+                    }
                 } catch (AzureCmdException e) {
+                    isLoaded = false;
                     String msg = "An error occurred while attempting to query entities." + "\n" + String.format(message("webappExpMsg"), e.getMessage());
                     PluginUtil.displayErrorDialogAndLog(message("errTtl"), msg, e);
-                }*/
-            }
-        });
-    }
-
-    private void refreshGrid() {
-        ApplicationManager.getApplication().invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                Map<String, List<String>> columnData = new LinkedHashMap<String, List<String>>();
-                columnData.put(PARTITION_KEY, new ArrayList<String>());
-                columnData.put(ROW_KEY, new ArrayList<String>());
-                columnData.put(TIMESTAMP, new ArrayList<String>());
-
-                for (TableEntity tableEntity : tableEntities) {
-                    columnData.get(PARTITION_KEY).add(tableEntity.getPartitionKey());
-                    columnData.get(ROW_KEY).add(tableEntity.getRowKey());
-                    columnData.get(TIMESTAMP).add(new SimpleDateFormat().format(tableEntity.getTimestamp().getTime()));
-
-                    for (String entityColumn : tableEntity.getProperties().keySet()) {
-                        if (!columnData.keySet().contains(entityColumn)) {
-                            columnData.put(entityColumn, new ArrayList<String>());
-                        }
-                    }
-
                 }
 
-                for (TableEntity tableEntity : tableEntities) {
-                    for (String column : columnData.keySet()) {
-                        if (!column.equals(PARTITION_KEY) && !column.equals(ROW_KEY) && !column.equals(TIMESTAMP)) {
-                            columnData.get(column).add(tableEntity.getProperties().containsKey(column)
-                                    ? getFormattedProperty(tableEntity.getProperties().get(column))
-                                    : "");
-                        }
-                    }
-                }
+                final boolean isLoadedFinal = isLoaded;
 
-                DefaultTableModel model = new DefaultTableModel() {
+                ApplicationManager.getApplication().invokeLater(new Runnable() {
                     @Override
-                    public boolean isCellEditable(int i, int i1) {
-                        return false;
-                    }
-                };
+                    public void run() {
+                        if (generation != fillGeneration) {
+                            return;
+                        }
 
-                for (String column : columnData.keySet()) {
-                    model.addColumn(column, columnData.get(column).toArray());
-                }
+                        isLoadingPage = false;
 
-                entitiesTable.setModel(model);
+                        if (entitiesTableModel.refresh()) {
+                            for (int i = 0; i != entitiesTable.getColumnCount(); i++) {
+                                entitiesTable.getColumnModel().getColumn(i).setPreferredWidth(100);
+                            }
+                        }
 
-                for (int i = 0; i != entitiesTable.getColumnCount(); i++) {
-                    entitiesTable.getColumnModel().getColumn(i).setPreferredWidth(100);
-                }
+                        // Don't retry a failed page over and over, the next scroll or query will
+                        if (isLoadedFinal) {
+                            loadVisiblePages();
+                        }
+                    }
+                });
             }
         });
     }
@@ -347,8 +403,7 @@ public class TableFileEditor implements FileEditor {
                         ApplicationManager.getApplication().invokeLater(new Runnable() {
                             @Override
                             public void run() {
-                                tableEntities.removeAll(Arrays.asList(selectedEntities));
-                                refreshGrid();
+                                fillGrid();
                             }
                         });
                     }
@@ -361,40 +416,108 @@ public class TableFileEditor implements FileEditor {
     }
 
     private TableEntity[] getSelectedEntities() {
-        if (tableEntities == null) {
+        if (pager == null) {
             return null;
         }
 
-        int partitionIdIndex = -1;
-        int rowIdIndex = -1;
+        ArrayList<TableEntity> selectedEntities = new ArrayList<TableEntity>();
 
-        for (int i = 0; i < entitiesTable.getColumnCount(); i++) {
-            String columnName = entitiesTable.getColumnName(i);
+        for (int i : entitiesTable.getSelectedRows()) {
+            TableEntity tableEntity = pager.getRowIfLoaded(i);
 
-            if (columnName.equals(PARTITION_KEY)) {
-                partitionIdIndex = i;
+            if (tableEntity != null) {
+                selectedEntities.add(tableEntity);
             }
+        }
 
-            if (columnName.equals(ROW_KEY)) {
-                rowIdIndex = i;
-            }
+        return selectedEntities.toArray(new TableEntity[selectedEntities.size()]);
+    }
+
+    /**
+     * The table model reading the rows from the pager, the rows not in memory show empty until their page arrives.
+     */
+    private static class EntitiesTableModel extends AbstractTableModel {
+        private final TableEntityPager pager;
+        private List<String> columns;
+        private int rowCount = 0;
+
+        EntitiesTableModel(TableEntityPager pager) {
+            this.pager = pager;
+            this.columns = getColumns(pager);
         }
 
-        ArrayList<TableEntity> selectedEntities = new ArrayList<TableEntity>();
+        private static List<String> getColumns(TableEntityPager pager) {
+            List<String> columns = new ArrayList<String>();
+            columns.add(PARTITION_KEY);
+            columns.add(ROW_KEY);
+            columns.add(TIMESTAMP);
+            columns.addAll(pager.getColumns());
 
-        for (int i : entitiesTable.getSelectedRows()) {
-            for (TableEntity tableEntity : tableEntities) {
-                String partitionValue = entitiesTable.getValueAt(i, partitionIdIndex).toString();
-                String rowIdValue = entitiesTable.getValueAt(i, rowIdIndex).toString();
+            return columns;
+        }
 
-                if (tableEntity.getPartitionKey().equals(partitionValue)
-                        && tableEntity.getRowKey().equals(rowIdValue)) {
-                    selectedEntities.add(tableEntity);
-                }
+        /**
+         * Catches up with the pager, returns true if the columns have changed.
+         */
+        boolean refresh() {
+            List<String> newColumns = getColumns(pager);
+            int newRowCount = pager.getRowCount();
+
+            if (!newColumns.equals(columns)) {
+                columns = newColumns;
+                rowCount = newRowCount;
+                fireTableStructureChanged();
+
+                return true;
+            } else if (newRowCount > rowCount) {
+                int firstNewRow = rowCount;
+                rowCount = newRowCount;
+                fireTableRowsUpdated(0, firstNewRow - 1);
+                fireTableRowsInserted(firstNewRow, newRowCount - 1);
+            } else if (rowCount > 0) {
+                fireTableRowsUpdated(0, rowCount - 1);
             }
+
+            return false;
         }
 
-        return selectedEntities.toArray(new TableEntity[selectedEntities.size()]);
+        @Override
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns.get(column);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            TableEntity tableEntity = pager.getRowIfLoaded(row);
+
+            if (tableEntity == null) {
+                return "";
+            }
+
+            String key = columns.get(column);
+
+            if (key.equals(PARTITION_KEY)) {
+                return tableEntity.getPartitionKey();
+            } else if (key.equals(ROW_KEY)) {
+                return tableEntity.getRowKey();
+            } else if (key.equals(TIMESTAMP)) {
+                return new SimpleDateFormat().format(tableEntity.getTimestamp().getTime());
+            } else {
+                return tableEntity.getProperties().containsKey(key)
+                        ? getFormattedProperty(tableEntity.getProperties().get(key))
+                        : "";
+            }
+        }
     }
 
     @NotNull
@@ -505,6 +628,8 @@ public class TableFileEditor implements FileEditor {
 
     @Override
     public void dispose() {
+        fillGeneration++;
+
         try {
             unregisterSubscriptionsChanged();
         } catch (AzureCmdException ignored) {
@@ -152,7 +152,7 @@ public class WebAppRunState extends AzureRunProfileState<WebAppBase> {
         }
 
         final WebApp webApp = AzureWebAppMvpModel.getInstance()
-            .getWebAppById(webAppSettingModel.getSubscriptionId(), webAppSettingModel.getWebAppId());
+            .getFreshWebAppById(webAppSettingModel.getSubscriptionId(), webAppSettingModel.getWebAppId());
         if (webApp == null) {
             processHandler.setText(STOP_DEPLOY);
             throw new Exception(NO_WEB_APP);
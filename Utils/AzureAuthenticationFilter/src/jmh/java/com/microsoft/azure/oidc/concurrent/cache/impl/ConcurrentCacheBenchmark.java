@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.concurrent.cache.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+
+/**
+ * Compares {@link TTLConcurrentCache} with {@link LRUConcurrentCache} on the role cache workload: 64 filter threads
+ * looking up user/role keys, mostly hits, with a miss inserting the key. Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class ConcurrentCacheBenchmark {
+    private static final long TTL_MINUTES = 30L;
+    private static final long MAX_SIZE = 1000L;
+
+    @Param({ "TTLConcurrentCache", "LRUConcurrentCache" })
+    private String implementation;
+
+    /** Number of distinct keys requested; above the cache size some lookups miss and evict. */
+    @Param({ "800", "2000" })
+    private int keyCount;
+
+    private ConcurrentCache<String, Boolean> cache;
+    private String[] keys;
+
+    @SuppressWarnings("deprecation")
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = "TTLConcurrentCache".equals(implementation)
+                ? new TTLConcurrentCache<String, Boolean>(TTL_MINUTES, MAX_SIZE)
+                : new LRUConcurrentCache<String, Boolean>(TTL_MINUTES, MAX_SIZE);
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = String.format("user-%s:role-%s", i, i % 3);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.shutdownNow();
+    }
+
+    @Benchmark
+    public Boolean getOrPut() {
+        final String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        final Boolean value = cache.get(key);
+        if (value != null) {
+            return value;
+        }
+        cache.putIfAbsent(key, Boolean.TRUE);
+        return Boolean.TRUE;
+    }
+}
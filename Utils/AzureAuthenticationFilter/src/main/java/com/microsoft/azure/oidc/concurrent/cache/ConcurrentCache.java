@@ -28,6 +28,8 @@ public interface ConcurrentCache<K, V> {
 
     V putIfAbsent(K key, V value);
 
+    ConcurrentCacheStatistics getStatistics();
+
     void shutdownNow();
 
 }
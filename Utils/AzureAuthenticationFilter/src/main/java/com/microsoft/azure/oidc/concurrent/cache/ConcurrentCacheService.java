@@ -22,12 +22,18 @@
 
 package com.microsoft.azure.oidc.concurrent.cache;
 
+import java.util.Map;
+
 public interface ConcurrentCacheService {
 
     <V> ConcurrentCache<String, V> createCache(Class<V> clazzV, String name, Long ttl, Long maxSize);
 
     <V> ConcurrentCache<String, V> getCache(Class<V> clazzV, String name);
 
+    ConcurrentCacheStatistics getStatistics(String name);
+
+    Map<String, ConcurrentCacheStatistics> getStatistics();
+
     void shutdownNow();
 
 }
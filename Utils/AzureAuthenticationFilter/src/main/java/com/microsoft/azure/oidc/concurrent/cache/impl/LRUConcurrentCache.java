@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.concurrent.cache.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheStatistics;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+
+/**
+ * Size bounded cache whose entries expire a fixed time after they were added.
+ * <p>
+ * Reads never take a lock: an expired entry is removed by the reader that finds it. Entries are also kept in a
+ * queue in insertion order; when the cache is over its size the queue head is evicted, unless it was read since it
+ * was last looked at, in which case it gets a second chance at the tail (an approximation of LRU). Every insert
+ * adds one queue node and every eviction step removes one, so both are O(1) amortized. A background task sweeps
+ * expired entries and stale queue nodes in batches once a minute.
+ */
+public final class LRUConcurrentCache<K, V> implements ConcurrentCache<K, V> {
+    private static final int SWEEP_BATCH_SIZE = 256;
+
+    private final ConcurrentMap<K, Node<K, V>> storeMap = new ConcurrentHashMap<K, Node<K, V>>();
+    private final ConcurrentLinkedQueue<Node<K, V>> evictionQueue = new ConcurrentLinkedQueue<Node<K, V>>();
+    private final AtomicInteger evictionQueueLength = new AtomicInteger();
+    // Daemon, so that a cache nobody shuts down doesn't keep the JVM or the web application alive
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "oidc-cache-sweep");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+    private final Long ttl;
+    private final Long maxSize;
+
+    public LRUConcurrentCache(final Long ttl, final Long maxSize) {
+        if (ttl == null || maxSize == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        if (maxSize <= 0) {
+            throw new PreconditionException("Cache size must be positive");
+        }
+        this.ttl = ttl * 60000;
+        this.maxSize = maxSize;
+        scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public V get(final Object key) {
+        final Node<K, V> node = storeMap.get(key);
+        if (node == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (isExpired(node, System.currentTimeMillis())) {
+            if (storeMap.remove(key, node)) {
+                expirationCount.incrementAndGet();
+            }
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (!node.accessed) {
+            node.accessed = true;
+        }
+        hitCount.incrementAndGet();
+        return node.value;
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        if (key == null || value == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Node<K, V> node = new Node<K, V>(key, value, System.currentTimeMillis());
+        while (true) {
+            final Node<K, V> existing = storeMap.putIfAbsent(key, node);
+            if (existing == null) {
+                break;
+            }
+            if (!isExpired(existing, node.createdAt)) {
+                return existing.value;
+            }
+            if (storeMap.replace(key, existing, node)) {
+                expirationCount.incrementAndGet();
+                break;
+            }
+        }
+        evictionQueue.offer(node);
+        evictionQueueLength.incrementAndGet();
+        evictIfNecessary(node.createdAt);
+        return null;
+    }
+
+    @Override
+    public ConcurrentCacheStatistics getStatistics() {
+        return new SimpleConcurrentCacheStatistics(hitCount.get(), missCount.get(), evictionCount.get(),
+                expirationCount.get(), (long) storeMap.size());
+    }
+
+    @Override
+    public void shutdownNow() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    private void evictIfNecessary(final long now) {
+        // Bounded so that readers setting the accessed flag concurrently can never keep an insert spinning.
+        int secondChances = evictionQueueLength.get();
+        while (storeMap.size() > maxSize) {
+            final Node<K, V> node = evictionQueue.poll();
+            if (node == null) {
+                return;
+            }
+            evictionQueueLength.decrementAndGet();
+            if (storeMap.get(node.key) != node) {
+                continue;
+            }
+            if (node.accessed && !isExpired(node, now) && secondChances-- > 0) {
+                node.accessed = false;
+                evictionQueue.offer(node);
+                evictionQueueLength.incrementAndGet();
+                continue;
+            }
+            if (storeMap.remove(node.key, node)) {
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void sweep() {
+        final long now = System.currentTimeMillis();
+        int batch = 0;
+        final Iterator<Node<K, V>> queueIterator = evictionQueue.iterator();
+        while (queueIterator.hasNext()) {
+            final Node<K, V> node = queueIterator.next();
+            final boolean isCurrent = storeMap.get(node.key) == node;
+            if (isCurrent && !isExpired(node, now)) {
+                continue;
+            }
+            if (isCurrent && storeMap.remove(node.key, node)) {
+                expirationCount.incrementAndGet();
+            }
+            queueIterator.remove();
+            evictionQueueLength.decrementAndGet();
+            if (++batch % SWEEP_BATCH_SIZE == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    private boolean isExpired(final Node<K, V> node, final long now) {
+        return node.createdAt < now - ttl;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long createdAt;
+        private volatile boolean accessed;
+
+        Node(final K key, final V value, final long createdAt) {
+            this.key = key;
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
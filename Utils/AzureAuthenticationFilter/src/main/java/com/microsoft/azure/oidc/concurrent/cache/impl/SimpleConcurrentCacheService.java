@@ -24,10 +24,12 @@ package com.microsoft.azure.oidc.concurrent.cache.impl;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheFactory;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheStatistics;
 
 public class SimpleConcurrentCacheService implements ConcurrentCacheService {
     private final static ConcurrentCacheService INSTANCE = new SimpleConcurrentCacheService();
@@ -35,13 +37,16 @@ public class SimpleConcurrentCacheService implements ConcurrentCacheService {
     private final ConcurrentCacheFactory<String, Object> concurrentCacheFactory = SimpleConcurrentCacheFactory
             .getInstance(String.class, Object.class);
 
-    private final Map<String, ConcurrentCache<String, Object>> cacheMap = new HashMap<String, ConcurrentCache<String, Object>>();
+    private final Map<String, ConcurrentCache<String, Object>> cacheMap = new ConcurrentHashMap<String, ConcurrentCache<String, Object>>();
 
     @SuppressWarnings("unchecked")
     @Override
     public <V> ConcurrentCache<String, V> createCache(Class<V> clazzV, String name, Long ttl, Long maxSize) {
         final ConcurrentCache<String, Object> concurrentCache = concurrentCacheFactory.createConcurrentCache(ttl, maxSize);
-        cacheMap.put(name, concurrentCache);
+        final ConcurrentCache<String, Object> previous = cacheMap.put(name, concurrentCache);
+        if (previous != null) {
+            previous.shutdownNow();
+        }
         return (ConcurrentCache<String, V>) concurrentCache;
     }
 
@@ -51,6 +56,21 @@ public class SimpleConcurrentCacheService implements ConcurrentCacheService {
         return (ConcurrentCache<String, V>) cacheMap.get(name);
     }
 
+    @Override
+    public ConcurrentCacheStatistics getStatistics(String name) {
+        final ConcurrentCache<String, Object> concurrentCache = cacheMap.get(name);
+        return concurrentCache == null ? null : concurrentCache.getStatistics();
+    }
+
+    @Override
+    public Map<String, ConcurrentCacheStatistics> getStatistics() {
+        final Map<String, ConcurrentCacheStatistics> statistics = new HashMap<String, ConcurrentCacheStatistics>();
+        for (final Map.Entry<String, ConcurrentCache<String, Object>> entry : cacheMap.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
     @Override
     public void shutdownNow() {
         for(@SuppressWarnings("rawtypes") final ConcurrentCache cache: cacheMap.values()) {
@@ -30,14 +30,24 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheStatistics;
 
+/**
+ * @deprecated Every read and write takes the same monitor; use {@link LRUConcurrentCache}.
+ */
+@Deprecated
 public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
     private final ConcurrentMap<K, V> storeMap = new ConcurrentHashMap<K, V>();
     private final ConcurrentMap<K, Long> timestampMap = new ConcurrentHashMap<K, Long>();
     private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
     private final List<K> oldestKey = new LinkedList<K>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
     private final Long ttl;
     private final Long maxSize;
 
@@ -55,6 +65,7 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
                             timestampMap.remove(key);
                             storeMap.remove(key);
                             iterator.remove();
+                            expirationCount.incrementAndGet();
                         }
                         break;
                     }
@@ -66,7 +77,9 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
     @Override
     public V get(Object key) {
         removeIfExpired(key);
-        return storeMap.get(key);
+        final V value = storeMap.get(key);
+        (value == null ? missCount : hitCount).incrementAndGet();
+        return value;
     }
 
     @Override
@@ -77,6 +90,7 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
                 timestampMap.remove(oldest);
                 storeMap.remove(oldest);
                 oldestKey.remove(0);
+                evictionCount.incrementAndGet();
             }
             if (!oldestKey.contains(key)) {
                 oldestKey.add(key);
@@ -86,6 +100,12 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
         }
     }
 
+    @Override
+    public ConcurrentCacheStatistics getStatistics() {
+        return new SimpleConcurrentCacheStatistics(hitCount.get(), missCount.get(), evictionCount.get(),
+                expirationCount.get(), (long) storeMap.size());
+    }
+
     @Override
     public void shutdownNow() {
         scheduledExecutorService.shutdownNow();
@@ -97,6 +117,7 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
                 timestampMap.remove(key);
                 storeMap.remove(key);
                 oldestKey.remove(key);
+                expirationCount.incrementAndGet();
             }
         }
     }
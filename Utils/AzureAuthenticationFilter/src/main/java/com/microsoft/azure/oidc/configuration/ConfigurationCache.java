@@ -22,8 +22,14 @@
 
 package com.microsoft.azure.oidc.configuration;
 
+import com.microsoft.azure.oidc.common.name.Name;
+
 public interface ConfigurationCache {
 
     Configuration load();
 
+    Configuration loadForUnknownKey(Name keyName);
+
+    void shutdownNow();
+
 }
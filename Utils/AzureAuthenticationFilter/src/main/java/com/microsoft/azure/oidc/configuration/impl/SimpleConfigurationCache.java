@@ -22,38 +22,170 @@
 
 package com.microsoft.azure.oidc.configuration.impl;
 
-import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
-import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.ConfigurationLoader;
-import com.microsoft.azure.oidc.future.FutureHelper;
-import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
+import com.microsoft.azure.oidc.exception.PreconditionException;
 
+/**
+ * Holds the current OpenID configuration and key set and refreshes it in the background before it goes stale.
+ * <p>
+ * A cold load and every refresh go through a single in-flight task, so concurrent callers wait on one metadata
+ * fetch instead of each starting their own. A failed refresh keeps the previous configuration serving and is
+ * retried shortly after. A token signed with an unknown key id triggers an early refresh, at most once every
+ * few minutes so that forged key ids cannot hammer the metadata endpoint.
+ */
 public class SimpleConfigurationCache implements ConfigurationCache {
     private static final ConfigurationCache INSTANCE = new SimpleConfigurationCache();
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleConfigurationCache.class);
+    private static final long REFRESH_INTERVAL_MINUTES = 50L;
+    private static final long RETRY_INTERVAL_MINUTES = 1L;
+    private static final long UNKNOWN_KEY_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5L);
 
     private final ConfigurationLoader configurationLoader = SimpleConfigurationLoader.getInstance();
 
-    private final FutureHelper futureHelper = SimpleFutureHelper.getInstance();
+    private final AtomicReference<Configuration> configuration = new AtomicReference<Configuration>();
+
+    private final AtomicReference<FutureTask<Configuration>> inFlightLoad = new AtomicReference<FutureTask<Configuration>>();
 
-    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+    private final AtomicLong lastUnknownKeyRefresh = new AtomicLong();
+
+    private ScheduledExecutorService refreshExecutorService;
+
+    private ScheduledFuture<?> nextRefresh;
 
     @Override
     public Configuration load() {
-        final String key = "SINGLE";
-        final Configuration entry = concurrentCacheService.getCache(Configuration.class, "configurationCache").get(key);
-        if (entry != null) {
-            return entry;
+        final Configuration current = configuration.get();
+        if (current != null) {
+            return current;
+        }
+        return loadOnce();
+    }
+
+    @Override
+    public Configuration loadForUnknownKey(final Name keyName) {
+        if (keyName == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Configuration current = load();
+        if (current == null || current.getKey(keyName) != null) {
+            return current;
+        }
+        final FutureTask<Configuration> inFlight = inFlightLoad.get();
+        if (inFlight != null) {
+            return orCurrent(await(inFlight));
+        }
+        final long now = System.currentTimeMillis();
+        final long last = lastUnknownKeyRefresh.get();
+        if (now - last < UNKNOWN_KEY_REFRESH_INTERVAL_MILLIS || !lastUnknownKeyRefresh.compareAndSet(last, now)) {
+            return current;
+        }
+        LOGGER.info("Refreshing configuration for unknown key " + keyName);
+        return orCurrent(loadOnce());
+    }
+
+    @Override
+    public synchronized void shutdownNow() {
+        if (refreshExecutorService != null) {
+            refreshExecutorService.shutdownNow();
+            refreshExecutorService = null;
+            nextRefresh = null;
+        }
+    }
+
+    private Configuration loadOnce() {
+        while (true) {
+            final FutureTask<Configuration> inFlight = inFlightLoad.get();
+            if (inFlight != null) {
+                return await(inFlight);
+            }
+            final FutureTask<Configuration> task = new FutureTask<Configuration>(new Callable<Configuration>() {
+                @Override
+                public Configuration call() throws Exception {
+                    return loadAndSchedule();
+                }
+            });
+            if (inFlightLoad.compareAndSet(null, task)) {
+                try {
+                    task.run();
+                } finally {
+                    inFlightLoad.compareAndSet(task, null);
+                }
+                return await(task);
+            }
         }
-        final Configuration result = futureHelper.getResult(configurationLoader.loadAsync());
-        if (result == null) {
-            return result;
+    }
+
+    private Configuration loadAndSchedule() {
+        final Configuration result = configurationLoader.load();
+        if (result != null) {
+            configuration.set(result);
+            scheduleRefresh(REFRESH_INTERVAL_MINUTES);
+        } else if (configuration.get() != null) {
+            LOGGER.warn("Configuration refresh failed, keeping the previous configuration");
+            scheduleRefresh(RETRY_INTERVAL_MINUTES);
         }
-        concurrentCacheService.getCache(Configuration.class, "configurationCache").putIfAbsent(key, result);
         return result;
     }
 
+    private synchronized void scheduleRefresh(final long delayMinutes) {
+        if (Thread.currentThread().isInterrupted()) {
+            // A refresh interrupted by shutdownNow must not start the refresher again.
+            return;
+        }
+        if (refreshExecutorService == null) {
+            refreshExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "oidc-configuration-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        nextRefresh = refreshExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                loadOnce();
+            }
+        }, delayMinutes, TimeUnit.MINUTES);
+    }
+
+    private Configuration await(final FutureTask<Configuration> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        return null;
+    }
+
+    private Configuration orCurrent(final Configuration result) {
+        return result == null ? configuration.get() : result;
+    }
+
     public static ConfigurationCache getInstance() {
         return INSTANCE;
     }
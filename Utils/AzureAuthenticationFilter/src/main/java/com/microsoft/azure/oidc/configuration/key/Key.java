@@ -22,6 +22,8 @@
 
 package com.microsoft.azure.oidc.configuration.key;
 
+import java.security.PublicKey;
+
 import com.microsoft.azure.oidc.common.timestamp.TimeStamp;
 import com.microsoft.azure.oidc.configuration.key.exponent.Exponent;
 import com.microsoft.azure.oidc.configuration.key.modulus.Modulus;
@@ -34,6 +36,8 @@ public interface Key {
 
     Exponent getExponent();
 
+    PublicKey getPublicKey();
+
     boolean equals(Object object);
 
     int hashCode();
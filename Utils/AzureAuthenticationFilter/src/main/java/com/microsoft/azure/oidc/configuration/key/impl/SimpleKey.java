@@ -22,6 +22,8 @@
 
 package com.microsoft.azure.oidc.configuration.key.impl;
 
+import java.security.PublicKey;
+
 import com.microsoft.azure.oidc.common.timestamp.TimeStamp;
 import com.microsoft.azure.oidc.configuration.key.Key;
 import com.microsoft.azure.oidc.configuration.key.exponent.Exponent;
@@ -32,14 +34,17 @@ final class SimpleKey implements Key {
     private final TimeStamp notBefore;
     private final Modulus secret;
     private final Exponent exponent;
+    private final PublicKey publicKey;
 
-    public SimpleKey(final TimeStamp notBefore, final Modulus secret, final Exponent exponent) {
+    public SimpleKey(final TimeStamp notBefore, final Modulus secret, final Exponent exponent,
+            final PublicKey publicKey) {
         if (notBefore == null || secret == null || exponent == null) {
             throw new PreconditionException("Required parameter is null");
         }
         this.notBefore = notBefore;
         this.secret = secret;
         this.exponent = exponent;
+        this.publicKey = publicKey;
     }
 
     @Override
@@ -57,6 +62,11 @@ final class SimpleKey implements Key {
         return exponent;
     }
 
+    @Override
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
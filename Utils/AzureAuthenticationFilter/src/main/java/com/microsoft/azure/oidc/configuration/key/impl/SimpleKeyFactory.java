@@ -22,6 +22,16 @@
 
 package com.microsoft.azure.oidc.configuration.key.impl;
 
+import java.math.BigInteger;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.RSAPublicKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.microsoft.azure.oidc.common.timestamp.TimeStamp;
 import com.microsoft.azure.oidc.configuration.key.Key;
 import com.microsoft.azure.oidc.configuration.key.KeyFactory;
@@ -31,13 +41,33 @@ import com.microsoft.azure.oidc.exception.PreconditionException;
 
 public final class SimpleKeyFactory implements KeyFactory {
     private static final KeyFactory INSTANCE = new SimpleKeyFactory();
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleKeyFactory.class);
+    private static final String KEY_ALGORITHM = "RSA";
 
     @Override
     public Key createKey(final TimeStamp notBefore, final Modulus secret, final Exponent exponent) {
         if (notBefore == null || secret == null || exponent == null) {
             throw new PreconditionException("Required parameter is null");
         }
-        return new SimpleKey(notBefore, secret, exponent);
+        return new SimpleKey(notBefore, secret, exponent, createPublicKey(secret, exponent));
+    }
+
+    /**
+     * Builds the RSA public key once when the key set is loaded, so that validating a token signature does not
+     * need to decode the modulus and exponent again. A key that cannot be built is kept with a null public key and
+     * every signature checked against it fails.
+     */
+    private PublicKey createPublicKey(final Modulus secret, final Exponent exponent) {
+        try {
+            final Base64 decoder = new Base64();
+            final BigInteger modulusValue = new BigInteger(1, decoder.decode(secret.getValue()));
+            final BigInteger exponentValue = new BigInteger(1, decoder.decode(exponent.getValue()));
+            return java.security.KeyFactory.getInstance(KEY_ALGORITHM)
+                    .generatePublic(new RSAPublicKeySpec(modulusValue, exponentValue));
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
     }
 
     public static KeyFactory getInstance() {
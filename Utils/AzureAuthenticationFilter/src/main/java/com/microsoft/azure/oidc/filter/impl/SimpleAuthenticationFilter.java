@@ -35,7 +35,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
 import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
-import com.microsoft.azure.oidc.configuration.Configuration;
+import com.microsoft.azure.oidc.configuration.ConfigurationCache;
+import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
@@ -65,9 +66,12 @@ public final class SimpleAuthenticationFilter implements Filter {
 
     private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
 
+    private final ConfigurationCache configurationCache = SimpleConfigurationCache.getInstance();
+
     @Override
     public void destroy() {
         concurrentCacheService.shutdownNow();
+        configurationCache.shutdownNow();
     }
 
     @Override
@@ -110,7 +114,6 @@ public final class SimpleAuthenticationFilter implements Filter {
             concurrentCacheService.createCache(Boolean.class, "roleCache", 30L,
                     Long.parseLong(securityCacheSizeString));
         }
-        concurrentCacheService.createCache(Configuration.class, "configurationCache", 60L, 1L);
         authenticationConfigurationService.initialise(filterConfig, AUTHENTICATION_CONFIGURATION);
         algorithmConfigurationService.initialise(filterConfig, ALGORITHM_CONFIGURATION);
     }
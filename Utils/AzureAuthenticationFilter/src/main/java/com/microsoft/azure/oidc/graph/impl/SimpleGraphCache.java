@@ -22,8 +22,17 @@
 
 package com.microsoft.azure.oidc.graph.impl;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
 import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
+import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfigurationService;
+import com.microsoft.azure.oidc.filter.configuration.authentication.impl.SimpleAuthenticationConfigurationService;
 import com.microsoft.azure.oidc.future.FutureHelper;
 import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
 import com.microsoft.azure.oidc.graph.GraphCache;
@@ -38,19 +47,44 @@ public class SimpleGraphCache implements GraphCache {
 
     private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
 
+    private final AuthenticationConfigurationService authenticationConfigurationService = SimpleAuthenticationConfigurationService
+            .getInstance();
+
     @Override
     public Boolean isUserInRole(String userID, String role) {
-        final String key = String.format("%s:%s", userID, role);
-        final Boolean entry = concurrentCacheService.getCache(Boolean.class, "roleCache").get(key);
+        final ConcurrentCache<String, Boolean> roleCache = concurrentCacheService.getCache(Boolean.class, "roleCache");
+        final Boolean entry = roleCache.get(getKey(userID, role));
         if (entry != null) {
             return entry;
         }
-        final Boolean result = futureHelper.getResult(springGraphService.isUserInRoleAsync(userID, role));
+        // One membership query answers every role the filter may check, so resolve them all at once.
+        final Set<String> roles = new LinkedHashSet<String>();
+        roles.add(role);
+        roles.addAll(getConfiguredRoles());
+        final Map<String, Boolean> result = futureHelper.getResult(springGraphService.getUserRolesAsync(userID, roles));
         if (result == null) {
-            return result;
+            return null;
+        }
+        for (final Map.Entry<String, Boolean> roleEntry : result.entrySet()) {
+            roleCache.putIfAbsent(getKey(userID, roleEntry.getKey()), roleEntry.getValue());
         }
-        concurrentCacheService.getCache(Boolean.class, "roleCache").putIfAbsent(key, result);
-        return result;
+        return result.get(role);
+    }
+
+    private Set<String> getConfiguredRoles() {
+        final Set<String> roles = new LinkedHashSet<String>();
+        final AuthenticationConfiguration authenticationConfiguration = authenticationConfigurationService.get();
+        if (authenticationConfiguration == null || authenticationConfiguration.getAuthorisationRoleMap() == null) {
+            return roles;
+        }
+        for (final List<String> roleNames : authenticationConfiguration.getAuthorisationRoleMap().values()) {
+            roles.addAll(roleNames);
+        }
+        return roles;
+    }
+
+    private String getKey(final String userID, final String role) {
+        return String.format("%s:%s", userID, role);
     }
 
     public static GraphCache getInstance() {
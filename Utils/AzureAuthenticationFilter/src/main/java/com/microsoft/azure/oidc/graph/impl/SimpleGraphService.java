@@ -22,15 +22,32 @@
 
 package com.microsoft.azure.oidc.graph.impl;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -39,152 +56,320 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
-import com.microsoft.azure.oidc.application.settings.Secret;
 import com.microsoft.azure.oidc.application.settings.Tenant;
 import com.microsoft.azure.oidc.application.settings.impl.SimpleApplicationSettingsLoader;
-import com.microsoft.azure.oidc.common.id.ID;
 import com.microsoft.azure.oidc.exception.GeneralException;
+import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.graph.GraphService;
+import com.microsoft.azure.oidc.graph.GraphServiceStatistics;
 
+/**
+ * Resolves role membership against the Azure AD Graph API.
+ * <p>
+ * The application's bearer token is kept until shortly before it expires and group display names are mapped to
+ * object ids once per {@link #GROUP_ID_TTL_MILLIS}. All roles of a user are answered from a single
+ * {@code getMemberGroups} call, and concurrent lookups for the same user share that call. Requests run on a small
+ * shared pool over HTTPS connections that the JDK keeps alive between calls; a lookup that fails completes with
+ * {@code null} so the failure is not cached as a denial.
+ */
 public final class SimpleGraphService implements GraphService {
     private static final GraphService INSTANCE = new SimpleGraphService();
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleGraphService.class);
+    private static final ObjectReader JSON_READER = new ObjectMapper().reader();
+    private static final String GRAPH_RESOURCE = "https://graph.windows.net";
+    private static final String NO_GROUP_ID = "";
+    private static final int THREAD_COUNT = 8;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+    private static final long TOKEN_EXPIRY_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5L);
+    private static final long GROUP_ID_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30L);
 
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
 
+    private final ExecutorService executorService = createExecutorService();
+
+    private final ConcurrentMap<String, RoleLookup> inFlightLookups = new ConcurrentHashMap<String, RoleLookup>();
+
+    private final ConcurrentMap<String, ExpiringValue> groupIDs = new ConcurrentHashMap<String, ExpiringValue>();
+
+    private final Object bearerTokenLock = new Object();
+
+    private volatile ExpiringValue bearerToken;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong tokenRequestCount = new AtomicLong();
+    private final AtomicLong collapsedLookupCount = new AtomicLong();
+
     @Override
     public Future<Boolean> isUserInRoleAsync(final String userID, final String role) {
-        final ExecutorService executorService = Executors.newSingleThreadExecutor();
-        final Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
-            public Boolean call() throws Exception {
-                return isUserInRole(userID, role);
+        if (userID == null || role == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Set<String> roles = new HashSet<String>();
+        roles.add(role);
+        final Future<Map<String, Boolean>> rolesFuture = getUserRolesAsync(userID, roles);
+        return new Future<Boolean>() {
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                return rolesFuture.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return rolesFuture.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return rolesFuture.isDone();
+            }
+
+            @Override
+            public Boolean get() throws InterruptedException, ExecutionException {
+                return getRole(rolesFuture.get(), role);
+            }
+
+            @Override
+            public Boolean get(final long timeout, final TimeUnit unit)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                return getRole(rolesFuture.get(timeout, unit), role);
+            }
+        };
+    }
+
+    @Override
+    public Future<Map<String, Boolean>> getUserRolesAsync(final String userID, final Collection<String> roles) {
+        if (userID == null || roles == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Set<String> requestedRoles = new LinkedHashSet<String>(roles);
+        final FutureTask<Map<String, Boolean>> task = new FutureTask<Map<String, Boolean>>(
+                new Callable<Map<String, Boolean>>() {
+                    public Map<String, Boolean> call() throws Exception {
+                        return getUserRoles(userID, requestedRoles);
+                    }
+                });
+        final RoleLookup lookup = new RoleLookup(requestedRoles, task);
+        final RoleLookup inFlight = inFlightLookups.putIfAbsent(userID, lookup);
+        if (inFlight != null && inFlight.roles.containsAll(requestedRoles)) {
+            collapsedLookupCount.incrementAndGet();
+            return inFlight.task;
+        }
+        // A lookup already running for other roles is left alone; this one runs on its own.
+        final boolean isRegistered = inFlight == null;
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    if (isRegistered) {
+                        inFlightLookups.remove(userID, lookup);
+                    }
+                }
             }
         });
-        executorService.shutdown();
-        return future;
+        return task;
+    }
+
+    @Override
+    public GraphServiceStatistics getStatistics() {
+        final long requests = requestCount.get();
+        final long averageLatencyNanos = requests == 0 ? 0 : totalLatencyNanos.get() / requests;
+        return new SimpleGraphServiceStatistics(requests, failureCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(averageLatencyNanos), TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()),
+                tokenRequestCount.get(), collapsedLookupCount.get());
     }
 
-    private Boolean isUserInRole(final String userID, final String role) {
+    private static Boolean getRole(final Map<String, Boolean> roles, final String role) {
+        return roles == null ? null : roles.get(role);
+    }
+
+    private Map<String, Boolean> getUserRoles(final String userID, final Set<String> roles) {
         try {
             final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
-            final String bearerToken = getBearerToken(applicationSettings.getTenant(),
-                    applicationSettings.getPrincipalId(), applicationSettings.getPrincipalSecret());
-            final String roleID = getGroupID(applicationSettings.getTenant(), role, bearerToken);
-            if (roleID == null) {
-                return Boolean.FALSE;
+            final Tenant tenant = applicationSettings.getTenant();
+            final String token = getBearerToken(applicationSettings);
+            final Set<String> memberGroupIDs = getMemberGroupIDs(tenant, userID, token);
+            final Map<String, Boolean> result = new HashMap<String, Boolean>();
+            for (final String role : roles) {
+                final String groupID = getGroupID(tenant, role, token);
+                result.put(role, groupID != null && memberGroupIDs.contains(groupID));
             }
-            return isUserInGroup(applicationSettings.getTenant(), userID, roleID, bearerToken);
+            return result;
+        } catch (IOException e) {
+            LOGGER.error("IO Exception", e);
+            return null;
         } catch (GeneralException e) {
             LOGGER.error("General Exception", e);
-            return Boolean.FALSE;
+            return null;
         } catch (RuntimeException e) {
             LOGGER.error(e.getMessage(), e);
-            return Boolean.FALSE;
+            return null;
         }
     }
 
-    private Boolean isUserInGroup(final Tenant tenant, final String userID, final String groupID,
-            final String bearerToken) {
-        try {
-            final String urlString = String.format("https://graph.windows.net/%s/isMemberOf?api-version=1.6",
-                    tenant.getName());
-            final String payload = String.format("{\"groupId\":\"%s\",\"memberId\":\"%s\"}", groupID, userID);
-            final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.getOutputStream().write(payload.getBytes());
-            connection.getOutputStream().flush();
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
-                }
+    private Set<String> getMemberGroupIDs(final Tenant tenant, final String userID, final String token)
+            throws IOException {
+        final String urlString = String.format("%s/%s/users/%s/getMemberGroups?api-version=1.6", GRAPH_RESOURCE,
+                tenant.getName(), URLEncoder.encode(userID, "UTF-8"));
+        final JsonNode node = send("POST", urlString, "application/json", "{\"securityEnabledOnly\":false}", token);
+        final Set<String> groupIDs = new HashSet<String>();
+        for (final JsonNode groupNode : node.get("value")) {
+            groupIDs.add(groupNode.asText());
+        }
+        return groupIDs;
+    }
+
+    private String getGroupID(final Tenant tenant, final String group, final String token) throws IOException {
+        final ExpiringValue cached = groupIDs.get(group);
+        if (cached != null && !cached.isExpired()) {
+            return NO_GROUP_ID.equals(cached.value) ? null : cached.value;
+        }
+        final String urlString = String.format("%s/%s/groups?$filter=displayName%%20eq%%20'%s'&api-version=1.6",
+                GRAPH_RESOURCE, tenant.getName(), URLEncoder.encode(group, "UTF-8"));
+        final JsonNode node = send("GET", urlString, null, null, token);
+        String groupID = null;
+        for (final JsonNode groupNode : node.get("value")) {
+            groupID = groupNode.get("objectId").asText();
+            break;
+        }
+        groupIDs.put(group, new ExpiringValue(groupID == null ? NO_GROUP_ID : groupID,
+                System.currentTimeMillis() + GROUP_ID_TTL_MILLIS));
+        return groupID;
+    }
+
+    private String getBearerToken(final ApplicationSettings applicationSettings) throws IOException {
+        final ExpiringValue current = bearerToken;
+        if (current != null && !current.isExpired()) {
+            return current.value;
+        }
+        synchronized (bearerTokenLock) {
+            if (bearerToken != null && !bearerToken.isExpired()) {
+                return bearerToken.value;
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            return node.get("value").asBoolean();
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return Boolean.FALSE;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return Boolean.FALSE;
+            tokenRequestCount.incrementAndGet();
+            final String payload = String.format(
+                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s",
+                    applicationSettings.getPrincipalId().getValue(),
+                    URLEncoder.encode(applicationSettings.getPrincipalSecret().getValue(), "UTF-8"),
+                    URLEncoder.encode(GRAPH_RESOURCE, "UTF-8"));
+            final String urlString = String.format("https://login.microsoftonline.com/%s/oauth2/token",
+                    applicationSettings.getTenant().getName());
+            final JsonNode node = send("POST", urlString, "application/x-www-form-urlencoded", payload, null);
+            final long expiresInMillis = TimeUnit.SECONDS.toMillis(node.has("expires_in") ? node.get("expires_in").asLong() : 0L);
+            final ExpiringValue token = new ExpiringValue(node.get("access_token").asText(),
+                    System.currentTimeMillis() + expiresInMillis - TOKEN_EXPIRY_MARGIN_MILLIS);
+            bearerToken = token;
+            return token.value;
         }
     }
 
-    private String getGroupID(final Tenant tenant, final String group, final String bearerToken) {
+    private JsonNode send(final String method, final String urlString, final String contentType,
+            final String payload, final String token) throws IOException {
+        final long start = System.nanoTime();
+        requestCount.incrementAndGet();
+        boolean isSuccess = false;
         try {
-            final String urlString = String.format(
-                    "https://graph.windows.net/%s/groups?$filter=displayName%%20eq%%20'%s'&api-version=1.6",
-                    tenant.getName(), URLEncoder.encode(group, "UTF-8"));
-            final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
+            final HttpsURLConnection connection = (HttpsURLConnection) new URL(urlString).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setRequestMethod(method);
             connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
+            if (token != null) {
+                connection.setRequestProperty("Authorization", "Bearer " + token);
+            }
+            if (payload != null) {
+                connection.setRequestProperty("Content-Type", contentType);
+                connection.setDoOutput(true);
+                try (final OutputStream out = connection.getOutputStream()) {
+                    out.write(payload.getBytes("UTF-8"));
                 }
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            for (final JsonNode groupNode : node.get("value")) {
-                return groupNode.get("objectId").asText();
+            final int status = connection.getResponseCode();
+            if (status >= 400) {
+                // Drain the error body so the connection can go back to the keep-alive pool.
+                final String error = readFully(connection.getErrorStream());
+                throw new IOException(String.format("%s %s returned %s: %s", method, urlString, status, error));
+            }
+            final JsonNode node = JSON_READER.readTree(readFully(connection.getInputStream()));
+            isSuccess = true;
+            return node;
+        } finally {
+            final long latency = System.nanoTime() - start;
+            totalLatencyNanos.addAndGet(latency);
+            for (long max = maxLatencyNanos.get(); latency > max; max = maxLatencyNanos.get()) {
+                if (maxLatencyNanos.compareAndSet(max, latency)) {
+                    break;
+                }
+            }
+            if (!isSuccess) {
+                failureCount.incrementAndGet();
             }
-            return null;
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return null;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return null;
         }
     }
 
-    private String getBearerToken(final Tenant tenant, final ID principal, final Secret secret) {
-        try {
-            final String payload = String.format(
-                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s", principal.getValue(),
-                    URLEncoder.encode(secret.getValue(), "UTF-8"),
-                    URLEncoder.encode("https://graph.windows.net", "UTF-8"));
-            final URL url = new URL(
-                    String.format("https://login.microsoftonline.com/%s/oauth2/token", tenant.getName()));
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Host", "login.microsoftonline.com");
-            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setDoOutput(true);
-            connection.getOutputStream().write(payload.getBytes());
-            connection.getOutputStream().flush();
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
-                }
+    private static String readFully(final InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (final InputStream input = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                out.write(buffer, 0, read);
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            return node.get("access_token").asText();
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return null;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return null;
+            return out.toString("UTF-8");
         }
     }
 
+    private static ExecutorService createExecutorService() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "oidc-graph-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public static GraphService getInstance() {
         return INSTANCE;
     }
+
+    private static final class RoleLookup {
+        private final Set<String> roles;
+        private final Future<Map<String, Boolean>> task;
+
+        RoleLookup(final Set<String> roles, final Future<Map<String, Boolean>> task) {
+            this.roles = roles;
+            this.task = task;
+        }
+    }
+
+    private static final class ExpiringValue {
+        private final String value;
+        private final long expiresAt;
+
+        ExpiringValue(final String value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.graph.impl;
+
+import com.microsoft.azure.oidc.graph.GraphServiceStatistics;
+
+final class SimpleGraphServiceStatistics implements GraphServiceStatistics {
+    private final Long requestCount;
+    private final Long failureCount;
+    private final Long averageLatencyMillis;
+    private final Long maxLatencyMillis;
+    private final Long tokenRequestCount;
+    private final Long collapsedLookupCount;
+
+    public SimpleGraphServiceStatistics(final Long requestCount, final Long failureCount,
+            final Long averageLatencyMillis, final Long maxLatencyMillis, final Long tokenRequestCount,
+            final Long collapsedLookupCount) {
+        this.requestCount = requestCount;
+        this.failureCount = failureCount;
+        this.averageLatencyMillis = averageLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.tokenRequestCount = tokenRequestCount;
+        this.collapsedLookupCount = collapsedLookupCount;
+    }
+
+    @Override
+    public Long getRequestCount() {
+        return requestCount;
+    }
+
+    @Override
+    public Long getFailureCount() {
+        return failureCount;
+    }
+
+    @Override
+    public Long getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+
+    @Override
+    public Long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    @Override
+    public Long getTokenRequestCount() {
+        return tokenRequestCount;
+    }
+
+    @Override
+    public Long getCollapsedLookupCount() {
+        return collapsedLookupCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "requests=%s, failures=%s, averageLatencyMillis=%s, maxLatencyMillis=%s, tokenRequests=%s, collapsedLookups=%s",
+                requestCount, failureCount, averageLatencyMillis, maxLatencyMillis, tokenRequestCount,
+                collapsedLookupCount);
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.commons.codec.binary.Base64;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.microsoft.azure.oidc.common.algorithm.Algorithm;
 import com.microsoft.azure.oidc.common.algorithm.AlgorithmFactory;
 import com.microsoft.azure.oidc.common.algorithm.impl.SimpleAlgorithmFactory;
@@ -63,6 +64,7 @@ import com.microsoft.azure.oidc.token.signature.impl.SimpleSignatureFactory;
 
 public final class SimpeTokenParser implements TokenParser {
     private static final TokenParser INSTANCE = new SimpeTokenParser();
+    private static final ObjectReader JSON_READER = new ObjectMapper().reader();
 
     private final SignatureFactory signatureFactory = SimpleSignatureFactory.getInstance();
 
@@ -185,8 +187,7 @@ public final class SimpeTokenParser implements TokenParser {
             throw new PreconditionException("Required parameter is null");
         }
         try {
-            final ObjectMapper mapper = new ObjectMapper();
-            return mapper.readValue(part, JsonNode.class);
+            return JSON_READER.readTree(part);
         } catch (IOException e) {
             throw new GeneralException("IO Exception", e);
         }
@@ -22,15 +22,10 @@
 
 package com.microsoft.azure.oidc.token.impl;
 
-import java.math.BigInteger;
 import java.security.InvalidKeyException;
-import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
-import java.security.PublicKey;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.RSAPublicKeySpec;
 
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
@@ -45,6 +40,7 @@ import com.microsoft.azure.oidc.common.timestamp.impl.SimpleTimeStampFactory;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
+import com.microsoft.azure.oidc.configuration.key.Key;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
@@ -55,6 +51,7 @@ import com.microsoft.azure.oidc.token.TokenValidator;
 public class SimpleTokenValidator implements TokenValidator {
     private static final TokenValidator INSTANCE = new SimpleTokenValidator();
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleTokenValidator.class);
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10000;
 
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
 
@@ -64,6 +61,8 @@ public class SimpleTokenValidator implements TokenValidator {
 
     private final AlgorithmConfigurationService algorithmConfigurationService = SimpleAlgorithmConfigurationService.getInstance();
 
+    private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(VERIFIED_TOKEN_CACHE_SIZE);
+
     @Override
     public Boolean validateSignature(final Token token) {
         if (token == null) {
@@ -76,26 +75,29 @@ public class SimpleTokenValidator implements TokenValidator {
         if (configuration == null) {
             throw new GeneralException("Error loading configuration");
         }
+        final Key key = getKey(configuration, token);
+        if (key == null || key.getPublicKey() == null) {
+            return Boolean.FALSE;
+        }
+        final long nowSeconds = System.currentTimeMillis() / 1000;
+        final TimeStamp now = timeStampFactory.createTimeStamp(nowSeconds);
+        if (key.getNotBefore().compareTo(now) > 0) {
+            return Boolean.FALSE;
+        }
+        if (verifiedTokenCache.contains(token, nowSeconds)) {
+            return Boolean.TRUE;
+        }
         try {
-            final TimeStamp now = timeStampFactory.createTimeStamp(System.currentTimeMillis() / 1000);
-            if (configuration.getKey(token.getKeyName()).getNotBefore().compareTo(now) > 0) {
-                return Boolean.FALSE;
-            }
-            final Base64 decoder = new Base64();
-            final BigInteger exponent = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getExponent().getValue()));
-            final BigInteger modulus = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getSecret().getValue()));
-            final RSAPublicKeySpec pubKeySpec = new RSAPublicKeySpec(modulus, exponent);
-            final KeyFactory keyFactory = KeyFactory
-                    .getInstance(algorithmConfigurationService.get().getAlgorithmClassMap().get(token.getAlgorithm().getName()));
-            final PublicKey pubKey = keyFactory.generatePublic(pubKeySpec);
             final Signature sig = Signature
                     .getInstance(algorithmConfigurationService.get().getAlgorithmMap().get(token.getAlgorithm().getName()));
-            sig.initVerify(pubKey);
+            sig.initVerify(key.getPublicKey());
             sig.update(token.getPayload().getValue().getBytes());
-            return sig.verify(decoder.decode(token.getSignature().getValue()));
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException | SignatureException | InvalidKeyException e) {
+            final Boolean isVerified = sig.verify(new Base64().decode(token.getSignature().getValue()));
+            if (isVerified) {
+                verifiedTokenCache.put(token, nowSeconds);
+            }
+            return isVerified;
+        } catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
             LOGGER.error(e.getMessage(), e);
             return Boolean.FALSE;
         }
@@ -187,6 +189,15 @@ public class SimpleTokenValidator implements TokenValidator {
         return Boolean.TRUE;
     }
 
+    private Key getKey(final Configuration configuration, final Token token) {
+        final Key key = configuration.getKey(token.getKeyName());
+        if (key != null) {
+            return key;
+        }
+        final Configuration refreshed = configurationCache.loadForUnknownKey(token.getKeyName());
+        return refreshed == null ? null : refreshed.getKey(token.getKeyName());
+    }
+
     public static TokenValidator getInstance() {
         return INSTANCE;
     }
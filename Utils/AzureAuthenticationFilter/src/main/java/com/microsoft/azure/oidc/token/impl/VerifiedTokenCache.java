@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.token.impl;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.token.Token;
+
+/**
+ * Bounded set of tokens whose signature has already been verified. Entries are keyed by the SHA-256 hash of the
+ * token string, so the raw token is never retained, and are held until the token's expiration. Once full, the least
+ * recently used entries are evicted to admit new ones. The entries are held in a cache of the
+ * {@link ConcurrentCacheService}, which shuts it down when the filter is destroyed.
+ */
+final class VerifiedTokenCache {
+    // Longer than the lifetime of the tokens issued, the token's own expiration is checked on every read
+    private static final Long TTL_MINUTES = 120L;
+    private static final String CACHE_NAME = "verifiedTokenCache";
+
+    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+
+    private final ConcurrentCache<String, Long> expirations;
+
+    VerifiedTokenCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new PreconditionException("Cache size must be positive");
+        }
+        this.expirations = concurrentCacheService.createCache(Long.class, CACHE_NAME, TTL_MINUTES, (long) maxSize);
+    }
+
+    public Boolean contains(final Token token, final long now) {
+        if (token == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Long expiration = expirations.get(getKey(token));
+        return expiration != null && expiration > now;
+    }
+
+    public void put(final Token token, final long now) {
+        if (token == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Long expiration = token.getExpiration().getTime();
+        if (expiration <= now) {
+            return;
+        }
+        expirations.putIfAbsent(getKey(token), expiration);
+    }
+
+    private String getKey(final Token token) {
+        return DigestUtils.sha256Hex(token.getValue());
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves a file to or from a blob in blocks transferred in parallel.
+ *
+ * The file is accessed through positional {@link FileChannel} reads and writes, so the blocks don't share any stream
+ * position and can be sent or fetched in any order. At most {@code parallelism} blocks are in flight, each holding
+ * one block-sized buffer. A failed block is retried on its own without restarting the transfer.
+ */
+public class BlobTransferEngine {
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final int DEFAULT_MAX_BLOCK_ATTEMPTS = 3;
+
+    static final long MIN_BLOCK_SIZE = 1024 * 1024;
+    // Larger blocks are only used when the block count limit asks for them, to keep the buffers in flight small
+    static final long PREFERRED_MAX_BLOCK_SIZE = 8 * 1024 * 1024;
+    static final long MAX_BLOCK_SIZE = 100 * 1024 * 1024;
+    static final int MAX_BLOCK_COUNT = 50000;
+    // Aim at several blocks per worker so the workers stay busy until the last blocks
+    static final int TARGET_BLOCKS_PER_WORKER = 4;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    /**
+     * Sends one block of the file to the remote side.
+     */
+    public interface BlockUploader {
+        void uploadBlock(int index, long offset, @NotNull byte[] data, int length) throws Exception;
+    }
+
+    /**
+     * Fetches one range of the remote side into the buffer, returns the number of bytes got.
+     */
+    public interface RangeDownloader {
+        int downloadRange(long offset, int length, @NotNull byte[] buffer) throws Exception;
+    }
+
+    private final int parallelism;
+    private final int maxBlockAttempts;
+
+    public BlobTransferEngine() {
+        this(DEFAULT_PARALLELISM, DEFAULT_MAX_BLOCK_ATTEMPTS);
+    }
+
+    public BlobTransferEngine(int parallelism, int maxBlockAttempts) {
+        if (parallelism < 1 || maxBlockAttempts < 1) {
+            throw new IllegalArgumentException("The parallelism and the block attempts should be positive");
+        }
+
+        this.parallelism = parallelism;
+        this.maxBlockAttempts = maxBlockAttempts;
+    }
+
+    /**
+     * Gets the block size for a transfer of the length, growing with the length to keep the block count in
+     * a range the service accepts while still splitting small files across the workers.
+     */
+    public long getBlockSize(long length) {
+        long blockSize = Math.min(length / ((long) parallelism * TARGET_BLOCKS_PER_WORKER), PREFERRED_MAX_BLOCK_SIZE);
+        blockSize = Math.max(blockSize, (length + MAX_BLOCK_COUNT - 1) / MAX_BLOCK_COUNT);
+
+        // Round up to whole MBs
+        blockSize = (blockSize + MIN_BLOCK_SIZE - 1) / MIN_BLOCK_SIZE * MIN_BLOCK_SIZE;
+
+        return Math.min(Math.max(blockSize, MIN_BLOCK_SIZE), MAX_BLOCK_SIZE);
+    }
+
+    public int getBlockCount(long length, long blockSize) {
+        return (int) ((length + blockSize - 1) / blockSize);
+    }
+
+    /**
+     * Reads the file in blocks and sends them in parallel.
+     *
+     * @param progress called with the number of bytes sent so far, after every finished block
+     */
+    public void upload(@NotNull final FileChannel source,
+                       final long length,
+                       final long blockSize,
+                       @NotNull final BlockUploader uploader,
+                       @Nullable CallableSingleArg<Void, Long> progress) throws Exception {
+        int blockCount = getBlockCount(length, blockSize);
+        List<BlockTask> tasks = new ArrayList<BlockTask>(blockCount);
+
+        for (int i = 0; i < blockCount; i++) {
+            final int index = i;
+            final long offset = i * blockSize;
+            final int size = (int) Math.min(blockSize, length - offset);
+
+            tasks.add(new BlockTask(size) {
+                @Override
+                long transfer(@NotNull byte[] buffer) throws Exception {
+                    readFully(source, buffer, size, offset);
+
+                    withRetries(new CallableSingleArg<Void, Void>() {
+                        @Override
+                        public Void call(Void argument) throws Exception {
+                            uploader.uploadBlock(index, offset, buffer, size);
+                            return null;
+                        }
+                    });
+
+                    return size;
+                }
+            });
+        }
+
+        run(tasks, progress);
+    }
+
+    /**
+     * Fetches the ranges of the remote side in parallel and writes them into the file at their offsets.
+     *
+     * @param progress called with the number of bytes got so far, after every finished range
+     */
+    public void download(@NotNull final FileChannel target,
+                         final long length,
+                         final long blockSize,
+                         @NotNull final RangeDownloader downloader,
+                         @Nullable CallableSingleArg<Void, Long> progress) throws Exception {
+        int blockCount = getBlockCount(length, blockSize);
+        List<BlockTask> tasks = new ArrayList<BlockTask>(blockCount);
+
+        for (int i = 0; i < blockCount; i++) {
+            final long offset = i * blockSize;
+            final int size = (int) Math.min(blockSize, length - offset);
+
+            tasks.add(new BlockTask(size) {
+                @Override
+                long transfer(@NotNull final byte[] buffer) throws Exception {
+                    withRetries(new CallableSingleArg<Void, Void>() {
+                        @Override
+                        public Void call(Void argument) throws Exception {
+                            int got = downloader.downloadRange(offset, size, buffer);
+
+                            if (got != size) {
+                                throw new EOFException(String.format(
+                                        "Got %d bytes of the range at %d, expected %d", got, offset, size));
+                            }
+
+                            return null;
+                        }
+                    });
+
+                    writeFully(target, buffer, size, offset);
+
+                    return size;
+                }
+            });
+        }
+
+        run(tasks, progress);
+    }
+
+    private void withRetries(@NotNull CallableSingleArg<Void, Void> block) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                block.call(null);
+                return;
+            } catch (InterruptedException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                if (attempt >= maxBlockAttempts || Thread.currentThread().isInterrupted()) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private void run(@NotNull List<BlockTask> tasks,
+                     @Nullable CallableSingleArg<Void, Long> progress) throws Exception {
+        if (progress != null) {
+            progress.call(0L);
+        }
+
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NotNull Runnable r) {
+                        Thread thread = new Thread(r, "BlobTransfer-" + threadCounter.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        ExecutorCompletionService<Long> completionService = new ExecutorCompletionService<Long>(executor);
+        List<Future<Long>> futures = new ArrayList<Future<Long>>(tasks.size());
+
+        try {
+            // The tasks only allocate their buffers once a worker picks them up, so the memory in use is
+            // bounded by the workers whatever the block count is
+            for (BlockTask task : tasks) {
+                futures.add(completionService.submit(task));
+            }
+
+            long transferred = 0;
+
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    transferred += completionService.take().get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+
+                    throw ex;
+                }
+
+                if (progress != null) {
+                    progress.call(transferred);
+                }
+            }
+        } finally {
+            for (Future<Long> future : futures) {
+                future.cancel(true);
+            }
+
+            executor.shutdownNow();
+        }
+    }
+
+    private static void readFully(@NotNull FileChannel channel, @NotNull byte[] buffer, int length, long position)
+            throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+
+        while (byteBuffer.hasRemaining()) {
+            if (channel.read(byteBuffer, position + byteBuffer.position()) < 0) {
+                throw new EOFException("The file is shorter than expected at " + (position + byteBuffer.position()));
+            }
+        }
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull byte[] buffer, int length, long position)
+            throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer, position + byteBuffer.position());
+        }
+    }
+
+    private abstract static class BlockTask implements Callable<Long> {
+        private final int size;
+
+        BlockTask(int size) {
+            this.size = size;
+        }
+
+        abstract long transfer(@NotNull byte[] buffer) throws Exception;
+
+        @Override
+        public Long call() throws Exception {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The blob transfer is cancelled");
+            }
+
+            return transfer(new byte[size]);
+        }
+    }
+}
@@ -23,7 +23,10 @@
 package com.microsoft.tooling.msservices.helpers.azure.sdk;
 
 import com.google.common.base.Strings;
+import com.microsoft.azure.storage.AccessCondition;
 import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.ResultContinuation;
+import com.microsoft.azure.storage.ResultSegment;
 import com.microsoft.azure.storage.StorageException;
 import com.microsoft.azure.storage.blob.*;
 import com.microsoft.azure.storage.core.Base64;
@@ -41,6 +44,7 @@ import com.microsoft.tooling.msservices.model.storage.BlobItem;
 import com.microsoft.tooling.msservices.model.storage.ClientStorageAccount;
 import com.microsoft.tooling.msservices.model.storage.Queue;
 import com.microsoft.tooling.msservices.model.storage.QueueMessage;
+import com.microsoft.tooling.msservices.model.storage.StorageSegment;
 import com.microsoft.tooling.msservices.model.storage.Table;
 import com.microsoft.tooling.msservices.model.storage.TableEntity;
 import com.microsoft.tooling.msservices.model.storage.TableEntity.Property;
@@ -51,14 +55,22 @@ import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.utils.StorageAccoutUtils;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.InvalidKeyException;
 import java.util.*;
 import java.util.Map.Entry;
 
 public class StorageClientSDKManager {
+    public static final int DEFAULT_BLOB_SEGMENT_SIZE = 1000;
+    public static final int DEFAULT_TABLE_SEGMENT_SIZE = 1000;
+
     private static StorageClientSDKManager apiManager;
 
     private StorageClientSDKManager() {
@@ -134,11 +146,12 @@ public class StorageClientSDKManager {
                     }
                 }
 
-                String publicReadAccessType = "";
-                BlobContainerPermissions blobContainerPermissions = container.downloadPermissions();
+                // The listing with ALL details already carries the public access level, no need to download the
+                // permissions of every container
+                String publicReadAccessType = BlobContainerPublicAccessType.OFF.toString();
 
-                if (blobContainerPermissions != null && blobContainerPermissions.getPublicAccess() != null) {
-                    publicReadAccessType = blobContainerPermissions.getPublicAccess().toString();
+                if (properties != null && properties.getPublicAccess() != null) {
+                    publicReadAccessType = properties.getPublicAccess().toString();
                 }
 
                 bcList.add(new BlobContainer(Strings.nullToEmpty(container.getName()),
@@ -229,8 +242,32 @@ public class StorageClientSDKManager {
     @NotNull
     public List<BlobItem> getBlobItems(@NotNull String connectionString, @NotNull BlobDirectory blobDirectory)
             throws AzureCmdException {
-        List<BlobItem> biList = new ArrayList<BlobItem>();
+        final List<BlobItem> biList = new ArrayList<BlobItem>();
+
+        forEachBlobItemSegment(connectionString, blobDirectory, DEFAULT_BLOB_SEGMENT_SIZE,
+                new CallableSingleArg<Boolean, List<BlobItem>>() {
+                    @Override
+                    public Boolean call(List<BlobItem> items) {
+                        biList.addAll(items);
+                        return true;
+                    }
+                });
+
+        return biList;
+    }
 
+    /**
+     * Lists one page of the blob items right under the directory.
+     *
+     * @param continuationToken the token got from the previous page, or null for the first page
+     * @param maxResults        the maximum number of items in the page
+     */
+    @NotNull
+    public StorageSegment<BlobItem> getBlobItemsSegment(@NotNull String connectionString,
+                                                        @NotNull BlobDirectory blobDirectory,
+                                                        @Nullable ResultContinuation continuationToken,
+                                                        int maxResults)
+            throws AzureCmdException {
         try {
             CloudBlobClient client = getCloudBlobClient(connectionString);
             String containerName = blobDirectory.getContainerName();
@@ -239,63 +276,52 @@ public class StorageClientSDKManager {
             CloudBlobContainer container = client.getContainerReference(containerName);
             CloudBlobDirectory directory = container.getDirectoryReference(blobDirectory.getPath());
 
-            for (ListBlobItem item : directory.listBlobs()) {
-                String uri = item.getUri() != null ? item.getUri().toString() : "";
-
-                if (item instanceof CloudBlobDirectory) {
-                    CloudBlobDirectory subDirectory = (CloudBlobDirectory) item;
-
-                    String name = extractBlobItemName(subDirectory.getPrefix(), delimiter);
-                    String path = Strings.nullToEmpty(subDirectory.getPrefix());
-
-                    biList.add(new BlobDirectory(name, uri, containerName, path));
-                } else if (item instanceof CloudBlob) {
-                    CloudBlob blob = (CloudBlob) item;
-
-                    String name = extractBlobItemName(blob.getName(), delimiter);
-                    String path = Strings.nullToEmpty(blob.getName());
-                    String type = "";
-                    String cacheControlHeader = "";
-                    String contentEncoding = "";
-                    String contentLanguage = "";
-                    String contentType = "";
-                    String contentMD5Header = "";
-                    String eTag = "";
-                    Calendar lastModified = new GregorianCalendar();
-                    long size = 0;
-
-                    BlobProperties properties = blob.getProperties();
-
-                    if (properties != null) {
-                        if (properties.getBlobType() != null) {
-                            type = properties.getBlobType().toString();
-                        }
-
-                        cacheControlHeader = Strings.nullToEmpty(properties.getCacheControl());
-                        contentEncoding = Strings.nullToEmpty(properties.getContentEncoding());
-                        contentLanguage = Strings.nullToEmpty(properties.getContentLanguage());
-                        contentType = Strings.nullToEmpty(properties.getContentType());
-                        contentMD5Header = Strings.nullToEmpty(properties.getContentMD5());
-                        eTag = Strings.nullToEmpty(properties.getEtag());
-
-                        if (properties.getLastModified() != null) {
-                            lastModified.setTime(properties.getLastModified());
-                        }
-
-                        size = properties.getLength();
-                    }
+            ResultSegment<ListBlobItem> segment = directory.listBlobsSegmented(
+                    false, EnumSet.noneOf(BlobListingDetails.class), maxResults, continuationToken, null, null);
+
+            List<BlobItem> biList = new ArrayList<BlobItem>(segment.getLength());
+
+            for (ListBlobItem item : segment.getResults()) {
+                BlobItem blobItem = getBlobItem(item, containerName, delimiter);
 
-                    biList.add(new BlobFile(name, uri, containerName, path, type, cacheControlHeader, contentEncoding,
-                            contentLanguage, contentType, contentMD5Header, eTag, lastModified, size));
+                if (blobItem != null) {
+                    biList.add(blobItem);
                 }
             }
 
-            return biList;
+            return new StorageSegment<BlobItem>(biList,
+                    segment.getHasMoreResults() ? segment.getContinuationToken() : null);
         } catch (Throwable t) {
             throw new AzureCmdException("Error retrieving the Blob Item list", t);
         }
     }
 
+    /**
+     * Lists the blob items right under the directory page by page, the listing stops once the callback returns false.
+     */
+    public void forEachBlobItemSegment(@NotNull String connectionString,
+                                       @NotNull BlobDirectory blobDirectory,
+                                       int maxResults,
+                                       @NotNull CallableSingleArg<Boolean, List<BlobItem>> onSegment)
+            throws AzureCmdException {
+        ResultContinuation continuationToken = null;
+
+        do {
+            StorageSegment<BlobItem> segment =
+                    getBlobItemsSegment(connectionString, blobDirectory, continuationToken, maxResults);
+
+            try {
+                if (!Boolean.TRUE.equals(onSegment.call(segment.getItems()))) {
+                    return;
+                }
+            } catch (Throwable t) {
+                throw new AzureCmdException("Error processing the Blob Item list", t);
+            }
+
+            continuationToken = segment.getContinuationToken();
+        } while (continuationToken != null);
+    }
+
     @NotNull
     public BlobDirectory createBlobDirectory(@NotNull StorageAccount storageAccount,
                                              @NotNull BlobDirectory parentBlobDirectory,
@@ -423,6 +449,95 @@ public class StorageClientSDKManager {
         }
     }
 
+    /**
+     * Uploads the file in blocks sent in parallel, with the block size picked from the file length.
+     *
+     * @param processBlock called with the number of bytes uploaded so far
+     */
+    public void uploadBlobFileContent(@NotNull String connectionString,
+                                      @NotNull BlobContainer blobContainer,
+                                      @NotNull final String filePath,
+                                      @NotNull File file,
+                                      @Nullable CallableSingleArg<Void, Long> processBlock)
+            throws AzureCmdException {
+        try {
+            CloudBlobClient client = getCloudBlobClient(connectionString);
+            final CloudBlobContainer container = client.getContainerReference(blobContainer.getName());
+
+            BlobTransferEngine engine = new BlobTransferEngine();
+            long length = file.length();
+            long blockSize = engine.getBlockSize(length);
+            int blockCount = engine.getBlockCount(length, blockSize);
+
+            // Block ids of a blob should be all in the same length, the upload id keeps them apart from the
+            // uncommitted blocks left by an earlier upload of the same path
+            String uploadId = UUID.randomUUID().toString();
+            final List<BlockEntry> blockEntries = new ArrayList<BlockEntry>(blockCount);
+
+            for (int i = 0; i < blockCount; i++) {
+                String blockId = Base64.encode(String.format("%s-%06d", uploadId, i).getBytes(StandardCharsets.UTF_8));
+                BlockEntry entry = new BlockEntry(blockId, BlockSearchMode.UNCOMMITTED);
+                entry.setSize(Math.min(blockSize, length - i * blockSize));
+                blockEntries.add(entry);
+            }
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                engine.upload(channel, length, blockSize, new BlobTransferEngine.BlockUploader() {
+                    @Override
+                    public void uploadBlock(int index, long offset, @NotNull byte[] data, int size) throws Exception {
+                        // The blob references aren't thread safe, every block takes its own
+                        CloudBlockBlob blob = container.getBlockBlobReference(filePath);
+                        blob.uploadBlock(blockEntries.get(index).getId(), new ByteArrayInputStream(data, 0, size), size);
+                    }
+                }, processBlock);
+            }
+
+            container.getBlockBlobReference(filePath).commitBlockList(blockEntries);
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error uploading the Blob File content", t);
+        }
+    }
+
+    /**
+     * Downloads the blob into the file by fetching its ranges in parallel.
+     *
+     * @param processBlock called with the number of bytes downloaded so far
+     */
+    public void downloadBlobFileContent(@NotNull String connectionString,
+                                        @NotNull final BlobFile blobFile,
+                                        @NotNull File targetFile,
+                                        @Nullable CallableSingleArg<Void, Long> processBlock)
+            throws AzureCmdException {
+        try {
+            CloudBlobClient client = getCloudBlobClient(connectionString);
+            final CloudBlobContainer container = client.getContainerReference(blobFile.getContainerName());
+
+            CloudBlob blob = getCloudBlob(container, blobFile);
+            blob.downloadAttributes();
+
+            long length = blob.getProperties().getLength();
+            // Fail the ranges rather than mixing two versions of the blob if it's changed during the download
+            final AccessCondition sameBlob = AccessCondition.generateIfMatchCondition(blob.getProperties().getEtag());
+
+            BlobTransferEngine engine = new BlobTransferEngine();
+
+            try (RandomAccessFile target = new RandomAccessFile(targetFile, "rw")) {
+                target.setLength(length);
+
+                engine.download(target.getChannel(), length, engine.getBlockSize(length),
+                        new BlobTransferEngine.RangeDownloader() {
+                            @Override
+                            public int downloadRange(long offset, int size, @NotNull byte[] buffer) throws Exception {
+                                return getCloudBlob(container, blobFile)
+                                        .downloadRangeToByteArray(offset, (long) size, buffer, 0, sameBlob, null, null);
+                            }
+                        }, processBlock);
+            }
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error downloading the Blob File content", t);
+        }
+    }
+
     @NotNull
     public List<Queue> getQueues(@NotNull StorageAccount storageAccount)
             throws AzureCmdException {
@@ -646,26 +761,63 @@ public class StorageClientSDKManager {
                                               @NotNull String filter)
             throws AzureCmdException {
         List<TableEntity> teList = new ArrayList<TableEntity>();
+        String connectionString = getConnectionString(storageAccount);
+        ResultContinuation continuationToken = null;
+
+        do {
+            StorageSegment<TableEntity> segment = getTableEntitiesSegment(
+                    connectionString, table.getName(), filter, null, DEFAULT_TABLE_SEGMENT_SIZE, continuationToken);
+
+            teList.addAll(segment.getItems());
+            continuationToken = segment.getContinuationToken();
+        } while (continuationToken != null);
 
+        return teList;
+    }
+
+    /**
+     * Queries one page of the table entities on the server side.
+     *
+     * @param columns           the properties to return besides the keys and the timestamp, or null for all of them
+     * @param maxResults        the maximum number of entities in the page, the service may return fewer
+     * @param continuationToken the token got from the previous page, or null for the first page
+     */
+    @NotNull
+    public StorageSegment<TableEntity> getTableEntitiesSegment(@NotNull String connectionString,
+                                                               @NotNull String tableName,
+                                                               @NotNull String filter,
+                                                               @Nullable List<String> columns,
+                                                               int maxResults,
+                                                               @Nullable ResultContinuation continuationToken)
+            throws AzureCmdException {
         try {
-            CloudTableClient client = getCloudTableClient(storageAccount);
-            String tableName = table.getName();
+            CloudTableClient client = getCloudTableClient(connectionString);
             CloudTable cloudTable = client.getTableReference(tableName);
 
-            TableQuery<DynamicTableEntity> tableQuery = TableQuery.from(DynamicTableEntity.class);
+            TableQuery<DynamicTableEntity> tableQuery = TableQuery.from(DynamicTableEntity.class).take(maxResults);
 
             if (!filter.isEmpty()) {
                 tableQuery.where(filter);
             }
 
+            if (columns != null && !columns.isEmpty()) {
+                tableQuery.select(columns.toArray(new String[0]));
+            }
+
             TableRequestOptions tro = new TableRequestOptions();
             tro.setTablePayloadFormat(TablePayloadFormat.JsonFullMetadata);
 
-            for (DynamicTableEntity dte : cloudTable.execute(tableQuery, tro, null)) {
+            ResultSegment<DynamicTableEntity> segment =
+                    cloudTable.executeSegmented(tableQuery, continuationToken, tro, null);
+
+            List<TableEntity> teList = new ArrayList<TableEntity>(segment.getLength());
+
+            for (DynamicTableEntity dte : segment.getResults()) {
                 teList.add(getTableEntity(tableName, dte));
             }
 
-            return teList;
+            return new StorageSegment<TableEntity>(teList,
+                    segment.getHasMoreResults() ? segment.getContinuationToken() : null);
         } catch (Throwable t) {
             throw new AzureCmdException("Error retrieving the Table Entity list", t);
         }
@@ -784,6 +936,12 @@ public class StorageClientSDKManager {
         return csa.createCloudTableClient();
     }
 
+    @NotNull
+    private static CloudTableClient getCloudTableClient(@NotNull String connectionString) throws Exception {
+        CloudStorageAccount csa = getCloudStorageAccount(connectionString);
+        return csa.createCloudTableClient();
+    }
+
     @NotNull
     private static CloudBlob getCloudBlob(@NotNull CloudBlobContainer container,
                                           @NotNull BlobFile blobFile)
@@ -867,6 +1025,62 @@ public class StorageClientSDKManager {
         return blobFile;
     }
 
+    @Nullable
+    private static BlobItem getBlobItem(@NotNull ListBlobItem item,
+                                        @NotNull String containerName,
+                                        @Nullable String delimiter) {
+        String uri = item.getUri() != null ? item.getUri().toString() : "";
+
+        if (item instanceof CloudBlobDirectory) {
+            CloudBlobDirectory subDirectory = (CloudBlobDirectory) item;
+
+            String name = extractBlobItemName(subDirectory.getPrefix(), delimiter);
+            String path = Strings.nullToEmpty(subDirectory.getPrefix());
+
+            return new BlobDirectory(name, uri, containerName, path);
+        } else if (item instanceof CloudBlob) {
+            CloudBlob blob = (CloudBlob) item;
+
+            String name = extractBlobItemName(blob.getName(), delimiter);
+            String path = Strings.nullToEmpty(blob.getName());
+            String type = "";
+            String cacheControlHeader = "";
+            String contentEncoding = "";
+            String contentLanguage = "";
+            String contentType = "";
+            String contentMD5Header = "";
+            String eTag = "";
+            Calendar lastModified = new GregorianCalendar();
+            long size = 0;
+
+            BlobProperties properties = blob.getProperties();
+
+            if (properties != null) {
+                if (properties.getBlobType() != null) {
+                    type = properties.getBlobType().toString();
+                }
+
+                cacheControlHeader = Strings.nullToEmpty(properties.getCacheControl());
+                contentEncoding = Strings.nullToEmpty(properties.getContentEncoding());
+                contentLanguage = Strings.nullToEmpty(properties.getContentLanguage());
+                contentType = Strings.nullToEmpty(properties.getContentType());
+                contentMD5Header = Strings.nullToEmpty(properties.getContentMD5());
+                eTag = Strings.nullToEmpty(properties.getEtag());
+
+                if (properties.getLastModified() != null) {
+                    lastModified.setTime(properties.getLastModified());
+                }
+
+                size = properties.getLength();
+            }
+
+            return new BlobFile(name, uri, containerName, path, type, cacheControlHeader, contentEncoding,
+                    contentLanguage, contentType, contentMD5Header, eTag, lastModified, size);
+        }
+
+        return null;
+    }
+
     @NotNull
     private static String extractBlobItemName(@Nullable String path, @Nullable String delimiter) {
         if (path == null) {
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.azure.storage.ResultContinuation;
+import com.microsoft.azuretools.azurecommons.helpers.AzureCmdException;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.tooling.msservices.model.storage.StorageSegment;
+import com.microsoft.tooling.msservices.model.storage.TableEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Backs a virtualized view of a table query: the pages are fetched on demand as the rows get viewed, and only the
+ * most recently viewed pages are kept in memory.
+ *
+ * The rows known so far grow as the next pages are fetched. An evicted page is fetched again from the continuation
+ * token it started with. The blocking loads are meant to run off the UI thread, while {@link #getRowIfLoaded(int)}
+ * never blocks.
+ */
+public class TableEntityPager {
+    public static final int DEFAULT_MAX_PAGES_IN_MEMORY = 10;
+
+    /**
+     * Fetches the page starting from the continuation token.
+     */
+    public interface SegmentLoader {
+        @NotNull
+        StorageSegment<TableEntity> load(@Nullable ResultContinuation continuationToken) throws AzureCmdException;
+    }
+
+    private final SegmentLoader loader;
+    private final int maxPagesInMemory;
+
+    // The continuation token to fetch each known page, and the first row of the pages
+    private final List<ResultContinuation> pageTokens = new ArrayList<ResultContinuation>();
+    private final List<Integer> pageOffsets = new ArrayList<Integer>();
+    private int rowCount = 0;
+    @Nullable
+    private ResultContinuation nextPageToken = null;
+    private boolean isComplete = false;
+
+    private final Set<String> columns = new LinkedHashSet<String>();
+    private final LinkedHashMap<Integer, List<TableEntity>> pages;
+
+    public TableEntityPager(@NotNull final String connectionString,
+                            @NotNull final String tableName,
+                            @NotNull final String filter,
+                            @Nullable final List<String> selectColumns,
+                            final int pageSize,
+                            int maxPagesInMemory) {
+        this(new SegmentLoader() {
+            @NotNull
+            @Override
+            public StorageSegment<TableEntity> load(@Nullable ResultContinuation continuationToken)
+                    throws AzureCmdException {
+                return StorageClientSDKManager.getManager().getTableEntitiesSegment(
+                        connectionString, tableName, filter, selectColumns, pageSize, continuationToken);
+            }
+        }, maxPagesInMemory);
+    }
+
+    public TableEntityPager(@NotNull SegmentLoader loader, final int maxPagesInMemory) {
+        if (maxPagesInMemory < 1) {
+            throw new IllegalArgumentException("At least one page should be kept in memory");
+        }
+
+        this.loader = loader;
+        this.maxPagesInMemory = maxPagesInMemory;
+        this.pages = new LinkedHashMap<Integer, List<TableEntity>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<TableEntity>> eldest) {
+                return size() > TableEntityPager.this.maxPagesInMemory;
+            }
+        };
+    }
+
+    /**
+     * The number of rows in the pages fetched so far.
+     */
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Whether the last page of the query has been fetched.
+     */
+    public synchronized boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * The property names met in the fetched pages, in the order they are met.
+     */
+    @NotNull
+    public synchronized List<String> getColumns() {
+        return Collections.unmodifiableList(new ArrayList<String>(columns));
+    }
+
+    /**
+     * The rows of the pages kept in memory.
+     */
+    @NotNull
+    public synchronized List<TableEntity> getLoadedRows() {
+        List<TableEntity> rows = new ArrayList<TableEntity>();
+
+        for (List<TableEntity> page : pages.values()) {
+            rows.addAll(page);
+        }
+
+        return rows;
+    }
+
+    public synchronized int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Whether the page holding the row is in memory. The row itself may still be missing if the page has been
+     * fetched again after the table had rows deleted.
+     */
+    public synchronized boolean isPageOfRowLoaded(int row) {
+        return row >= 0 && row < rowCount && pages.containsKey(getPageIndex(row));
+    }
+
+    @Nullable
+    public synchronized TableEntity getRowIfLoaded(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+
+        int pageIndex = getPageIndex(row);
+        List<TableEntity> page = pages.get(pageIndex);
+        int offset = row - pageOffsets.get(pageIndex);
+
+        // A page fetched again may have fewer rows if the table has changed since
+        return page == null || offset >= page.size() ? null : page.get(offset);
+    }
+
+    /**
+     * Replaces a row kept in memory, after it's been edited.
+     */
+    public synchronized void setRowIfLoaded(int row, @NotNull TableEntity entity) {
+        if (row < 0 || row >= rowCount) {
+            return;
+        }
+
+        int pageIndex = getPageIndex(row);
+        List<TableEntity> page = pages.get(pageIndex);
+        int offset = row - pageOffsets.get(pageIndex);
+
+        if (page != null && offset < page.size()) {
+            page.set(offset, entity);
+            columns.addAll(entity.getProperties().keySet());
+        }
+    }
+
+    /**
+     * Fetches the next page of the query, returns false if there is no more.
+     */
+    public boolean loadNextPage() throws AzureCmdException {
+        ResultContinuation token;
+        int pageIndex;
+
+        synchronized (this) {
+            if (isComplete) {
+                return false;
+            }
+
+            token = nextPageToken;
+            pageIndex = pageTokens.size();
+        }
+
+        StorageSegment<TableEntity> segment = loader.load(token);
+
+        synchronized (this) {
+            // Another caller has fetched the same page in the meantime
+            if (pageIndex != pageTokens.size()) {
+                return !isComplete;
+            }
+
+            List<TableEntity> items = new ArrayList<TableEntity>(segment.getItems());
+
+            pageTokens.add(token);
+            pageOffsets.add(rowCount);
+            rowCount += items.size();
+            nextPageToken = segment.getContinuationToken();
+            isComplete = nextPageToken == null;
+            addPage(pageIndex, items);
+
+            return true;
+        }
+    }
+
+    /**
+     * Makes sure the page holding the row is in memory, fetching it again if it has been evicted.
+     */
+    public void loadPageOf(int row) throws AzureCmdException {
+        ResultContinuation token;
+        int pageIndex;
+
+        synchronized (this) {
+            if (row < 0 || row >= rowCount) {
+                return;
+            }
+
+            pageIndex = getPageIndex(row);
+
+            if (pages.containsKey(pageIndex)) {
+                return;
+            }
+
+            token = pageTokens.get(pageIndex);
+        }
+
+        List<TableEntity> items = new ArrayList<TableEntity>(loader.load(token).getItems());
+
+        synchronized (this) {
+            int expected = (pageIndex + 1 < pageOffsets.size() ? pageOffsets.get(pageIndex + 1) : rowCount)
+                    - pageOffsets.get(pageIndex);
+
+            // Keep the row positions stable if the table has changed since the page was first fetched
+            while (items.size() > expected) {
+                items.remove(items.size() - 1);
+            }
+
+            addPage(pageIndex, items);
+        }
+    }
+
+    private void addPage(int pageIndex, @NotNull List<TableEntity> items) {
+        for (TableEntity entity : items) {
+            columns.addAll(entity.getProperties().keySet());
+        }
+
+        pages.put(pageIndex, items);
+    }
+
+    private int getPageIndex(int row) {
+        int index = Collections.binarySearch(pageOffsets, row);
+
+        // Skip the empty pages starting at the same row
+        if (index >= 0) {
+            while (index + 1 < pageOffsets.size() && pageOffsets.get(index + 1) == row) {
+                index++;
+            }
+
+            return index;
+        }
+
+        return -index - 2;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.model.storage;
+
+import com.microsoft.azure.storage.ResultContinuation;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.List;
+
+/**
+ * One page of a segmented storage listing, with the continuation token to fetch the next page.
+ */
+public class StorageSegment<T> {
+    private final List<T> items;
+    private final ResultContinuation continuationToken;
+
+    public StorageSegment(@NotNull List<T> items, @Nullable ResultContinuation continuationToken) {
+        this.items = items;
+        this.continuationToken = continuationToken;
+    }
+
+    @NotNull
+    public List<T> getItems() {
+        return items;
+    }
+
+    @Nullable
+    public ResultContinuation getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasMoreResults() {
+        return continuationToken != null;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BlobTransferEngineTest {
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private File file;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("blobTransfer", ".bin");
+        content = new byte[BLOCK_SIZE * 10 + 123];
+        new Random(42).nextBytes(content);
+        Files.write(file.toPath(), content);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testBlockSizeGrowsWithLength() {
+        BlobTransferEngine engine = new BlobTransferEngine(8, 3);
+
+        assertEquals(BlobTransferEngine.MIN_BLOCK_SIZE, engine.getBlockSize(0));
+        assertEquals(BlobTransferEngine.MIN_BLOCK_SIZE, engine.getBlockSize(10L * 1024 * 1024));
+        assertEquals(7L * 1024 * 1024, engine.getBlockSize(200L * 1024 * 1024));
+        assertEquals(BlobTransferEngine.PREFERRED_MAX_BLOCK_SIZE, engine.getBlockSize(10L * 1024 * 1024 * 1024));
+        assertEquals(BlobTransferEngine.MAX_BLOCK_SIZE, engine.getBlockSize(1L << 43));
+
+        long huge = 4000L * 1024 * 1024 * 1024;
+        assertTrue(engine.getBlockCount(huge, engine.getBlockSize(huge)) <= BlobTransferEngine.MAX_BLOCK_COUNT);
+    }
+
+    @Test
+    public void testUploadRetriesFailedBlocksAndReportsProgress() throws Exception {
+        final ConcurrentMap<Long, byte[]> blocks = new ConcurrentHashMap<Long, byte[]>();
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<Long> progresses = Collections.synchronizedList(new ArrayList<Long>());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            new BlobTransferEngine(4, 3).upload(channel, content.length, BLOCK_SIZE,
+                    new BlobTransferEngine.BlockUploader() {
+                        @Override
+                        public void uploadBlock(int index, long offset, byte[] data, int length) throws IOException {
+                            // Each third block fails once
+                            if (index % 3 == 0 && !blocks.containsKey(-1L - index)) {
+                                blocks.put(-1L - index, new byte[0]);
+                                throw new IOException("Injected failure of block " + index);
+                            }
+
+                            attempts.incrementAndGet();
+                            blocks.put(offset, Arrays.copyOf(data, length));
+                        }
+                    },
+                    new CallableSingleArg<Void, Long>() {
+                        @Override
+                        public Void call(Long transferred) {
+                            progresses.add(transferred);
+                            return null;
+                        }
+                    });
+        }
+
+        assertEquals(11, attempts.get());
+
+        byte[] uploaded = new byte[content.length];
+        for (long offset = 0; offset < content.length; offset += BLOCK_SIZE) {
+            byte[] block = blocks.get(offset);
+            System.arraycopy(block, 0, uploaded, (int) offset, block.length);
+        }
+
+        assertArrayEquals(content, uploaded);
+        assertEquals(12, progresses.size());
+        assertEquals(0L, (long) progresses.get(0));
+        assertEquals(content.length, (long) progresses.get(progresses.size() - 1));
+    }
+
+    @Test
+    public void testUploadFailsAfterTheBlockAttempts() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            new BlobTransferEngine(2, 3).upload(channel, content.length, BLOCK_SIZE,
+                    new BlobTransferEngine.BlockUploader() {
+                        @Override
+                        public void uploadBlock(int index, long offset, byte[] data, int length) throws IOException {
+                            if (index == 5) {
+                                attempts.incrementAndGet();
+                                throw new IOException("Injected failure of block " + index);
+                            }
+                        }
+                    }, null);
+
+            fail("The upload should fail");
+        } catch (IOException ex) {
+            assertEquals("Injected failure of block 5", ex.getMessage());
+        }
+
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testDownloadWritesRangesAtOffsets() throws Exception {
+        File target = File.createTempFile("blobTransfer", ".download");
+        final AtomicInteger failures = new AtomicInteger();
+
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+            raf.setLength(content.length);
+
+            new BlobTransferEngine(4, 2).download(raf.getChannel(), content.length, BLOCK_SIZE,
+                    new BlobTransferEngine.RangeDownloader() {
+                        @Override
+                        public int downloadRange(long offset, int length, byte[] buffer) throws IOException {
+                            if (offset == BLOCK_SIZE * 2 && failures.getAndIncrement() == 0) {
+                                throw new IOException("Injected failure of range " + offset);
+                            }
+
+                            System.arraycopy(content, (int) offset, buffer, 0, length);
+                            return length;
+                        }
+                    }, null);
+
+            assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+            assertEquals(2, failures.get());
+        } finally {
+            target.delete();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.azure.storage.ResultContinuation;
+import com.microsoft.tooling.msservices.model.storage.StorageSegment;
+import com.microsoft.tooling.msservices.model.storage.TableEntity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TableEntityPagerTest {
+    private static final int PAGE_SIZE = 10;
+    private static final int ROWS = 45;
+
+    private final List<String> loadedTokens = new ArrayList<String>();
+    private TableEntityPager pager;
+
+    @Before
+    public void setUp() {
+        pager = new TableEntityPager(new TableEntityPager.SegmentLoader() {
+            @Override
+            public StorageSegment<TableEntity> load(ResultContinuation continuationToken) {
+                int start = continuationToken == null ? 0 : Integer.parseInt(continuationToken.getNextRowKey());
+                loadedTokens.add(String.valueOf(start));
+
+                List<TableEntity> items = new ArrayList<TableEntity>();
+                for (int i = start; i < Math.min(start + PAGE_SIZE, ROWS); i++) {
+                    Map<String, TableEntity.Property> properties = Collections.singletonMap(
+                            "Column" + (i % 3), new TableEntity.Property(i));
+                    items.add(new TableEntity("p", String.valueOf(i), "table", "", new GregorianCalendar(),
+                            properties));
+                }
+
+                ResultContinuation next = null;
+                if (start + PAGE_SIZE < ROWS) {
+                    next = new ResultContinuation();
+                    next.setNextRowKey(String.valueOf(start + PAGE_SIZE));
+                }
+
+                return new StorageSegment<TableEntity>(items, next);
+            }
+        }, 2);
+    }
+
+    @Test
+    public void testRowsGrowWithTheNextPages() throws Exception {
+        assertEquals(0, pager.getRowCount());
+        assertNull(pager.getRowIfLoaded(0));
+
+        assertTrue(pager.loadNextPage());
+        assertEquals(PAGE_SIZE, pager.getRowCount());
+        assertEquals("3", pager.getRowIfLoaded(3).getRowKey());
+        assertFalse(pager.isComplete());
+
+        while (pager.loadNextPage()) {
+        }
+
+        assertEquals(ROWS, pager.getRowCount());
+        assertTrue(pager.isComplete());
+        assertEquals(Arrays.asList("Column0", "Column1", "Column2"), pager.getColumns());
+    }
+
+    @Test
+    public void testEvictedPagesAreFetchedAgainFromTheirTokens() throws Exception {
+        while (pager.loadNextPage()) {
+        }
+
+        assertEquals(2, pager.getLoadedPageCount());
+        assertFalse(pager.isPageOfRowLoaded(5));
+        assertNull(pager.getRowIfLoaded(5));
+        assertEquals("44", pager.getRowIfLoaded(44).getRowKey());
+
+        pager.loadPageOf(15);
+
+        assertEquals("15", pager.getRowIfLoaded(15).getRowKey());
+        assertEquals(2, pager.getLoadedPageCount());
+        assertEquals(Arrays.asList("0", "10", "20", "30", "40", "10"), loadedTokens);
+
+        // Loading a page in memory doesn't fetch it again
+        pager.loadPageOf(18);
+        assertEquals(6, loadedTokens.size());
+    }
+}
@@ -53,9 +53,18 @@ public class AuthContext {
     private CacheDriver driver;
 
     public static void cleanTokenCache() {
+        CacheDriver.cancelRenewals();
         AdTokenCache.getInstance().clear();
     }
 
+    /**
+     * Set how long before their expiration the cached tokens are renewed in the background.
+     * @param marginMillis long renewal margin in milliseconds, 0 or less disables the background renewals.
+     */
+    public static void setTokenRenewalMargin(final long marginMillis) {
+        CacheDriver.setRenewalMargin(marginMillis);
+    }
+
     /**
      * AuthContext to acquire token.
      * @param authority String not null.
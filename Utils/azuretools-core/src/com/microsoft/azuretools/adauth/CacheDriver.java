@@ -28,6 +28,13 @@ import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,6 +45,17 @@ abstract class CacheDriver {
     private static final String FAILREFRSH = "Fail to refresh the token";
     private static final String NOAUTHRESULT = "Null auth result in cache entry";
     private static final String NOREFRESHTOKEN = "Null refresh token in auth result";
+    private static final String REFRESHINTERRUPTED = "Interrupted while waiting for the token refresh";
+    static final long DEFAULT_RENEWAL_MARGIN = 600000; //in milliseconds
+    private static final long RENEWAL_TOLERANCE = 1000; //in milliseconds, the scheduler may run a renewal early
+
+    // One refresh per cache key at a time, the other lookups of the key wait for its result
+    private static final Map<TokenCacheKey, CompletableFuture<AuthResult>> refreshesInFlight =
+            new ConcurrentHashMap<>();
+    // Renews the tokens ahead of their expiration, so that the lookups seldom have to wait on a refresh
+    private static final Map<TokenCacheKey, ScheduledFuture<?>> scheduledRenewals = new ConcurrentHashMap<>();
+    private static final ScheduledThreadPoolExecutor renewalScheduler = createRenewalScheduler();
+    private static volatile long renewalMarginMillis = DEFAULT_RENEWAL_MARGIN;
 
     private final String authority;
     private final String clientId;
@@ -48,16 +66,78 @@ abstract class CacheDriver {
     }
 
 
+    /**
+     * Set how long before their expiration the cached tokens are renewed in the background, 0 or less disables the
+     * renewals. It only applies to the tokens added to the cache afterwards.
+     * @param marginMillis long renewal margin in milliseconds.
+     */
+    static void setRenewalMargin(final long marginMillis) {
+        renewalMarginMillis = marginMillis;
+    }
+
+    /**
+     * cancel the background renewals of all the cached tokens.
+     */
+    static void cancelRenewals() {
+        for (ScheduledFuture<?> renewal : scheduledRenewals.values()) {
+            renewal.cancel(false);
+        }
+        scheduledRenewals.clear();
+    }
+
     AuthResult find(@NotNull final String resource, final String userId) throws AuthException {
         TokenCacheKey key = new TokenCacheKey(this.authority, this.clientId, userId, resource);
         SingleEntryResult singleRes = loadSingleEntry(key);
-        if (singleRes != null) {
-            AdTokenCacheEntry entry = refreshEntryIfNecessary(singleRes, key);
-            if (null != entry) {
-                return entry.getAuthResult();
+        if (singleRes == null) {
+            return null;
+        }
+
+        if (isUsable(singleRes, EXPIREBUFFER)) {
+            return singleRes.cacheEntry.getAuthResult();
+        }
+
+        return refreshOnce(key, EXPIREBUFFER);
+    }
+
+    /**
+     * Refresh the entry of the key unless a refresh of the same key is already running, in which case wait for its
+     * result instead of sending another refresh token request.
+     */
+    private AuthResult refreshOnce(@NotNull final TokenCacheKey key, final long expireBuffer) throws AuthException {
+        CompletableFuture<AuthResult> refresh = new CompletableFuture<>();
+        CompletableFuture<AuthResult> runningRefresh = refreshesInFlight.putIfAbsent(key, refresh);
+        if (runningRefresh != null) {
+            return waitForRefresh(runningRefresh);
+        }
+
+        try {
+            // Load the entry again, a refresh which just completed may have replaced it
+            SingleEntryResult singleRes = loadSingleEntry(key);
+            AdTokenCacheEntry entry = singleRes == null ? null : refreshEntryIfNecessary(singleRes, key, expireBuffer);
+            AuthResult result = entry == null ? null : entry.getAuthResult();
+            refresh.complete(result);
+            return result;
+        } catch (AuthException | RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshesInFlight.remove(key, refresh);
+        }
+    }
+
+    private static AuthResult waitForRefresh(@NotNull final CompletableFuture<AuthResult> refresh)
+            throws AuthException {
+        try {
+            return refresh.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthException(REFRESHINTERRUPTED, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthException) {
+                throw (AuthException) e.getCause();
             }
+            throw new AuthException(FAILREFRSH, e.getCause());
         }
-        return null;
     }
 
     AdTokenCacheEntry createAddEntry(@NotNull final AuthResult result, final String resource) {
@@ -77,11 +157,70 @@ abstract class CacheDriver {
         AdTokenCacheEntry entry = new AdTokenCacheEntry(result, this.authority, this.clientId);
         updateRefreshTokens(result);
         AdTokenCache.getInstance().add(entry);
+        scheduleRenewal(result);
         return entry;
     }
 
+    private void scheduleRenewal(@NotNull final AuthResult result) {
+        long marginMillis = renewalMarginMillis;
+        if (marginMillis <= 0 || result.getExpiresOnDate() == null
+                || StringUtils.isNullOrEmpty(result.getResource())
+                || StringUtils.isNullOrEmpty(result.getRefreshToken())) {
+            return;
+        }
+
+        // The tokens issued for less than the margin are left to the lookups to refresh
+        long delayMillis = result.getExpiresOnDate().getTime() - marginMillis - (new Date()).getTime();
+        if (delayMillis <= 0) {
+            return;
+        }
+
+        final TokenCacheKey key = new TokenCacheKey(this.authority, this.clientId, result.getUserId(),
+                result.getResource());
+        ScheduledFuture<?> renewal = renewalScheduler.schedule(() -> renew(key, marginMillis),
+                delayMillis, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previousRenewal = scheduledRenewals.put(key, renewal);
+        if (previousRenewal != null) {
+            previousRenewal.cancel(false);
+        }
+    }
+
+    private void renew(@NotNull final TokenCacheKey key, final long marginMillis) {
+        try {
+            // Only the token of the resource is renewed, it may have been removed from the cache since
+            SingleEntryResult singleRes = loadSingleEntry(key);
+            if (singleRes != null && singleRes.isResourceSpecific) {
+                refreshOnce(key, marginMillis + RENEWAL_TOLERANCE);
+            }
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Fail to renew the token of " + key.getResource() + " in the background", e);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createRenewalScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "adauth-token-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static boolean isUsable(@NotNull final SingleEntryResult result, final long expireBuffer) {
+        AdTokenCacheEntry entry = result.cacheEntry;
+        if (!result.isResourceSpecific || entry == null || entry.getAuthResult() == null
+                || StringUtils.isNullOrEmpty(entry.getAuthResult().getRefreshToken())) {
+            return false;
+        }
+
+        Date expiresOn = entry.getAuthResult().getExpiresOnDate();
+        return expiresOn != null && (new Date()).getTime() + expireBuffer <= expiresOn.getTime();
+    }
+
     private AdTokenCacheEntry refreshEntryIfNecessary(@NotNull final SingleEntryResult result,
-                                                      @NotNull final TokenCacheKey key) throws AuthException {
+                                                      @NotNull final TokenCacheKey key,
+                                                      final long expireBuffer) throws AuthException {
         AdTokenCacheEntry entry = result.cacheEntry;
         if (entry == null || entry.getAuthResult() == null) {
             if (null != entry) {
@@ -100,11 +239,10 @@ abstract class CacheDriver {
 
         long expireTimeStamp = authResult.getExpiresOnDate() != null ? authResult.getExpiresOnDate().getTime() : 0;
         long nowTimeStamp = (new Date()).getTime();
-        long nowPlusBuffer = nowTimeStamp + EXPIREBUFFER;
+        long nowPlusBuffer = nowTimeStamp + expireBuffer;
 
         if (result.isResourceSpecific && nowPlusBuffer > expireTimeStamp) {
-            AdTokenCache.getInstance().remove(entry);
-            return refreshExpireEntry(refreshToken, key.getResource(), authResult.getUserInfo());
+            return refreshExpireEntry(entry, refreshToken, key.getResource(), authResult.getUserInfo());
         } else if (!result.isResourceSpecific && authResult.isMultipleResourceRefreshToken()) {
             return acquireTokenFromMrrt(refreshToken, key.getResource(), authResult.getUserInfo());
         } else {
@@ -123,7 +261,8 @@ abstract class CacheDriver {
         return createAddEntry(result, resource, info);
     }
 
-    private AdTokenCacheEntry refreshExpireEntry(@NotNull final String refreshToken,
+    private AdTokenCacheEntry refreshExpireEntry(@NotNull final AdTokenCacheEntry expireEntry,
+                                                 @NotNull final String refreshToken,
                                                  final String resource, final UserInfo info) throws AuthException {
         AuthResult result = getTokenWithRefreshToken(refreshToken, null);
 
@@ -131,6 +270,8 @@ abstract class CacheDriver {
             throw new AuthException(FAILREFRSH);
         }
 
+        // Only drop the entry once replaced, a renewal ahead of time may fail while the token is still valid
+        AdTokenCache.getInstance().remove(expireEntry);
         return createAddEntry(result, resource, info);
     }
 
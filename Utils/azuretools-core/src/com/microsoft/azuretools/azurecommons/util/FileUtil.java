@@ -33,6 +33,7 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Enumeration;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -40,6 +41,8 @@ import java.util.zip.ZipOutputStream;
 public class FileUtil {
 
     private static final int BUFF_SIZE = 1024;
+    private static final int ZIP_STREAM_BUFF_SIZE = 256 * 1024;
+    private static final String[] COMPRESSED_ARCHIVE_EXTENSIONS = {".jar", ".war", ".ear", ".zip"};
     private static final String USER_HOME = "user.home";
 
     /**
@@ -178,6 +181,72 @@ public class FileUtil {
         }
     }
 
+    /**
+     * Utility method to create the zip entry of the given source file. Already compressed archives are stored as is
+     * rather than deflated again, which needs their checksum up front.
+     * @param sourceFile source file
+     * @param entryName name of the entry in the archive
+     * @return zip entry to pass to {@link #zipFileTo(File, ZipEntry, OutputStream)}
+     */
+    public static ZipEntry createZipEntry(@NotNull final File sourceFile,
+                                          @NotNull final String entryName) throws IOException {
+        final ZipEntry zipEntry = new ZipEntry(entryName);
+        zipEntry.setTime(sourceFile.lastModified());
+        if (isCompressedArchive(sourceFile)) {
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(sourceFile.length());
+            zipEntry.setCompressedSize(sourceFile.length());
+            zipEntry.setCrc(getCrc32(sourceFile));
+        }
+        return zipEntry;
+    }
+
+    /**
+     * Utility method to stream the given source file as the single entry of a zip archive, without staging either
+     * of them on disk. The entry header is flushed to the target before the source file is read.
+     * @param sourceFile source file
+     * @param zipEntry entry created by {@link #createZipEntry(File, String)}
+     * @param target stream the archive is written to, left open
+     */
+    public static void zipFileTo(@NotNull final File sourceFile, @NotNull final ZipEntry zipEntry,
+                                 @NotNull final OutputStream target) throws IOException {
+        final ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(target, ZIP_STREAM_BUFF_SIZE));
+        zipOut.putNextEntry(new ZipEntry(zipEntry));
+        zipOut.flush();
+        try (final FileInputStream fis = new FileInputStream(sourceFile)) {
+            final byte[] bytes = new byte[ZIP_STREAM_BUFF_SIZE];
+            int length;
+            while ((length = fis.read(bytes)) >= 0) {
+                zipOut.write(bytes, 0, length);
+            }
+        }
+        zipOut.closeEntry();
+        zipOut.finish();
+        zipOut.flush();
+    }
+
+    private static boolean isCompressedArchive(@NotNull final File file) {
+        final String fileName = file.getName().toLowerCase();
+        for (final String extension : COMPRESSED_ARCHIVE_EXTENSIONS) {
+            if (fileName.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getCrc32(@NotNull final File file) throws IOException {
+        final CRC32 crc = new CRC32();
+        try (final FileInputStream fis = new FileInputStream(file)) {
+            final byte[] bytes = new byte[ZIP_STREAM_BUFF_SIZE];
+            int length;
+            while ((length = fis.read(bytes)) >= 0) {
+                crc.update(bytes, 0, length);
+            }
+        }
+        return crc.getValue();
+    }
+
     public static boolean isNonEmptyFolder(String filePath){
         File file = new File(filePath);
         return file.exists() && file.isDirectory() && file.listFiles() != null && file.listFiles().length > 0;
@@ -25,22 +25,99 @@ package com.microsoft.azuretools.core.mvp.model.rediscache;
 import com.microsoft.azure.management.redis.RedisCache;
 
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisException;
 
+/**
+ * The registry of Jedis connection pools, one pool per Redis Cache.
+ *
+ * The pools of several caches are kept at the same time, the least recently used one is destroyed when the registry
+ * is full. Getting a connection of a connected cache doesn't take any lock.
+ */
 public class RedisConnectionPools {
 
     private static final int TIMEOUT = 500;
-    private static final int MAX_CONNECTIONS = 1;
+    private static final int DEFAULT_MAX_CACHES = 4;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_CACHE = 8;
+    private static final long DEFAULT_IDLE_EVICTION_MILLIS = 5 * 60 * 1000;
+    private static final long MAX_BORROW_WAIT_MILLIS = 10 * 1000;
     private static final String GANNOT_GET_RESID = "Cannot get Redis Cache from Azure.";
 
-    private LinkedHashMap<String, JedisPool> pools;
+    private static final class PoolEntry {
+        private final JedisPool pool;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private PoolEntry(JedisPool pool) {
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * The statistics of a Jedis connection pool.
+     */
+    public static final class PoolStatistics {
+        private final String id;
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final long meanBorrowWaitMillis;
+        private final long maxBorrowWaitMillis;
+
+        private PoolStatistics(String id, JedisPool pool) {
+            this.id = id;
+            this.active = pool.getNumActive();
+            this.idle = pool.getNumIdle();
+            this.waiters = pool.getNumWaiters();
+            this.meanBorrowWaitMillis = pool.getMeanBorrowWaitTimeMillis();
+            this.maxBorrowWaitMillis = pool.getMaxBorrowWaitTimeMillis();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiters() {
+            return waiters;
+        }
+
+        public long getMeanBorrowWaitMillis() {
+            return meanBorrowWaitMillis;
+        }
+
+        public long getMaxBorrowWaitMillis() {
+            return maxBorrowWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: active %d, idle %d, waiters %d, borrow wait mean %d ms, max %d ms",
+                    id, active, idle, waiters, meanBorrowWaitMillis, maxBorrowWaitMillis);
+        }
+    }
+
+    private final Map<String, PoolEntry> pools;
+
+    private volatile int maxCaches = DEFAULT_MAX_CACHES;
+    private volatile int maxConnectionsPerCache = DEFAULT_MAX_CONNECTIONS_PER_CACHE;
+    private volatile long idleEvictionMillis = DEFAULT_IDLE_EVICTION_MILLIS;
 
     private RedisConnectionPools() {
-        this.pools = new LinkedHashMap<String, JedisPool>(MAX_CONNECTIONS);
+        this.pools = new ConcurrentHashMap<>();
     }
 
     private static final class RedisConnectionFactoryHolder {
@@ -51,6 +128,27 @@ public class RedisConnectionPools {
         return RedisConnectionFactoryHolder.INSTANCE;
     }
 
+    /**
+     * Set the max number of Redis Caches to keep the connection pools for, it applies to the coming connections.
+     */
+    public void setMaxCaches(int maxCaches) {
+        this.maxCaches = Math.max(1, maxCaches);
+    }
+
+    /**
+     * Set the max connections of a Redis Cache, it applies to the pools created later.
+     */
+    public void setMaxConnectionsPerCache(int maxConnectionsPerCache) {
+        this.maxConnectionsPerCache = Math.max(1, maxConnectionsPerCache);
+    }
+
+    /**
+     * Set the time an idle connection lives in the pool, it applies to the pools created later.
+     */
+    public void setIdleEvictionMillis(long idleEvictionMillis) {
+        this.idleEvictionMillis = idleEvictionMillis;
+    }
+
     /**
      * Get Jedis connection.
      *
@@ -61,14 +159,23 @@ public class RedisConnectionPools {
      * @return jedis connection
      * @throws IOException Error getting the Redis Cache
      */
-    public synchronized Jedis getJedis(String sid, String id) throws Exception  {
-        if (pools.get(id) == null) {
-            if (pools.size() == MAX_CONNECTIONS) {
-                releasePool(pools.keySet().iterator().next());
+    public Jedis getJedis(String sid, String id) throws Exception  {
+        while (true) {
+            PoolEntry entry = pools.get(id);
+            if (entry == null) {
+                entry = connectIfAbsent(sid, id);
+            }
+
+            entry.lastAccessNanos = System.nanoTime();
+            try {
+                return entry.pool.getResource();
+            } catch (JedisException e) {
+                // The pool is released by others in the meantime, get the connection again
+                if (!entry.pool.isClosed()) {
+                    throw e;
+                }
             }
-            connect(sid, id);
         }
-        return pools.get(id).getResource();
     }
 
     /**
@@ -78,16 +185,64 @@ public class RedisConnectionPools {
      *            id of the jedisPool which needs to be destroyed
      */
     public synchronized void releasePool(String id) {
-        if (pools.containsKey(id)) {
-            JedisPool jedisPool = pools.get(id);
-            if (jedisPool != null) {
-                jedisPool.destroy();
+        PoolEntry entry = pools.remove(id);
+        if (entry != null) {
+            entry.pool.destroy();
+        }
+    }
+
+    /**
+     * Get the statistics of the Redis Cache connection pool.
+     *
+     * @param id
+     *            resource id of Redis Cache
+     * @return the statistics, or null if the Redis Cache isn't connected
+     */
+    public PoolStatistics getPoolStatistics(String id) {
+        PoolEntry entry = pools.get(id);
+        return entry == null ? null : new PoolStatistics(id, entry.pool);
+    }
+
+    /**
+     * Get the statistics of all connection pools.
+     */
+    public List<PoolStatistics> getAllPoolStatistics() {
+        List<PoolStatistics> statistics = new ArrayList<>();
+        for (Map.Entry<String, PoolEntry> entry : pools.entrySet()) {
+            statistics.add(new PoolStatistics(entry.getKey(), entry.getValue().pool));
+        }
+        return statistics;
+    }
+
+    private synchronized PoolEntry connectIfAbsent(String sid, String id) throws Exception {
+        PoolEntry entry = pools.get(id);
+        if (entry != null) {
+            return entry;
+        }
+
+        while (pools.size() >= maxCaches) {
+            releasePool(getLeastRecentlyUsedId());
+        }
+
+        entry = new PoolEntry(connect(sid, id));
+        pools.put(id, entry);
+        return entry;
+    }
+
+    private String getLeastRecentlyUsedId() {
+        String lruId = null;
+        long lruAccessNanos = 0;
+        for (Map.Entry<String, PoolEntry> entry : pools.entrySet()) {
+            long accessNanos = entry.getValue().lastAccessNanos;
+            if (lruId == null || accessNanos - lruAccessNanos < 0) {
+                lruId = entry.getKey();
+                lruAccessNanos = accessNanos;
             }
-            pools.remove(id);
         }
+        return lruId;
     }
 
-    private void connect(String sid, String id) throws Exception {
+    private JedisPool connect(String sid, String id) throws Exception {
         RedisCache redisCache = AzureRedisMvpModel.getInstance().getRedisCache(sid, id);
 
         if (redisCache == null) {
@@ -99,8 +254,14 @@ public class RedisConnectionPools {
         String password = redisCache.keys().primaryKey();
         int port = redisCache.sslPort();
 
+        // keep the idle connections for a while to save the TLS handshake and authentication
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(maxConnectionsPerCache);
+        config.setMaxIdle(maxConnectionsPerCache);
+        config.setMinEvictableIdleTimeMillis(idleEvictionMillis);
+        config.setMaxWaitMillis(MAX_BORROW_WAIT_MILLIS);
+
         // create connection pool according to redis setting
-        JedisPool pool = new JedisPool(new JedisPoolConfig(), hostName, port, TIMEOUT, password, true);
-        pools.put(id, pool);
+        return new JedisPool(config, hostName, port, TIMEOUT, password, true);
     }
 }
@@ -252,6 +252,17 @@ public class RedisExplorerMvpModel {
         }
     }
 
+    /**
+     * Get the connection pool statistics of the Redis Cache.
+     *
+     * @param id
+     *            resource id of Redis Cache
+     * @return the statistics, or null if the Redis Cache isn't connected
+     */
+    public RedisConnectionPools.PoolStatistics getConnectionPoolStatistics(String id) {
+        return RedisConnectionPools.getInstance().getPoolStatistics(id);
+    }
+
     private boolean canConnect(Jedis jedis, int index) {
         try {
             jedis.select(index);
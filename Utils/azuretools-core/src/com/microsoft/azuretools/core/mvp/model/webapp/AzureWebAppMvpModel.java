@@ -60,19 +60,22 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class AzureWebAppMvpModel {
 
     public static final String CANNOT_GET_WEB_APP_WITH_ID = "Cannot get Web App with ID: ";
-    private final Map<String, List<ResourceEx<WebApp>>> subscriptionIdToWebApps;
+    // The bounded fan-out of listing web apps in all selected subscriptions
+    private static final int MAX_CONCURRENT_SUBSCRIPTION_LISTINGS = 8;
+
+    private final WebAppInventory webAppInventory;
 
     private static final List<WebAppUtils.WebContainerMod> JAVA_8_JAR_CONTAINERS = Collections.singletonList(WebAppUtils.WebContainerMod.Java_SE_8);
     private static final List<WebAppUtils.WebContainerMod> JAVA_11_JAR_CONTAINERS = Collections.singletonList(WebAppUtils.WebContainerMod.Java_SE_11);
 
     private AzureWebAppMvpModel() {
-        subscriptionIdToWebApps = new ConcurrentHashMap<>();
+        webAppInventory = new WebAppInventory();
     }
 
     public static AzureWebAppMvpModel getInstance() {
@@ -80,14 +83,28 @@ public class AzureWebAppMvpModel {
     }
 
     /**
-     * get the web app by ID.
+     * get the web app by ID, from the web app inventory if the subscription is listed recently. The cached app is
+     * shared and may be out of date, so only read it, the operations updating the app get it fresh from Azure.
      */
     public WebApp getWebAppById(String sid, String id) throws IOException {
+        final WebApp cached = webAppInventory.getById(sid, id);
+        if (cached != null) {
+            return cached;
+        }
+
+        return getFreshWebAppById(sid, id);
+    }
+
+    /**
+     * get the web app by ID from Azure to update it, and refresh it in the web app inventory.
+     */
+    public WebApp getFreshWebAppById(String sid, String id) throws IOException {
         Azure azure = AuthMethodManager.getInstance().getAzureClient(sid);
         WebApp app = azure.webApps().getById(id);
         if (app == null) {
             throw new IOException(CANNOT_GET_WEB_APP_WITH_ID + id); // TODO: specify the type of exception.
         }
+        webAppInventory.update(sid, app);
         return app;
     }
 
@@ -109,7 +126,7 @@ public class AzureWebAppMvpModel {
      * API to create a new Deployment Slot by setting model.
      */
     public DeploymentSlot createDeploymentSlot(@NotNull WebAppSettingModel model) throws Exception {
-        final WebApp app = getWebAppById(model.getSubscriptionId(), model.getWebAppId());
+        final WebApp app = getFreshWebAppById(model.getSubscriptionId(), model.getWebAppId());
         final String name = model.getNewSlotName();
         final String configurationSource = model.getNewSlotConfigurationSource();
         final DeploymentSlot.DefinitionStages.Blank definedSlot = app.deploymentSlots().define(name);
@@ -149,10 +166,12 @@ public class AzureWebAppMvpModel {
             withCreate = withExistingWindowsServicePlan(azure, model);
         }
 
-        return withCreate
+        final WebApp app = withCreate
                 .withJavaVersion(model.getJdkVersion())
                 .withWebContainer(WebContainer.fromString(model.getWebContainer()))
                 .create();
+        webAppInventory.update(model.getSubscriptionId(), app);
+        return app;
     }
 
     /**
@@ -168,7 +187,9 @@ public class AzureWebAppMvpModel {
             withCreate = withExistingLinuxServicePlan(azure, model);
         }
 
-        return withCreate.withBuiltInImage(model.getLinuxRuntime()).create();
+        final WebApp app = withCreate.withBuiltInImage(model.getLinuxRuntime()).create();
+        webAppInventory.update(model.getSubscriptionId(), app);
+        return app;
     }
 
     private AppServicePlan.DefinitionStages.WithCreate prepareWithCreate(
@@ -264,7 +285,7 @@ public class AzureWebAppMvpModel {
 
     public void deleteWebApp(String sid, String appId) throws IOException {
         AuthMethodManager.getInstance().getAzureClient(sid).webApps().deleteById(appId);
-        subscriptionIdToWebApps.remove(sid);
+        webAppInventory.remove(sid, appId);
     }
 
     /**
@@ -337,8 +358,8 @@ public class AzureWebAppMvpModel {
                         .withStartUpCommand(pr.getStartupFile()).create();
             }
         }
+        webAppInventory.update(model.getSubscriptionId(), app);
         return app;
-        // TODO: update cache
     }
 
     /**
@@ -350,13 +371,14 @@ public class AzureWebAppMvpModel {
      * @return instance of the updated Web App on Linux
      */
     public WebApp updateWebAppOnDocker(String sid, String webAppId, ImageSetting imageSetting) throws Exception {
-        WebApp app = getWebAppById(sid, webAppId);
+        WebApp app = getFreshWebAppById(sid, webAppId);
         clearTags(app);
         if (imageSetting instanceof PrivateRegistryImageSetting) {
             PrivateRegistryImageSetting pr = (PrivateRegistryImageSetting) imageSetting;
-            app.update().withPrivateRegistryImage(pr.getImageTagWithServerUrl(), pr.getServerUrl())
+            app = app.update().withPrivateRegistryImage(pr.getImageTagWithServerUrl(), pr.getServerUrl())
                     .withCredentials(pr.getUsername(), pr.getPassword())
                     .withStartUpCommand(pr.getStartupFile()).apply();
+            webAppInventory.update(sid, app);
         } else {
             // TODO: other types of ImageSetting, e.g. Docker Hub
         }
@@ -377,14 +399,14 @@ public class AzureWebAppMvpModel {
      */
     public void updateWebAppSettings(String sid, String webAppId, Map<String, String> toUpdate, Set<String> toRemove)
             throws Exception {
-        WebApp app = getWebAppById(sid, webAppId);
+        WebApp app = getFreshWebAppById(sid, webAppId);
         clearTags(app);
         com.microsoft.azure.management.appservice.WebAppBase.Update<WebApp> update = app.update()
                 .withAppSettings(toUpdate);
         for (String key : toRemove) {
             update = update.withoutAppSetting(key);
         }
-        update.apply();
+        webAppInventory.update(sid, update.apply());
     }
 
     /**
@@ -393,7 +415,7 @@ public class AzureWebAppMvpModel {
     public void updateDeploymentSlotAppSettings(final String subsciptionId, final String webAppId,
                                                 final String slotName, final Map<String, String> toUpdate,
                                                 final Set<String> toRemove) throws Exception {
-        final DeploymentSlot slot = getWebAppById(subsciptionId, webAppId).deploymentSlots().getByName(slotName);
+        final DeploymentSlot slot = getFreshWebAppById(subsciptionId, webAppId).deploymentSlots().getByName(slotName);
         clearTags(slot);
         com.microsoft.azure.management.appservice.WebAppBase.Update<DeploymentSlot> update = slot.update()
             .withAppSettings(toUpdate);
@@ -408,15 +430,24 @@ public class AzureWebAppMvpModel {
     }
 
     public void restartWebApp(String sid, String appid) throws IOException {
-        AuthMethodManager.getInstance().getAzureClient(sid).webApps().getById(appid).restart();
+        final WebApp app = getFreshWebAppById(sid, appid);
+        app.restart();
+        // The app is refreshed after the operation
+        webAppInventory.update(sid, app);
     }
 
     public void startWebApp(String sid, String appid) throws IOException {
-        AuthMethodManager.getInstance().getAzureClient(sid).webApps().getById(appid).start();
+        final WebApp app = getFreshWebAppById(sid, appid);
+        app.start();
+        // The app is refreshed after the operation
+        webAppInventory.update(sid, app);
     }
 
     public void stopWebApp(String sid, String appid) throws IOException {
-        AuthMethodManager.getInstance().getAzureClient(sid).webApps().getById(appid).stop();
+        final WebApp app = getFreshWebAppById(sid, appid);
+        app.stop();
+        // The app is refreshed after the operation
+        webAppInventory.update(sid, app);
     }
 
     public void startDeploymentSlot(final String subscriptionId, final String appId,
@@ -493,12 +524,7 @@ public class AzureWebAppMvpModel {
      * List all the Web Apps on Windows in selected subscriptions.
      */
     public List<ResourceEx<WebApp>> listAllWebAppsOnWindows(final boolean force) {
-        final List<ResourceEx<WebApp>> webApps = new ArrayList<>();
-        for (final Subscription sub : AzureMvpModel.getInstance().getSelectedSubscriptions()) {
-            final String sid = sub.subscriptionId();
-            webApps.addAll(listWebAppsOnWindows(sid, force));
-        }
-        return webApps;
+        return listInSelectedSubscriptions(sid -> listWebAppsOnWindows(sid, force));
     }
 
     /**
@@ -520,39 +546,72 @@ public class AzureWebAppMvpModel {
      * @return list of Web App
      */
     public List<ResourceEx<WebApp>> listAllWebApps(final boolean force) {
-        final List<ResourceEx<WebApp>> webApps = new ArrayList<>();
-        List<Subscription> subs = AzureMvpModel.getInstance().getSelectedSubscriptions();
+        return listInSelectedSubscriptions(sid -> listWebApps(sid, force));
+    }
+
+    /**
+     * List the web apps in all selected subscriptions in parallel, the results are in the order of subscriptions.
+     */
+    private List<ResourceEx<WebApp>> listInSelectedSubscriptions(
+            final Function<String, List<ResourceEx<WebApp>>> listBySubscriptionId) {
+        final List<Subscription> subs = AzureMvpModel.getInstance().getSelectedSubscriptions();
         if (subs.size() == 0) {
-            return webApps;
+            return new ArrayList<>();
         }
-        Observable.from(subs).flatMap((sd) ->
-            Observable.create((subscriber) -> {
-                List<ResourceEx<WebApp>> webAppList = listWebApps(sd.subscriptionId(), force);
-                synchronized (webApps) {
-                    webApps.addAll(webAppList);
-                }
-                subscriber.onCompleted();
-            }).subscribeOn(Schedulers.io()), subs.size()).subscribeOn(Schedulers.io()).toBlocking().subscribe();
-        return webApps;
+
+        return Observable.from(subs)
+            .concatMapEager(sub -> Observable
+                    .fromCallable(() -> listBySubscriptionId.apply(sub.subscriptionId()))
+                    .subscribeOn(Schedulers.io()),
+                subs.size(),
+                MAX_CONCURRENT_SUBSCRIPTION_LISTINGS)
+            .<List<ResourceEx<WebApp>>>collect(ArrayList::new, List::addAll)
+            .toBlocking()
+            .single();
     }
 
     /**
-     * List web apps on linux by subscription id.
+     * List web apps by subscription id and resource group name.
      */
-    public List<ResourceEx<WebApp>> listWebAppsOnLinux(@NotNull final String subscriptionId, final boolean force) {
-        return listWebApps(subscriptionId, force)
+    List<ResourceEx<WebApp>> listWebAppsByResourceGroup(@NotNull final String subscriptionId,
+                                                               @NotNull final String resourceGroup,
+                                                               final boolean force) {
+        final List<ResourceEx<WebApp>> cached = force ? null : webAppInventory.listByResourceGroup(subscriptionId, resourceGroup);
+        if (cached != null) {
+            return new ArrayList<>(cached);
+        }
+
+        return listWebApps(subscriptionId, true)
             .stream()
-            .filter(resourceEx -> OperatingSystem.LINUX.equals(resourceEx.getResource().operatingSystem()))
+            .filter(resourceEx -> resourceGroup.equalsIgnoreCase(resourceEx.getResource().resourceGroupName()))
             .collect(Collectors.toList());
     }
 
+    /**
+     * List web apps on linux by subscription id.
+     */
+    public List<ResourceEx<WebApp>> listWebAppsOnLinux(@NotNull final String subscriptionId, final boolean force) {
+        return listWebAppsByOperatingSystem(subscriptionId, OperatingSystem.LINUX, force);
+    }
+
     /**
      * List web apps on windows by subscription id.
      */
     public List<ResourceEx<WebApp>> listWebAppsOnWindows(@NotNull final String subscriptionId, final boolean force) {
-        return listWebApps(subscriptionId, force)
+        return listWebAppsByOperatingSystem(subscriptionId, OperatingSystem.WINDOWS, force);
+    }
+
+    private List<ResourceEx<WebApp>> listWebAppsByOperatingSystem(@NotNull final String subscriptionId,
+                                                                  @NotNull final OperatingSystem os,
+                                                                  final boolean force) {
+        final List<ResourceEx<WebApp>> cached = force ? null : webAppInventory.listByOperatingSystem(subscriptionId, os);
+        if (cached != null) {
+            return cached;
+        }
+
+        return listWebApps(subscriptionId, true)
             .stream()
-            .filter(resourceEx -> OperatingSystem.WINDOWS.equals((resourceEx.getResource().operatingSystem())))
+            .filter(resourceEx -> os.equals(resourceEx.getResource().operatingSystem()))
             .collect(Collectors.toList());
     }
 
@@ -561,8 +620,9 @@ public class AzureWebAppMvpModel {
      */
     @NotNull
     public List<ResourceEx<WebApp>> listWebApps(final String subscriptionId, final boolean force) {
-        if (!force && subscriptionIdToWebApps.get(subscriptionId) != null) {
-            return subscriptionIdToWebApps.get(subscriptionId);
+        final List<ResourceEx<WebApp>> cached = force ? null : webAppInventory.list(subscriptionId);
+        if (cached != null) {
+            return new ArrayList<>(cached);
         }
 
         List<ResourceEx<WebApp>> webApps = new ArrayList<>();
@@ -572,7 +632,7 @@ public class AzureWebAppMvpModel {
                 .stream()
                 .map(app -> new ResourceEx<WebApp>(app, subscriptionId))
                 .collect(Collectors.toList());
-            subscriptionIdToWebApps.put(subscriptionId, webApps);
+            webAppInventory.put(subscriptionId, webApps);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -639,12 +699,7 @@ public class AzureWebAppMvpModel {
      * @return list of Web App on Linux
      */
     public List<ResourceEx<WebApp>> listAllWebAppsOnLinux(final boolean force) {
-        final List<ResourceEx<WebApp>> webApps = new ArrayList<>();
-        for (final Subscription sub : AzureMvpModel.getInstance().getSelectedSubscriptions()) {
-            final String sid = sub.subscriptionId();
-            webApps.addAll(listWebAppsOnLinux(sid, force));
-        }
-        return webApps;
+        return listInSelectedSubscriptions(sid -> listWebAppsOnLinux(sid, force));
     }
 
     /**
@@ -657,7 +712,7 @@ public class AzureWebAppMvpModel {
      * @throws Exception exception
      */
     public boolean getPublishingProfileXmlWithSecrets(String sid, String webAppId, String filePath) throws Exception {
-        WebApp app = getWebAppById(sid, webAppId);
+        WebApp app = getFreshWebAppById(sid, webAppId);
         return AppServiceUtils.getPublishingProfileXmlWithSecrets(app, filePath);
     }
 
@@ -666,7 +721,7 @@ public class AzureWebAppMvpModel {
      */
     public boolean getSlotPublishingProfileXmlWithSecrets(final String sid, final String webAppId, final String slotName,
                                                           final String filePath) throws Exception {
-        final WebApp app = getWebAppById(sid, webAppId);
+        final WebApp app = getFreshWebAppById(sid, webAppId);
         final DeploymentSlot slot = app.deploymentSlots().getByName(slotName);
         final File file = new File(Paths.get(filePath, slotName + "_" + System.currentTimeMillis() + ".PublishSettings")
             .toString());
@@ -696,7 +751,7 @@ public class AzureWebAppMvpModel {
     }
 
     public void clearWebAppsCache() {
-        subscriptionIdToWebApps.clear();
+        webAppInventory.clear();
     }
 
     public List<Region> getAvailableRegions(String subscriptionId, PricingTier pricingTier) throws IOException {
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.webapp;
+
+import com.microsoft.azure.management.appservice.OperatingSystem;
+import com.microsoft.azure.management.appservice.WebApp;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.core.mvp.model.ResourceEx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The in-memory web app inventory of subscriptions.
+ *
+ * The web apps of a subscription are listed as a whole and live for a TTL, and are indexed by resource ID and
+ * resource group. The create, delete and power operations update the app entries in place, so the inventory doesn't
+ * need to be listed again.
+ */
+public class WebAppInventory {
+    public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final class SubscriptionEntry {
+        private final List<ResourceEx<WebApp>> webApps;
+        private final Map<String, ResourceEx<WebApp>> byId = new HashMap<>();
+        private final Map<String, List<ResourceEx<WebApp>>> byResourceGroup = new HashMap<>();
+        private final long listedTimeMillis;
+
+        private SubscriptionEntry(@NotNull List<ResourceEx<WebApp>> webApps, long listedTimeMillis) {
+            this.webApps = Collections.unmodifiableList(webApps);
+            this.listedTimeMillis = listedTimeMillis;
+
+            for (ResourceEx<WebApp> webApp : webApps) {
+                final String id = toKey(webApp.getResource().id());
+                if (id != null) {
+                    byId.put(id, webApp);
+                }
+
+                final String resourceGroup = toKey(webApp.getResource().resourceGroupName());
+                if (resourceGroup != null) {
+                    byResourceGroup.computeIfAbsent(resourceGroup, rg -> new ArrayList<>()).add(webApp);
+                }
+            }
+        }
+    }
+
+    private final long ttlMillis;
+
+    // The entry is replaced as a whole for any change, so the readers always see a consistent one
+    private final Map<String, SubscriptionEntry> subscriptionEntries = new ConcurrentHashMap<>();
+
+    public WebAppInventory() {
+        this(DEFAULT_TTL_MS);
+    }
+
+    public WebAppInventory(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the web apps of the subscription, or null if not listed or expired
+     */
+    @Nullable
+    public List<ResourceEx<WebApp>> list(@NotNull String subscriptionId) {
+        final SubscriptionEntry entry = getFreshEntry(subscriptionId);
+
+        return entry == null ? null : entry.webApps;
+    }
+
+    /**
+     * @return the web apps of the resource group, or null if the subscription is not listed or expired
+     */
+    @Nullable
+    public List<ResourceEx<WebApp>> listByResourceGroup(@NotNull String subscriptionId, @NotNull String resourceGroup) {
+        final SubscriptionEntry entry = getFreshEntry(subscriptionId);
+        if (entry == null) {
+            return null;
+        }
+
+        return Collections.unmodifiableList(
+                entry.byResourceGroup.getOrDefault(toKey(resourceGroup), Collections.emptyList()));
+    }
+
+    /**
+     * @return the web apps on the operating system, or null if the subscription is not listed or expired
+     */
+    @Nullable
+    public List<ResourceEx<WebApp>> listByOperatingSystem(@NotNull String subscriptionId, @NotNull OperatingSystem os) {
+        final SubscriptionEntry entry = getFreshEntry(subscriptionId);
+        if (entry == null) {
+            return null;
+        }
+
+        return entry.webApps.stream()
+                .filter(webApp -> os.equals(webApp.getResource().operatingSystem()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the web app, or null if not found or the subscription is not listed or expired
+     */
+    @Nullable
+    public WebApp getById(@NotNull String subscriptionId, @NotNull String id) {
+        final SubscriptionEntry entry = getFreshEntry(subscriptionId);
+        if (entry == null) {
+            return null;
+        }
+
+        final ResourceEx<WebApp> webApp = entry.byId.get(toKey(id));
+
+        return webApp == null ? null : webApp.getResource();
+    }
+
+    public void put(@NotNull String subscriptionId, @NotNull List<ResourceEx<WebApp>> webApps) {
+        subscriptionEntries.put(subscriptionId, new SubscriptionEntry(new ArrayList<>(webApps), System.currentTimeMillis()));
+    }
+
+    /**
+     * Add or replace the web app in the listed subscription, the subscription not listed is left as is
+     */
+    public void update(@NotNull String subscriptionId, @NotNull WebApp webApp) {
+        final String id = toKey(webApp.id());
+        if (id == null) {
+            return;
+        }
+
+        subscriptionEntries.computeIfPresent(subscriptionId, (sid, entry) -> {
+            final List<ResourceEx<WebApp>> webApps = new ArrayList<>(entry.webApps);
+            final ResourceEx<WebApp> updated = new ResourceEx<>(webApp, sid);
+            final ResourceEx<WebApp> existing = entry.byId.get(id);
+
+            if (existing == null) {
+                webApps.add(updated);
+            } else {
+                webApps.set(webApps.indexOf(existing), updated);
+            }
+
+            return new SubscriptionEntry(webApps, entry.listedTimeMillis);
+        });
+    }
+
+    public void remove(@NotNull String subscriptionId, @NotNull String id) {
+        final String key = toKey(id);
+
+        subscriptionEntries.computeIfPresent(subscriptionId, (sid, entry) -> {
+            final ResourceEx<WebApp> existing = entry.byId.get(key);
+            if (existing == null) {
+                return entry;
+            }
+
+            final List<ResourceEx<WebApp>> webApps = new ArrayList<>(entry.webApps);
+            webApps.remove(existing);
+
+            return new SubscriptionEntry(webApps, entry.listedTimeMillis);
+        });
+    }
+
+    public void invalidate(@NotNull String subscriptionId) {
+        subscriptionEntries.remove(subscriptionId);
+    }
+
+    public void clear() {
+        subscriptionEntries.clear();
+    }
+
+    @Nullable
+    private SubscriptionEntry getFreshEntry(@NotNull String subscriptionId) {
+        final SubscriptionEntry entry = subscriptionEntries.get(subscriptionId);
+        if (entry == null || System.currentTimeMillis() - entry.listedTimeMillis >= ttlMillis) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    // The resource ID and resource group name are case insensitive
+    @Nullable
+    private static String toKey(@Nullable String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -29,11 +29,35 @@ import com.microsoft.azuretools.telemetrywrapper.TelemetryManager;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class AppInsightsClient {
     static AppInsightsConfiguration configuration;
 
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MILLIS = 3000;
+
+    // Events are sent by a background thread, started with the first event and flushed once when the IDE exits
+    private static final class EventQueueHolder {
+        private static final TelemetryEventQueue INSTANCE = createEventQueue();
+
+        private static TelemetryEventQueue createEventQueue() {
+            final TelemetryEventQueue queue = new TelemetryEventQueue(new TelemetryEventQueue.Sink() {
+                @Override
+                public void send(List<TelemetryEventQueue.Event> events) {
+                    TelemetryClient telemetry = TelemetryClientSingleton.getTelemetry();
+                    for (TelemetryEventQueue.Event event : events) {
+                        telemetry.trackEvent(event.getName(), event.getProperties(), event.getMetrics());
+                    }
+                    telemetry.flush();
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> queue.shutdown(SHUTDOWN_FLUSH_TIMEOUT_MILLIS),
+                    "telemetry-shutdown-flush"));
+            return queue;
+        }
+    }
+
     public enum EventType {
         Action,
         Dialog,
@@ -114,12 +138,8 @@ public class AppInsightsClient {
         if (isAppInsightsClientAvailable() && configuration.validated()) {
             String prefValue = configuration.preferenceVal();
             if (prefValue == null || prefValue.isEmpty() || prefValue.equalsIgnoreCase("true") || force) {
-                TelemetryClient telemetry = TelemetryClientSingleton.getTelemetry();
                 Map<String, String> properties = buildProperties(version, myProperties);
-                synchronized (TelemetryClientSingleton.class) {
-                    telemetry.trackEvent(eventName, properties, metrics);
-                    telemetry.flush();
-                }
+                EventQueueHolder.INSTANCE.offer(new TelemetryEventQueue.Event(eventName, properties, metrics));
             }
         }
     }
@@ -155,8 +175,6 @@ public class AppInsightsClient {
         if (!isAppInsightsClientAvailable())
             return;
 
-        TelemetryClient telemetry = TelemetryClientSingleton.getTelemetry();
-
         Map<String, String> properties = new HashMap<String, String>();
         properties.put("SessionId", configuration.sessionId());
         if (uri != null && !uri.isEmpty()) {
@@ -179,10 +197,7 @@ public class AppInsightsClient {
                 properties.put("Installation ID", instID);
             }
         }
-        synchronized (TelemetryClientSingleton.class) {
-            telemetry.trackEvent(eventName, properties, null);
-            telemetry.flush();
-        }
+        EventQueueHolder.INSTANCE.offer(new TelemetryEventQueue.Event(eventName, properties, null));
     }
 
     private static boolean isAppInsightsClientAvailable() {
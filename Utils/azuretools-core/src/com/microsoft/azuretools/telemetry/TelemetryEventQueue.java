@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded queue of telemetry events drained by a single background sender, so that tracking an event never waits
+ * on the network. The sender hands the events to the sink in batches, once a batch is full or the flush interval
+ * has passed. When the queue is full the oldest events are dropped and counted.
+ */
+public final class TelemetryEventQueue {
+    private static final Logger LOGGER = Logger.getLogger(TelemetryEventQueue.class.getName());
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5000;
+
+    public interface Sink {
+        void send(@NotNull List<Event> events);
+    }
+
+    public static final class Event {
+        private final String name;
+        private final Map<String, String> properties;
+        private final Map<String, Double> metrics;
+
+        public Event(@NotNull String name, @Nullable Map<String, String> properties,
+                     @Nullable Map<String, Double> metrics) {
+            this.name = name;
+            this.properties = properties;
+            this.metrics = metrics;
+        }
+
+        @NotNull
+        public String getName() {
+            return name;
+        }
+
+        @Nullable
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+
+        @Nullable
+        public Map<String, Double> getMetrics() {
+            return metrics;
+        }
+    }
+
+    private final Sink sink;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Thread sender;
+    private volatile boolean isShutdown = false;
+    private volatile boolean isSenderParked = false;
+
+    public TelemetryEventQueue(@NotNull Sink sink) {
+        this(sink, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public TelemetryEventQueue(@NotNull Sink sink, int capacity, int batchSize, long flushIntervalMillis) {
+        if (capacity <= 0 || batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Capacity, batch size and flush interval must be positive.");
+        }
+
+        this.sink = sink;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        sender = new Thread(this::runSender, "telemetry-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Queues the event without blocking. Returns false if the queue has been shut down and the event is dropped.
+     */
+    public boolean offer(@NotNull Event event) {
+        if (isShutdown) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+
+        events.offer(event);
+        int newSize = size.incrementAndGet();
+
+        // Make room by dropping the oldest events, the queue is never empty here since this event was just added
+        while (newSize > capacity && events.poll() != null) {
+            droppedCount.incrementAndGet();
+            newSize = size.decrementAndGet();
+        }
+
+        // The sender sets the flag before checking the size again, so a full batch is never left waiting
+        if (newSize >= batchSize && isSenderParked) {
+            LockSupport.unpark(sender);
+        }
+
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Stops taking events and waits up to the timeout for the sender to hand the queued ones to the sink.
+     */
+    public void shutdown(long timeoutMillis) {
+        isShutdown = true;
+        LockSupport.unpark(sender);
+
+        try {
+            sender.join(timeoutMillis);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSender() {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+
+        while (true) {
+            // Read the flag before draining so the events queued ahead of the shutdown are all sent
+            boolean isStopping = isShutdown;
+            long remainingNanos = deadline - System.nanoTime();
+
+            if (!isStopping && size.get() < batchSize && remainingNanos > 0) {
+                isSenderParked = true;
+                if (!isShutdown && size.get() < batchSize) {
+                    LockSupport.parkNanos(this, remainingNanos);
+                }
+                isSenderParked = false;
+                continue;
+            }
+
+            drain();
+            deadline = System.nanoTime() + flushIntervalNanos;
+
+            if (isStopping) {
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        Event event;
+
+        while ((event = events.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(event);
+
+            if (batch.size() == batchSize) {
+                send(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<Event> batch) {
+        try {
+            sink.send(Collections.unmodifiableList(batch));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to send " + batch.size() + " telemetry events", e);
+        }
+    }
+}
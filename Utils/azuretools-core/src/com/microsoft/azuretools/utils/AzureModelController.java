@@ -37,20 +37,23 @@ import com.microsoft.azuretools.authmanage.models.SubscriptionDetail;
 import com.microsoft.azuretools.sdkmanage.AzureManager;
 import com.microsoft.azuretools.utils.WebAppUtils.WebAppDetails;
 import rx.Observable;
-import rx.Subscriber;
-import rx.exceptions.Exceptions;
-import rx.functions.Action1;
-import rx.functions.Func1;
+import rx.Scheduler;
 import rx.schedulers.Schedulers;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -60,6 +63,19 @@ import java.util.stream.Collectors;
  */
 public class AzureModelController {
     private static final Logger LOGGER = Logger.getLogger(AzureModelController.class.getName());
+
+    // The budget of concurrent ARM requests shared by all the subscriptions being refreshed
+    private static final int MAX_CONCURRENT_ARM_REQUESTS = 16;
+    private static final AtomicInteger armRequestThreadCount = new AtomicInteger();
+    private static final Scheduler armRequestScheduler = Schedulers.from(Executors.newFixedThreadPool(
+            MAX_CONCURRENT_ARM_REQUESTS,
+            runnable -> {
+                Thread thread = new Thread(runnable, "azure-model-refresh-" + armRequestThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }));
+
+    private static final Map<String, Long> subscriptionRefreshTimeMillis = new ConcurrentHashMap<>();
     private static ISubscriptionSelectionListener subscriptionSelectionListener = new ISubscriptionSelectionListener() {
         @Override
         public void update(boolean isRefresh) {
@@ -133,42 +149,13 @@ public class AzureModelController {
             return;
         }
 
+        // Only the newly selected subscriptions are loaded, the others just update the selection
+        List<SubscriptionDetail> newlySelected = new ArrayList<>();
         for (SubscriptionDetail sd : sdl) {
             if (!srgMap.containsKey(sd)) {
-                if (!sd.isSelected()) {
-                    continue;
-                }
-
-                if (progressIndicator != null && progressIndicator.isCanceled()) {
-                    progressIndicator.setText("Cancelling...");
-                    clearAll();
-                    return;
-                    // TODO: throw exception?
+                if (sd.isSelected()) {
+                    newlySelected.add(sd);
                 }
-
-                // subscription locations
-                List<Subscription> sl = azureManager.getSubscriptions();
-                System.out.println("Updating subscription locations");
-                Subscription subscription = sidToSubscriptionMap.get(sd.getSubscriptionId());
-                if (progressIndicator != null) {
-                    progressIndicator.setText(String.format("Updating subscription '%s' locations...", subscription.displayName()));
-                }
-                List<Location> locl = subscription.listLocations();
-                Collections.sort(locl, new Comparator<Location>() {
-                    @Override
-                    public int compare(Location lhs, Location rhs) {
-                        return lhs.displayName().compareTo(rhs.displayName());
-                    }
-                });
-
-                Map<SubscriptionDetail, List<Location>> sdlocMap = azureModel.getSubscriptionToLocationMap();
-                sdlocMap.put(sd, locl);
-
-                // resource group maps
-                Azure azure = azureManager.getAzure(sd.getSubscriptionId());
-                List<ResourceGroup> rgList = azure.resourceGroups().list();
-                srgMap.put(sd, rgList);
-                updateResGrDependency(azure, rgList, progressIndicator, rgwaMap, rgspMap);
             } else {
                 // find and modify the key
                 for (SubscriptionDetail sdk : srgMap.keySet()) {
@@ -178,6 +165,82 @@ public class AzureModelController {
                 }
             }
         }
+
+        if (newlySelected.isEmpty()) {
+            return;
+        }
+
+        if (progressIndicator != null) {
+            progressIndicator.setText(String.format("Updating %d subscriptions...", newlySelected.size()));
+        }
+
+        try {
+            awaitRefresh(Observable.from(newlySelected).flatMap(sd -> refreshSubscription(
+                    azureManager,
+                    sd,
+                    sidToSubscriptionMap.get(sd.getSubscriptionId()),
+                    progressIndicator,
+                    azureModel.getSubscriptionToLocationMap(),
+                    srgMap,
+                    rgwaMap,
+                    rgspMap)), progressIndicator);
+        } catch (CanceledByUserException ex) {
+            if (progressIndicator != null) {
+                progressIndicator.setText("Cancelling...");
+            }
+        }
+    }
+
+    /**
+     * Reload the specified subscriptions only, such as the ones changed by the user, the other subscriptions in
+     * the local cache are kept.
+     */
+    public static synchronized void refreshSubscriptions(Collection<SubscriptionDetail> subscriptions,
+                                                         IProgressIndicator progressIndicator) throws IOException, CanceledByUserException {
+        AzureManager azureManager = AuthMethodManager.getInstance().getAzureManager();
+        AzureModel azureModel = AzureModel.getInstance();
+        Map<SubscriptionDetail, List<ResourceGroup>> srgMap = azureModel.getSubscriptionToResourceGroupMap();
+        // not signed in or not loaded yet
+        if (azureManager == null || srgMap == null) {
+            return;
+        }
+
+        Map<String, Subscription> sidToSubscriptionMap = azureModel.getSidToSubscriptionMap();
+        Map<ResourceGroup, List<WebApp>> rgwaMap = azureModel.getResourceGroupToWebAppMap();
+        Map<ResourceGroup, List<AppServicePlan>> rgspMap = azureModel.getResourceGroupToAppServicePlanMap();
+
+        for (SubscriptionDetail sd : subscriptions) {
+            List<ResourceGroup> staleRgList = srgMap.remove(sd);
+            if (staleRgList != null) {
+                for (ResourceGroup rg : staleRgList) {
+                    if (rgwaMap != null) {
+                        rgwaMap.remove(rg);
+                    }
+                    if (rgspMap != null) {
+                        rgspMap.remove(rg);
+                    }
+                }
+            }
+        }
+
+        awaitRefresh(Observable.from(subscriptions)
+                .filter(SubscriptionDetail::isSelected)
+                .flatMap(sd -> refreshSubscription(
+                        azureManager,
+                        sd,
+                        sidToSubscriptionMap == null ? null : sidToSubscriptionMap.get(sd.getSubscriptionId()),
+                        progressIndicator,
+                        azureModel.getSubscriptionToLocationMap(),
+                        srgMap,
+                        rgwaMap,
+                        rgspMap)), progressIndicator);
+    }
+
+    /**
+     * @return the time in milliseconds of the last refresh by subscription ID
+     */
+    public static Map<String, Long> getSubscriptionRefreshTimeMillis() {
+        return Collections.unmodifiableMap(new HashMap<>(subscriptionRefreshTimeMillis));
     }
 
     static class RgDepParams {
@@ -192,44 +255,128 @@ public class AzureModelController {
         }
     }
 
-    private static void updateResGrDependency(Azure azure,
-                                              List<ResourceGroup> rgList,
-                                              IProgressIndicator progressIndicator,
-                                              Map<ResourceGroup, List<WebApp>> rgwaMap,
-                                              Map<ResourceGroup, List<AppServicePlan>> rgspMap) {
+    /**
+     * Make an ARM request in the ARM request scheduler, which bounds the concurrent requests of all refreshes
+     */
+    private static <T> Observable<T> armRequest(IProgressIndicator progressIndicator, Callable<T> request) {
+        return Observable.fromCallable(() -> {
+            if (progressIndicator != null && progressIndicator.isCanceled()) {
+                throw new CanceledByUserException();
+            }
+
+            return request.call();
+        }).subscribeOn(armRequestScheduler);
+    }
+
+    /**
+     * Build the refresh pipeline of a subscription, the results are put into the maps as soon as they arrive
+     *
+     * @param subscription the subscription to list locations, null to skip locations
+     * @param sdlocMap the map of subscription locations, null to skip locations
+     * @param rgwaMap the map of resource group web apps, null to skip the resource group dependencies
+     * @param rgspMap the map of resource group App Service plans, null to skip the resource group dependencies
+     */
+    private static Observable<Object> refreshSubscription(AzureManager azureManager,
+                                                          SubscriptionDetail sd,
+                                                          Subscription subscription,
+                                                          IProgressIndicator progressIndicator,
+                                                          Map<SubscriptionDetail, List<Location>> sdlocMap,
+                                                          Map<SubscriptionDetail, List<ResourceGroup>> srgMap,
+                                                          Map<ResourceGroup, List<WebApp>> rgwaMap,
+                                                          Map<ResourceGroup, List<AppServicePlan>> rgspMap) {
+        Observable<Object> locations = subscription == null || sdlocMap == null
+                ? Observable.empty()
+                : armRequest(progressIndicator, () -> {
+                    final List<Location> locl = subscription.listLocations();
+                    Collections.sort(locl, Comparator.comparing(Location::displayName));
+                    sdlocMap.put(sd, locl);
+                    return locl;
+                }).ignoreElements().cast(Object.class);
+
+        Observable<Object> resourceGroups = armRequest(progressIndicator, () -> azureManager.getAzure(sd.getSubscriptionId()))
+                .flatMap(azure -> armRequest(progressIndicator, () -> azure.resourceGroups().list())
+                        .flatMap(rgList -> {
+                            srgMap.put(sd, rgList);
+
+                            return rgwaMap == null || rgspMap == null
+                                    ? Observable.empty()
+                                    : updateResGrDependency(azure, rgList, progressIndicator, rgwaMap, rgspMap);
+                        }))
+                .ignoreElements()
+                .cast(Object.class);
+
+        return timed(sd, Observable.merge(locations, resourceGroups));
+    }
+
+    /**
+     * Record the refresh time of a subscription, and isolate its failure from the other subscriptions
+     */
+    private static Observable<Object> timed(SubscriptionDetail sd, Observable<Object> refresh) {
+        return Observable.defer(() -> {
+            final long startMillis = System.currentTimeMillis();
+
+            return refresh
+                    .doOnCompleted(() -> {
+                        final long elapsedMillis = System.currentTimeMillis() - startMillis;
+                        subscriptionRefreshTimeMillis.put(sd.getSubscriptionId(), elapsedMillis);
+                        LOGGER.info(String.format("Refreshed subscription %s in %d ms",
+                                                  sd.getSubscriptionId(), elapsedMillis));
+                    })
+                    .onErrorResumeNext(err -> {
+                        if (err instanceof CanceledByUserException) {
+                            return Observable.error(err);
+                        }
+
+                        LOGGER.log(Level.WARNING, "Failed to refresh subscription " + sd.getSubscriptionId(), err);
+                        return Observable.empty();
+                    });
+        });
+    }
+
+    /**
+     * Wait for the refresh done, or throw CanceledByUserException after clearing all the local cache
+     */
+    private static void awaitRefresh(Observable<Object> refresh,
+                                     IProgressIndicator progressIndicator) throws CanceledByUserException {
+        Observable<Long> canceled = progressIndicator == null
+                ? Observable.never()
+                : Observable.interval(1, TimeUnit.SECONDS).filter(i -> progressIndicator.isCanceled());
+
+        try {
+            refresh.takeUntil(canceled).toBlocking().lastOrDefault(null);
+        } catch (RuntimeException ex) {
+            if (!(ex.getCause() instanceof CanceledByUserException)) {
+                throw ex;
+            }
+        }
+
+        if (progressIndicator != null && progressIndicator.isCanceled()) {
+            clearAll();
+            throw new CanceledByUserException();
+        }
+    }
+
+    private static Observable<RgDepParams> updateResGrDependency(Azure azure,
+                                                                 List<ResourceGroup> rgList,
+                                                                 IProgressIndicator progressIndicator,
+                                                                 Map<ResourceGroup, List<WebApp>> rgwaMap,
+                                                                 Map<ResourceGroup, List<AppServicePlan>> rgspMap) {
 
         if (progressIndicator != null) {
             progressIndicator.setText("Reading App Services...");
         }
-        int tasksSize = rgList.size();
-        if (tasksSize == 0) {
-            return;
-        }
-        Observable.from(rgList).flatMap(new Func1<ResourceGroup, Observable<? extends RgDepParams>>() {
-            @Override
-            public Observable<? extends RgDepParams> call(ResourceGroup rg) {
-                return Observable.create(new Observable.OnSubscribe<RgDepParams>() {
-                    @Override
-                    public void call(Subscriber<? super RgDepParams> subscriber) {
-                        List<WebApp> wal = azure.webApps().listByResourceGroup(rg.name());
-                        List<AppServicePlan> aspl = azure.appServices().appServicePlans().listByResourceGroup(rg.name())
-                                .stream().collect(Collectors.toList());
-                        subscriber.onNext(new RgDepParams(rg, wal, aspl));
-                        subscriber.onCompleted();
-                    }
-                }).subscribeOn(Schedulers.io());
-            }
-        }, tasksSize)
-                .subscribeOn(Schedulers.newThread())
-                .toBlocking()
-                .subscribe(new Action1<RgDepParams>() {
-                    @Override
-                    public void call(RgDepParams params) {
-                        synchronized (rgwaMap) {
-                            synchronized (rgspMap) {
-                                rgwaMap.put(params.rg, params.wal);
-                                rgspMap.put(params.rg, params.aspl);
-                            }
+
+        return Observable.from(rgList).flatMap(rg -> armRequest(progressIndicator, () -> {
+            List<WebApp> wal = azure.webApps().listByResourceGroup(rg.name());
+            List<AppServicePlan> aspl = azure.appServices().appServicePlans().listByResourceGroup(rg.name())
+                    .stream().collect(Collectors.toList());
+            return new RgDepParams(rg, wal, aspl);
+        }), MAX_CONCURRENT_ARM_REQUESTS)
+                .doOnNext(params -> {
+                    synchronized (rgwaMap) {
+                        synchronized (rgspMap) {
+                            rgwaMap.put(params.rg, params.wal);
+                            rgspMap.put(params.rg, params.aspl);
                         }
                     }
                 });
@@ -265,38 +412,26 @@ public class AzureModelController {
         SubscriptionManager subscriptionManager = azureManager.getSubscriptionManager();
         subscriptionManager.addListener(subscriptionSelectionListener);
 
-        List<SubscriptionDetail> sdl = subscriptionManager.getSubscriptionDetails();
-        if (sdl.size() > 0) {
-            Observable.from(sdl).flatMap((sd) ->
-                    Observable.create((subscriber) -> {
-                        try {
-                            if (progressIndicator != null && progressIndicator.isCanceled()) {
-                                clearAll();
-                                throw new CanceledByUserException();
-                            }
-                            if (sd.isSelected()) {
-                                if (progressIndicator != null) {
-                                    progressIndicator.setText("Reading subscription");
-                                }
-                                Azure azure = azureManager.getAzure(sd.getSubscriptionId());
-
-                                List<ResourceGroup> rgList = azure.resourceGroups().list();
-                                sdrgMap.put(sd, rgList);
-
-                                if (sidToSubscriptionMap.containsKey(sd.getSubscriptionId())) {
-                                    final List<Location> locations = sidToSubscriptionMap.get(sd.getSubscriptionId()).listLocations();
-                                    Collections.sort(locations, Comparator.comparing(Location::displayName));
-                                    sdlocMap.put(sd, locations);
-                                }
-                            }
-                            subscriber.onCompleted();
-                        } catch (Exception e) {
-                            Exceptions.propagate(e);
-                        }
-                    }).subscribeOn(Schedulers.io()), sdl.size()).subscribeOn(Schedulers.io()).toBlocking().subscribe();
-        }
+        // Publish the maps first, so that the partial results are visible as they arrive
         azureModel.setSubscriptionToResourceGroupMap(sdrgMap);
         azureModel.setSubscriptionToLocationMap(sdlocMap);
+
+        List<SubscriptionDetail> sdl = subscriptionManager.getSubscriptionDetails();
+        if (progressIndicator != null) {
+            progressIndicator.setText("Reading subscriptions...");
+        }
+
+        awaitRefresh(Observable.from(sdl)
+                .filter(SubscriptionDetail::isSelected)
+                .flatMap(sd -> refreshSubscription(
+                        azureManager,
+                        sd,
+                        sidToSubscriptionMap.get(sd.getSubscriptionId()),
+                        progressIndicator,
+                        sdlocMap,
+                        sdrgMap,
+                        null,
+                        null)), progressIndicator);
     }
 
     public static synchronized void updateResourceGroupMaps(IProgressIndicator progressIndicator) throws IOException, CanceledByUserException, AuthException {
@@ -310,63 +445,18 @@ public class AzureModelController {
         AzureModel azureModel = AzureModel.getInstance();
         Map<ResourceGroup, List<WebApp>> rgwaMap = azureModel.createResourceGroupToWebAppMap();
         Map<ResourceGroup, List<AppServicePlan>> rgspMap = azureModel.createResourceGroupToAppServicePlanMap();
-        Set<SubscriptionDetail> sdSet = azureModel.getSubscriptionToResourceGroupMap().keySet();
-        if (sdSet.size() == 0) {
-            azureModel.setResourceGroupToWebAppMap(rgwaMap);
-            azureModel.setResourceGroupToAppServicePlanMap(rgspMap);
-            return;
-        }
-
-        CountDownLatch countDownLatch = new CountDownLatch(sdSet.size());
-        Observable.from(sdSet).flatMap((sd) ->
-                Observable.create((subscriber) -> {
-                    try {
-                        List<ResourceGroup> rgList = azureModel.getSubscriptionToResourceGroupMap().get(sd);
-                        if (rgList.size() > 0) {
-                            Azure azure = azureManager.getAzure(sd.getSubscriptionId());
-                            updateResGrDependency(azure, rgList, progressIndicator, rgwaMap, rgspMap);
-                        }
-                        subscriber.onCompleted();
-                    } catch (Exception e) {
-                        Exceptions.propagate(e);
-                    } finally {
-                        countDownLatch.countDown();
-                    }
-                }).subscribeOn(Schedulers.io()), sdSet.size()).subscribeOn(Schedulers.io()).subscribe();
-
-        Thread cancelCheckThread = new Thread(() -> {
-            try {
-                while (true) {
-                    if (progressIndicator != null && progressIndicator.isCanceled()) {
-                        long count = countDownLatch.getCount();
-                        for (long i = 0; i < count; i++) {
-                            countDownLatch.countDown();
-                        }
-                        clearAll();
-                        break;
-                    }
-                    if (countDownLatch.getCount() <= 0) {
-                        break;
-                    }
-                    Thread.sleep(1000);
-                }
-            } catch (Exception ex) {
-            }
-        });
-        cancelCheckThread.setDaemon(true);
-        cancelCheckThread.start();
-
-        try {
-            countDownLatch.await();
-        } catch (Exception ignore) {
-        }
-
-        if (progressIndicator != null && progressIndicator.isCanceled()) {
-            throw new CanceledByUserException();
-        }
+        Map<SubscriptionDetail, List<ResourceGroup>> srgMap = azureModel.getSubscriptionToResourceGroupMap();
 
+        // Publish the maps first, so that the partial results are visible as they arrive
         azureModel.setResourceGroupToWebAppMap(rgwaMap);
         azureModel.setResourceGroupToAppServicePlanMap(rgspMap);
+
+        awaitRefresh(Observable.from(srgMap.keySet())
+                .filter(sd -> !srgMap.get(sd).isEmpty())
+                .flatMap(sd -> timed(sd, armRequest(progressIndicator, () -> azureManager.getAzure(sd.getSubscriptionId()))
+                        .flatMap(azure -> updateResGrDependency(azure, srgMap.get(sd), progressIndicator, rgwaMap, rgspMap))
+                        .ignoreElements()
+                        .cast(Object.class))), progressIndicator);
     }
 
     public static void addNewResourceGroup(SubscriptionDetail sd, ResourceGroup rg) {
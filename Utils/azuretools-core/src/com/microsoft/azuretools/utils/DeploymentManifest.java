@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SHA-256 of the artifacts last deployed to a web app or deployment slot, by their path under wwwroot. It is kept
+ * on this machine only, so that a deployment of the same artifact can be skipped. Along with each hash, it records
+ * a stamp of the deployed copy on the server, for the skip to notice an artifact deployed since from elsewhere.
+ */
+public class DeploymentManifest {
+    private static final Logger LOGGER = Logger.getLogger(DeploymentManifest.class.getName());
+    private static final String MANIFEST_FOLDER = "deployments";
+    private static final String MANIFEST_EXTENSION = ".properties";
+    // Colons aren't allowed in the paths under wwwroot
+    private static final String REMOTE_STAMP_PREFIX = "remote:";
+
+    @Nullable
+    private final File manifestFile;
+    private final Properties hashes = new Properties();
+
+    DeploymentManifest(@Nullable File manifestFile) {
+        this.manifestFile = manifestFile;
+        if (manifestFile != null && manifestFile.isFile()) {
+            try (InputStream input = new FileInputStream(manifestFile)) {
+                hashes.load(input);
+            } catch (IOException e) {
+                // Deploy everything again rather than failing the deployment
+                LOGGER.log(Level.WARNING, "Fail to read the deployment manifest " + manifestFile, e);
+                hashes.clear();
+            }
+        }
+    }
+
+    /**
+     * Load the manifest of the deploy target, which is kept only in memory when the settings folder isn't set up.
+     * @param targetKey identifies the web app or deployment slot, e.g. its resource id.
+     */
+    public static DeploymentManifest load(@NotNull String targetKey) {
+        String baseDir = CommonSettings.getSettingsBaseDir();
+        if (StringUtils.isEmpty(baseDir)) {
+            return new DeploymentManifest(null);
+        }
+
+        String fileName = DigestUtils.sha256Hex(targetKey.toLowerCase()) + MANIFEST_EXTENSION;
+        return new DeploymentManifest(new File(new File(baseDir, MANIFEST_FOLDER), fileName));
+    }
+
+    @Nullable
+    public String getHash(@NotNull String path) {
+        return hashes.getProperty(path);
+    }
+
+    public boolean isUnchanged(@NotNull String path, @NotNull String hash) {
+        return hash.equals(getHash(path));
+    }
+
+    @Nullable
+    public String getRemoteStamp(@NotNull String path) {
+        return hashes.getProperty(REMOTE_STAMP_PREFIX + path);
+    }
+
+    /**
+     * @param remoteStamp stamp of the deployed copy now on the server, null when it can't be told.
+     */
+    public boolean isRemoteUnchanged(@NotNull String path, @Nullable String remoteStamp) {
+        return remoteStamp != null && remoteStamp.equals(getRemoteStamp(path));
+    }
+
+    /**
+     * @param remoteStamp stamp of the deployed copy on the server, e.g. its size and modification time or the id
+     *                    of the deployment. Without it, the artifact is deployed again next time.
+     */
+    public void put(@NotNull String path, @NotNull String hash, @Nullable String remoteStamp) {
+        hashes.setProperty(path, hash);
+        if (remoteStamp != null) {
+            hashes.setProperty(REMOTE_STAMP_PREFIX + path, remoteStamp);
+        } else {
+            hashes.remove(REMOTE_STAMP_PREFIX + path);
+        }
+    }
+
+    /**
+     * Write the manifest through a temporary file, a failure only costs a full deployment next time.
+     */
+    public void save() {
+        if (manifestFile == null) {
+            return;
+        }
+
+        try {
+            File folder = manifestFile.getParentFile();
+            Files.createDirectories(folder.toPath());
+            File tempFile = File.createTempFile(manifestFile.getName(), ".tmp", folder);
+            try (OutputStream output = new FileOutputStream(tempFile)) {
+                hashes.store(output, null);
+            }
+            Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Fail to save the deployment manifest " + manifestFile, e);
+        }
+    }
+
+    public static String sha256(@NotNull File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return DigestUtils.sha256Hex(input);
+        }
+    }
+}
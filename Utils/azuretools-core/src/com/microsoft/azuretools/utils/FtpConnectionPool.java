@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A few authenticated FTP connections to the same web app, shared by the threads transferring its files. A
+ * connection which failed is dropped and a new one is opened when needed. Closing the pool disconnects the borrowed
+ * connections as well, which aborts the transfers still running on them.
+ */
+public class FtpConnectionPool implements AutoCloseable {
+    public interface ConnectionFactory {
+        FTPClient connect() throws IOException;
+    }
+
+    public interface FtpAction<T> {
+        T run(@NotNull FTPClient ftp) throws IOException;
+    }
+
+    private static final long BORROW_POLL_MILLIS = 100;
+
+    private final ConnectionFactory factory;
+    private final int maxConnections;
+    private final BlockingQueue<FTPClient> idleConnections = new LinkedBlockingQueue<>();
+    private final Set<FTPClient> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openConnectionCount = new AtomicInteger();
+    private volatile boolean isClosed = false;
+
+    public FtpConnectionPool(@NotNull ConnectionFactory factory, int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("The pool needs at least one connection.");
+        }
+        this.factory = factory;
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Run the action on an idle connection, opening one if there is room for it or waiting for one otherwise.
+     */
+    public <T> T execute(@NotNull FtpAction<T> action) throws IOException {
+        FTPClient ftp = borrow();
+        T result;
+        try {
+            result = action.run(ftp);
+        } catch (IOException | RuntimeException e) {
+            // The connection may be left in any state, don't hand it to the next action
+            drop(ftp);
+            throw e;
+        }
+        giveBack(ftp);
+        return result;
+    }
+
+    private FTPClient borrow() throws IOException {
+        FTPClient ftp = take();
+        borrowedConnections.add(ftp);
+        if (isClosed) {
+            // Closed while the connection was taken, close() may have missed it
+            drop(ftp);
+            throw new InterruptedIOException("The FTP connection pool is closed");
+        }
+        return ftp;
+    }
+
+    private void giveBack(@NotNull FTPClient ftp) {
+        borrowedConnections.remove(ftp);
+        idleConnections.offer(ftp);
+        if (isClosed && idleConnections.remove(ftp)) {
+            // Closed while the connection was given back, close() may have missed it
+            openConnectionCount.decrementAndGet();
+            disconnect(ftp, true);
+        }
+    }
+
+    private FTPClient take() throws IOException {
+        while (true) {
+            if (isClosed) {
+                throw new InterruptedIOException("The FTP connection pool is closed");
+            }
+
+            FTPClient ftp = idleConnections.poll();
+            if (ftp != null) {
+                return ftp;
+            }
+
+            int count = openConnectionCount.get();
+            if (count < maxConnections) {
+                if (openConnectionCount.compareAndSet(count, count + 1)) {
+                    try {
+                        return factory.connect();
+                    } catch (IOException | RuntimeException e) {
+                        openConnectionCount.decrementAndGet();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+
+            // Wake up now and then, a dropped connection makes room for a new one without returning to the queue
+            try {
+                ftp = idleConnections.poll(BORROW_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for an FTP connection");
+            }
+            if (ftp != null) {
+                return ftp;
+            }
+        }
+    }
+
+    private void drop(@NotNull FTPClient ftp) {
+        borrowedConnections.remove(ftp);
+        openConnectionCount.decrementAndGet();
+        disconnect(ftp, false);
+    }
+
+    private static void disconnect(@NotNull FTPClient ftp, boolean logout) {
+        try {
+            if (logout) {
+                ftp.logout();
+            }
+            if (ftp.isConnected()) {
+                ftp.disconnect();
+            }
+        } catch (IOException ignore) {
+        }
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+
+        FTPClient ftp;
+        while ((ftp = idleConnections.poll()) != null) {
+            openConnectionCount.decrementAndGet();
+            disconnect(ftp, true);
+        }
+
+        // The threads of the borrowed connections may be interrupted or stuck in a transfer, they drop the
+        // connections once their actions fail or return
+        for (FTPClient borrowed : borrowedConnections) {
+            disconnect(borrowed, false);
+        }
+    }
+}
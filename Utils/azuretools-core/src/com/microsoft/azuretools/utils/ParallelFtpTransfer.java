@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploads and deletes the files of a web app tree in parallel over a pool of FTP connections, with one worker per
+ * connection stealing the pending transfers from each other. A failed transfer is retried on its own, and the
+ * progress and throughput are reported to the indicator. Once the indicator is canceled, the pending transfers are
+ * skipped and an {@link java.io.InterruptedIOException} is thrown.
+ */
+public class ParallelFtpTransfer implements AutoCloseable {
+    static final int MAX_TRY = 3;
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    public interface StreamSource {
+        InputStream open() throws IOException;
+    }
+
+    public static class Upload {
+        private final String remotePath;
+        private final long size;
+        private final StreamSource source;
+
+        /**
+         * @param remotePath path of the file on the FTP server, its folder has to exist.
+         * @param size size of the file, only used to report the throughput.
+         * @param source opens the content again for each attempt.
+         */
+        public Upload(@NotNull String remotePath, long size, @NotNull StreamSource source) {
+            this.remotePath = remotePath;
+            this.size = size;
+            this.source = source;
+        }
+    }
+
+    private interface Transfer<T> {
+        void run(T item) throws IOException;
+    }
+
+    private final FtpConnectionPool pool;
+    @Nullable
+    private final IProgressIndicator indicator;
+    private final long retryDelayMillis;
+    private final ForkJoinPool executor;
+
+    public ParallelFtpTransfer(@NotNull FtpConnectionPool pool, @Nullable IProgressIndicator indicator) {
+        this(pool, indicator, DEFAULT_RETRY_DELAY_MILLIS);
+    }
+
+    ParallelFtpTransfer(@NotNull FtpConnectionPool pool, @Nullable IProgressIndicator indicator,
+                        long retryDelayMillis) {
+        this.pool = pool;
+        this.indicator = indicator;
+        this.retryDelayMillis = retryDelayMillis;
+        this.executor = new ForkJoinPool(pool.getMaxConnections());
+    }
+
+    public void upload(@NotNull Collection<Upload> uploads) throws IOException {
+        final Progress progress = new Progress("Uploaded", uploads.size());
+        runAll(uploads, upload -> {
+            withRetry(ftp -> {
+                try (InputStream input = upload.source.open()) {
+                    if (!ftp.storeFile(upload.remotePath, input)) {
+                        throw new IOException(String.format("FTP client can't store %s, reply code: %d",
+                                upload.remotePath, ftp.getReplyCode()));
+                    }
+                }
+                return null;
+            });
+            progress.add(upload.size);
+        });
+        progress.report(true);
+    }
+
+    /**
+     * Delete the files, the ones already missing on the server are ignored.
+     */
+    public void delete(@NotNull Collection<String> remotePaths) throws IOException {
+        final Progress progress = new Progress("Deleted", remotePaths.size());
+        runAll(remotePaths, path -> {
+            withRetry(ftp -> ftp.deleteFile(path));
+            progress.add(0);
+        });
+        progress.report(true);
+    }
+
+    /**
+     * Remove the folder and everything under it: the tree is listed in parallel, then its files are deleted and
+     * finally its folders are removed, the deepest ones first.
+     */
+    public void removeTree(@NotNull String remotePath) throws IOException {
+        final Queue<String> files = new ConcurrentLinkedQueue<>();
+        final Queue<String> folders = new ConcurrentLinkedQueue<>();
+        folders.add(remotePath);
+        try {
+            executor.invoke(new ListTreeTask(remotePath, files, folders));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Only a part of the tree may have been listed
+        checkCanceled();
+
+        delete(new ArrayList<>(files));
+
+        final Map<Integer, List<String>> foldersByDepth = new TreeMap<>((depth1, depth2) -> depth2 - depth1);
+        for (String folder : folders) {
+            foldersByDepth.computeIfAbsent(getDepth(folder), depth -> new ArrayList<>()).add(folder);
+        }
+        for (List<String> sameDepthFolders : foldersByDepth.values()) {
+            runAll(sameDepthFolders, folder -> withRetry(ftp -> ftp.removeDirectory(folder)));
+        }
+    }
+
+    private class ListTreeTask extends RecursiveAction {
+        private final String folder;
+        private final Queue<String> files;
+        private final Queue<String> folders;
+
+        ListTreeTask(String folder, Queue<String> files, Queue<String> folders) {
+            this.folder = folder;
+            this.files = files;
+            this.folders = folders;
+        }
+
+        @Override
+        protected void compute() {
+            if (isCanceled()) {
+                return;
+            }
+
+            FTPFile[] children;
+            try {
+                children = withRetry(ftp -> ftp.listFiles(folder));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<ListTreeTask> subTasks = new ArrayList<>();
+            for (FTPFile child : children) {
+                String name = child.getName();
+                if (name.equals(".") || name.equals("..")) {
+                    continue;
+                }
+                String path = folder + "/" + name;
+                if (child.isDirectory()) {
+                    folders.add(path);
+                    subTasks.add(new ListTreeTask(path, files, folders));
+                } else {
+                    files.add(path);
+                }
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+    private <T> void runAll(@NotNull Collection<T> items, @NotNull Transfer<T> transfer) throws IOException {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(items.size());
+        for (T item : items) {
+            tasks.add(executor.submit(() -> {
+                if (isCanceled()) {
+                    return;
+                }
+                try {
+                    transfer.run(item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+
+        IOException failure = null;
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while transferring files over FTP");
+            } catch (ExecutionException e) {
+                // Let the other transfers complete, then report the first failure
+                if (failure == null) {
+                    failure = e.getCause() instanceof UncheckedIOException
+                            ? ((UncheckedIOException) e.getCause()).getCause()
+                            : new IOException(e.getCause());
+                }
+            }
+        }
+        // The transfers skipped once canceled didn't fail, but they aren't done either
+        checkCanceled();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private <T> T withRetry(@NotNull FtpConnectionPool.FtpAction<T> action) throws IOException {
+        int count = 0;
+        while (true) {
+            try {
+                return pool.execute(action);
+            } catch (IOException e) {
+                if (++count >= MAX_TRY || isCanceled()) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(retryDelayMillis * count);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while retrying an FTP transfer");
+            }
+        }
+    }
+
+    private boolean isCanceled() {
+        return indicator != null && indicator.isCanceled();
+    }
+
+    private void checkCanceled() throws InterruptedIOException {
+        if (isCanceled()) {
+            throw new InterruptedIOException("Canceled transferring files over FTP");
+        }
+    }
+
+    private static int getDepth(@NotNull String path) {
+        int depth = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private class Progress {
+        private final String action;
+        private final int total;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger doneCount = new AtomicInteger();
+        private final AtomicLong doneBytes = new AtomicLong();
+        private final AtomicLong lastReportNanos = new AtomicLong(startNanos);
+
+        Progress(String action, int total) {
+            this.action = action;
+            this.total = total;
+        }
+
+        void add(long bytes) {
+            doneCount.incrementAndGet();
+            doneBytes.addAndGet(bytes);
+            report(false);
+        }
+
+        void report(boolean isFinal) {
+            if (indicator == null || total == 0) {
+                return;
+            }
+
+            // Report now and then only, thousands of small files complete within a few seconds
+            long now = System.nanoTime();
+            long last = lastReportNanos.get();
+            if (!isFinal && (now - last < PROGRESS_INTERVAL_NANOS || !lastReportNanos.compareAndSet(last, now))) {
+                return;
+            }
+
+            int count = doneCount.get();
+            double seconds = Math.max(now - startNanos, 1) / 1e9;
+            indicator.setFraction((double) count / total);
+            String text = String.format("%s %d/%d files, %.1f files/s", action, count, total, count / seconds);
+            if (doneBytes.get() > 0) {
+                text += String.format(", %.2f MB/s", doneBytes.get() / seconds / (1024 * 1024));
+            }
+            indicator.setText2(text);
+        }
+    }
+}
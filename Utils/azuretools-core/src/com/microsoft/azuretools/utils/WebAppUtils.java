@@ -23,7 +23,6 @@
 package com.microsoft.azuretools.utils;
 
 
-import com.microsoft.applicationinsights.web.dependencies.apachecommons.io.FileUtils;
 import com.microsoft.azure.management.Azure;
 import com.microsoft.azure.management.appservice.AppServicePlan;
 import com.microsoft.azure.management.appservice.DeploymentSlot;
@@ -39,10 +38,10 @@ import com.microsoft.azuretools.Constants;
 import com.microsoft.azuretools.authmanage.AuthMethodManager;
 import com.microsoft.azuretools.authmanage.models.SubscriptionDetail;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.azurecommons.util.FileUtil;
 import com.microsoft.azuretools.sdkmanage.AzureManager;
 
-import java.nio.file.Files;
 import java.util.ArrayList;
 
 import org.apache.commons.io.FilenameUtils;
@@ -51,37 +50,47 @@ import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPReply;
+import org.codehaus.jackson.map.ObjectMapper;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
 
 public class WebAppUtils {
 
     public static final String TYPE_WAR = "war";
     public static final String TYPE_JAR = "jar";
 
-    private static final String TEMP_FILE_PREFIX = "azuretoolkit";
-    private static final String TEMP_FOLDER_PREFIX = "azuretoolkitstagingfolder";
     private static final String FTP_ROOT_PATH = "/site/wwwroot/";
-    private static final String FTP_WEB_APPS_PATH = FTP_ROOT_PATH + "webapps/";
+    private static final String WEB_APPS_FOLDER = "webapps/";
+    private static final String FTP_WEB_APPS_PATH = FTP_ROOT_PATH + WEB_APPS_FOLDER;
     private static final String WEB_CONFIG_FILENAME = "web.config";
     private static final String NO_TARGET_FILE = "Cannot find target file: %s.";
     private static final String ROOT = "ROOT";
     private static final String JAVASE_ROOT= "app";
     private static final String JAVASE_ARTIFACT_NAME = "app.jar";
     private static final int FTP_MAX_TRY = 3;
+    private static final int FTP_MAX_CONNECTIONS = 4;
     private static final int DEPLOY_MAX_TRY = 3;
+    private static final int ZIP_PIPE_SIZE = 1024 * 1024;
     private static final int SLEEP_TIME = 5000; // milliseconds
     private static final String DEFAULT_VALUE_WHEN_VERSION_INVALID = "";
+    private static final String KUDU_LATEST_DEPLOYMENT_PATH = "/api/deployments/latest";
 
     public static final String STOP_WEB_APP = "Stopping web app...";
     public static final String STOP_DEPLOYMENT_SLOT = "Stopping deployment slot...";
@@ -90,7 +99,8 @@ public class WebAppUtils {
     public static final String RETRY_MESSAGE = "Exception occurred while deploying to app service:" +
             " %s, retrying immediately (%d/%d)";
     public static final String RETRY_FAIL_MESSAGE = "Failed to deploy after %d times of retry.";
-    public static final String COPYING_RESOURCES = "Copying resources to staging folder...";
+    public static final String PACKAGING_ARTIFACT = "Packaging and uploading the artifact...";
+    public static final String ARTIFACT_UNCHANGED = "The artifact is unchanged since its last deployment, skipped.";
 
 
     @NotNull
@@ -98,10 +108,6 @@ public class WebAppUtils {
 
         FTPClient ftp = new FTPClient();
 
-        System.out.println("\t\t" + pp.ftpUrl());
-        System.out.println("\t\t" + pp.ftpUsername());
-        System.out.println("\t\t" + pp.ftpPassword());
-
         URI uri = URI.create("ftp://" + pp.ftpUrl());
         ftp.connect(uri.getHost(), 21);
         final int replyCode = ftp.getReplyCode();
@@ -122,58 +128,95 @@ public class WebAppUtils {
     }
 
     public static int deployArtifact(String artifactName, String artifactPath, PublishingProfile pp, boolean toRoot, IProgressIndicator indicator) throws IOException {
+        return deployArtifact(artifactName, artifactPath, pp, toRoot, false, indicator);
+    }
+
+    /**
+     * @param forceDeploy uploads the artifact even when it's the same as the one last deployed from this machine
+     */
+    public static int deployArtifact(String artifactName, String artifactPath, PublishingProfile pp, boolean toRoot,
+                                     boolean forceDeploy, IProgressIndicator indicator) throws IOException {
         File file = new File(artifactPath);
         if (!file.exists()) {
             throw new FileNotFoundException(String.format(NO_TARGET_FILE, artifactPath));
         }
-        FTPClient ftp = null;
-        InputStream input = null;
+        if (indicator != null) indicator.setText("Connecting to FTP server...");
+        try (FtpConnectionPool pool = new FtpConnectionPool(() -> getFtpConnection(pp), FTP_MAX_CONNECTIONS)) {
+            int uploadingTryCount = deployArtifact(artifactName, file, pool, getFtpManifest(pp), toRoot, forceDeploy,
+                    indicator);
+            if (indicator != null) indicator.setText("Logging out of FTP server...");
+            return uploadingTryCount;
+        }
+    }
+
+    static int deployArtifact(String artifactName, File file, FtpConnectionPool pool, DeploymentManifest manifest,
+                              boolean toRoot, boolean forceDeploy, IProgressIndicator indicator) throws IOException {
+        String artifactPath = file.getPath();
+        int indexOfDot = artifactPath.lastIndexOf(".");
+        String fileType = artifactPath.substring(indexOfDot + 1);
+        String artifactHash = DeploymentManifest.sha256(file);
         int uploadingTryCount = 0;
-        try {
-            if (indicator != null) indicator.setText("Connecting to FTP server...");
 
-            ftp = getFtpConnection(pp);
-            ensureWebAppsFolderExist(ftp);
-            if (indicator != null) indicator.setText("Uploading the application...");
-            input = new FileInputStream(artifactPath);
-            int indexOfDot = artifactPath.lastIndexOf(".");
-            String fileType = artifactPath.substring(indexOfDot + 1);
-
-            switch (fileType) {
-                case TYPE_WAR:
-                    if (toRoot) {
-                        WebAppUtils.removeFtpDirectory(ftp, FTP_WEB_APPS_PATH + ROOT, indicator);
-                        ftp.deleteFile(FTP_WEB_APPS_PATH + ROOT + "." + TYPE_WAR);
-                        uploadingTryCount = uploadFileToFtp(ftp, FTP_WEB_APPS_PATH + ROOT + "." + TYPE_WAR, input, indicator);
-                    } else {
-                        WebAppUtils.removeFtpDirectory(ftp, FTP_WEB_APPS_PATH + artifactName, indicator);
-                        ftp.deleteFile(artifactName + "." + TYPE_WAR);
-                        uploadingTryCount = uploadFileToFtp(ftp, FTP_WEB_APPS_PATH + artifactName + "." + TYPE_WAR, input, indicator);
-                    }
-                    break;
-                case TYPE_JAR:
-                    uploadingTryCount = uploadFileToFtp(ftp, FTP_ROOT_PATH + ROOT + "." + TYPE_JAR, input, indicator);
+        switch (fileType) {
+            case TYPE_WAR:
+                String appName = toRoot ? ROOT : artifactName;
+                String warPath = WEB_APPS_FOLDER + appName + "." + TYPE_WAR;
+                if (!forceDeploy && isDeployed(pool, manifest, warPath, artifactHash)) {
+                    if (indicator != null) indicator.setText(ARTIFACT_UNCHANGED);
                     break;
-                default:
+                }
+                pool.execute(ftp -> {
+                    ensureWebAppsFolderExist(ftp);
+                    return null;
+                });
+                removeExplodedWar(pool, appName, indicator);
+                if (indicator != null) indicator.setText("Uploading the application...");
+                uploadingTryCount = pool.execute(ftp -> {
+                    ftp.deleteFile(FTP_ROOT_PATH + warPath);
+                    try (InputStream input = new FileInputStream(file)) {
+                        return uploadFileToFtp(ftp, FTP_ROOT_PATH + warPath, input, indicator);
+                    }
+                });
+                manifest.put(warPath, artifactHash, pool.execute(ftp -> getRemoteStamp(ftp, FTP_ROOT_PATH + warPath)));
+                manifest.save();
+                break;
+            case TYPE_JAR:
+                String jarPath = ROOT + "." + TYPE_JAR;
+                if (!forceDeploy && isDeployed(pool, manifest, jarPath, artifactHash)) {
+                    if (indicator != null) indicator.setText(ARTIFACT_UNCHANGED);
                     break;
-            }
-            if (indicator != null) indicator.setText("Logging out of FTP server...");
-            ftp.logout();
-        } finally {
-            if (input != null)
-                input.close();
-            if (ftp != null && ftp.isConnected()) {
-                ftp.disconnect();
-            }
+                }
+                if (indicator != null) indicator.setText("Uploading the application...");
+                uploadingTryCount = pool.execute(ftp -> {
+                    try (InputStream input = new FileInputStream(file)) {
+                        return uploadFileToFtp(ftp, FTP_ROOT_PATH + jarPath, input, indicator);
+                    }
+                });
+                manifest.put(jarPath, artifactHash, pool.execute(ftp -> getRemoteStamp(ftp, FTP_ROOT_PATH + jarPath)));
+                manifest.save();
+                break;
+            default:
+                break;
         }
         return uploadingTryCount;
     }
 
     public static int deployArtifactForJavaSE(String artifactPath, PublishingProfile pp, IProgressIndicator indicator) throws IOException {
+        return deployArtifactForJavaSE(artifactPath, pp, false, indicator);
+    }
+
+    /**
+     * @param forceDeploy uploads the artifact even when it's the same as the one last deployed from this machine
+     */
+    public static int deployArtifactForJavaSE(String artifactPath, PublishingProfile pp, boolean forceDeploy,
+                                              IProgressIndicator indicator) throws IOException {
         File file = new File(artifactPath);
         if (!file.exists()) {
             throw new FileNotFoundException(String.format(NO_TARGET_FILE, artifactPath));
         }
+        String jarPath = JAVASE_ROOT + "." + TYPE_JAR;
+        String artifactHash = DeploymentManifest.sha256(file);
+        DeploymentManifest manifest = getFtpManifest(pp);
         FTPClient ftp = null;
         int uploadingTryCount;
         try (InputStream input = new FileInputStream(artifactPath)){
@@ -181,10 +224,20 @@ public class WebAppUtils {
                 indicator.setText("Connecting to FTP server...");
             }
             ftp = getFtpConnection(pp);
+            if (!forceDeploy && manifest.isUnchanged(jarPath, artifactHash)
+                    && manifest.isRemoteUnchanged(jarPath, getRemoteStamp(ftp, FTP_ROOT_PATH + jarPath))) {
+                if (indicator != null) {
+                    indicator.setText(ARTIFACT_UNCHANGED);
+                }
+                ftp.logout();
+                return 0;
+            }
             if (indicator != null) {
                 indicator.setText("Uploading the application...");
             }
-            uploadingTryCount = uploadFileToFtp(ftp, FTP_ROOT_PATH + JAVASE_ROOT + "." + TYPE_JAR, input, indicator);
+            uploadingTryCount = uploadFileToFtp(ftp, FTP_ROOT_PATH + jarPath, input, indicator);
+            manifest.put(jarPath, artifactHash, getRemoteStamp(ftp, FTP_ROOT_PATH + jarPath));
+            manifest.save();
             if (indicator != null) {
                 indicator.setText("Logging out of FTP server...");
             }
@@ -197,6 +250,50 @@ public class WebAppUtils {
         return uploadingTryCount;
     }
 
+    /**
+     * Whether the artifact was last deployed from this machine and its copy on the server hasn't changed since, it
+     * may have been replaced or removed from elsewhere.
+     */
+    private static boolean isDeployed(FtpConnectionPool pool, DeploymentManifest manifest, String path, String hash)
+            throws IOException {
+        return manifest.isUnchanged(path, hash)
+                && manifest.isRemoteUnchanged(path, pool.execute(ftp -> getRemoteStamp(ftp, FTP_ROOT_PATH + path)));
+    }
+
+    /**
+     * Size and modification time of the remote file, any upload of it changes them. Null if there is no such file.
+     */
+    @Nullable
+    private static String getRemoteStamp(FTPClient ftp, String path) throws IOException {
+        int index = path.lastIndexOf('/');
+        String fileName = path.substring(index + 1);
+        for (FTPFile file : ftp.listFiles(path.substring(0, index))) {
+            if (file.isFile() && file.getName().equalsIgnoreCase(fileName)) {
+                Calendar timestamp = file.getTimestamp();
+                return file.getSize() + "@" + (timestamp != null ? timestamp.getTimeInMillis() : "");
+            }
+        }
+        return null;
+    }
+
+    private static DeploymentManifest getFtpManifest(PublishingProfile pp) {
+        // The FTP user name is specific to the web app or deployment slot
+        return DeploymentManifest.load(pp.ftpUsername() + "@" + pp.ftpUrl());
+    }
+
+    /**
+     * Removes the tree the previous war was exploded to, in parallel over the connections of the pool. Tomcat
+     * explodes the new war again as its timestamp changed, so the tree isn't worth syncing file by file.
+     */
+    private static void removeExplodedWar(FtpConnectionPool pool, String appName, IProgressIndicator indicator)
+            throws IOException {
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(pool, indicator)) {
+            if (indicator != null) indicator.setText("Removing the previous application from FTP server...");
+            transfer.removeTree(FTP_WEB_APPS_PATH + appName);
+            if (indicator != null) indicator.setText2("");
+        }
+    }
+
     private static void ensureWebAppsFolderExist(FTPClient ftp) throws IOException {
         int count = 0;
         while (count++ < FTP_MAX_TRY) {
@@ -304,18 +401,51 @@ public class WebAppUtils {
      */
     public static void deployArtifactsToAppService(WebAppBase deployTarget
             , File artifact, boolean isDeployToRoot, IProgressIndicator progressIndicator) throws WebAppException {
+        deployArtifactsToAppService(deployTarget, artifact, isDeployToRoot, false, progressIndicator);
+    }
+
+    /**
+     * Deploys artifact to Azure App Service
+     * @param deployTarget the web app or deployment slot
+     * @param artifact artifact to deploy
+     * @param isDeployToRoot
+     * @param forceDeploy deploys the artifact even when it's the same as the one last deployed from this machine
+     * @param progressIndicator
+     */
+    public static void deployArtifactsToAppService(WebAppBase deployTarget, File artifact, boolean isDeployToRoot,
+                                                   boolean forceDeploy, IProgressIndicator progressIndicator)
+            throws WebAppException {
         if (!(deployTarget instanceof WebApp || deployTarget instanceof DeploymentSlot)) {
             throw new WebAppException("Illegal deploy target.");
         }
+        // skip the deployment if the same artifact was last deployed to the same place from this machine, and no
+        // deployment was made since from elsewhere
+        boolean isJar = isJarBaseOnFileName(artifact.getPath());
+        String deployedPath = isJar ? JAVASE_ARTIFACT_NAME : WEB_APPS_FOLDER
+                + (isDeployToRoot ? ROOT : FilenameUtils.getBaseName(artifact.getName())) + "." + TYPE_WAR;
+        DeploymentManifest manifest = DeploymentManifest.load(deployTarget.id());
+        String artifactHash;
+        try {
+            artifactHash = DeploymentManifest.sha256(artifact);
+        } catch (IOException e) {
+            throw new WebAppException(e.getMessage());
+        }
+        if (!forceDeploy && manifest.isUnchanged(deployedPath, artifactHash)
+                && manifest.isRemoteUnchanged(deployedPath, getLatestDeploymentId(deployTarget))) {
+            progressIndicator.setText(ARTIFACT_UNCHANGED);
+            return;
+        }
         // stop target app service
         String stopMessage = deployTarget instanceof WebApp ? STOP_WEB_APP : STOP_DEPLOYMENT_SLOT;
         progressIndicator.setText(stopMessage);
         deployTarget.stop();
         // deploy with zip/war deploy according to file type
-        boolean deployResult = isJarBaseOnFileName(artifact.getPath()) ?
+        boolean deployResult = isJar ?
                 deployWebAppToJavaSERuntime(deployTarget, artifact, progressIndicator) :
                 deployWebAppToWebContainer(deployTarget, artifact, isDeployToRoot, progressIndicator);
         if (deployResult) {
+            manifest.put(deployedPath, artifactHash, getLatestDeploymentId(deployTarget));
+            manifest.save();
             String successMessage = deployTarget instanceof WebApp ?
                     DEPLOY_SUCCESS_WEB_APP : DEPLOY_SUCCESS_DEPLOYMENT_SLOT;
             progressIndicator.setText(successMessage);
@@ -323,6 +453,47 @@ public class WebAppUtils {
         }
     }
 
+    /**
+     * Id of the latest deployment Kudu recorded for the web app or deployment slot, which any zip or war deploy
+     * changes. Null when it can't be told, the artifact is deployed then.
+     */
+    @Nullable
+    private static String getLatestDeploymentId(WebAppBase deployTarget) {
+        try {
+            String scmHostName = null;
+            for (String hostName : deployTarget.enabledHostNames()) {
+                if (hostName.contains(".scm.")) {
+                    scmHostName = hostName;
+                }
+            }
+            if (scmHostName == null) {
+                return null;
+            }
+
+            PublishingProfile pp = deployTarget.getPublishingProfile();
+            String userpass = pp.gitUsername() + ":" + pp.gitPassword();
+            HttpURLConnection con = (HttpURLConnection) new URL("https://" + scmHostName + KUDU_LATEST_DEPLOYMENT_PATH)
+                    .openConnection();
+            con.setRequestProperty("Authorization",
+                    "Basic " + Base64.getEncoder().encodeToString(userpass.getBytes(StandardCharsets.UTF_8)));
+            con.setRequestMethod("GET");
+            con.setReadTimeout(Constants.connection_read_timeout_ms);
+            try {
+                if (con.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    return null;
+                }
+                try (InputStream input = con.getInputStream()) {
+                    return new ObjectMapper().readTree(input).path("id").getTextValue();
+                }
+            } finally {
+                con.disconnect();
+            }
+        } catch (Exception e) {
+            // Deploy rather than fail on the check
+            return null;
+        }
+    }
+
     private static boolean isJarBaseOnFileName(String filePath) {
         int index = filePath.lastIndexOf(".");
         if (index < 0) {
@@ -334,11 +505,15 @@ public class WebAppUtils {
     public static boolean deployWebAppToJavaSERuntime(WebAppBase deployTarget
             , File artifact, IProgressIndicator progressIndicator) throws WebAppException {
         try {
-            File zipPackage = prepareZipPackage(deployTarget, artifact, progressIndicator);
+            if (!artifact.exists()) {
+                throw new FileNotFoundException(String.format(NO_TARGET_FILE, artifact.getPath()));
+            }
+            progressIndicator.setText(PACKAGING_ARTIFACT);
+            final ZipEntry zipEntry = FileUtil.createZipEntry(artifact, JAVASE_ARTIFACT_NAME);
             int retryCount = 0;
             while (retryCount++ < DEPLOY_MAX_TRY) {
                 try {
-                    deployTarget.zipDeploy(zipPackage);
+                    zipDeployArtifact(deployTarget, artifact, zipEntry);
                     return true;
                 } catch (Exception e) {
                     progressIndicator.setText(String.format(RETRY_MESSAGE, e.getMessage(), retryCount, DEPLOY_MAX_TRY));
@@ -351,19 +526,40 @@ public class WebAppUtils {
         }
     }
 
-    private static File prepareZipPackage(WebAppBase deployTarget, File artifact, IProgressIndicator progressIndicator)
-            throws IOException {
+    /**
+     * Zips the artifact as app.jar straight into the zip deploy request through a pipe, with no staging folder or
+     * temporary archive. The zip is written again for each attempt since the request consumes the stream.
+     * The SDK may still read the whole request body into memory, as it does for zipDeploy(File), which only opens the
+     * file and hands it to this same InputStream overload.
+     */
+    private static void zipDeployArtifact(WebAppBase deployTarget, File artifact, ZipEntry zipEntry)
+            throws Exception {
+        final PipedInputStream zipInput = new PipedInputStream(ZIP_PIPE_SIZE);
+        final PipedOutputStream zipOutput = new PipedOutputStream(zipInput);
+        final AtomicReference<IOException> packagingError = new AtomicReference<>();
+        final Thread packager = new Thread(() -> {
+            try {
+                FileUtil.zipFileTo(artifact, zipEntry, zipOutput);
+                zipOutput.close();
+            } catch (IOException e) {
+                // Leave the pipe open so the request fails on the broken pipe rather than sending a truncated zip,
+                // the entry header has already gone through so the pipe knows this thread is the writer
+                packagingError.set(e);
+            }
+        }, "zip-deploy-packager");
+        packager.setDaemon(true);
+        packager.start();
+
         try {
-            final File tempFolder = Files.createTempDirectory(TEMP_FOLDER_PREFIX).toFile();
-            // copying artifacts to staging folder and rename it to app.jar
-            progressIndicator.setText(COPYING_RESOURCES);
-            FileUtils.copyFile(artifact, new File(tempFolder, JAVASE_ARTIFACT_NAME));
-            // package the artifacts
-            final File result = Files.createTempFile(TEMP_FILE_PREFIX, ".zip").toFile();
-            FileUtil.zipFiles(tempFolder.listFiles(), result);
-            return result;
-        } catch (Exception e) {
-            throw new IOException(e);
+            deployTarget.zipDeploy(zipInput);
+        } finally {
+            // Unblocks the packager if the request stopped reading early
+            zipInput.close();
+            packager.join();
+        }
+
+        if (packagingError.get() != null) {
+            throw packagingError.get();
         }
     }
 
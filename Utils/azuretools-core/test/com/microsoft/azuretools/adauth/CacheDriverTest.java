@@ -22,6 +22,7 @@
 
 package com.microsoft.azuretools.adauth;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,6 +30,15 @@ import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @RunWith(PowerMockRunner.class)
 @PrepareForTest(CacheDriver.class)
 public class CacheDriverTest {
@@ -54,6 +64,12 @@ public class CacheDriverTest {
         AdTokenCache.getInstance().add(entry);
     }
 
+    @After
+    public void tearDown() {
+        CacheDriver.cancelRenewals();
+        CacheDriver.setRenewalMargin(CacheDriver.DEFAULT_RENEWAL_MARGIN);
+    }
+
     @Test
     public void testFindCommon() {
         CacheDriver driver = createDriver("a/common", "rtokencommonnew", 500000000);
@@ -137,6 +153,85 @@ public class CacheDriverTest {
         }
     }
 
+    @Test
+    public void testConcurrentFindsRefreshOnce() throws Exception {
+        AtomicInteger refreshCount = new AtomicInteger();
+        CacheDriver driver = createCountingDriver("a/flight", refreshCount, 200, 500000000);
+        driver.createAddEntry(new AuthResult("type", "atokenflight", "rtokenflight", 100, createUserInfo(),
+                "flight"), null);
+
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<AuthResult>> results = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                results.add(executor.submit(new Callable<AuthResult>() {
+                    @Override
+                    public AuthResult call() throws Exception {
+                        start.await();
+                        return driver.find("flight", userId);
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (Future<AuthResult> result : results) {
+                Assert.assertEquals("atokennew", result.get().getAccessToken());
+            }
+            Assert.assertEquals(1, refreshCount.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRenewBeforeExpiration() throws Exception {
+        AtomicInteger refreshCount = new AtomicInteger();
+        CacheDriver driver = createCountingDriver("a/renew", refreshCount, 0, 3600);
+        // Renew 300 milliseconds after the token is issued
+        CacheDriver.setRenewalMargin(3600 * 1000 - 300);
+        driver.createAddEntry(new AuthResult("type", "atokenrenew", "rtokenrenew", 3600, createUserInfo(),
+                "renew"), null);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (refreshCount.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertTrue(refreshCount.get() >= 1);
+
+        CacheDriver.cancelRenewals();
+        // Let a renewal which already started finish
+        Thread.sleep(100);
+        int renewedCount = refreshCount.get();
+        AuthResult result = driver.find("renew", userId);
+        Assert.assertEquals("atokennew", result.getAccessToken());
+        Assert.assertEquals(renewedCount, refreshCount.get());
+    }
+
+    private UserInfo createUserInfo() {
+        IdToken idToken = new IdToken();
+        idToken.upn = userId;
+        idToken.subject = "subject";
+        return UserInfo.createFromIdTokens(idToken);
+    }
+
+    private CacheDriver createCountingDriver(String authority, AtomicInteger refreshCount, long delayMillis,
+                                             long expireIn) {
+        return new CacheDriver(authority, clientId) {
+            @Override
+            protected AuthResult getTokenWithRefreshToken(String refreshToken, String resource) throws AuthException {
+                refreshCount.incrementAndGet();
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    throw new AuthException(e);
+                }
+                return new AuthResult("type", "atokennew", "rtokennew", expireIn, null, resource);
+            }
+        };
+    }
+
     private CacheDriver createDriver(String authority, String fixToken, long expireIn) {
         CacheDriver driver = new CacheDriver(authority, clientId) {
             @Override
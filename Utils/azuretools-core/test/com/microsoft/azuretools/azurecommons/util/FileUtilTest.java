@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.azurecommons.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+public class FileUtilTest {
+    private static final Logger LOGGER = Logger.getLogger(FileUtilTest.class.getName());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testZipFileToStoresCompressedArchives() throws Exception {
+        final byte[] content = new byte[300 * 1024];
+        new Random(1).nextBytes(content);
+        final File artifact = temporaryFolder.newFile("webapp.jar");
+        Files.write(artifact.toPath(), content);
+
+        final ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        FileUtil.zipFileTo(artifact, FileUtil.createZipEntry(artifact, "app.jar"), zip);
+
+        try (final ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+            final ZipEntry entry = zipIn.getNextEntry();
+            assertEquals("app.jar", entry.getName());
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertArrayEquals(content, readAll(zipIn));
+            assertNull(zipIn.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testZipFileToDeflatesOtherFiles() throws Exception {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        final byte[] content = text.toString().getBytes("UTF-8");
+        final File source = temporaryFolder.newFile("readme.txt");
+        Files.write(source.toPath(), content);
+
+        final ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        FileUtil.zipFileTo(source, FileUtil.createZipEntry(source, "readme.txt"), zip);
+
+        try (final ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+            final ZipEntry entry = zipIn.getNextEntry();
+            assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            assertArrayEquals(content, readAll(zipIn));
+        }
+    }
+
+    /**
+     * Compares the former staging copy plus zip file with the streamed zip on a large artifact. Run it with
+     * -DzipBenchmark=true, the artifact size in megabytes can be set through -DzipBenchmarkSizeMB (200 by default).
+     */
+    @Test
+    public void benchmarkZipFileToAgainstStagedZip() throws Exception {
+        assumeTrue(Boolean.getBoolean("zipBenchmark"));
+        final int sizeMB = Integer.getInteger("zipBenchmarkSizeMB", 200);
+
+        final File artifact = temporaryFolder.newFile("webapp.jar");
+        final byte[] chunk = new byte[1024 * 1024];
+        final Random random = new Random(1);
+        try (final OutputStream out = Files.newOutputStream(artifact.toPath())) {
+            for (int i = 0; i < sizeMB; i++) {
+                random.nextBytes(chunk);
+                out.write(chunk);
+            }
+        }
+
+        long start = System.nanoTime();
+        final File stagingFolder = temporaryFolder.newFolder("staging");
+        final File stagedArtifact = new File(stagingFolder, "app.jar");
+        Files.copy(artifact.toPath(), stagedArtifact.toPath());
+        final File stagedZip = new File(temporaryFolder.getRoot(), "staged.zip");
+        FileUtil.zipFiles(stagingFolder.listFiles(), stagedZip);
+        final long stagedMillis = (System.nanoTime() - start) / 1000000;
+        final long stagedBytes = stagedArtifact.length() + stagedZip.length();
+
+        start = System.nanoTime();
+        final CountingOutputStream streamed = new CountingOutputStream();
+        FileUtil.zipFileTo(artifact, FileUtil.createZipEntry(artifact, "app.jar"), streamed);
+        final long streamedMillis = (System.nanoTime() - start) / 1000000;
+
+        LOGGER.info(String.format("%d MB artifact: staged zip %d ms, %d bytes written to disk; "
+                + "streamed zip %d ms, %d bytes streamed, none written to disk",
+                sizeMB, stagedMillis, stagedBytes, streamedMillis, streamed.count));
+        assertEquals(artifact.length(), streamed.count, 1024);
+    }
+
+    private static byte[] readAll(ZipInputStream zipIn) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int length;
+        while ((length = zipIn.read(buffer)) >= 0) {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -22,6 +22,9 @@
 
 package com.microsoft.azuretools.core.mvp.model.rediscache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -101,6 +104,47 @@ public class RedisConnectionPoolsTest {
         verify(jedisPoolMock, times(1)).destroy();
     }
 
+    @Test
+    public void testKeepPoolsOfMultipleCaches() throws Exception {
+        RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        pools.getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID);
+        pools.getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID + "-2");
+        pools.getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID);
+
+        // Both caches are connected once and kept
+        verify(azureRedisMvpModelMock, times(2)).getRedisCache(anyString(), anyString());
+        verify(jedisPoolMock, times(3)).getResource();
+        verify(jedisPoolMock, times(0)).destroy();
+        assertNotNull(pools.getPoolStatistics(MOCK_REDIS_ID));
+        assertEquals(2, pools.getAllPoolStatistics().size());
+
+        pools.releasePool(MOCK_REDIS_ID);
+        pools.releasePool(MOCK_REDIS_ID + "-2");
+        verify(jedisPoolMock, times(2)).destroy();
+        assertNull(pools.getPoolStatistics(MOCK_REDIS_ID));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsedPool() throws Exception {
+        RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        pools.setMaxCaches(2);
+        try {
+            pools.getJedis(MOCK_SUBSCRIPTION, "cache-1");
+            pools.getJedis(MOCK_SUBSCRIPTION, "cache-2");
+            pools.getJedis(MOCK_SUBSCRIPTION, "cache-1");
+            pools.getJedis(MOCK_SUBSCRIPTION, "cache-3");
+
+            assertNotNull(pools.getPoolStatistics("cache-1"));
+            assertNull(pools.getPoolStatistics("cache-2"));
+            assertNotNull(pools.getPoolStatistics("cache-3"));
+            verify(jedisPoolMock, times(1)).destroy();
+        } finally {
+            pools.releasePool("cache-1");
+            pools.releasePool("cache-3");
+            pools.setMaxCaches(4);
+        }
+    }
+
     @Test
     public void testReleaseNonExistedJedis() {
         // Just release without getJedis
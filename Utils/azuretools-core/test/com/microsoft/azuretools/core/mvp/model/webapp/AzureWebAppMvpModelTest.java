@@ -131,6 +131,45 @@ public class AzureWebAppMvpModelTest {
         }
     }
 
+    @Test
+    public void testWebAppInventory() throws IOException {
+        final List<WebApp> webAppList = prepareMockWebAppList();
+        for (int i = 0; i < webAppList.size(); i++) {
+            when(webAppList.get(i).id()).thenReturn("/subscriptions/sub/resourceGroups/rg" + i + "/sites/app" + i);
+            when(webAppList.get(i).resourceGroupName()).thenReturn("rg" + i);
+        }
+        when(webAppsMock.list()).thenReturn((PagedList<WebApp>) webAppList);
+
+        assertEquals(2, azureWebAppMvpModel.listWebApps(MOCK_SUBSCRIPTION, false).size());
+
+        // Answered from memory
+        final WebApp app = azureWebAppMvpModel.getWebAppById(MOCK_SUBSCRIPTION, "/SUBSCRIPTIONS/sub/resourceGroups/rg1/sites/app1");
+        assertSame(webAppList.get(1), app);
+        assertEquals(1, azureWebAppMvpModel.listWebAppsByResourceGroup(MOCK_SUBSCRIPTION, "RG0", false).size());
+        assertEquals(1, azureWebAppMvpModel.listWebAppsOnLinux(MOCK_SUBSCRIPTION, false).size());
+        verify(webAppsMock, never()).getById(anyString());
+
+        // Stopping gets the app fresh rather than the shared cached one, and replaces the entry
+        final WebApp fresh = mock(WebApp.class);
+        when(fresh.id()).thenReturn(app.id());
+        when(fresh.resourceGroupName()).thenReturn("rg1");
+        when(fresh.operatingSystem()).thenReturn(OperatingSystem.LINUX);
+        when(webAppsMock.getById(app.id())).thenReturn(fresh);
+
+        azureWebAppMvpModel.stopWebApp(MOCK_SUBSCRIPTION, app.id());
+        verify(app, never()).stop();
+        verify(fresh, times(1)).stop();
+        assertSame(fresh, azureWebAppMvpModel.getWebAppById(MOCK_SUBSCRIPTION, app.id()));
+        assertEquals(1, azureWebAppMvpModel.listWebAppsOnLinux(MOCK_SUBSCRIPTION, false).size());
+
+        // Deleting removes the entry only
+        azureWebAppMvpModel.deleteWebApp(MOCK_SUBSCRIPTION, app.id());
+        final List<ResourceEx<WebApp>> remaining = azureWebAppMvpModel.listWebApps(MOCK_SUBSCRIPTION, false);
+        assertEquals(1, remaining.size());
+        assertSame(webAppList.get(0), remaining.get(0).getResource());
+        verify(webAppsMock, times(1)).list();
+    }
+
     @Test
     @Ignore
     public void testCreateWebAppNewSrvPlan() {
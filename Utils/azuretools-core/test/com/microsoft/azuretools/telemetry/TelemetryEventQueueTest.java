@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryEventQueueTest {
+    private TelemetryEventQueue queue;
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.shutdown(1000);
+        }
+    }
+
+    private static class CollectingSink implements TelemetryEventQueue.Sink {
+        private final List<List<String>> batches = new ArrayList<>();
+
+        @Override
+        public synchronized void send(List<TelemetryEventQueue.Event> events) {
+            List<String> names = new ArrayList<>();
+            for (TelemetryEventQueue.Event event : events) {
+                names.add(event.getName());
+            }
+            batches.add(names);
+            notifyAll();
+        }
+
+        synchronized List<List<String>> getBatches() {
+            return new ArrayList<>(batches);
+        }
+
+        synchronized int getEventCount() {
+            int count = 0;
+            for (List<String> batch : batches) {
+                count += batch.size();
+            }
+            return count;
+        }
+
+        synchronized void awaitEvents(int count, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (getEventCount() < count && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private static TelemetryEventQueue.Event event(String name) {
+        return new TelemetryEventQueue.Event(name, null, null);
+    }
+
+    @Test
+    public void testFullBatchesAreSentWithoutWaitingForTheInterval() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        queue = new TelemetryEventQueue(sink, 100, 10, TimeUnit.MINUTES.toMillis(10));
+
+        for (int i = 0; i < 20; i++) {
+            queue.offer(event("event" + i));
+        }
+        sink.awaitEvents(20, 5000);
+
+        assertEquals(20, sink.getEventCount());
+        for (List<String> batch : sink.getBatches()) {
+            assertTrue(batch.size() <= 10);
+        }
+        assertEquals("event0", sink.getBatches().get(0).get(0));
+    }
+
+    @Test
+    public void testPartialBatchIsSentAfterTheInterval() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        queue = new TelemetryEventQueue(sink, 100, 10, 50);
+
+        queue.offer(event("a"));
+        queue.offer(event("b"));
+        sink.awaitEvents(2, 5000);
+
+        assertEquals(1, sink.getBatches().size());
+        assertEquals(2, sink.getBatches().get(0).size());
+    }
+
+    @Test
+    public void testOldestEventsAreDroppedWhenFull() throws Exception {
+        final CountDownLatch isSending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CollectingSink sink = new CollectingSink();
+        queue = new TelemetryEventQueue(new TelemetryEventQueue.Sink() {
+            @Override
+            public void send(List<TelemetryEventQueue.Event> events) {
+                isSending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                sink.send(events);
+            }
+        }, 5, 1, TimeUnit.MINUTES.toMillis(10));
+
+        // Hold the sender in the sink so the next events pile up in the queue
+        queue.offer(event("first"));
+        assertTrue(isSending.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            queue.offer(event("event" + i));
+        }
+        assertEquals(5, queue.size());
+        assertEquals(5, queue.getDroppedCount());
+
+        release.countDown();
+        sink.awaitEvents(6, 5000);
+
+        List<String> sent = new ArrayList<>();
+        for (List<String> batch : sink.getBatches()) {
+            sent.addAll(batch);
+        }
+        assertEquals("first", sent.get(0));
+        assertEquals("event5", sent.get(1));
+        assertEquals("event9", sent.get(5));
+    }
+
+    @Test
+    public void testShutdownFlushesQueuedEvents() {
+        CollectingSink sink = new CollectingSink();
+        queue = new TelemetryEventQueue(sink, 100, 50, TimeUnit.MINUTES.toMillis(10));
+
+        for (int i = 0; i < 7; i++) {
+            queue.offer(event("event" + i));
+        }
+        queue.shutdown(5000);
+
+        assertEquals(7, sink.getEventCount());
+        assertFalse(queue.offer(event("late")));
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    @Test
+    public void testEnqueueFromManyThreads() throws Exception {
+        final int threadCount = 8;
+        final int eventsPerThread = 50000;
+        final CollectingSink sink = new CollectingSink();
+        queue = new TelemetryEventQueue(sink, TelemetryEventQueue.DEFAULT_CAPACITY,
+                TelemetryEventQueue.DEFAULT_BATCH_SIZE, TelemetryEventQueue.DEFAULT_FLUSH_INTERVAL_MILLIS);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                }
+                for (int i = 0; i < eventsPerThread; i++) {
+                    queue.offer(event("event"));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        queue.shutdown(10000);
+
+        long total = (long) threadCount * eventsPerThread;
+
+        // Every event is either handed to the sink or counted as dropped
+        assertEquals(total, sink.getEventCount() + queue.getDroppedCount());
+        assertEquals(0, queue.size());
+    }
+}
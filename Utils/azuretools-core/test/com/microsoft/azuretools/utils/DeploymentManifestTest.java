@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeploymentManifestTest {
+    private static final String EXPLODED_ROOT = "/site/wwwroot/webapps/ROOT/";
+    private static final String ROOT_WAR = "/site/wwwroot/webapps/ROOT.war";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private InMemoryFtpClient ftp;
+    private FtpConnectionPool pool;
+    private DeploymentManifest manifest;
+
+    @Before
+    public void setUp() throws Exception {
+        ftp = new InMemoryFtpClient();
+        pool = new FtpConnectionPool(() -> new InMemoryFtpClient(ftp), 4);
+        manifest = new DeploymentManifest(new File(temporaryFolder.getRoot(), "manifest.properties"));
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testManifestIsSavedAndLoaded() throws Exception {
+        File manifestFile = new File(temporaryFolder.getRoot(), "saved.properties");
+        DeploymentManifest saved = new DeploymentManifest(manifestFile);
+        saved.put("webapps/app.war", "1", null);
+        saved.put("ROOT.jar", "2", "10@1");
+        saved.save();
+
+        DeploymentManifest loaded = new DeploymentManifest(manifestFile);
+        assertEquals("1", loaded.getHash("webapps/app.war"));
+        assertFalse(loaded.isRemoteUnchanged("webapps/app.war", null));
+        assertTrue(loaded.isUnchanged("ROOT.jar", "2"));
+        assertFalse(loaded.isUnchanged("ROOT.jar", "3"));
+        assertTrue(loaded.isRemoteUnchanged("ROOT.jar", "10@1"));
+        assertFalse(loaded.isRemoteUnchanged("ROOT.jar", "10@2"));
+    }
+
+    @Test
+    public void testWarDeployRemovesTheExplodedTree() throws Exception {
+        ftp.putFile(EXPLODED_ROOT + "stale.jsp", bytes("stale"));
+        File war = createWar("app.war", files("index.jsp", "v1", "WEB-INF/web.xml", "xml"));
+
+        WebAppUtils.deployArtifact("app", war, pool, manifest, true, false, null);
+
+        assertFalse(ftp.getFiles().containsKey(EXPLODED_ROOT + "stale.jsp"));
+        assertEquals(Collections.singletonList(ROOT_WAR), ftp.getStoredPaths());
+        assertEquals(DeploymentManifest.sha256(war), manifest.getHash("webapps/ROOT.war"));
+    }
+
+    @Test
+    public void testChangedWarIsUploadedWithoutItsExplodedFiles() throws Exception {
+        Map<String, String> v1 = files("index.jsp", "v1", "about.jsp", "about", "WEB-INF/web.xml", "xml");
+        WebAppUtils.deployArtifact("app", createWar("app.war", v1), pool, manifest, true, false, null);
+        explode(v1);
+        ftp.getStoredPaths().clear();
+        ftp.getDeletedPaths().clear();
+
+        Map<String, String> v2 = files("index.jsp", "v2", "WEB-INF/web.xml", "xml");
+        File war = createWar("app2.war", v2);
+        WebAppUtils.deployArtifact("app", war, pool, manifest, true, false, null);
+
+        // The server explodes the new war again
+        assertEquals(Collections.singletonList(ROOT_WAR), ftp.getStoredPaths());
+        assertTrue(ftp.getDeletedPaths().contains(ROOT_WAR));
+        assertFalse(ftp.getFiles().containsKey(EXPLODED_ROOT + "index.jsp"));
+        assertArrayEquals(Files.readAllBytes(war.toPath()), ftp.getFiles().get(ROOT_WAR));
+    }
+
+    @Test
+    public void testUnchangedArtifactIsSkipped() throws Exception {
+        File war = createWar("app.war", files("index.jsp", "v1"));
+        WebAppUtils.deployArtifact("app", war, pool, manifest, false, false, null);
+        ftp.getStoredPaths().clear();
+
+        // The manifest saved by the first deployment is read again
+        DeploymentManifest reloaded = new DeploymentManifest(new File(temporaryFolder.getRoot(),
+                "manifest.properties"));
+        assertEquals(0, WebAppUtils.deployArtifact("app", war, pool, reloaded, false, false, null));
+        assertTrue(ftp.getStoredPaths().isEmpty());
+    }
+
+    @Test
+    public void testArtifactReplacedOnTheServerIsDeployedAgain() throws Exception {
+        File war = createWar("app.war", files("index.jsp", "v1"));
+        WebAppUtils.deployArtifact("app", war, pool, manifest, true, false, null);
+        // Deployed from elsewhere with the same size
+        ftp.putFile(ROOT_WAR, new byte[(int) war.length()]);
+        ftp.getStoredPaths().clear();
+
+        WebAppUtils.deployArtifact("app", war, pool, manifest, true, false, null);
+
+        assertEquals(Collections.singletonList(ROOT_WAR), ftp.getStoredPaths());
+        assertArrayEquals(Files.readAllBytes(war.toPath()), ftp.getFiles().get(ROOT_WAR));
+    }
+
+    @Test
+    public void testForceDeployUploadsAnUnchangedArtifact() throws Exception {
+        File jar = temporaryFolder.newFile("app.jar");
+        Files.write(jar.toPath(), bytes("jar"));
+        WebAppUtils.deployArtifact("app", jar, pool, manifest, false, false, null);
+        ftp.getStoredPaths().clear();
+
+        WebAppUtils.deployArtifact("app", jar, pool, manifest, false, true, null);
+
+        assertEquals(Collections.singletonList("/site/wwwroot/ROOT.jar"), ftp.getStoredPaths());
+    }
+
+    @Test
+    public void testCanceledDeployIsNotRecorded() throws Exception {
+        ftp.putFile(EXPLODED_ROOT + "index.jsp", bytes("v1"));
+        File war = createWar("app.war", files("index.jsp", "v2"));
+
+        try {
+            WebAppUtils.deployArtifact("app", war, pool, manifest, true, false, new CanceledIndicator());
+            fail("The deployment should fail once canceled.");
+        } catch (InterruptedIOException ignored) {
+        }
+
+        assertTrue(ftp.getStoredPaths().isEmpty());
+        assertNull(manifest.getHash("webapps/ROOT.war"));
+        assertFalse(new File(temporaryFolder.getRoot(), "manifest.properties").exists());
+    }
+
+    private void explode(Map<String, String> entries) {
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            ftp.putFile(EXPLODED_ROOT + entry.getKey(), bytes(entry.getValue()));
+        }
+    }
+
+    private File createWar(String name, Map<String, String> entries) throws IOException {
+        File war = temporaryFolder.newFile(name);
+        try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(war))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOut.write(bytes(entry.getValue()));
+                zipOut.closeEntry();
+            }
+        }
+        return war;
+    }
+
+    private static Map<String, String> files(String... pathsAndContents) {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (int i = 0; i < pathsAndContents.length; i += 2) {
+            files.put(pathsAndContents[i], pathsAndContents[i + 1]);
+        }
+        return files;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class CanceledIndicator implements IProgressIndicator {
+        @Override
+        public void setText(String text) {
+        }
+
+        @Override
+        public void setText2(String text2) {
+        }
+
+        @Override
+        public void setFraction(double fraction) {
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return true;
+        }
+
+        @Override
+        public void notifyComplete() {
+        }
+    }
+}
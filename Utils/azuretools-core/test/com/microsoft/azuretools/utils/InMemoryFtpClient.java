@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FTP client standing in for an FTP server, keeping the remote tree in memory. Like a real server, it fails to
+ * store a file or make a folder whose parent folder doesn't exist. The connections to the same server share its
+ * tree and its logs of stored and deleted files. Each store of a file moves its modification time forward.
+ */
+public class InMemoryFtpClient extends FTPClient {
+    private final Map<String, byte[]> files;
+    private final Map<String, Long> modifiedTimes;
+    private final AtomicLong clock;
+    private final Set<String> folders;
+    private final List<String> storedPaths;
+    private final List<String> deletedPaths;
+    private final AtomicInteger storeFailuresLeft;
+    private int replyCode = FTPReply.COMMAND_OK;
+
+    public InMemoryFtpClient() {
+        this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new AtomicLong(), ConcurrentHashMap.newKeySet(),
+                Collections.synchronizedList(new ArrayList<>()), Collections.synchronizedList(new ArrayList<>()),
+                new AtomicInteger());
+        folders.add("/");
+        makeDirectory("/site");
+        makeDirectory("/site/wwwroot");
+    }
+
+    /**
+     * Another connection to the same server.
+     */
+    public InMemoryFtpClient(InMemoryFtpClient server) {
+        this(server.files, server.modifiedTimes, server.clock, server.folders, server.storedPaths,
+                server.deletedPaths, server.storeFailuresLeft);
+    }
+
+    private InMemoryFtpClient(Map<String, byte[]> files, Map<String, Long> modifiedTimes, AtomicLong clock,
+                              Set<String> folders, List<String> storedPaths, List<String> deletedPaths,
+                              AtomicInteger storeFailuresLeft) {
+        this.files = files;
+        this.modifiedTimes = modifiedTimes;
+        this.clock = clock;
+        this.folders = folders;
+        this.storedPaths = storedPaths;
+        this.deletedPaths = deletedPaths;
+        this.storeFailuresLeft = storeFailuresLeft;
+    }
+
+    public Map<String, byte[]> getFiles() {
+        return files;
+    }
+
+    public List<String> getStoredPaths() {
+        return storedPaths;
+    }
+
+    public List<String> getDeletedPaths() {
+        return deletedPaths;
+    }
+
+    /**
+     * The next stores on any connection to this server read the file, then fail as if the connection was lost.
+     */
+    public void failNextStores(int count) {
+        storeFailuresLeft.set(count);
+    }
+
+    public void putFile(String path, byte[] content) {
+        String parent = getParent(normalize(path));
+        if (!folders.contains(parent)) {
+            putFolder(parent);
+        }
+        files.put(normalize(path), content);
+        modifiedTimes.put(normalize(path), clock.incrementAndGet());
+    }
+
+    private void putFolder(String path) {
+        String parent = getParent(path);
+        if (!folders.contains(parent)) {
+            putFolder(parent);
+        }
+        folders.add(path);
+    }
+
+    @Override
+    public boolean storeFile(String remote, InputStream local) throws IOException {
+        String path = normalize(remote);
+        if (!folders.contains(getParent(path))) {
+            replyCode = FTPReply.FILE_UNAVAILABLE;
+            return false;
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = local.read(buffer)) >= 0) {
+            content.write(buffer, 0, length);
+        }
+        if (storeFailuresLeft.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+            throw new IOException("Connection reset while storing " + path);
+        }
+        files.put(path, content.toByteArray());
+        modifiedTimes.put(path, clock.incrementAndGet());
+        storedPaths.add(path);
+        replyCode = FTPReply.CLOSING_DATA_CONNECTION;
+        return true;
+    }
+
+    @Override
+    public boolean deleteFile(String pathname) {
+        String path = normalize(pathname);
+        boolean isDeleted = files.remove(path) != null;
+        modifiedTimes.remove(path);
+        if (isDeleted) {
+            deletedPaths.add(path);
+        }
+        replyCode = isDeleted ? FTPReply.FILE_ACTION_OK : FTPReply.FILE_UNAVAILABLE;
+        return isDeleted;
+    }
+
+    @Override
+    public boolean makeDirectory(String pathname) {
+        String path = normalize(pathname);
+        boolean isMade = folders.contains(getParent(path)) && !folders.contains(path) && !files.containsKey(path)
+                && folders.add(path);
+        replyCode = isMade ? FTPReply.PATHNAME_CREATED : FTPReply.FILE_UNAVAILABLE;
+        return isMade;
+    }
+
+    @Override
+    public boolean removeDirectory(String pathname) {
+        String path = normalize(pathname);
+        boolean isRemoved = folders.contains(path) && listFiles(path).length == 0 && folders.remove(path);
+        replyCode = isRemoved ? FTPReply.FILE_ACTION_OK : FTPReply.FILE_UNAVAILABLE;
+        return isRemoved;
+    }
+
+    @Override
+    public FTPFile[] listFiles(String pathname) {
+        String path = normalize(pathname);
+        List<FTPFile> children = new ArrayList<>();
+        for (String folder : folders) {
+            if (!folder.equals(path) && getParent(folder).equals(path)) {
+                children.add(createFtpFile(folder, FTPFile.DIRECTORY_TYPE, 0, null));
+            }
+        }
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            if (getParent(file.getKey()).equals(path)) {
+                children.add(createFtpFile(file.getKey(), FTPFile.FILE_TYPE, file.getValue().length,
+                        modifiedTimes.get(file.getKey())));
+            }
+        }
+        return children.toArray(new FTPFile[0]);
+    }
+
+    @Override
+    public String getStatus(String pathname) {
+        replyCode = folders.contains(normalize(pathname)) ? FTPReply.FILE_STATUS : FTPReply.FILE_UNAVAILABLE;
+        return null;
+    }
+
+    @Override
+    public int getReplyCode() {
+        return replyCode;
+    }
+
+    @Override
+    public boolean logout() {
+        return true;
+    }
+
+    private static FTPFile createFtpFile(String path, int type, long size, Long modifiedTime) {
+        FTPFile ftpFile = new FTPFile();
+        ftpFile.setName(path.substring(path.lastIndexOf('/') + 1));
+        ftpFile.setType(type);
+        ftpFile.setSize(size);
+        if (modifiedTime != null) {
+            Calendar timestamp = Calendar.getInstance();
+            timestamp.setTimeInMillis(modifiedTime);
+            ftpFile.setTimestamp(timestamp);
+        }
+        return ftpFile;
+    }
+
+    private static String normalize(String path) {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private static String getParent(String path) {
+        int index = path.lastIndexOf('/');
+        return index <= 0 ? "/" : path.substring(0, index);
+    }
+}
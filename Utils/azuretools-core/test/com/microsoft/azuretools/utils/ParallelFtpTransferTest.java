@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelFtpTransferTest {
+    private static final String APP_PATH = "/site/wwwroot/webapps/app";
+    private static final int FOLDER_COUNT = 40;
+    private static final int FILES_PER_FOLDER = 50;
+    private static final int MAX_CONNECTIONS = 4;
+
+    private InMemoryFtpClient ftp;
+    private AtomicInteger connectionCount;
+    private FtpConnectionPool pool;
+    private RecordingIndicator indicator;
+
+    @Before
+    public void setUp() {
+        ftp = new InMemoryFtpClient();
+        connectionCount = new AtomicInteger();
+        pool = new FtpConnectionPool(() -> {
+            connectionCount.incrementAndGet();
+            return new InMemoryFtpClient(ftp);
+        }, MAX_CONNECTIONS);
+        indicator = new RecordingIndicator();
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testUploadsThousandsOfSmallFilesOverAFewConnections() throws Exception {
+        ftp.makeDirectory("/site/wwwroot/webapps");
+        ftp.makeDirectory(APP_PATH);
+        List<ParallelFtpTransfer.Upload> uploads = new ArrayList<>();
+        for (int folder = 0; folder < FOLDER_COUNT; folder++) {
+            ftp.makeDirectory(APP_PATH + "/folder" + folder);
+            for (int file = 0; file < FILES_PER_FOLDER; file++) {
+                uploads.add(createUpload(getFilePath(folder, file)));
+            }
+        }
+
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(pool, indicator, 0)) {
+            transfer.upload(uploads);
+        }
+
+        assertEquals(FOLDER_COUNT * FILES_PER_FOLDER, ftp.getStoredPaths().size());
+        for (int folder = 0; folder < FOLDER_COUNT; folder++) {
+            for (int file = 0; file < FILES_PER_FOLDER; file++) {
+                String path = getFilePath(folder, file);
+                assertArrayEquals(bytes(path), ftp.getFiles().get(path));
+            }
+        }
+        assertTrue(connectionCount.get() <= MAX_CONNECTIONS);
+        assertEquals(1.0, indicator.fraction, 0);
+        assertTrue(indicator.text2.startsWith("Uploaded 2000/2000 files"));
+        assertTrue(indicator.text2.contains("MB/s"));
+    }
+
+    @Test
+    public void testRemovesANestedTreeOfThousandsOfFiles() throws Exception {
+        for (int folder = 0; folder < FOLDER_COUNT; folder++) {
+            for (int file = 0; file < FILES_PER_FOLDER; file++) {
+                ftp.putFile(APP_PATH + "/folder" + folder + "/nested/file" + file + ".txt", bytes("nested"));
+                ftp.putFile(getFilePath(folder, file), bytes("file"));
+            }
+        }
+        ftp.putFile("/site/wwwroot/webapps/other/index.jsp", bytes("other"));
+
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(pool, indicator, 0)) {
+            transfer.removeTree(APP_PATH);
+        }
+
+        assertEquals(2 * FOLDER_COUNT * FILES_PER_FOLDER, ftp.getDeletedPaths().size());
+        assertEquals(1, ftp.getFiles().size());
+        assertTrue(ftp.getFiles().containsKey("/site/wwwroot/webapps/other/index.jsp"));
+        assertEquals(0, ftp.listFiles(APP_PATH).length);
+        assertFalse(WebAppUtils.doesRemoteFolderExist(ftp, "/site/wwwroot/webapps", "app"));
+        assertTrue(connectionCount.get() <= MAX_CONNECTIONS);
+    }
+
+    @Test
+    public void testTransfersOverlapOnAllConnections() throws Exception {
+        for (int file = 0; file < 2 * MAX_CONNECTIONS; file++) {
+            ftp.putFile(APP_PATH + "/file" + file + ".jsp", bytes("file"));
+        }
+        // Each deletion waits for one on every other connection, so they only all go through if they overlap
+        CountDownLatch allDeleting = new CountDownLatch(MAX_CONNECTIONS);
+        AtomicInteger overlappedCount = new AtomicInteger();
+        FtpConnectionPool overlappingPool = new FtpConnectionPool(() -> new InMemoryFtpClient(ftp) {
+            @Override
+            public boolean deleteFile(String pathname) {
+                allDeleting.countDown();
+                try {
+                    if (allDeleting.await(5, TimeUnit.SECONDS)) {
+                        overlappedCount.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.deleteFile(pathname);
+            }
+        }, MAX_CONNECTIONS);
+
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(overlappingPool, indicator, 0)) {
+            transfer.removeTree(APP_PATH);
+        } finally {
+            overlappingPool.close();
+        }
+
+        assertEquals(2 * MAX_CONNECTIONS, overlappedCount.get());
+        assertTrue(ftp.getFiles().isEmpty());
+    }
+
+    @Test
+    public void testClosingThePoolDisconnectsTheBorrowedConnections() throws Exception {
+        List<ConnectedFtpClient> connections = new ArrayList<>();
+        FtpConnectionPool closingPool = new FtpConnectionPool(() -> {
+            ConnectedFtpClient connection = new ConnectedFtpClient(ftp);
+            connections.add(connection);
+            return connection;
+        }, MAX_CONNECTIONS);
+        CountDownLatch borrowed = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Object> execution = executor.submit(() -> closingPool.execute(client -> {
+                borrowed.countDown();
+                try {
+                    released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while holding the FTP connection");
+                }
+                return null;
+            }));
+            assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+
+            closingPool.close();
+            assertEquals(1, connections.size());
+            assertFalse(connections.get(0).isConnected());
+
+            released.countDown();
+            execution.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try {
+            closingPool.execute(client -> null);
+            fail("The closed pool should not hand out connections.");
+        } catch (InterruptedIOException ignored) {
+        }
+        assertEquals(1, connections.size());
+    }
+
+    @Test
+    public void testRetriesFailedTransfers() throws Exception {
+        List<ParallelFtpTransfer.Upload> uploads = new ArrayList<>();
+        for (int file = 0; file < 100; file++) {
+            uploads.add(createUpload("/site/wwwroot/file" + file));
+        }
+        // Even if the same file runs into all of the failures, it is stored by its last try
+        ftp.failNextStores(ParallelFtpTransfer.MAX_TRY - 1);
+
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(pool, indicator, 0)) {
+            transfer.upload(uploads);
+        }
+
+        // The file is read again from its source when retried
+        assertEquals(100, ftp.getStoredPaths().size());
+        for (int file = 0; file < 100; file++) {
+            String path = "/site/wwwroot/file" + file;
+            assertArrayEquals(bytes(path), ftp.getFiles().get(path));
+        }
+    }
+
+    @Test
+    public void testFailsOnceTheTransferRunsOutOfRetries() throws Exception {
+        ftp.failNextStores(ParallelFtpTransfer.MAX_TRY);
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(pool, indicator, 0)) {
+            List<ParallelFtpTransfer.Upload> uploads = new ArrayList<>();
+            uploads.add(createUpload("/site/wwwroot/file"));
+            transfer.upload(uploads);
+            fail("The upload should fail after " + ParallelFtpTransfer.MAX_TRY + " tries.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Connection reset"));
+        }
+        assertFalse(ftp.getFiles().containsKey("/site/wwwroot/file"));
+    }
+
+    @Test
+    public void testFailsOnceCanceled() throws Exception {
+        List<ParallelFtpTransfer.Upload> uploads = new ArrayList<>();
+        AtomicInteger openCount = new AtomicInteger();
+        for (int file = 0; file < 1000; file++) {
+            String path = "/site/wwwroot/file" + file;
+            uploads.add(new ParallelFtpTransfer.Upload(path, 0, () -> {
+                if (openCount.incrementAndGet() == 100) {
+                    indicator.isCanceled = true;
+                }
+                return new ByteArrayInputStream(bytes(path));
+            }));
+        }
+
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(pool, indicator, 0)) {
+            transfer.upload(uploads);
+            fail("The upload should fail once canceled.");
+        } catch (InterruptedIOException ignored) {
+        }
+        assertTrue(ftp.getStoredPaths().size() < 1000);
+
+        ftp.putFile(APP_PATH + "/index.jsp", bytes("index"));
+        try (ParallelFtpTransfer transfer = new ParallelFtpTransfer(pool, indicator, 0)) {
+            transfer.removeTree(APP_PATH);
+            fail("The removal should fail once canceled.");
+        } catch (InterruptedIOException ignored) {
+        }
+        assertTrue(ftp.getFiles().containsKey(APP_PATH + "/index.jsp"));
+    }
+
+    private static ParallelFtpTransfer.Upload createUpload(String path) {
+        byte[] content = bytes(path);
+        return new ParallelFtpTransfer.Upload(path, content.length, () -> new ByteArrayInputStream(content));
+    }
+
+    private static String getFilePath(int folder, int file) {
+        return APP_PATH + "/folder" + folder + "/file" + file + ".jsp";
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class ConnectedFtpClient extends InMemoryFtpClient {
+        private volatile boolean isConnected = true;
+
+        ConnectedFtpClient(InMemoryFtpClient server) {
+            super(server);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return isConnected;
+        }
+
+        @Override
+        public void disconnect() {
+            isConnected = false;
+        }
+    }
+
+    private static class RecordingIndicator implements IProgressIndicator {
+        private volatile double fraction;
+        private volatile String text2 = "";
+        private volatile boolean isCanceled;
+
+        @Override
+        public void setText(String text) {
+        }
+
+        @Override
+        public void setText2(String text2) {
+            this.text2 = text2;
+        }
+
+        @Override
+        public void setFraction(double fraction) {
+            this.fraction = fraction;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return isCanceled;
+        }
+
+        @Override
+        public void notifyComplete() {
+        }
+    }
+}
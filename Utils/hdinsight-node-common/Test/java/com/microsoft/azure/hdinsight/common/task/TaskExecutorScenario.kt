@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.common.task
+
+import com.google.common.util.concurrent.ListenableFuture
+import com.google.common.util.concurrent.SettableFuture
+import com.microsoft.azure.hdinsight.spark.jobs.JobViewRequestTask
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpHandler
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import cucumber.api.java.en.When
+import org.mockito.ArgumentMatchers.anyInt
+import org.mockito.ArgumentMatchers.anyLong
+import org.mockito.Mockito
+import java.io.ByteArrayOutputStream
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class TaskExecutorScenario {
+    private class BlockingTask(private val name: String,
+                               private val key: String,
+                               private val started: MutableList<String>,
+                               private val running: AtomicInteger,
+                               private val maxRunning: AtomicInteger) : Task<String>(null) {
+        val release = CountDownLatch(1)
+
+        override fun getConcurrencyKey(): String = key
+
+        override fun call(): String {
+            started.add(name)
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max)
+
+            try {
+                release.await(30, TimeUnit.SECONDS)
+            } finally {
+                running.decrementAndGet()
+            }
+
+            return name
+        }
+    }
+
+    private val started: MutableList<String> = Collections.synchronizedList(mutableListOf())
+    private val running = AtomicInteger()
+    private val maxRunning = AtomicInteger()
+    private val tasks = mutableListOf<BlockingTask>()
+    private val futures = mutableListOf<ListenableFuture<*>>()
+    private var cancelledCount = 0
+    private val responseCodes: MutableList<Int> = Collections.synchronizedList(mutableListOf())
+
+    private fun submit(name: String, key: String, priority: Task.Priority, group: String?) {
+        val task = BlockingTask(name, key, started, running, maxRunning)
+        task.priority = priority
+        task.group = group
+
+        tasks.add(task)
+        futures.add(TaskExecutor.submit(task))
+    }
+
+    private fun waitForStarted(count: Int) {
+        val deadline = System.currentTimeMillis() + 10_000
+
+        while (started.size < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+
+        assertEquals(count, started.size, "Started tasks: $started")
+    }
+
+    @Given("^submit (\\d+) blocking tasks to the task executor with concurrency key '(.+)'$")
+    fun submitBlockingTasks(count: Int, key: String) {
+        (1..count).forEach { submit("$key-$it", key, Task.Priority.USER_VISIBLE, null) }
+    }
+
+    @Given("^submit (\\d+) blocking commands to the task executor background executor$")
+    fun submitBackgroundCommands(count: Int) {
+        (1..count).forEach {
+            val task = BlockingTask("background-$it", TaskExecutor.BACKGROUND_CONCURRENCY_KEY, started, running, maxRunning)
+            val future = SettableFuture.create<String>()
+
+            tasks.add(task)
+            futures.add(future)
+            TaskExecutor.getBackgroundExecutor().execute { future.set(task.call()) }
+        }
+    }
+
+    @Given("^submit a (USER_VISIBLE|BACKGROUND) task '(.+)' of group '(.+)' to the task executor with concurrency key '(.+)'$")
+    fun submitTask(priority: String, name: String, group: String, key: String) {
+        submit(name, key, Task.Priority.valueOf(priority), group)
+    }
+
+    @Given("^submit (\\d+) job view requests of group '(.+)' to the task executor for cluster '(.+)'$")
+    fun submitJobViewRequests(count: Int, group: String, cluster: String) {
+        (1..count).forEach {
+            val task = BlockingTask("$cluster-request-$it", cluster, started, running, maxRunning)
+            val httpExchange = Mockito.mock(HttpExchange::class.java)
+            Mockito.doAnswer { invocation -> responseCodes.add(invocation.arguments[0] as Int) }
+                    .`when`(httpExchange).sendResponseHeaders(anyInt(), anyLong())
+            Mockito.`when`(httpExchange.responseBody).thenReturn(ByteArrayOutputStream())
+
+            tasks.add(task)
+            futures.add(TaskExecutor.submit(
+                    JobViewRequestTask(HttpHandler { task.call() }, httpExchange, cluster).setGroup(group)))
+        }
+    }
+
+    @Then("^the task executor should start (\\d+) tasks and queue the others$")
+    fun checkStartedAndQueued(count: Int) {
+        waitForStarted(count)
+        // Make sure no more task sneaks in
+        Thread.sleep(200)
+
+        assertEquals(count, started.size, "Started tasks: $started")
+        assertTrue(TaskExecutor.getStatistics().queueDepth >= tasks.size - count)
+    }
+
+    @When("^release the task executor blocking tasks one by one$")
+    fun releaseOneByOne() {
+        tasks.forEachIndexed { i, task ->
+            waitForStarted(minOf(i + TaskExecutor.MAX_CONCURRENT_TASKS_PER_KEY, tasks.size))
+            task.release.countDown()
+        }
+    }
+
+    @When("^cancel the task executor group '(.+)'$")
+    fun cancelGroup(group: String) {
+        cancelledCount = TaskExecutor.cancel(group)
+    }
+
+    @Then("^all task executor tasks should be done with at most (\\d+) running at the same time$")
+    fun checkAllDone(maxConcurrent: Int) {
+        futures.forEach { it.get(10, TimeUnit.SECONDS) }
+
+        assertEquals(maxConcurrent, maxRunning.get())
+    }
+
+    @Then("^the task executor should start the queued tasks in order$")
+    fun checkStartOrder(expected: List<String>) {
+        assertEquals(expected, started.drop(TaskExecutor.MAX_CONCURRENT_TASKS_PER_KEY))
+    }
+
+    @Then("^the task executor should cancel (\\d+) tasks and start no more$")
+    fun checkCancelled(count: Int) {
+        assertEquals(count, cancelledCount)
+        assertTrue(futures.all { it.isCancelled })
+
+        // The cancelled tasks are interrupted
+        val deadline = System.currentTimeMillis() + 10_000
+        while (running.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+
+        assertEquals(0, running.get())
+        assertEquals(TaskExecutor.MAX_CONCURRENT_TASKS_PER_KEY, started.size)
+    }
+
+    @Then("^the job view requests should be answered with status (\\d+)$")
+    fun checkResponseCodes(code: Int) {
+        assertEquals(List(tasks.size) { code }, responseCodes)
+    }
+}
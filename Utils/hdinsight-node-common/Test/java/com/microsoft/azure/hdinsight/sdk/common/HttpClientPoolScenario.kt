@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common
+
+import com.microsoft.azure.hdinsight.spark.common.MockHttpService
+import cucumber.api.java.After
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import org.apache.http.client.methods.HttpGet
+import org.assertj.core.api.Assertions.assertThat
+
+class HttpClientPoolScenario {
+    private var httpServerMock: MockHttpService? = null
+    // A pool of the scenario's own, so that the counts aren't affected by the other requests
+    private val pool = HttpClientPool()
+    private val newConnectionCounts = mutableMapOf<String, Long>()
+    private val reusedConnectionCounts = mutableMapOf<String, Long>()
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+    }
+
+    @After
+    fun cleanUp() {
+        httpServerMock!!.livyServerMock.stop()
+    }
+
+    @Given("^setup a mock service for GET request '(.+)' to return '(.+)'$")
+    fun mockService(uri: String, response: String) {
+        httpServerMock!!.stub("GET", uri, 200, response)
+    }
+
+    @Then("^send (\\d+) GET requests to '(.+)' with new HttpObservables of user '(.+)'$")
+    fun sendRequests(count: Int, uri: String, user: String) {
+        val statsBefore = pool.statistics
+
+        (1..count).forEach { _ ->
+            val http = HttpObservable(user, "password")
+                    .setHttpClient(pool.getClient(HttpClientPool.SslProfile.SYSTEM))
+
+            assertThat(http.credentialKey).isEqualTo("basic:$user")
+            http.requestWithHttpResponse(HttpGet(httpServerMock!!.completeUrl(uri)), null, null, null)
+                    .toBlocking()
+                    .single()
+        }
+
+        val stats = pool.statistics
+        newConnectionCounts[user] = stats.connectionMissCount - statsBefore.connectionMissCount
+        reusedConnectionCounts[user] = stats.connectionHitCount - statsBefore.connectionHitCount
+    }
+
+    @Then("^the requests of user '(.+)' should open (\\d+) new connections? and reuse (\\d+)$")
+    fun checkConnectionsOfUser(user: String, newConnections: Long, reusedConnections: Long) {
+        assertThat(newConnectionCounts[user]).isEqualTo(newConnections)
+        assertThat(reusedConnectionCounts[user]).isEqualTo(reusedConnections)
+    }
+
+    @Then("^the pool should keep (\\d+) idle connections?$")
+    fun checkIdleConnections(idle: Int) {
+        val stats = pool.statistics
+
+        assertThat(stats.leased).isEqualTo(0)
+        assertThat(stats.available).isEqualTo(idle)
+    }
+}
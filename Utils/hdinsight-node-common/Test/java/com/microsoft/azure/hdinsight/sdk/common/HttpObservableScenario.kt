@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common
+
+import com.microsoft.azure.hdinsight.sdk.common.errorresponse.HttpErrorStatus
+import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.RemoteFile
+import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App
+import com.microsoft.azure.hdinsight.spark.common.MockHttpService
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+
+class HttpObservableScenario {
+    private var httpServerMock: MockHttpService? = null
+    private var caught: Throwable? = null
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+        caught = null
+    }
+
+    @Given("^setup a mock service for GET request '(.+)' to return '(.+)' with status code (\\d+)$")
+    fun mockService(uri: String, response: String, statusCode: Int) {
+        httpServerMock!!.stub("GET", uri, statusCode, response)
+    }
+
+    @Then("^get remote file items of '(.+)' from '(.+)' should be:$")
+    fun checkRemoteFileItems(arrayPointer: String, uri: String, expectNames: List<String>) {
+        val names = HttpObservable()
+                .getItems(httpServerMock!!.completeUrl(uri), null, null, arrayPointer, RemoteFile::class.java)
+                .map { it.name }
+                .toList()
+                .toBlocking()
+                .single()
+
+        assertThat(names).containsExactlyElementsOf(expectNames)
+    }
+
+    @Then("^get remote file items of '(.+)' from '(.+)' should be empty$")
+    fun checkRemoteFileItemsEmpty(arrayPointer: String, uri: String) {
+        checkRemoteFileItems(arrayPointer, uri, emptyList())
+    }
+
+    @Then("^get the first (\\d+) YARN app items of '(.+)' from '(.+)' should be:$")
+    fun checkFirstYarnAppItems(count: Int, arrayPointer: String, uri: String, expectIds: List<String>) {
+        val ids = HttpObservable()
+                .getItems(httpServerMock!!.completeUrl(uri), null, null, arrayPointer, App::class.java)
+                .take(count)
+                .map { it.id }
+                .toList()
+                .toBlocking()
+                .single()
+
+        assertThat(ids).containsExactlyElementsOf(expectIds)
+    }
+
+    @Then("^get YARN app object from '(.+)' should have id '(.+)'$")
+    fun checkYarnAppObject(uri: String, expectId: String) {
+        val app = HttpObservable()
+                .get(httpServerMock!!.completeUrl(uri), null, null, App::class.java)
+                .toBlocking()
+                .single()
+
+        assertThat(app.id).isEqualTo(expectId)
+    }
+
+    @Then("^get remote file items from '(.+)' should fail with status code (\\d+)$")
+    fun checkRemoteFileItemsFailure(uri: String, statusCode: Int) {
+        try {
+            HttpObservable()
+                    .getItems(httpServerMock!!.completeUrl(uri), null, null, "/paths", RemoteFile::class.java)
+                    .toBlocking()
+                    .lastOrDefault(null)
+        } catch (ex: RuntimeException) {
+            // The checked exceptions are wrapped by RxJava blocking operators
+            caught = ex.cause
+        }
+
+        assertThat(caught).isInstanceOf(HttpErrorStatus::class.java)
+        assertThat((caught as HttpErrorStatus).statusCode).isEqualTo(statusCode)
+    }
+}
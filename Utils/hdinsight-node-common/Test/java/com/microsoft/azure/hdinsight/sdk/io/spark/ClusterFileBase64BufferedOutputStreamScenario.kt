@@ -30,11 +30,13 @@ import cucumber.api.java.en.Given
 import cucumber.api.java.en.Then
 import org.apache.commons.io.IOUtils
 import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.mockito.ArgumentCaptor
 import org.mockito.ArgumentMatchers
 import org.mockito.Mockito.*
 import rx.Observable
 import java.io.ByteArrayInputStream
+import java.io.IOException
 import java.net.URI
 
 class ClusterFileBase64BufferedOutputStreamScenario {
@@ -62,6 +64,29 @@ class ClusterFileBase64BufferedOutputStreamScenario {
                 .runCodes(runCodesArg!!.capture())
     }
 
+    @Then("^uploading the following BASE64 string should fail with checksum mismatch$")
+    fun uploadFileToClusterWithChecksumMismatch(encodes: List<String>) {
+        assertThatThrownBy { uploadFileToCluster(encodes) }
+                .isInstanceOf(IOException::class.java)
+                .hasMessageContaining("doesn't match the local checksum")
+    }
+
+    @Given("^create a mocked Livy session for ClusterFileBase64KBBufferedOutputStream returning checksum (\\d+)$")
+    fun mockLivySessionWithChecksum(checksum: Long) {
+        sessionMock = mock(SparkSession::class.java)
+        doAnswer {
+            val codes = it.getArgument<String>(0)
+            val output = if (codes.startsWith("closeOutput")) "res1: Long = $checksum" else ""
+            Observable.just(hashMapOf("text/plain" to output))
+        }.`when`(sessionMock!!).runCodes(runCodesArg!!.capture())
+    }
+
+    @And("^create a Spark cluster file BASE64 output stream '(.+)' with page size (\\d+)KB and (\\d+) pages in flight$")
+    fun createPipelinedClusterFileBase64OutputStream(dest: String, pageSize: Int, maxInFlightPages: Int) {
+        clusterFileBase64OutputStream =
+                ClusterFileBase64BufferedOutputStream(sessionMock, URI.create(dest), pageSize, maxInFlightPages)
+    }
+
     @And("^create a Spark cluster file BASE64 output stream '(.+)' with page size (\\d+)KB$")
     fun createClusterFileBase64OutputStream(dest: String, pageSize: Int) {
         clusterFileBase64OutputStream = ClusterFileBase64BufferedOutputStream(sessionMock, URI.create(dest), pageSize)
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2
+
+import com.github.tomakehurst.wiremock.client.WireMock
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable
+import com.microsoft.azure.hdinsight.spark.common.MockHttpService
+import cucumber.api.java.After
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import cucumber.api.java.en.When
+import org.apache.http.Header
+import org.apache.http.HttpEntity
+import org.apache.http.NameValuePair
+import org.apache.http.client.methods.CloseableHttpResponse
+import org.apache.http.client.methods.HttpRequestBase
+import org.assertj.core.api.Assertions.assertThat
+import rx.Observable
+import java.io.File
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ADLSGen2FSOperationScenario {
+    private var httpServerMock: MockHttpService? = null
+    private var artifact: File? = null
+    private var session: ADLSGen2UploadSession? = null
+    private var caught: Throwable? = null
+    private var maxConcurrentAppends = ADLSGen2FSOperation.DEFAULT_MAX_CONCURRENT_APPENDS
+    private var appendRetries = 0
+    private var http: HttpObservable = HttpObservable()
+    private var holdingHttp: AppendHoldingHttpObservable? = null
+
+    /**
+     * Holds each append in its request until the expected number of appends are sent, or the time is out. The
+     * appends sent one by one are held in turn, so the most appends in flight together tell the concurrency.
+     */
+    private class AppendHoldingHttpObservable(expectedAppends: Int) : HttpObservable() {
+        private val arrived = CountDownLatch(expectedAppends)
+        private val inFlight = AtomicInteger()
+        val maxInFlight = AtomicInteger()
+
+        override fun request(httpRequest: HttpRequestBase,
+                             entity: HttpEntity?,
+                             parameters: List<NameValuePair>?,
+                             addOrReplaceHeaders: List<Header>?): Observable<CloseableHttpResponse> {
+            val request = super.request(httpRequest, entity, parameters, addOrReplaceHeaders)
+            if (parameters.orEmpty().none { it.name == "action" && it.value == "append" }) {
+                return request
+            }
+
+            return Observable.defer {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet()) { max, current -> maxOf(max, current) }
+                arrived.countDown()
+                arrived.await(5, TimeUnit.SECONDS)
+
+                request.doOnTerminate { inFlight.decrementAndGet() }
+            }
+        }
+    }
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+        session = null
+        caught = null
+        maxConcurrentAppends = ADLSGen2FSOperation.DEFAULT_MAX_CONCURRENT_APPENDS
+        appendRetries = 0
+        http = HttpObservable()
+        holdingHttp = null
+    }
+
+    @After
+    fun cleanUp() {
+        artifact?.delete()
+    }
+
+    @Given("^a local artifact with content '(.*)'$")
+    fun createArtifact(content: String) {
+        artifact = File.createTempFile("artifact", ".jar").apply {
+            deleteOnExit()
+            writeText(content)
+        }
+    }
+
+    @Given("^the mock ADLS Gen2 service accepts appending and flushing '(.+)'$")
+    fun mockAppendAndFlush(path: String) {
+        WireMock.configureFor(httpServerMock!!.port)
+        WireMock.removeAllMappings()
+        WireMock.stubFor(WireMock.patch(WireMock.urlPathEqualTo(path))
+                .withQueryParam("action", WireMock.equalTo("append"))
+                .willReturn(WireMock.aResponse().withStatus(202)))
+        WireMock.stubFor(WireMock.patch(WireMock.urlPathEqualTo(path))
+                .withQueryParam("action", WireMock.equalTo("flush"))
+                .willReturn(WireMock.aResponse().withStatus(200)))
+    }
+
+    @Given("^the mock ADLS Gen2 service fails appending '(.+)' at position (\\d+)$")
+    fun mockAppendFailure(path: String, position: Long) {
+        mockAppendFailure(path, position, 500)
+    }
+
+    @Given("^the mock ADLS Gen2 service fails appending '(.+)' at position (\\d+) with status (\\d+)$")
+    fun mockAppendFailure(path: String, position: Long, statusCode: Int) {
+        WireMock.configureFor(httpServerMock!!.port)
+        WireMock.stubFor(WireMock.patch(WireMock.urlPathEqualTo(path))
+                .atPriority(1)
+                .withQueryParam("action", WireMock.equalTo("append"))
+                .withQueryParam("position", WireMock.equalTo(position.toString()))
+                .willReturn(WireMock.aResponse().withStatus(statusCode)))
+    }
+
+    @Given("^each block is retried up to (\\d+) times?$")
+    fun setAppendRetries(count: Int) {
+        appendRetries = count
+    }
+
+    @Given("^the appends are held until (\\d+) of them are sent$")
+    fun holdAppends(count: Int) {
+        holdingHttp = AppendHoldingHttpObservable(count)
+        http = holdingHttp!!
+    }
+
+    @Given("^at most (\\d+) blocks? (?:is|are) appended at the same time$")
+    fun setMaxConcurrentAppends(count: Int) {
+        maxConcurrentAppends = count
+    }
+
+    @When("^upload the artifact to '(.+)' in blocks of (\\d+) bytes$")
+    fun uploadArtifact(path: String, blockSize: Long) {
+        session = ADLSGen2UploadSession(httpServerMock!!.completeUrl(path), artifact!!, blockSize)
+        resumeUpload()
+    }
+
+    @When("^resume the upload$")
+    fun resumeUpload() {
+        WireMock.resetAllRequests()
+        caught = null
+
+        try {
+            ADLSGen2FSOperation(http)
+                    .setAppendRetries(appendRetries)
+                    .setMaxConcurrentAppends(maxConcurrentAppends)
+                    .uploadData(session!!)
+                    .toBlocking()
+                    .single()
+        } catch (ex: Throwable) {
+            caught = ex
+        }
+    }
+
+    @Then("^the upload should succeed$")
+    fun checkUploadSucceeded() {
+        assertThat(caught).isNull()
+        assertThat(session!!.isAllBlocksCompleted).isTrue()
+    }
+
+    @Then("^the upload should fail$")
+    fun checkUploadFailed() {
+        assertThat(caught).isNotNull()
+        assertThat(session!!.isAllBlocksCompleted).isFalse()
+    }
+
+    @Then("^the appended blocks of '(.+)' should be:$")
+    fun checkAppendedBlocks(path: String, expectBlocks: List<String>) {
+        val blocks = WireMock.findAll(WireMock.patchRequestedFor(WireMock.urlPathEqualTo(path))
+                        .withQueryParam("action", WireMock.equalTo("append")))
+                .map { "${it.queryParameter("position").firstValue()}:${it.bodyAsString}" }
+
+        assertThat(blocks).containsExactlyInAnyOrderElementsOf(expectBlocks)
+    }
+
+    @Then("^the appended blocks of '(.+)' should be empty$")
+    fun checkNoAppendedBlocks(path: String) {
+        checkAppendedBlocks(path, emptyList())
+    }
+
+    @Then("^(\\d+) blocks should have been appended at the same time$")
+    fun checkConcurrentAppends(count: Int) {
+        assertThat(holdingHttp!!.maxInFlight.get()).isEqualTo(count)
+    }
+
+    @Then("^the block at position (\\d+) of '(.+)' should be appended (\\d+) times?$")
+    fun checkAppendCount(position: Long, path: String, count: Int) {
+        WireMock.verify(count, WireMock.patchRequestedFor(WireMock.urlPathEqualTo(path))
+                .withQueryParam("action", WireMock.equalTo("append"))
+                .withQueryParam("position", WireMock.equalTo(position.toString())))
+    }
+
+    @Then("^'(.+)' should be flushed at position (\\d+)$")
+    fun checkFlushed(path: String, position: Long) {
+        WireMock.verify(1, WireMock.patchRequestedFor(WireMock.urlPathEqualTo(path))
+                .withQueryParam("action", WireMock.equalTo("flush"))
+                .withQueryParam("position", WireMock.equalTo(position.toString())))
+    }
+
+    @Then("^'(.+)' should not be flushed$")
+    fun checkNotFlushed(path: String) {
+        WireMock.verify(0, WireMock.patchRequestedFor(WireMock.urlPathEqualTo(path))
+                .withQueryParam("action", WireMock.equalTo("flush")))
+    }
+}
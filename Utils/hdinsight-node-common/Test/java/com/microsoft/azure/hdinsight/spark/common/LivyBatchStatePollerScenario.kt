@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common
+
+import com.github.tomakehurst.wiremock.client.WireMock
+import com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor
+import com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo
+import com.github.tomakehurst.wiremock.client.WireMock.urlMatching
+import cucumber.api.java.After
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import cucumber.api.java.en.When
+import org.assertj.core.api.Assertions.assertThat
+import rx.Subscription
+import rx.schedulers.Schedulers
+import rx.schedulers.TestScheduler
+import java.net.URI
+import java.util.concurrent.TimeUnit
+
+class LivyBatchStatePollerScenario {
+    private var httpServerMock: MockHttpService? = null
+    private var poller: LivyBatchStatePoller? = null
+    private val scheduler = TestScheduler()
+    private val finalStates = mutableMapOf<Int, String>()
+    private val subscriptions = mutableListOf<Subscription>()
+    private val activeStates = mutableListOf<Boolean>()
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+    }
+
+    @After
+    fun cleanUp() {
+        subscriptions.forEach { it.unsubscribe() }
+        httpServerMock!!.livyServerMock.stop()
+    }
+
+    @Given("^mock a http service in LivyBatchStatePollerScenario for (.+) request '(.+)' to return '(.*)' with status code (\\d+)$")
+    fun mockHttpService(method: String, url: String, response: String, responseCode: Int) {
+        httpServerMock!!.stub(method, url, responseCode, response)
+    }
+
+    @Given("^create a Livy batch state poller for '(.+)'$")
+    fun createPoller(batchesPath: String) {
+        poller = LivyBatchStatePoller(
+                SparkBatchSubmission.getInstance(), URI.create(httpServerMock!!.completeUrl(batchesPath)), scheduler)
+    }
+
+    @Given("^create a Livy batch state poller running on IO threads for '(.+)'$")
+    fun createIoPoller(batchesPath: String) {
+        poller = LivyBatchStatePoller(
+                SparkBatchSubmission.getInstance(), URI.create(httpServerMock!!.completeUrl(batchesPath)), Schedulers.io())
+    }
+
+    @When("^a Spark batch job of Livy batch (\\d+) checks whether it is active (\\d+) times$")
+    fun checkJobActive(batchId: Int, count: Int) {
+        val job = object : SparkBatchJob(SparkSubmissionParameter(), SparkBatchSubmission.getInstance()) {
+            init {
+                setBatchId(batchId)
+            }
+
+            override fun getConnectUri(): URI = poller!!.connectUri
+
+            override fun getBatchStatePoller(): LivyBatchStatePoller = poller!!
+        }
+
+        repeat(count) { activeStates.add(job.isActive) }
+    }
+
+    @Then("^the Spark batch job should be active every time$")
+    fun checkJobAlwaysActive() {
+        assertThat(activeStates).isNotEmpty.containsOnly(true)
+    }
+
+    @When("^watch Livy batches (.+) and advance the poller clock by (\\d+) seconds$")
+    fun watchBatches(batchIds: String, seconds: Long) {
+        batchIds.split(",").map { it.trim().toInt() }.forEach { batchId ->
+            subscriptions.add(poller!!.watch(batchId)
+                    .map { it.state }
+                    .lastOrDefault("none")
+                    .subscribe { finalStates[batchId] = it })
+        }
+
+        scheduler.triggerActions()
+        scheduler.advanceTimeBy(seconds, TimeUnit.SECONDS)
+    }
+
+    @Then("^the Livy batch state poller should report the following final states$")
+    fun checkFinalStates(expected: Map<Int, String>) {
+        assertThat(finalStates).isEqualTo(expected)
+    }
+
+    @Then("^the Livy batch state poller should have sent GET request '(.+)' (\\d+) times?$")
+    fun checkRequestCount(url: String, count: Int) {
+        WireMock.verify(count, getRequestedFor(urlEqualTo(url)))
+    }
+
+    @Then("^the Livy batch state poller should have sent (\\d+) single batch requests?$")
+    fun checkSingleBatchRequestCount(count: Int) {
+        WireMock.verify(count, getRequestedFor(urlMatching("/batches/\\d+")))
+    }
+}
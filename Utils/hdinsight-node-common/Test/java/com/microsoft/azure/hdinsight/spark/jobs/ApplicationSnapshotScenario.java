@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.CacheStats;
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ApplicationSnapshotScenario {
+    private File storeDir;
+    private ApplicationSnapshotStore store;
+    private File writingFile;
+    private IClusterDetail cluster;
+    private ApplicationKey key;
+    private AbstractCache.SimpleStatsCounter statsCounter;
+    private ApplicationSnapshot snapshot;
+    private AtomicInteger jobsLoadings;
+    private AtomicInteger stagesLoadings;
+
+    @Before
+    public void setUp() throws Throwable {
+        storeDir = Files.createTempDirectory("snapshot-store").toFile();
+        store = new ApplicationSnapshotStore(storeDir);
+
+        cluster = mock(IClusterDetail.class);
+        when(cluster.getName()).thenReturn("snapshot-cluster");
+        when(cluster.getConnectionUrl()).thenReturn("https://snapshot-cluster.azurehdinsight.net");
+        key = new ApplicationKey(cluster, "application_1513565654634_0011");
+
+        statsCounter = new AbstractCache.SimpleStatsCounter();
+        jobsLoadings = new AtomicInteger();
+        stagesLoadings = new AtomicInteger();
+    }
+
+    @After
+    public void cleanUp() throws Throwable {
+        FileUtils.deleteQuietly(storeDir);
+    }
+
+    private List<Job> loadJobs(int count) throws InterruptedException {
+        jobsLoadings.incrementAndGet();
+        // Make the loading slow enough to be shared by the concurrent readers
+        Thread.sleep(100);
+
+        return IntStream.range(0, count)
+                .mapToObj(id -> {
+                    final Job job = new Job();
+                    job.setJobId(id);
+                    job.setName("job " + id);
+                    job.setStatus("SUCCEEDED");
+                    job.setStageIds(new int[] { id });
+
+                    return job;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private List<Stage> loadStages() {
+        stagesLoadings.incrementAndGet();
+
+        final Stage stage = new Stage();
+        stage.setStageId(3);
+        stage.setAttemptId(1);
+
+        return Collections.singletonList(stage);
+    }
+
+    @Given("^create the (running|finished) application snapshot( with the store)?$")
+    public void createSnapshot(String status, String withStore) throws Throwable {
+        snapshot = new ApplicationSnapshot(
+                key, status.equals("finished"), null, withStore == null ? null : store, statsCounter);
+    }
+
+    @Given("^create the application snapshot from the store$")
+    public void createSnapshotFromStore() throws Throwable {
+        snapshot = new ApplicationSnapshot(key, true, store.load(key), store, statsCounter);
+    }
+
+    @Given("^create the application snapshot store keeping (\\d+) applications( for (\\d+) seconds)?$")
+    public void createBoundedStore(int maxApplications, String withMaxAge, String maxAgeSeconds) throws Throwable {
+        store = new ApplicationSnapshotStore(storeDir,
+                                             maxApplications,
+                                             ApplicationSnapshotStore.DEFAULT_MAX_BYTES,
+                                             withMaxAge == null
+                                                     ? ApplicationSnapshotStore.DEFAULT_MAX_AGE_MS
+                                                     : TimeUnit.SECONDS.toMillis(Long.parseLong(maxAgeSeconds)));
+    }
+
+    @Given("^save the application snapshot store (\\d+) jobs of the application$")
+    public void saveJobs(int count) throws Throwable {
+        final ApplicationSnapshot.Data data = new ApplicationSnapshot.Data();
+        data.setJobs(loadJobs(count));
+
+        store.save(key, data);
+    }
+
+    @Given("^save the application snapshot store (\\d+) stages? of the application$")
+    public void saveStages(int count) throws Throwable {
+        final ApplicationSnapshot.Data data = new ApplicationSnapshot.Data();
+        data.setStages(loadStages());
+
+        store.save(key, data);
+    }
+
+    @Given("^save the application snapshot store applications used (\\d+), (\\d+) and (\\d+) minutes ago$")
+    public void saveApplicationsUsedAgo(int first, int second, int third) throws Throwable {
+        for (int minutes : new int[] { first, second, third }) {
+            final ApplicationSnapshot.Data data = new ApplicationSnapshot.Data();
+            data.setStages(loadStages());
+
+            final ApplicationKey usedKey = getKeyUsedAgo(minutes);
+            store.save(usedKey, data);
+            assertThat(store.getFile(usedKey).setLastModified(
+                    System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minutes))).isTrue();
+        }
+
+        // Trim again with the last used time set
+        store.trim();
+    }
+
+    @Given("^a snapshot is being written to the application snapshot store since (\\d+) minutes ago$")
+    public void createWritingFile(int minutes) throws Throwable {
+        final File file = store.getFile(key);
+        assertThat(file.getParentFile().mkdirs() || file.getParentFile().isDirectory()).isTrue();
+
+        writingFile = File.createTempFile(file.getName(), ".writing", file.getParentFile());
+        assertThat(writingFile.setLastModified(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minutes)))
+                .isTrue();
+    }
+
+    @Then("^the snapshot being written should be left in the application snapshot store$")
+    public void checkWritingFileLeft() throws Throwable {
+        assertThat(writingFile).isFile();
+    }
+
+    @Then("^the application snapshot store should keep only the applications used ([\\d ,and]+) minutes ago$")
+    public void checkKeptApplications(String minutesList) throws Throwable {
+        final List<Integer> kept = IntStream.rangeClosed(1, 3)
+                .filter(minutes -> store.getFile(getKeyUsedAgo(minutes)).isFile())
+                .boxed()
+                .collect(Collectors.toList());
+        final List<Integer> expected = Arrays.stream(minutesList.split("\\s*(,|and)\\s*"))
+                .map(Integer::valueOf)
+                .sorted()
+                .collect(Collectors.toList());
+
+        assertThat(kept).isEqualTo(expected);
+    }
+
+    private ApplicationKey getKeyUsedAgo(int minutes) {
+        return new ApplicationKey(cluster, "application_1513565654634_010" + minutes);
+    }
+
+    @When("^get the application snapshot (\\d+) jobs by (\\d+) readers concurrently$")
+    public void getJobsConcurrently(int count, int readers) throws Throwable {
+        final ExecutorService pool = Executors.newFixedThreadPool(readers);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        try {
+            final List<Future<List<Job>>> results = IntStream.range(0, readers)
+                    .mapToObj(i -> pool.submit(() -> {
+                        startLatch.await();
+                        return snapshot.getJobs(() -> loadJobs(count));
+                    }))
+                    .collect(Collectors.toList());
+
+            startLatch.countDown();
+
+            for (Future<List<Job>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).hasSize(count);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @When("^get the application snapshot stages$")
+    public void getStages() throws Throwable {
+        assertThat(snapshot.getStages(this::loadStages))
+                .extracting(Stage::getStageId)
+                .containsExactly(3);
+    }
+
+    @Then("^the application snapshot jobs should be loaded (\\d+) times? and stages (\\d+) times?$")
+    public void checkLoadings(int jobs, int stages) throws Throwable {
+        assertThat(jobsLoadings.get()).isEqualTo(jobs);
+        assertThat(stagesLoadings.get()).isEqualTo(stages);
+    }
+
+    @Then("^the application snapshot statistics should be (\\d+) hits and (\\d+) misses$")
+    public void checkStatistics(long hits, long misses) throws Throwable {
+        final CacheStats stats = statsCounter.snapshot();
+
+        assertThat(stats.hitCount()).isEqualTo(hits);
+        assertThat(stats.missCount()).isEqualTo(misses);
+        assertThat(stats.loadSuccessCount()).isEqualTo(misses);
+    }
+
+    @Then("^the application snapshot should( not)? be expired after (\\d+) ms with TTL (\\d+) ms$")
+    public void checkExpired(String not, int waitMs, long ttl) throws Throwable {
+        Thread.sleep(waitMs);
+
+        assertThat(snapshot.isExpired(ttl)).isEqualTo(not == null);
+    }
+
+    @Then("^the application snapshot store should( not)? have the application$")
+    public void checkStored(String not) throws Throwable {
+        assertThat(store.getFile(key).isFile()).isEqualTo(not == null);
+    }
+
+    @Then("^the application snapshot store should have (\\d+) jobs and (\\d+) stages? of the application$")
+    public void checkStoredData(int jobs, int stages) throws Throwable {
+        final ApplicationSnapshot.Data data = store.load(key);
+
+        assertThat(data).isNotNull();
+        assertThat(data.getJobs()).hasSize(jobs);
+        assertThat(data.getJobs().get(jobs - 1).getName()).isEqualTo("job " + (jobs - 1));
+        assertThat(data.getJobs().get(jobs - 1).getStageIds()).containsExactly(jobs - 1);
+        assertThat(data.getStages()).hasSize(stages);
+        assertThat(data.getExecutors()).isNull();
+    }
+}
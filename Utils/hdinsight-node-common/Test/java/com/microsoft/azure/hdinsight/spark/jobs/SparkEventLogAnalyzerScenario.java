@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogSummary;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SparkEventLogAnalyzerScenario {
+    private SparkEventLogSummary summary;
+
+    @Before
+    public void setUp() {
+        summary = null;
+    }
+
+    @Given("^analyze the Spark event log:$")
+    public void analyzeEventLog(String eventLog) throws Throwable {
+        summary = new SparkEventLogAnalyzer()
+                .analyze(new ByteArrayInputStream(eventLog.getBytes(StandardCharsets.UTF_8)))
+                .getSummary();
+    }
+
+    @Then("^the Spark event log job start events should be:$")
+    public void checkJobStartEvents(List<Integer> expectJobIds) throws Throwable {
+        List<Integer> jobIds = summary.getJobStartEvents().stream()
+                .map(JobStartEventLog::getJobId)
+                .collect(Collectors.toList());
+
+        assertThat(jobIds).containsExactlyElementsOf(expectJobIds);
+    }
+
+    @Then("^the Spark event log summary should be:$")
+    public void checkSummary(Map<String, Long> expects) throws Throwable {
+        assertThat(summary.getEventCount()).isEqualTo(expects.get("events"));
+        assertThat((long) summary.getJobCount()).isEqualTo(expects.get("jobs"));
+        assertThat((long) summary.getSucceededJobCount()).isEqualTo(expects.get("succeeded jobs"));
+        assertThat((long) summary.getFailedJobCount()).isEqualTo(expects.get("failed jobs"));
+        assertThat((long) summary.getStageCount()).isEqualTo(expects.get("stages"));
+        assertThat((long) summary.getCompletedStageCount()).isEqualTo(expects.get("completed stages"));
+        assertThat((long) summary.getFailedStageCount()).isEqualTo(expects.get("failed stages"));
+        assertThat(summary.getTaskCount()).isEqualTo(expects.get("tasks"));
+        assertThat(summary.getFailedTaskCount()).isEqualTo(expects.get("failed tasks"));
+        assertThat(summary.getTotalTaskDuration()).isEqualTo(expects.get("task duration"));
+    }
+
+    @Then("^the Spark event log executor timelines should be:$")
+    public void checkExecutorTimelines(List<String> expectTimelines) throws Throwable {
+        List<String> timelines = summary.getExecutorTimelines().stream()
+                .map(timeline -> String.format("%s:%d-%d", timeline.getExecutorId(), timeline.getAddedTime(), timeline.getRemovedTime()))
+                .collect(Collectors.toList());
+
+        assertThat(timelines).containsExactlyElementsOf(expectTimelines);
+    }
+
+    @Then("^the Spark event type of '(.+)' should be scanned as '(.*)'$")
+    public void checkScanEventType(String line, String expectEvent) throws Throwable {
+        assertThat(SparkEventLogAnalyzer.scanEventType(line)).isEqualTo(expectEvent.isEmpty() ? null : expectEvent);
+    }
+}
@@ -0,0 +1,44 @@
+Feature: Task executor scheduling tests
+
+  Scenario: The tasks of the same cluster are limited to run concurrently
+    Given submit 10 blocking tasks to the task executor with concurrency key 'limited-cluster'
+    Then the task executor should start 4 tasks and queue the others
+    When release the task executor blocking tasks one by one
+    Then all task executor tasks should be done with at most 4 running at the same time
+
+  Scenario: The user visible tasks are started before the background ones
+    Given submit 4 blocking tasks to the task executor with concurrency key 'priority-cluster'
+    And submit a BACKGROUND task 'prefetch-1' of group 'job-view' to the task executor with concurrency key 'priority-cluster'
+    And submit a BACKGROUND task 'prefetch-2' of group 'job-view' to the task executor with concurrency key 'priority-cluster'
+    And submit a USER_VISIBLE task 'stage-view' of group 'job-view' to the task executor with concurrency key 'priority-cluster'
+    Then the task executor should start 4 tasks and queue the others
+    When release the task executor blocking tasks one by one
+    Then all task executor tasks should be done with at most 4 running at the same time
+    And the task executor should start the queued tasks in order
+      | stage-view |
+      | prefetch-1 |
+      | prefetch-2 |
+
+  Scenario: The background commands are limited to run concurrently
+    Given submit 6 blocking commands to the task executor background executor
+    Then the task executor should start 4 tasks and queue the others
+    When release the task executor blocking tasks one by one
+    Then all task executor tasks should be done with at most 4 running at the same time
+
+  Scenario: The tasks of a closed view are cancelled
+    Given submit a USER_VISIBLE task 'job-1' of group 'closed-view' to the task executor with concurrency key 'cancel-cluster'
+    And submit a USER_VISIBLE task 'job-2' of group 'closed-view' to the task executor with concurrency key 'cancel-cluster'
+    And submit a USER_VISIBLE task 'job-3' of group 'closed-view' to the task executor with concurrency key 'cancel-cluster'
+    And submit a USER_VISIBLE task 'job-4' of group 'closed-view' to the task executor with concurrency key 'cancel-cluster'
+    And submit a BACKGROUND task 'job-5' of group 'closed-view' to the task executor with concurrency key 'cancel-cluster'
+    And submit a BACKGROUND task 'job-6' of group 'closed-view' to the task executor with concurrency key 'cancel-cluster'
+    Then the task executor should start 4 tasks and queue the others
+    When cancel the task executor group 'closed-view'
+    Then the task executor should cancel 6 tasks and start no more
+
+  Scenario: The job view requests of a closed view are cancelled and answered
+    Given submit 6 job view requests of group 'closed-job-view' to the task executor for cluster 'request-cluster'
+    Then the task executor should start 4 tasks and queue the others
+    When cancel the task executor group 'closed-job-view'
+    Then the task executor should cancel 6 tasks and start no more
+    And the job view requests should be answered with status 503
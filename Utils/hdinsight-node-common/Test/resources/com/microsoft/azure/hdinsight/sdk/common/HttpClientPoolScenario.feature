@@ -0,0 +1,16 @@
+Feature: HttpClientPool tests
+
+  Scenario: Connections are reused by HttpObservables of the same credential
+    Given setup a mock service for GET request '/batches' to return '{"from":0,"total":0,"sessions":[]}'
+    Then send 20 GET requests to '/batches' with new HttpObservables of user 'admin'
+    Then the requests of user 'admin' should open 1 new connection and reuse 19
+    And the pool should keep 1 idle connection
+
+  Scenario: Connections are not shared between credentials
+    Given setup a mock service for GET request '/batches' to return '{"from":0,"total":0,"sessions":[]}'
+    Then send 5 GET requests to '/batches' with new HttpObservables of user 'admin'
+    Then send 5 GET requests to '/batches' with new HttpObservables of user 'guest'
+    Then send 5 GET requests to '/batches' with new HttpObservables of user 'admin'
+    Then the requests of user 'admin' should open 0 new connections and reuse 5
+    And the requests of user 'guest' should open 1 new connection and reuse 4
+    And the pool should keep 2 idle connections
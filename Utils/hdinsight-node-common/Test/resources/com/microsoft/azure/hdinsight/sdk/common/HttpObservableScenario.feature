@@ -0,0 +1,25 @@
+Feature: HttpObservable streaming decoding tests
+
+  Scenario: Decode the items of a list response one by one
+    Given setup a mock service for GET request '/fs' to return '{"paths":[{"name":"a.jar","isDirectory":"false"},null,{"name":"b","isDirectory":"true","unknown":{"x":[1,2]}}]}' with status code 200
+    Then get remote file items of '/paths' from '/fs' should be:
+      | a.jar |
+      | b     |
+
+  Scenario: Decode the items of a nested array and stop early
+    Given setup a mock service for GET request '/ws/v1/cluster/apps' to return '{"other":{"app":[{"id":"x"}]},"apps":{"app":[{"id":"app_1"},{"id":"app_2"},{"id":"app_3"}]}}' with status code 200
+    Then get the first 2 YARN app items of '/apps/app' from '/ws/v1/cluster/apps' should be:
+      | app_1 |
+      | app_2 |
+
+  Scenario: Missing array has no items
+    Given setup a mock service for GET request '/fs' to return '{"continuation":"abc"}' with status code 200
+    Then get remote file items of '/paths' from '/fs' should be empty
+
+  Scenario: Decode an object response from stream
+    Given setup a mock service for GET request '/ws/v1/cluster/apps/app_1' to return '{"id":"app_1","name":"test"}' with status code 200
+    Then get YARN app object from '/ws/v1/cluster/apps/app_1' should have id 'app_1'
+
+  Scenario: Bad response is propagated as HTTP error status
+    Given setup a mock service for GET request '/fs' to return '{"error":{"code":"FilesystemNotFound"}}' with status code 404
+    Then get remote file items from '/fs' should fail with status code 404
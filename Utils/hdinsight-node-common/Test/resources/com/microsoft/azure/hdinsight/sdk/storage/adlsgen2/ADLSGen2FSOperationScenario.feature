@@ -0,0 +1,56 @@
+Feature: ADLS Gen2 chunked upload tests
+
+  Scenario: Upload a file in blocks and flush once
+    Given a local artifact with content 'abcdefghij'
+    And the mock ADLS Gen2 service accepts appending and flushing '/fs/app.jar'
+    When upload the artifact to '/fs/app.jar' in blocks of 4 bytes
+    Then the upload should succeed
+    And the appended blocks of '/fs/app.jar' should be:
+      | 0:abcd |
+      | 4:efgh |
+      | 8:ij   |
+    And '/fs/app.jar' should be flushed at position 10
+
+  Scenario: Resume an interrupted upload with the missing blocks only
+    Given a local artifact with content 'abcdefghij'
+    And the mock ADLS Gen2 service accepts appending and flushing '/fs/app.jar'
+    And the mock ADLS Gen2 service fails appending '/fs/app.jar' at position 4
+    And at most 1 block is appended at the same time
+    When upload the artifact to '/fs/app.jar' in blocks of 4 bytes
+    Then the upload should fail
+    And '/fs/app.jar' should not be flushed
+    Given the mock ADLS Gen2 service accepts appending and flushing '/fs/app.jar'
+    When resume the upload
+    Then the upload should succeed
+    And the appended blocks of '/fs/app.jar' should be:
+      | 4:efgh |
+      | 8:ij   |
+    And '/fs/app.jar' should be flushed at position 10
+
+  Scenario: Upload an empty file with the flush only
+    Given a local artifact with content ''
+    And the mock ADLS Gen2 service accepts appending and flushing '/fs/empty.jar'
+    When upload the artifact to '/fs/empty.jar' in blocks of 4 bytes
+    Then the upload should succeed
+    And the appended blocks of '/fs/empty.jar' should be empty
+    And '/fs/empty.jar' should be flushed at position 0
+
+  Scenario: Append several blocks at the same time
+    Given a local artifact with content 'abcdefghijklmnop'
+    And the mock ADLS Gen2 service accepts appending and flushing '/fs/app.jar'
+    And at most 4 blocks are appended at the same time
+    And the appends are held until 4 of them are sent
+    When upload the artifact to '/fs/app.jar' in blocks of 4 bytes
+    Then the upload should succeed
+    And 4 blocks should have been appended at the same time
+    And '/fs/app.jar' should be flushed at position 16
+
+  Scenario: Retry the server side failures only
+    Given a local artifact with content 'abcdefghij'
+    And the mock ADLS Gen2 service accepts appending and flushing '/fs/app.jar'
+    And the mock ADLS Gen2 service fails appending '/fs/app.jar' at position 4 with status 403
+    And each block is retried up to 2 times
+    When upload the artifact to '/fs/app.jar' in blocks of 4 bytes
+    Then the upload should fail
+    And the block at position 4 of '/fs/app.jar' should be appended 1 time
+    And '/fs/app.jar' should not be flushed
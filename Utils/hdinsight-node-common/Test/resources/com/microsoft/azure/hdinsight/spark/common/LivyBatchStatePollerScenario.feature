@@ -0,0 +1,35 @@
+Feature: LivyBatchStatePoller tests
+
+  Scenario: Batch states are fanned out from one listing request
+    Given mock a http service in LivyBatchStatePollerScenario for GET request '/batches?from=0&size=200' to return '{"from": 0, "total": 3, "sessions": [{"id": 1, "state": "success", "log": []}, {"id": 2, "state": "dead", "log": []}, {"id": 5, "state": "running", "log": []}]}' with status code 200
+    And create a Livy batch state poller for '/batches'
+    When watch Livy batches 1, 2 and advance the poller clock by 0 seconds
+    Then the Livy batch state poller should report the following final states
+      | 1 | success |
+      | 2 | dead    |
+    And the Livy batch state poller should have sent GET request '/batches?from=0&size=200' 1 time
+    And the Livy batch state poller should have sent 0 single batch requests
+
+  Scenario: Unchanged batch states are polled with backoff
+    Given mock a http service in LivyBatchStatePollerScenario for GET request '/batches?from=0&size=200' to return '{"from": 0, "total": 1, "sessions": [{"id": 3, "state": "running", "log": []}]}' with status code 200
+    And create a Livy batch state poller for '/batches'
+    When watch Livy batches 3 and advance the poller clock by 15 seconds
+    Then the Livy batch state poller should have sent GET request '/batches?from=0&size=200' 5 times
+
+  Scenario: The batch missing from the list falls back to the single batch request
+    Given mock a http service in LivyBatchStatePollerScenario for GET request '/batches?from=0&size=200' to return '{"from": 0, "total": 0, "sessions": []}' with status code 200
+    And mock a http service in LivyBatchStatePollerScenario for GET request '/batches/4' to return '{"id": 4, "state": "error", "log": ["failed"]}' with status code 200
+    And mock a http service in LivyBatchStatePollerScenario for GET request '/batches/6' to return 'not found' with status code 404
+    And create a Livy batch state poller for '/batches'
+    When watch Livy batches 4, 6 and advance the poller clock by 0 seconds
+    Then the Livy batch state poller should report the following final states
+      | 4 | error |
+      | 6 | none  |
+    And the Livy batch state poller should have sent 2 single batch requests
+
+  Scenario: The batch job reads its states from one watch without waking up the poller again
+    Given mock a http service in LivyBatchStatePollerScenario for GET request '/batches?from=0&size=200' to return '{"from": 0, "total": 1, "sessions": [{"id": 7, "state": "running", "log": []}]}' with status code 200
+    And create a Livy batch state poller running on IO threads for '/batches'
+    When a Spark batch job of Livy batch 7 checks whether it is active 5 times
+    Then the Spark batch job should be active every time
+    And the Livy batch state poller should have sent GET request '/batches?from=0&size=200' 1 time
@@ -0,0 +1,47 @@
+Feature: Application snapshot tests
+
+  Scenario: The data part is loaded once for concurrent readers
+    Given create the running application snapshot
+    When get the application snapshot 5 jobs by 8 readers concurrently
+    And get the application snapshot 5 jobs by 2 readers concurrently
+    Then the application snapshot jobs should be loaded 1 time and stages 0 times
+    And the application snapshot statistics should be 9 hits and 1 misses
+    And the application snapshot store should not have the application
+
+  Scenario: The running application snapshot expires but the finished one doesn't
+    Given create the running application snapshot
+    Then the application snapshot should not be expired after 0 ms with TTL 60000 ms
+    And the application snapshot should be expired after 50 ms with TTL 20 ms
+    Given create the finished application snapshot
+    Then the application snapshot should not be expired after 50 ms with TTL 20 ms
+
+  Scenario: The finished application data is read from the store
+    Given create the finished application snapshot with the store
+    When get the application snapshot 3 jobs by 1 readers concurrently
+    And get the application snapshot stages
+    Then the application snapshot store should have 3 jobs and 1 stage of the application
+    Given create the application snapshot from the store
+    When get the application snapshot 3 jobs by 1 readers concurrently
+    And get the application snapshot stages
+    Then the application snapshot jobs should be loaded 1 time and stages 1 time
+    And the application snapshot statistics should be 2 hits and 2 misses
+
+  Scenario: The saves of different parts of an application are merged
+    Given save the application snapshot store 3 jobs of the application
+    And save the application snapshot store 1 stage of the application
+    Then the application snapshot store should have 3 jobs and 1 stage of the application
+
+  Scenario: The application snapshot store is bounded
+    Given create the application snapshot store keeping 2 applications
+    And save the application snapshot store applications used 3, 2 and 1 minutes ago
+    Then the application snapshot store should keep only the applications used 2 and 1 minutes ago
+    Given create the application snapshot store keeping 10 applications for 90 seconds
+    And save the application snapshot store applications used 3, 2 and 1 minutes ago
+    Then the application snapshot store should keep only the applications used 1 minutes ago
+
+  Scenario: The snapshots being written are left to their writers by the trimming
+    Given create the application snapshot store keeping 2 applications
+    And a snapshot is being written to the application snapshot store since 5 minutes ago
+    And save the application snapshot store applications used 3, 2 and 1 minutes ago
+    Then the application snapshot store should keep only the applications used 2 and 1 minutes ago
+    And the snapshot being written should be left in the application snapshot store
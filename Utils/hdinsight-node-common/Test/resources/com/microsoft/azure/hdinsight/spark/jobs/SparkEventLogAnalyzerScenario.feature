@@ -0,0 +1,47 @@
+Feature: Spark event log analyzer
+
+  Scenario: Aggregate the Spark event log in streaming
+    Given analyze the Spark event log:
+      """
+      {"Event":"SparkListenerLogStart","Spark Version":"2.4.4"}
+      {"Event":"SparkListenerExecutorAdded","Timestamp":1000,"Executor ID":"1","Executor Info":{"Host":"wn0","Total Cores":4}}
+      {"Event":"SparkListenerJobStart","Job ID":0,"Submission Time":1100,"Stage Infos":[],"Stage IDs":[0],"Properties":{"spark.job.description":"count"},"Unknown":{"x":1}}
+      {"Event":"SparkListenerStageSubmitted","Stage Info":{"Stage ID":0}}
+      {"Event":"SparkListenerTaskEnd","Stage ID":0,"Task Info":{"Task ID":0,"Launch Time":1200,"Finish Time":1500,"Failed":false,"Accumulables":[{"ID":1}]},"Task Metrics":{"Executor Run Time":300}}
+      {"Event":"SparkListenerTaskEnd","Stage ID":0,"Task Info":{"Task ID":1,"Launch Time":1200,"Finish Time":1400,"Failed":true}}
+      {"Event":"SparkListenerStageCompleted","Stage Info":{"Stage ID":0}}
+      {"Event":"SparkListenerJobEnd","Job ID":0,"Completion Time":1600,"Job Result":{"Result":"JobSucceeded"}}
+      { "Event" : "SparkListenerJobStart", "Job ID" : 1, "Stage IDs" : [1] }
+      {"Event":"SparkListenerStageSubmitted","Stage Info":{"Stage ID":1}}
+      {"Event":"SparkListenerStageCompleted","Stage Info":{"Stage ID":1,"Failure Reason":"Job aborted"}}
+      {"Event":"SparkListenerJobEnd","Job ID":1,"Completion Time":1900,"Job Result":{"Result":"JobFailed"}}
+      {"Event":"SparkListenerExecutorRemoved","Timestamp":2000,"Executor ID":"1","Removed Reason":"Idle"}
+      {"Event":"SparkListenerExecutorAdded","Timestamp":1800,"Executor ID":"2","Executor Info":{"Host":"wn1"}}
+      {"Event":"SparkListenerExecutorAdded","Timestamp":"18:00","Executor ID":"3","Executor Info":{"Host":"wn2"}}
+      {"Event":"SparkListenerExecutorRemoved","Timestamp":"","Executor ID":"2","Removed Reason":"Lost"}
+      {"Event":"SparkListenerJobStart","Job ID":
+      """
+    Then the Spark event log job start events should be:
+      | 0 |
+      | 1 |
+    And the Spark event log summary should be:
+      | events           | 16  |
+      | jobs             | 2   |
+      | succeeded jobs   | 1   |
+      | failed jobs      | 1   |
+      | stages           | 2   |
+      | completed stages | 1   |
+      | failed stages    | 1   |
+      | tasks            | 2   |
+      | failed tasks     | 1   |
+      | task duration    | 500 |
+    And the Spark event log executor timelines should be:
+      | 1:1000-2000 |
+      | 2:1800-0    |
+
+  Scenario: Scan the Spark event type without JSON parsing
+    Then the Spark event type of '{"Event":"SparkListenerTaskEnd","Stage ID":0}' should be scanned as 'SparkListenerTaskEnd'
+    Then the Spark event type of '{"Event":"SparkListenerTaskEndX","Stage ID":0}' should be scanned as ''
+    Then the Spark event type of '{"Event":"SparkListenerBlockUpdated"}' should be scanned as ''
+    Then the Spark event type of '{"Event" : "SparkListenerJobEnd"}' should be scanned as 'SparkListenerJobEnd'
+    Then the Spark event type of 'not a json line' should be scanned as ''
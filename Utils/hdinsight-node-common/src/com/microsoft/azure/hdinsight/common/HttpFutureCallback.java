@@ -48,7 +48,8 @@ public abstract class  HttpFutureCallback implements FutureCallback<String> {
     protected static void dealWithFailure(@NotNull Throwable throwable,@NotNull final HttpExchange httpExchange) {
         httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
         try {
-            String str = throwable.getMessage();
+            // The cancelled task has no message
+            String str = throwable.getMessage() != null ? throwable.getMessage() : throwable.toString();
             httpExchange.sendResponseHeaders(200, str.length());
             OutputStream stream = httpExchange.getResponseBody();
             stream.write(str.getBytes());
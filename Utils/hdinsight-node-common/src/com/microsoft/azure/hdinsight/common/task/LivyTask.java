@@ -26,6 +26,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.auth.AuthScope;
@@ -59,6 +60,12 @@ public class LivyTask extends Task<String> {
         }
     }
 
+    @Nullable
+    @Override
+    public String getConcurrencyKey() {
+        return clusterDetail.getName();
+    }
+
     @Override
     public String call() throws Exception {
         CloseableHttpClient httpclient = HttpClients.custom()
@@ -27,6 +27,7 @@ import com.microsoft.azure.hdinsight.common.HttpResponseWithoutHeader;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
@@ -56,6 +57,12 @@ public class MultiRestTask extends Task<List<String>> {
         }
     }
 
+    @Nullable
+    @Override
+    public String getConcurrencyKey() {
+        return clusterDetail.getName();
+    }
+
     @Override
     public List<String> call() throws Exception {
         CloseableHttpClient httpclient = HttpClients.custom()
@@ -28,6 +28,7 @@ import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azure.hdinsight.sdk.common.HttpResponse;
 import com.microsoft.azure.hdinsight.common.HttpResponseWithoutHeader;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.HttpEntity;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -60,6 +61,12 @@ public class RestTask extends Task<String> {
         }
     }
 
+    @Nullable
+    @Override
+    public String getConcurrencyKey() {
+        return clusterDetail.getName();
+    }
+
     @Override
     public String call() throws Exception {
         CloseableHttpClient httpclient = HttpClients.custom()
@@ -28,10 +28,20 @@ import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 
 public class SparkRestTask extends Task<String> {
+    @NotNull
+    private final RequestDetail requestDetail;
 
     public SparkRestTask(@NotNull RequestDetail requestDetail, @Nullable FutureCallback<String> callback) {
         super(callback);
+        this.requestDetail = requestDetail;
     }
+
+    @Nullable
+    @Override
+    public String getConcurrencyKey() {
+        return requestDetail.getClusterDetail().getName();
+    }
+
     @Override
     public String call() throws Exception {
         return null;
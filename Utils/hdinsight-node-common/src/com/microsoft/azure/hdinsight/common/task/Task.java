@@ -23,6 +23,7 @@
 package com.microsoft.azure.hdinsight.common.task;
 
 import com.google.common.util.concurrent.FutureCallback;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 
 import java.util.concurrent.Callable;
@@ -34,10 +35,55 @@ public abstract class Task<V> implements Callable<V> {
 
     protected FutureCallback<V> callback;
 
+    /**
+     * The scheduling priority, the user visible tasks are run before the background ones in the queue
+     */
+    public enum Priority {
+        USER_VISIBLE,
+        BACKGROUND
+    }
+
+    @NotNull
+    private Priority priority = Priority.USER_VISIBLE;
+
+    @Nullable
+    private String group;
+
     public Task(@Nullable FutureCallback<V> callback) {
             this.callback = callback;
     }
 
+    @NotNull
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Task<V> setPriority(@NotNull Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * @return the group to cancel the tasks together, such as the tasks of a view
+     */
+    @Nullable
+    public String getGroup() {
+        return group;
+    }
+
+    public Task<V> setGroup(@Nullable String group) {
+        this.group = group;
+        return this;
+    }
+
+    /**
+     * @return the key to limit the concurrent running tasks, such as the cluster name. Null for no limitation
+     */
+    @Nullable
+    public String getConcurrencyKey() {
+        return null;
+    }
+
     public static final FutureCallback<Object> EMPTY_CALLBACK = new FutureCallback<Object>() {
         @Override
         public void onSuccess(Object o) {
@@ -24,18 +24,402 @@ package com.microsoft.azure.hdinsight.common.task;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * The bounded task scheduler.
+ *
+ * The tasks run in a fixed number of threads, the user visible tasks are taken before the background ones, and
+ * the tasks with the same concurrency key (the cluster) are limited to run at the same time, the others wait in
+ * the key's queue without holding any thread.
+ */
 public class TaskExecutor {
-    private static ListeningExecutorService executors = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+    public static final int MAX_THREADS = 16;
+    public static final int MAX_CONCURRENT_TASKS_PER_KEY = 4;
+    public static final String BACKGROUND_CONCURRENCY_KEY = "background";
+
+    private static final AtomicLong sequence = new AtomicLong();
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    // Guarded by itself
+    private static final Map<String, Lane> lanes = new HashMap<>();
+
+    private static final Set<ScheduledTask<?>> unfinishedTasks = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicInteger activeCount = new AtomicInteger();
+    private static final AtomicLong succeededCount = new AtomicLong();
+    private static final AtomicLong failedCount = new AtomicLong();
+    private static final AtomicLong cancelledCount = new AtomicLong();
+    private static final LatencyHistogram waitLatency = new LatencyHistogram();
+    private static final LatencyHistogram runLatency = new LatencyHistogram();
+
+    private static final Executor backgroundExecutor = command -> submit(new BackgroundTask(command));
 
     public static <T> ListenableFuture<T> submit(@NotNull Task<T> task) {
-        final ListenableFuture<T> listenableFuture = executors.submit(task);
-        Futures.addCallback(listenableFuture, task.callback, MoreExecutors.directExecutor());
-        return listenableFuture;
+        final ScheduledTask<T> scheduled = new ScheduledTask<>(task, sequence.getAndIncrement());
+        unfinishedTasks.add(scheduled);
+
+        scheduled.future.addListener(() -> unfinishedTasks.remove(scheduled), MoreExecutors.directExecutor());
+        if (task.callback != null) {
+            Futures.addCallback(scheduled.future, task.callback, MoreExecutors.directExecutor());
+        }
+
+        dispatch(scheduled);
+        return scheduled.future;
+    }
+
+    /**
+     * Get the executor running the commands as background tasks, such as the cache refreshes of the job view. They
+     * give way to the user visible tasks in the queue, and share one concurrency key so that they never hold more
+     * than {@link #MAX_CONCURRENT_TASKS_PER_KEY} threads.
+     *
+     * @return the executor of the background tasks
+     */
+    @NotNull
+    public static Executor getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+
+    /**
+     * Cancel all the waiting and running tasks of the group, such as when the view requesting them is closed
+     *
+     * @param group the task group
+     * @return the count of tasks cancelled
+     */
+    public static int cancel(@NotNull String group) {
+        final List<ScheduledTask<?>> running = new ArrayList<>();
+        int count = 0;
+
+        // Cancel the waiting ones first, or they could take the slots released by the cancelled running ones
+        for (ScheduledTask<?> scheduled : unfinishedTasks) {
+            if (!group.equals(scheduled.task.getGroup())) {
+                continue;
+            }
+
+            if (scheduled.started) {
+                running.add(scheduled);
+            } else if (scheduled.future.cancel(true)) {
+                count++;
+            }
+        }
+
+        for (ScheduledTask<?> scheduled : running) {
+            if (scheduled.future.cancel(true)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @NotNull
+    public static Statistics getStatistics() {
+        int waitingInLanes = 0;
+        synchronized (lanes) {
+            for (Lane lane : lanes.values()) {
+                waitingInLanes += lane.waiting.size();
+            }
+        }
+
+        return new Statistics(executor.getQueue().size() + waitingInLanes,
+                              activeCount.get(),
+                              succeededCount.get(),
+                              failedCount.get(),
+                              cancelledCount.get(),
+                              waitLatency.snapshot(),
+                              runLatency.snapshot());
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_THREADS,
+                MAX_THREADS,
+                60,
+                TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hdinsight-task-%d").build());
+        pool.allowCoreThreadTimeOut(true);
+
+        return pool;
+    }
+
+    private static void dispatch(@NotNull ScheduledTask<?> scheduled) {
+        final String key = scheduled.task.getConcurrencyKey();
+
+        if (key != null) {
+            synchronized (lanes) {
+                final Lane lane = lanes.computeIfAbsent(key, k -> new Lane());
+
+                if (lane.running >= MAX_CONCURRENT_TASKS_PER_KEY) {
+                    lane.waiting.add(scheduled);
+                    return;
+                }
+
+                lane.running++;
+            }
+        }
+
+        executor.execute(scheduled);
+    }
+
+    private static void release(@NotNull ScheduledTask<?> finished) {
+        final String key = finished.task.getConcurrencyKey();
+        if (key == null) {
+            return;
+        }
+
+        final ScheduledTask<?> next;
+        synchronized (lanes) {
+            final Lane lane = lanes.get(key);
+            if (lane == null) {
+                return;
+            }
+
+            // Hand over the running slot to the next waiting task directly
+            next = lane.waiting.poll();
+            if (next == null && --lane.running == 0) {
+                lanes.remove(key);
+            }
+        }
+
+        if (next != null) {
+            executor.execute(next);
+        }
+    }
+
+    private static class BackgroundTask extends Task<Void> {
+        @NotNull
+        private final Runnable command;
+
+        BackgroundTask(@NotNull Runnable command) {
+            super(null);
+            this.command = command;
+            setPriority(Priority.BACKGROUND);
+        }
+
+        @Nullable
+        @Override
+        public String getConcurrencyKey() {
+            return BACKGROUND_CONCURRENCY_KEY;
+        }
+
+        @Override
+        public Void call() {
+            command.run();
+            return null;
+        }
+    }
+
+    private static class Lane {
+        private int running = 0;
+
+        @NotNull
+        private final PriorityQueue<ScheduledTask<?>> waiting = new PriorityQueue<>();
+    }
+
+    private static class ScheduledTask<T> implements Runnable, Comparable<ScheduledTask<?>> {
+        @NotNull
+        private final Task<T> task;
+
+        private final long sequence;
+
+        private final long submittedNanos = System.nanoTime();
+
+        private volatile boolean started = false;
+
+        @NotNull
+        private final ListenableFutureTask<T> future;
+
+        ScheduledTask(@NotNull Task<T> task, long sequence) {
+            this.task = task;
+            this.sequence = sequence;
+            this.future = ListenableFutureTask.create(task);
+        }
+
+        @Override
+        public void run() {
+            started = true;
+
+            try {
+                if (future.isCancelled()) {
+                    cancelledCount.incrementAndGet();
+                    return;
+                }
+
+                final long startNanos = System.nanoTime();
+                waitLatency.record(startNanos - submittedNanos);
+                activeCount.incrementAndGet();
+
+                try {
+                    future.run();
+                } finally {
+                    activeCount.decrementAndGet();
+                    runLatency.record(System.nanoTime() - startNanos);
+                }
+
+                countResult();
+            } finally {
+                release(this);
+            }
+        }
+
+        private void countResult() {
+            if (future.isCancelled()) {
+                cancelledCount.incrementAndGet();
+                return;
+            }
+
+            try {
+                Futures.getDone(future);
+                succeededCount.incrementAndGet();
+            } catch (Exception ex) {
+                failedCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(@NotNull ScheduledTask<?> other) {
+            final int priorityOrder = task.getPriority().compareTo(other.task.getPriority());
+
+            return priorityOrder != 0 ? priorityOrder : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * The latency histogram with fixed buckets in milliseconds
+     */
+    static class LatencyHistogram {
+        static final long[] BUCKET_UPPER_BOUNDS_MS = { 10, 50, 100, 500, 1000, 5000, 10000 };
+
+        @NotNull
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MS.length + 1);
+
+        void record(long nanos) {
+            final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+
+            while (bucket < BUCKET_UPPER_BOUNDS_MS.length && millis > BUCKET_UPPER_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+
+            counts.incrementAndGet(bucket);
+        }
+
+        /**
+         * @return the counts by the bucket labels, such as "<=10ms" and ">10000ms"
+         */
+        @NotNull
+        Map<String, Long> snapshot() {
+            final Map<String, Long> buckets = new LinkedHashMap<>();
+
+            for (int i = 0; i < BUCKET_UPPER_BOUNDS_MS.length; i++) {
+                buckets.put("<=" + BUCKET_UPPER_BOUNDS_MS[i] + "ms", counts.get(i));
+            }
+
+            buckets.put(">" + BUCKET_UPPER_BOUNDS_MS[BUCKET_UPPER_BOUNDS_MS.length - 1] + "ms",
+                        counts.get(BUCKET_UPPER_BOUNDS_MS.length));
+
+            return buckets;
+        }
+    }
+
+    /**
+     * The snapshot of the scheduler metrics
+     */
+    public static class Statistics {
+        private final int queueDepth;
+        private final int activeCount;
+        private final long succeededCount;
+        private final long failedCount;
+        private final long cancelledCount;
+
+        @NotNull
+        private final Map<String, Long> waitLatencyHistogram;
+
+        @NotNull
+        private final Map<String, Long> runLatencyHistogram;
+
+        Statistics(int queueDepth,
+                   int activeCount,
+                   long succeededCount,
+                   long failedCount,
+                   long cancelledCount,
+                   @NotNull Map<String, Long> waitLatencyHistogram,
+                   @NotNull Map<String, Long> runLatencyHistogram) {
+            this.queueDepth = queueDepth;
+            this.activeCount = activeCount;
+            this.succeededCount = succeededCount;
+            this.failedCount = failedCount;
+            this.cancelledCount = cancelledCount;
+            this.waitLatencyHistogram = waitLatencyHistogram;
+            this.runLatencyHistogram = runLatencyHistogram;
+        }
+
+        /**
+         * @return the count of tasks waiting to run
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public long getSucceededCount() {
+            return succeededCount;
+        }
+
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        public long getCancelledCount() {
+            return cancelledCount;
+        }
+
+        /**
+         * @return the histogram of the time from submitted to started
+         */
+        @NotNull
+        public Map<String, Long> getWaitLatencyHistogram() {
+            return waitLatencyHistogram;
+        }
+
+        /**
+         * @return the histogram of the running time
+         */
+        @NotNull
+        public Map<String, Long> getRunLatencyHistogram() {
+            return runLatencyHistogram;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("queued: %d, active: %d, succeeded: %d, failed: %d, cancelled: %d, wait latency: %s, run latency: %s",
+                                 queueDepth, activeCount, succeededCount, failedCount, cancelledCount,
+                                 waitLatencyHistogram, runLatencyHistogram);
+        }
     }
 }
@@ -30,6 +30,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
@@ -53,6 +54,12 @@ public class YarnHistoryTask extends Task<String> {
         }
     }
 
+    @Nullable
+    @Override
+    public String getConcurrencyKey() {
+        return clusterDetail.getName();
+    }
+
     @Override
     public String call() throws Exception {
         WEB_CLIENT.setCredentialsProvider(credentialsProvider);
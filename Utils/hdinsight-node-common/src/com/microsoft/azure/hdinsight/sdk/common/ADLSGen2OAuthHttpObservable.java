@@ -62,6 +62,12 @@ public class ADLSGen2OAuthHttpObservable extends OAuthTokenHttpObservable {
         return azureManager.getAccessToken(tenantId, resource, PromptBehavior.Auto);
     }
 
+    @NotNull
+    @Override
+    public String getCredentialKey() {
+        return "aad:" + tenantId;
+    }
+
     @Override
     public Observable<CloseableHttpResponse> request(@NotNull final HttpRequestBase httpRequest,
                                                      final @Nullable HttpEntity entity,
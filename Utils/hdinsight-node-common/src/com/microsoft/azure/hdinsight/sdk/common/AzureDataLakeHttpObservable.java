@@ -29,8 +29,10 @@ import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import rx.Observable;
+import rx.functions.Func1;
 
 import java.util.Arrays;
 import java.util.List;
@@ -49,8 +51,12 @@ public class AzureDataLakeHttpObservable extends AzureHttpObservable {
     }
 
     @Override
-    public Observable<HttpResponse> requestWithHttpResponse(HttpRequestBase httpRequest, HttpEntity entity, List<NameValuePair> parameters, List<Header> addOrReplaceHeaders) {
-        return super.requestWithHttpResponse(httpRequest, entity, parameters, addOrReplaceHeaders)
+    public <T> Observable<T> requestWithResponseDecoder(HttpRequestBase httpRequest,
+                                                        HttpEntity entity,
+                                                        List<NameValuePair> parameters,
+                                                        List<Header> addOrReplaceHeaders,
+                                                        Func1<CloseableHttpResponse, Observable<T>> responseDecoder) {
+        return super.requestWithResponseDecoder(httpRequest, entity, parameters, addOrReplaceHeaders, responseDecoder)
                 .onErrorResumeNext(err -> {
                     if (err instanceof HttpErrorStatus) {
                         HttpErrorStatus status = (HttpErrorStatus) err;
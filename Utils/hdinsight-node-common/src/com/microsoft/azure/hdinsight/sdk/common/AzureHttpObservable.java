@@ -23,7 +23,6 @@
 package com.microsoft.azure.hdinsight.sdk.common;
 
 import org.apache.http.NameValuePair;
-import org.apache.http.impl.client.HttpClients;
 
 import com.microsoft.azure.hdinsight.common.HDInsightLoader;
 import com.microsoft.azuretools.adauth.AuthException;
@@ -62,12 +61,6 @@ public class AzureHttpObservable extends OAuthTokenHttpObservable {
         this.tenantId = tenantId;
         this.apiVersion = apiVersion;
 
-        setHttpClient(HttpClients.custom()
-                .useSystemProperties()
-                .setDefaultCookieStore(getCookieStore())
-                .setDefaultRequestConfig(getDefaultRequestConfig())
-                .build());
-
         azureDefaultParameters = super.getDefaultParameters();
 
         azureDefaultParameters.removeIf(nameValuePair -> nameValuePair.getName().toLowerCase().equals(ApiVersionParam.NAME));
@@ -86,6 +79,12 @@ public class AzureHttpObservable extends OAuthTokenHttpObservable {
         return tenantId;
     }
 
+    @NotNull
+    @Override
+    public String getCredentialKey() {
+        return "aad:" + getTenantId();
+    }
+
     @NotNull
     @Override
     public String getAccessToken() throws IOException {
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.service.ServiceManager;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.TrustStrategy;
+
+import javax.net.ssl.SSLContext;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The shared HTTP client engine behind all {@link HttpObservable}s.
+ *
+ * Clients are pooled by SSL profile, and each profile owns one bounded connection pool with per-route limits,
+ * idle eviction and keep-alive reuse. The credential of a request is passed as the pool state (the
+ * {@link org.apache.http.client.protocol.HttpClientContext#USER_TOKEN} context attribute), so a connection is only
+ * reused by requests to the same endpoint with the same credential.
+ */
+public class HttpClientPool implements ILogger {
+    public static final int MAX_CONNECTIONS_TOTAL = 64;
+    public static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+    public static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+    public static final long MAX_IDLE_SECONDS = 60;
+    public static final long MAX_KEEP_ALIVE_SECONDS = 30;
+    public static final long CONNECTION_TIME_TO_LIVE_SECONDS = 300;
+
+    /**
+     * The way to create SSL connections of a pooled client
+     */
+    public enum SslProfile {
+        /**
+         * JVM system SSL settings
+         */
+        SYSTEM,
+
+        /**
+         * The trust strategy provided by the IDE, with host name verification
+         */
+        IDE_TRUST_STRATEGY,
+
+        /**
+         * The trust strategy provided by the IDE, without host name verification
+         */
+        IDE_TRUST_STRATEGY_NO_HOSTNAME_VERIFICATION
+    }
+
+    private static class LazyHolder {
+        static final HttpClientPool INSTANCE = new HttpClientPool();
+    }
+
+    @NotNull
+    public static HttpClientPool getInstance() {
+        return LazyHolder.INSTANCE;
+    }
+
+    @NotNull
+    private final Map<SslProfile, PooledClient> clients = new EnumMap<>(SslProfile.class);
+
+    private final AtomicLong clientHits = new AtomicLong();
+    private final AtomicLong clientMisses = new AtomicLong();
+    private final AtomicLong connectionHits = new AtomicLong();
+    private final AtomicLong connectionMisses = new AtomicLong();
+    private final AtomicLong leaseTimeTotalNanos = new AtomicLong();
+    private final AtomicLong leaseTimeMaxNanos = new AtomicLong();
+
+    HttpClientPool() {
+    }
+
+    /**
+     * Get the shared client of the SSL profile, the client is created at the first time
+     *
+     * @param profile the SSL profile
+     * @return the pooled HTTP client, which should not be closed by callers
+     */
+    @NotNull
+    public CloseableHttpClient getClient(@NotNull final SslProfile profile) {
+        synchronized (clients) {
+            PooledClient pooled = clients.get(profile);
+
+            if (pooled != null) {
+                clientHits.incrementAndGet();
+                return pooled.client;
+            }
+
+            clientMisses.incrementAndGet();
+            pooled = createPooledClient(profile);
+            clients.put(profile, pooled);
+
+            return pooled.client;
+        }
+    }
+
+    /**
+     * Get the SSL profile matching the current IDE settings
+     *
+     * @param useIdeTrustStrategy whether to trust the certificates accepted by the IDE trust strategy
+     * @return the SSL profile
+     */
+    @NotNull
+    public static SslProfile getSslProfile(final boolean useIdeTrustStrategy) {
+        if (!useIdeTrustStrategy || ServiceManager.getServiceProvider(TrustStrategy.class) == null) {
+            return SslProfile.SYSTEM;
+        }
+
+        return HttpObservable.isSSLCertificateValidationDisabled()
+                ? SslProfile.IDE_TRUST_STRATEGY_NO_HOSTNAME_VERIFICATION
+                : SslProfile.IDE_TRUST_STRATEGY;
+    }
+
+    @NotNull
+    public Statistics getStatistics() {
+        int leased = 0;
+        int available = 0;
+        int pending = 0;
+        int max = 0;
+
+        synchronized (clients) {
+            for (PooledClient pooled : clients.values()) {
+                PoolStats stats = pooled.connectionManager.getTotalStats();
+                leased += stats.getLeased();
+                available += stats.getAvailable();
+                pending += stats.getPending();
+                max += stats.getMax();
+            }
+        }
+
+        return new Statistics(
+                clientHits.get(),
+                clientMisses.get(),
+                connectionHits.get(),
+                connectionMisses.get(),
+                leaseTimeTotalNanos.get(),
+                leaseTimeMaxNanos.get(),
+                leased,
+                available,
+                pending,
+                max);
+    }
+
+    /**
+     * Close all idle connections of all pooled clients, such as after the proxy or SSL settings changed
+     */
+    public void closeIdleConnections() {
+        synchronized (clients) {
+            clients.values().forEach(pooled -> pooled.connectionManager.closeIdleConnections(0, TimeUnit.SECONDS));
+        }
+    }
+
+    @NotNull
+    private PooledClient createPooledClient(@NotNull final SslProfile profile) {
+        SSLConnectionSocketFactory sslSocketFactory = createSSLSocketFactory(profile);
+
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslSocketFactory != null
+                        ? sslSocketFactory
+                        : SSLConnectionSocketFactory.getSystemSocketFactory())
+                .build();
+
+        InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager(socketFactoryRegistry);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+
+        CloseableHttpClient client = HttpClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    long maxKeepAliveMs = TimeUnit.SECONDS.toMillis(MAX_KEEP_ALIVE_SECONDS);
+
+                    return keepAliveMs > 0 ? Math.min(keepAliveMs, maxKeepAliveMs) : maxKeepAliveMs;
+                })
+                .setConnectionTimeToLive(CONNECTION_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS)
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        return new PooledClient(client, connectionManager);
+    }
+
+    @Nullable
+    private SSLConnectionSocketFactory createSSLSocketFactory(@NotNull final SslProfile profile) {
+        TrustStrategy ts = ServiceManager.getServiceProvider(TrustStrategy.class);
+
+        if (profile == SslProfile.SYSTEM || ts == null) {
+            return null;
+        }
+
+        try {
+            SSLContext sslContext = new SSLContextBuilder()
+                    .loadTrustMaterial(ts)
+                    .build();
+
+            return new SSLConnectionSocketFactory(sslContext,
+                    profile == SslProfile.IDE_TRUST_STRATEGY_NO_HOSTNAME_VERIFICATION
+                            ? NoopHostnameVerifier.INSTANCE
+                            : new DefaultHostnameVerifier());
+        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
+            log().error("Prepare SSL Context for HTTPS failure. " + ExceptionUtils.getStackTrace(e));
+        }
+
+        return null;
+    }
+
+    private void recordLease(final long leaseNanos, final boolean isReused) {
+        if (isReused) {
+            connectionHits.incrementAndGet();
+        } else {
+            connectionMisses.incrementAndGet();
+        }
+
+        leaseTimeTotalNanos.addAndGet(leaseNanos);
+        leaseTimeMaxNanos.accumulateAndGet(leaseNanos, Math::max);
+    }
+
+    private static class PooledClient {
+        @NotNull
+        final CloseableHttpClient client;
+
+        @NotNull
+        final PoolingHttpClientConnectionManager connectionManager;
+
+        PooledClient(@NotNull CloseableHttpClient client, @NotNull PoolingHttpClientConnectionManager connectionManager) {
+            this.client = client;
+            this.connectionManager = connectionManager;
+        }
+    }
+
+    /**
+     * The pooling connection manager which measures the connection lease time, and counts whether a leased
+     * connection is a kept-alive one (a hit) or a new one to connect (a miss)
+     */
+    private class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+        InstrumentedConnectionManager(@NotNull Registry<ConnectionSocketFactory> socketFactoryRegistry) {
+            super(socketFactoryRegistry);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+            final long requestedAt = System.nanoTime();
+            final ConnectionRequest request = super.requestConnection(route, state);
+
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit tunit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    HttpClientConnection connection = request.get(timeout, tunit);
+                    recordLease(System.nanoTime() - requestedAt, connection.isOpen());
+
+                    return connection;
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+    }
+
+    /**
+     * The snapshot of the pool metrics
+     */
+    public static class Statistics {
+        private final long clientHitCount;
+        private final long clientMissCount;
+        private final long connectionHitCount;
+        private final long connectionMissCount;
+        private final long leaseTimeTotalNanos;
+        private final long leaseTimeMaxNanos;
+        private final int leased;
+        private final int available;
+        private final int pending;
+        private final int max;
+
+        Statistics(long clientHitCount,
+                   long clientMissCount,
+                   long connectionHitCount,
+                   long connectionMissCount,
+                   long leaseTimeTotalNanos,
+                   long leaseTimeMaxNanos,
+                   int leased,
+                   int available,
+                   int pending,
+                   int max) {
+            this.clientHitCount = clientHitCount;
+            this.clientMissCount = clientMissCount;
+            this.connectionHitCount = connectionHitCount;
+            this.connectionMissCount = connectionMissCount;
+            this.leaseTimeTotalNanos = leaseTimeTotalNanos;
+            this.leaseTimeMaxNanos = leaseTimeMaxNanos;
+            this.leased = leased;
+            this.available = available;
+            this.pending = pending;
+            this.max = max;
+        }
+
+        public long getClientHitCount() {
+            return clientHitCount;
+        }
+
+        public long getClientMissCount() {
+            return clientMissCount;
+        }
+
+        /**
+         * @return the count of leases served by a kept-alive connection
+         */
+        public long getConnectionHitCount() {
+            return connectionHitCount;
+        }
+
+        /**
+         * @return the count of leases which had to open a new connection
+         */
+        public long getConnectionMissCount() {
+            return connectionMissCount;
+        }
+
+        public double getConnectionHitRate() {
+            long total = connectionHitCount + connectionMissCount;
+
+            return total == 0 ? 0 : (double) connectionHitCount / total;
+        }
+
+        public long getLeaseTimeAverageNanos() {
+            long total = connectionHitCount + connectionMissCount;
+
+            return total == 0 ? 0 : leaseTimeTotalNanos / total;
+        }
+
+        public long getLeaseTimeMaxNanos() {
+            return leaseTimeMaxNanos;
+        }
+
+        public int getLeased() {
+            return leased;
+        }
+
+        public int getAvailable() {
+            return available;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("HttpClientPool[connection hits: %d, misses: %d, hit rate: %.2f, "
+                            + "lease time avg: %dus, max: %dus, leased: %d, available: %d, pending: %d, max: %d]",
+                    connectionHitCount, connectionMissCount, getConnectionHitRate(),
+                    TimeUnit.NANOSECONDS.toMicros(getLeaseTimeAverageNanos()),
+                    TimeUnit.NANOSECONDS.toMicros(leaseTimeMaxNanos),
+                    leased, available, pending, max);
+        }
+    }
+}
@@ -29,11 +29,9 @@ import com.microsoft.azure.hdinsight.sdk.common.errorresponse.*;
 import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
-import com.microsoft.azuretools.service.ServiceManager;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.http.*;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.config.AuthSchemes;
@@ -42,29 +40,22 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.conn.ssl.DefaultHostnameVerifier;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.HeaderGroup;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
-import org.apache.http.ssl.SSLContextBuilder;
-import org.apache.http.ssl.TrustStrategy;
 import org.apache.http.util.EntityUtils;
 import rx.Observable;
 import rx.exceptions.Exceptions;
+import rx.functions.Func1;
 
-import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.UnknownServiceException;
 import java.nio.charset.StandardCharsets;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 import static rx.exceptions.Exceptions.propagate;
@@ -88,8 +79,13 @@ public class HttpObservable implements ILogger {
     @NotNull
     private HttpContext httpContext;
 
-    @NotNull
-    private CloseableHttpClient httpClient;
+    @Nullable
+    private CloseableHttpClient httpClient = null;
+
+    private boolean useIdeTrustStrategy = true;
+
+    @Nullable
+    private String credentialKey = null;
 
     @NotNull
     private List<NameValuePair> defaultParameters = new ArrayList<>();
@@ -124,13 +120,6 @@ public class HttpObservable implements ILogger {
                 .setTargetPreferredAuthSchemes(Arrays.asList(AuthSchemes.KERBEROS, AuthSchemes.DIGEST, AuthSchemes.BASIC))
                 .setProxyPreferredAuthSchemes(Collections.singletonList(AuthSchemes.BASIC))
                 .build();
-
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
-                .setDefaultCookieStore(getCookieStore())
-                .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
-                .build();
     }
 
     /**
@@ -147,14 +136,9 @@ public class HttpObservable implements ILogger {
             final byte[] encodedAuth = Base64.encodeBase64(auth.getBytes(StandardCharsets.ISO_8859_1));
             setDefaultHeader(new BasicHeader(
                     HttpHeaders.AUTHORIZATION, String.format("%s %s", "Basic", new String(encodedAuth))));
-        }
 
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
-                .setDefaultCookieStore(getCookieStore())
-                .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
-                .build();
+            this.credentialKey = "basic:" + username;
+        }
     }
 
     /*
@@ -188,17 +172,54 @@ public class HttpObservable implements ILogger {
         return this;
     }
 
+    /**
+     * Get the HTTP client to send requests, which is the shared pooled one from {@link HttpClientPool}
+     * unless a dedicated client is set by {@link #setHttpClient(CloseableHttpClient)}
+     *
+     * @return the HTTP client
+     */
     @NotNull
     public CloseableHttpClient getHttpClient() {
-        return httpClient;
+        if (httpClient != null) {
+            return httpClient;
+        }
+
+        return HttpClientPool.getInstance().getClient(HttpClientPool.getSslProfile(isUseIdeTrustStrategy()));
     }
 
-    public HttpObservable setHttpClient(@NotNull CloseableHttpClient httpClient) {
+    public HttpObservable setHttpClient(@Nullable CloseableHttpClient httpClient) {
         this.httpClient = httpClient;
 
         return this;
     }
 
+    public boolean isUseIdeTrustStrategy() {
+        return useIdeTrustStrategy;
+    }
+
+    public HttpObservable setUseIdeTrustStrategy(boolean useIdeTrustStrategy) {
+        this.useIdeTrustStrategy = useIdeTrustStrategy;
+
+        return this;
+    }
+
+    /**
+     * Get the key of the credential to send requests with. The pooled connections are only reused by the requests
+     * to the same endpoint with the same credential key.
+     *
+     * @return the credential key, null for anonymous requests
+     */
+    @Nullable
+    public String getCredentialKey() {
+        return credentialKey;
+    }
+
+    public HttpObservable setCredentialKey(@Nullable String credentialKey) {
+        this.credentialKey = credentialKey;
+
+        return this;
+    }
+
     @Nullable
     public Header[] getDefaultHeaders() throws IOException {
         return defaultHeaders.getAllHeaders();
@@ -261,27 +282,6 @@ public class HttpObservable implements ILogger {
         }
     }
 
-    private SSLConnectionSocketFactory createSSLSocketFactory() {
-        TrustStrategy ts = ServiceManager.getServiceProvider(TrustStrategy.class);
-        SSLConnectionSocketFactory sslSocketFactory = null;
-
-        if (ts != null) {
-            try {
-                SSLContext sslContext = new SSLContextBuilder()
-                        .loadTrustMaterial(ts)
-                        .build();
-
-                sslSocketFactory = new SSLConnectionSocketFactory(sslContext,
-                        HttpObservable.isSSLCertificateValidationDisabled()
-                                ? NoopHostnameVerifier.INSTANCE
-                                : new DefaultHostnameVerifier());
-            } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
-                log().error("Prepare SSL Context for HTTPS failure. " + ExceptionUtils.getStackTrace(e));
-            }
-        }
-        return sslSocketFactory;
-    }
-
     @NotNull
     public static HttpErrorStatus classifyHttpError(@NotNull CloseableHttpResponse httpResponse) throws IOException {
         StatusLine status = httpResponse.getStatusLine();
@@ -344,6 +344,52 @@ public class HttpObservable implements ILogger {
                 });
     }
 
+    /**
+     * Helper to decode the closeable stream good Http response (2xx) entity content by the decoder directly.
+     * If the response is bad, propagate a HttpResponseException
+     *
+     * @param closeableHttpResponse the source closeable stream
+     * @param decoder the function to decode the entity content stream, which is closed with the response
+     * @param <T> the decoded type
+     * @return Http Response decoded
+     */
+    public static <T> Observable<T> decodeOnlyOkResponse(@NotNull final CloseableHttpResponse closeableHttpResponse,
+                                                         @NotNull final Func1<InputStream, Observable<T>> decoder) {
+        return Observable.using(
+                // Resource factory
+                () -> closeableHttpResponse,
+                // Observable factory
+                streamResp -> {
+                    try {
+                        StatusLine status = streamResp.getStatusLine();
+
+                        if (status.getStatusCode() >= 300) {
+                            return Observable.error(classifyHttpError(streamResp));
+                        }
+
+                        HttpEntity entity = streamResp.getEntity();
+                        if (entity == null) {
+                            return Observable.error(new HDIException("Empty HTTP server response"));
+                        }
+
+                        return decoder.call(entity.getContent())
+                                // Consume the rest content, such as the tailing new lines, to keep the connection alive
+                                .doOnCompleted(() -> EntityUtils.consumeQuietly(entity));
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    }
+                },
+                // Resource dispose
+                streamResp -> {
+                    try {
+                        streamResp.close();
+                    } catch (IOException ignore) {
+                        // The connection will be closed automatically after timeout,
+                        // the exception in closing can be ignored.
+                    }
+                });
+    }
+
     /**
      * Helper to convert the http response to a specified type
      *
@@ -395,6 +441,13 @@ public class HttpObservable implements ILogger {
                 httpRequest.setHeader(entity.getContentType());
             }
 
+            // The pooled client is shared, so the request config and the credential are set per request
+            if (httpRequest.getConfig() == null) {
+                httpRequest.setConfig(getDefaultRequestConfig());
+            }
+
+            getHttpContext().setAttribute(HttpClientContext.USER_TOKEN, getCredentialKey());
+
             return getHttpClient().execute(httpRequest, getHttpContext());
         });
     }
@@ -402,12 +455,67 @@ public class HttpObservable implements ILogger {
     /*
      * RESTful API operations with response conversion for specified type
      */
+    public <T> Observable<T> requestWithResponseDecoder(
+            @NotNull final HttpRequestBase httpRequest,
+            @Nullable final HttpEntity entity,
+            @Nullable final List<NameValuePair> parameters,
+            @Nullable final List<Header> addOrReplaceHeaders,
+            @NotNull final Func1<CloseableHttpResponse, Observable<T>> responseDecoder) {
+        return request(httpRequest, entity, parameters, addOrReplaceHeaders)
+                .flatMap(responseDecoder);
+    }
+
     public Observable<HttpResponse> requestWithHttpResponse(@NotNull final HttpRequestBase httpRequest,
                                                             @Nullable final HttpEntity entity,
                                                             @Nullable final List<NameValuePair> parameters,
                                                             @Nullable final List<Header> addOrReplaceHeaders) {
-        return request(httpRequest, entity, parameters, addOrReplaceHeaders)
-                .flatMap(HttpObservable::toStringOnlyOkResponse);
+        return requestWithResponseDecoder(
+                httpRequest, entity, parameters, addOrReplaceHeaders, HttpObservable::toStringOnlyOkResponse);
+    }
+
+    /**
+     * Request and decode the JSON response stream to the specified type, without buffering the whole response
+     */
+    public <T> Observable<T> requestWithObject(@NotNull final HttpRequestBase httpRequest,
+                                               @Nullable final HttpEntity entity,
+                                               @Nullable final List<NameValuePair> parameters,
+                                               @Nullable final List<Header> addOrReplaceHeaders,
+                                               @NotNull final Class<T> clazz) {
+        return requestWithResponseDecoder(httpRequest, entity, parameters, addOrReplaceHeaders,
+                resp -> decodeOnlyOkResponse(resp, content -> {
+                    try {
+                        return Observable.just(ObjectConvertUtils.convertJsonStreamToObject(content, clazz)
+                                .orElseThrow(() -> propagate(
+                                        new HDIException("Unknown HTTP server response: null"))));
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    }
+                }));
+    }
+
+    /**
+     * Request and decode the items of the JSON array in the response stream, and emit them one by one.
+     *
+     * @param arrayPointer the JSON pointer to the array in the response, such as "/paths" for {"paths": [...]}
+     */
+    public <T> Observable<T> requestWithItems(@NotNull final HttpRequestBase httpRequest,
+                                              @Nullable final HttpEntity entity,
+                                              @Nullable final List<NameValuePair> parameters,
+                                              @Nullable final List<Header> addOrReplaceHeaders,
+                                              @NotNull final String arrayPointer,
+                                              @NotNull final Class<T> clazz) {
+        return requestWithResponseDecoder(httpRequest, entity, parameters, addOrReplaceHeaders,
+                resp -> decodeOnlyOkResponse(resp, content -> {
+                    try {
+                        Iterator<T> items = ObjectConvertUtils.iterateJsonStreamArray(content, arrayPointer, clazz);
+
+                        return Observable.from(() -> items);
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    }
+                }))
+                .onErrorResumeNext(err -> Observable.error(
+                        err instanceof UncheckedIOException ? err.getCause() : err));
     }
 
     public Observable<HttpResponse> head(@NotNull final String uri,
@@ -420,8 +528,15 @@ public class HttpObservable implements ILogger {
                                  @Nullable final List<NameValuePair> parameters,
                                  @Nullable final List<Header> addOrReplaceHeaders,
                                  @NotNull final Class<T> clazz) {
-        return requestWithHttpResponse(new HttpGet(uri), null, parameters, addOrReplaceHeaders)
-                .map(resp -> this.convertJsonResponseToObject(resp, clazz));
+        return requestWithObject(new HttpGet(uri), null, parameters, addOrReplaceHeaders, clazz);
+    }
+
+    public <T> Observable<T> getItems(@NotNull final String uri,
+                                      @Nullable final List<NameValuePair> parameters,
+                                      @Nullable final List<Header> addOrReplaceHeaders,
+                                      @NotNull final String arrayPointer,
+                                      @NotNull final Class<T> clazz) {
+        return requestWithItems(new HttpGet(uri), null, parameters, addOrReplaceHeaders, arrayPointer, clazz);
     }
 
     public <T> Observable<T> put(@NotNull final String uri,
@@ -429,8 +544,7 @@ public class HttpObservable implements ILogger {
                                  @Nullable final List<NameValuePair> parameters,
                                  @Nullable final List<Header> addOrReplaceHeaders,
                                  @NotNull final Class<T> clazz) {
-        return requestWithHttpResponse(new HttpPut(uri), entity, parameters, addOrReplaceHeaders)
-                .map(resp -> this.convertJsonResponseToObject(resp, clazz));
+        return requestWithObject(new HttpPut(uri), entity, parameters, addOrReplaceHeaders, clazz);
     }
 
     public <T> Observable<T> post(@NotNull final String uri,
@@ -438,8 +552,7 @@ public class HttpObservable implements ILogger {
                                   @Nullable final List<NameValuePair> parameters,
                                   @Nullable final List<Header> addOrReplaceHeaders,
                                   @NotNull final Class<T> clazz) {
-        return requestWithHttpResponse(new HttpPost(uri), entity, parameters, addOrReplaceHeaders)
-                .map(resp -> this.convertJsonResponseToObject(resp, clazz));
+        return requestWithObject(new HttpPost(uri), entity, parameters, addOrReplaceHeaders, clazz);
     }
 
     public Observable<HttpResponse> delete(@NotNull final String uri,
@@ -453,10 +566,13 @@ public class HttpObservable implements ILogger {
                                    @Nullable final List<NameValuePair> parameters,
                                    @Nullable final List<Header> addOrReplaceHeaders,
                                    @NotNull final Class<T> clazz) {
-        return requestWithHttpResponse(new HttpPatch(uri), entity, parameters, addOrReplaceHeaders)
-                .map(resp -> this.convertJsonResponseToObject(resp, clazz));
+        return requestWithObject(new HttpPatch(uri), entity, parameters, addOrReplaceHeaders, clazz);
     }
 
+    /**
+     * Execute the request and only check the response status code. The response content is consumed to release
+     * the connection back to the pool, only the status line and headers are kept in the emitted response.
+     */
     public Observable<CloseableHttpResponse> executeReqAndCheckStatus(HttpRequestBase httpRequest,
                                                                       @Nullable HttpEntity entity,
                                                                       List<NameValuePair> parameters,
@@ -464,6 +580,8 @@ public class HttpObservable implements ILogger {
                                                                       int validStatueCode) {
         return request(httpRequest, entity, parameters, addOrReplaceHeaders)
                 .doOnNext(resp -> {
+                    EntityUtils.consumeQuietly(resp.getEntity());
+
                     int statusCode = resp.getStatusLine().getStatusCode();
                     if (statusCode != validStatueCode) {
                         Exceptions.propagate(new UnknownServiceException(
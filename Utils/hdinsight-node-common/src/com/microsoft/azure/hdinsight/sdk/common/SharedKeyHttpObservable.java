@@ -36,6 +36,7 @@ import org.apache.http.message.HeaderGroup;
 import rx.Observable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -55,6 +56,7 @@ public class SharedKeyHttpObservable extends HttpObservable {
         setDefaultHeaderGroup(defaultHeaders);
         try {
             this.cred = new SharedKeyCredential(accountName, accessKey);
+            setCredentialKey("sharedkey:" + accountName);
         } catch (IllegalArgumentException ex) {
             log().warn("Create shared key credential encounter exception", ex);
             throw new IllegalArgumentException("Can't create shared key credential.Please check access key");
@@ -80,12 +82,17 @@ public class SharedKeyHttpObservable extends HttpObservable {
             // cannot be added to default header group in case of duplication.
             headerGroup.addHeader(new BasicHeader("Content-Length", String.valueOf(entity.getContentLength())));
         }
-        addOrReplaceHeaders.stream().forEach(header -> headerGroup.addHeader(header));
+        // The date header is refreshed for each request since the shared key is only valid for a short while
+        final List<Header> requestHeaders = new ArrayList<>(addOrReplaceHeaders);
+        requestHeaders.add(new BasicHeader("x-ms-date", Utility.getGMTTime()));
+        requestHeaders.forEach(headerGroup::updateHeader);
         String key = cred.generateSharedKey(httpRequest, headerGroup, parameters);
 
-        getDefaultHeaderGroup().updateHeader(new BasicHeader("Authorization", key));
+        // Pass the signature with the request rather than the default headers, which are shared by the requests
+        // sent concurrently
+        requestHeaders.add(new BasicHeader("Authorization", key));
 
-        return super.request(httpRequest, entity, parameters, addOrReplaceHeaders);
+        return super.request(httpRequest, entity, parameters, requestHeaders);
     }
 
     @Override
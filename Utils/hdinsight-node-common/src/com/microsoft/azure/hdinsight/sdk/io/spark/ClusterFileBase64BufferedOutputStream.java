@@ -24,15 +24,37 @@ package com.microsoft.azure.hdinsight.sdk.io.spark;
 
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Session;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import rx.schedulers.Schedulers;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
+/**
+ * Writes a BASE64 encoded stream into a cluster file through the statements of a Livy interactive session.
+ *
+ * With one page in flight, every page is a blocking {@code writePage} statement. With more, pages are numbered
+ * {@code writePageAt} statements submitted without waiting for the previous ones; the remote side buffers pages
+ * that arrive early and writes them in order, and {@link #close()} compares the CRC32 of the written file with the
+ * one computed locally.
+ */
 public class ClusterFileBase64BufferedOutputStream extends OutputStream {
-    private static final int DEFAULT_BLOCK_SIZE_KB = 32;      // 32KB block size
+    private static final int DEFAULT_BLOCK_SIZE_KB = 512;     // 512KB block size
+    private static final int DEFAULT_MAX_IN_FLIGHT_PAGES = 4;
+
+    // Scala string literals are limited to 64KB in the class file constant pool, so longer pages are split
+    private static final int MAX_CODES_LITERAL_LENGTH = 32 * 1024;
 
     @NotNull
     private final Session session;
@@ -40,6 +62,16 @@ public class ClusterFileBase64BufferedOutputStream extends OutputStream {
     @NotNull
     private final ByteBuffer buf;
 
+    private final int maxInFlightPages;
+
+    @NotNull
+    private final Deque<Future<Map<String, String>>> inFlightPages = new ArrayDeque<>();
+
+    @NotNull
+    private final CRC32 checksum = new CRC32();
+
+    private long pageCount = 0;
+
     private final String preloadedCodes = String.join("\n",
             "import java.io._",
             "import java.util.Base64",
@@ -55,32 +87,90 @@ public class ClusterFileBase64BufferedOutputStream extends OutputStream {
             "    out.write(pageBytes, 0, pageBytes.size)",
             "}");
 
+    private final String preloadedOrderedCodes = String.join("\n",
+            "import java.io._",
+            "import java.util.Base64",
+            "import java.util.zip.CRC32",
+            "",
+            "val jarOutput = \"%s\"",
+            "val fs = org.apache.hadoop.fs.FileSystem.get(sc.hadoopConfiguration)",
+            "val jarFileOutput = fs.create(new org.apache.hadoop.fs.Path(jarOutput), true)",
+            "val out = new DataOutputStream(new BufferedOutputStream(jarFileOutput))",
+            "val outCrc = new CRC32()",
+            "val pendingPages = scala.collection.mutable.Map[Long, Array[Byte]]()",
+            "var nextPage = 0L",
+            "",
+            "def writePageAt(index: Long, encodedBase64: String) = {",
+            "    pendingPages(index) = Base64.getDecoder.decode(encodedBase64)",
+            "",
+            "    while (pendingPages.contains(nextPage)) {",
+            "        val pageBytes = pendingPages.remove(nextPage).get",
+            "        out.write(pageBytes, 0, pageBytes.size)",
+            "        outCrc.update(pageBytes, 0, pageBytes.size)",
+            "        nextPage += 1",
+            "    }",
+            "}",
+            "",
+            "def closeOutput(pages: Long) = {",
+            "    require(pendingPages.isEmpty && nextPage == pages, \"Got \" + nextPage + \" of \" + pages + \" pages\")",
+            "    out.close()",
+            "    outCrc.getValue",
+            "}");
+
+    public ClusterFileBase64BufferedOutputStream(@NotNull Session session,
+                                                 @NotNull URI destination,
+                                                 final int blockSizeKB,
+                                                 final int maxInFlightPages) {
+        if (maxInFlightPages < 1) {
+            throw new IllegalArgumentException("At least one page must be allowed in flight");
+        }
 
-    public ClusterFileBase64BufferedOutputStream(@NotNull Session session, @NotNull URI destination, final int blockSizeKB) {
         this.session = session;
         this.buf = ByteBuffer.allocate(blockSizeKB * 1024); // Due to BASE64 requirement, the block size
                                                             // must be aligned to 4 bytes
+        this.maxInFlightPages = maxInFlightPages;
 
         // Pre-load
-        session.runCodes(String.format(preloadedCodes, destination.toString()))
+        session.runCodes(String.format(isOrdered() ? preloadedOrderedCodes : preloadedCodes, destination.toString()))
                 .toBlocking()
                 .singleOrDefault(null);
     }
 
+    public ClusterFileBase64BufferedOutputStream(@NotNull Session session, @NotNull URI destination, final int blockSizeKB) {
+        this(session, destination, blockSizeKB, 1);
+    }
+
     public ClusterFileBase64BufferedOutputStream(@NotNull Session session, @NotNull URI destination) {
-        this(session, destination, DEFAULT_BLOCK_SIZE_KB);
+        this(session, destination, DEFAULT_BLOCK_SIZE_KB, DEFAULT_MAX_IN_FLIGHT_PAGES);
+    }
+
+    private boolean isOrdered() {
+        return maxInFlightPages > 1;
     }
 
     @Override
     public void close() throws IOException {
-        flush();
+        try {
+            flush();
 
-        session.runCodes("out.close()")
-                .toBlocking()
-                .singleOrDefault(null);
+            if (isOrdered()) {
+                while (!inFlightPages.isEmpty()) {
+                    awaitPage(inFlightPages.poll());
+                }
 
-        session.close();
-        super.close();
+                Map<String, String> result = session.runCodes(String.format("closeOutput(%d)", pageCount))
+                        .toBlocking()
+                        .singleOrDefault(null);
+                verifyChecksum(result == null ? null : result.get("text/plain"));
+            } else {
+                session.runCodes("out.close()")
+                        .toBlocking()
+                        .singleOrDefault(null);
+            }
+        } finally {
+            session.close();
+            super.close();
+        }
     }
 
     @Override
@@ -94,17 +184,92 @@ public class ClusterFileBase64BufferedOutputStream extends OutputStream {
         }
     }
 
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            if (!buf.hasRemaining()) {
+                flush();
+            }
+
+            if (Base64.isBase64(b[i])) {
+                buf.put(b[i]);
+            }
+        }
+    }
+
     @Override
     public void flush() throws IOException {
         if (buf.position() > 0) {
             String codesPage = new String(buf.array(), 0, buf.position());
 
             buf.clear();
-            session.runCodes(String.format("writePage(\"%s\")", codesPage))
-                    .toBlocking()
-                    .singleOrDefault(null);
+
+            if (isOrdered()) {
+                sendPage(codesPage);
+            } else {
+                session.runCodes(String.format("writePage(%s)", toCodesLiteral(codesPage)))
+                        .toBlocking()
+                        .singleOrDefault(null);
+            }
         }
 
         super.flush();
     }
+
+    private void sendPage(@NotNull String codesPage) throws IOException {
+        while (inFlightPages.size() >= maxInFlightPages) {
+            awaitPage(inFlightPages.poll());
+        }
+
+        byte[] pageBytes = Base64.decodeBase64(codesPage);
+        checksum.update(pageBytes, 0, pageBytes.length);
+
+        // Subscribe now and wait later, so that the next pages can be sent while this one runs
+        inFlightPages.add(session.runCodes(String.format("writePageAt(%d, %s)", pageCount++, toCodesLiteral(codesPage)))
+                                 .subscribeOn(Schedulers.io())
+                                 .toBlocking()
+                                 .toFuture());
+    }
+
+    private void awaitPage(@NotNull Future<Map<String, String>> page) throws IOException {
+        try {
+            page.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading the page");
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to upload the page", ex.getCause());
+        }
+    }
+
+    private void verifyChecksum(@Nullable String closeOutput) throws IOException {
+        // The Scala REPL prints the result as `res3: Long = 2745614147`
+        String remoteChecksum = StringUtils.trim(StringUtils.substringAfterLast(closeOutput, "="));
+
+        if (!String.valueOf(checksum.getValue()).equals(remoteChecksum)) {
+            throw new IOException(String.format(
+                    "The uploaded file checksum %s doesn't match the local checksum %d",
+                    remoteChecksum, checksum.getValue()));
+        }
+    }
+
+    @NotNull
+    private static String toCodesLiteral(@NotNull String codesPage) {
+        if (codesPage.length() <= MAX_CODES_LITERAL_LENGTH) {
+            return "\"" + codesPage + "\"";
+        }
+
+        StringBuilder literals = new StringBuilder("Seq(");
+        for (int start = 0; start < codesPage.length(); start += MAX_CODES_LITERAL_LENGTH) {
+            if (start > 0) {
+                literals.append(", ");
+            }
+
+            literals.append('"')
+                    .append(codesPage, start, Math.min(codesPage.length(), start + MAX_CODES_LITERAL_LENGTH))
+                    .append('"');
+        }
+
+        return literals.append(").mkString").toString();
+    }
 }
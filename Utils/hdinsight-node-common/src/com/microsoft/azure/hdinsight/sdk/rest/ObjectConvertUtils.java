@@ -23,9 +23,13 @@
 package com.microsoft.azure.hdinsight.sdk.rest;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -33,8 +37,13 @@ import org.apache.http.HttpEntity;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 
@@ -47,6 +56,136 @@ public final class ObjectConvertUtils {
         return Optional.ofNullable(objectMapper.readValue(jsonString, tClass));
     }
 
+    /**
+     * Decode the JSON stream to the specified type directly, without reading the whole content into a String first
+     *
+     * @param jsonStream the JSON content stream, which isn't closed by the method
+     * @param tClass the target type to convert
+     * @param <T> the target type
+     * @return the specified type class instance, empty for JSON null
+     * @throws IOException for the stream reading or JSON parsing exceptions
+     */
+    public static <T> Optional<T> convertJsonStreamToObject(@NotNull InputStream jsonStream, @NotNull Class<T> tClass) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(jsonStream)) {
+            return Optional.ofNullable(objectMapper.readValue(parser, tClass));
+        }
+    }
+
+    /**
+     * Decode the items of a JSON array in the JSON stream one by one, only the item being iterated is held in memory.
+     *
+     * @param jsonStream the JSON content stream, the parser is closed when the iteration is finished
+     * @param arrayPointer the JSON pointer to the array, such as "/paths" for {"paths": [...]}, or "" for a root array
+     * @param tClass the item type to convert
+     * @param <T> the item type
+     * @return the lazy iterator of the array items, which is empty if the array isn't found. The reading exceptions
+     *         in iterating are thrown as {@link UncheckedIOException}
+     * @throws IOException for the stream reading or JSON parsing exceptions before the array
+     */
+    public static <T> Iterator<T> iterateJsonStreamArray(@NotNull InputStream jsonStream,
+                                                         @NotNull String arrayPointer,
+                                                         @NotNull Class<T> tClass) throws IOException {
+        final JsonParser parser = jsonFactory.createParser(jsonStream);
+
+        if (!seekJsonPointer(parser, JsonPointer.compile(arrayPointer)) || parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            return Collections.emptyIterator();
+        }
+
+        return new JsonArrayIterator<>(parser, objectMapper.readerFor(tClass));
+    }
+
+    /**
+     * Move the parser to the value of the JSON pointer by skipping all other fields
+     *
+     * @return true if the value is found, and the parser current token is the start of the value
+     */
+    private static boolean seekJsonPointer(@NotNull JsonParser parser, @NotNull JsonPointer pointer) throws IOException {
+        if (parser.nextToken() == null) {
+            return false;
+        }
+
+        JsonPointer current = pointer;
+
+        while (!current.matches()) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+
+            boolean isFound = false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+
+                if (current.getMatchingProperty().equals(fieldName)) {
+                    isFound = true;
+                    break;
+                }
+
+                parser.skipChildren();
+            }
+
+            if (!isFound) {
+                return false;
+            }
+
+            current = current.tail();
+        }
+
+        return true;
+    }
+
+    private static class JsonArrayIterator<T> implements Iterator<T> {
+        @NotNull
+        private final JsonParser parser;
+
+        @NotNull
+        private final ObjectReader reader;
+
+        private T nextItem = null;
+        private boolean isDone = false;
+
+        JsonArrayIterator(@NotNull JsonParser parser, @NotNull ObjectReader reader) {
+            this.parser = parser;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextItem == null && !isDone) {
+                try {
+                    JsonToken token = parser.nextToken();
+
+                    if (token == null || token == JsonToken.END_ARRAY) {
+                        isDone = true;
+                        parser.close();
+                    } else {
+                        // JSON null items are skipped
+                        nextItem = reader.readValue(parser);
+                    }
+                } catch (IOException e) {
+                    isDone = true;
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            return nextItem != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            T item = nextItem;
+            nextItem = null;
+
+            return item;
+        }
+    }
+
     public static <T> T convertToObjectQuietly(@NotNull String jsonString, @NotNull Class<T> tClass) {
         try {
             return objectMapper.readValue(jsonString, tClass);
@@ -30,6 +30,8 @@ import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class GetRemoteFilesResponse {
+    public static final String PATHS_POINTER = "/paths";
+
     @JsonProperty(value = "paths")
     private List<RemoteFile> remoteFiles;
 
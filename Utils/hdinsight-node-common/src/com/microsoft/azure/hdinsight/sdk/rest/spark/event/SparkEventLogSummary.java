@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The running aggregates of a Spark application event log, which only keeps the job start events in full.
+ */
+public class SparkEventLogSummary {
+    private List<JobStartEventLog> jobStartEvents = new ArrayList<>();
+
+    private long eventCount;
+
+    private int jobCount;
+
+    private int succeededJobCount;
+
+    private int failedJobCount;
+
+    private int stageCount;
+
+    private int completedStageCount;
+
+    private int failedStageCount;
+
+    private long taskCount;
+
+    private long failedTaskCount;
+
+    private long totalTaskDuration;
+
+    private List<ExecutorTimeline> executorTimelines = new ArrayList<>();
+
+    public static class ExecutorTimeline {
+        private String executorId;
+
+        private long addedTime;
+
+        private long removedTime;
+
+        private String removedReason;
+
+        public String getExecutorId() {
+            return executorId;
+        }
+
+        public void setExecutorId(String executorId) {
+            this.executorId = executorId;
+        }
+
+        public long getAddedTime() {
+            return addedTime;
+        }
+
+        public void setAddedTime(long addedTime) {
+            this.addedTime = addedTime;
+        }
+
+        /**
+         * @return the removed timestamp, or 0 if the executor is still alive
+         */
+        public long getRemovedTime() {
+            return removedTime;
+        }
+
+        public void setRemovedTime(long removedTime) {
+            this.removedTime = removedTime;
+        }
+
+        public String getRemovedReason() {
+            return removedReason;
+        }
+
+        public void setRemovedReason(String removedReason) {
+            this.removedReason = removedReason;
+        }
+    }
+
+    public List<JobStartEventLog> getJobStartEvents() {
+        return jobStartEvents;
+    }
+
+    public void setJobStartEvents(List<JobStartEventLog> jobStartEvents) {
+        this.jobStartEvents = jobStartEvents;
+    }
+
+    /**
+     * @return the count of the analyzed events, the other events such as block updates are not counted
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public void setEventCount(long eventCount) {
+        this.eventCount = eventCount;
+    }
+
+    public int getJobCount() {
+        return jobCount;
+    }
+
+    public void setJobCount(int jobCount) {
+        this.jobCount = jobCount;
+    }
+
+    public int getSucceededJobCount() {
+        return succeededJobCount;
+    }
+
+    public void setSucceededJobCount(int succeededJobCount) {
+        this.succeededJobCount = succeededJobCount;
+    }
+
+    public int getFailedJobCount() {
+        return failedJobCount;
+    }
+
+    public void setFailedJobCount(int failedJobCount) {
+        this.failedJobCount = failedJobCount;
+    }
+
+    public int getStageCount() {
+        return stageCount;
+    }
+
+    public void setStageCount(int stageCount) {
+        this.stageCount = stageCount;
+    }
+
+    public int getCompletedStageCount() {
+        return completedStageCount;
+    }
+
+    public void setCompletedStageCount(int completedStageCount) {
+        this.completedStageCount = completedStageCount;
+    }
+
+    public int getFailedStageCount() {
+        return failedStageCount;
+    }
+
+    public void setFailedStageCount(int failedStageCount) {
+        this.failedStageCount = failedStageCount;
+    }
+
+    public long getTaskCount() {
+        return taskCount;
+    }
+
+    public void setTaskCount(long taskCount) {
+        this.taskCount = taskCount;
+    }
+
+    public long getFailedTaskCount() {
+        return failedTaskCount;
+    }
+
+    public void setFailedTaskCount(long failedTaskCount) {
+        this.failedTaskCount = failedTaskCount;
+    }
+
+    /**
+     * @return the sum of all the ended tasks running time in milliseconds
+     */
+    public long getTotalTaskDuration() {
+        return totalTaskDuration;
+    }
+
+    public void setTotalTaskDuration(long totalTaskDuration) {
+        this.totalTaskDuration = totalTaskDuration;
+    }
+
+    public List<ExecutorTimeline> getExecutorTimelines() {
+        return executorTimelines;
+    }
+
+    public void setExecutorTimelines(List<ExecutorTimeline> executorTimelines) {
+        this.executorTimelines = executorTimelines;
+    }
+}
@@ -24,50 +24,54 @@ package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
 
 import com.google.common.collect.ImmutableList;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.common.errorresponse.HttpErrorStatus;
 import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.RemoteFile;
 import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.api.GetRemoteFilesResponse;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ADLSGen2FSOperation {
     public static final String DEFAULT_UMASK = "0000";
     public static final String PERMISSIONS_HEADER = "x-ms-permissions";
     public static final String UMASK_HEADER = "x-ms-umask";
+    public static final long DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_CONCURRENT_APPENDS = 4;
+    public static final int DEFAULT_APPEND_RETRIES = 3;
+    private static final long APPEND_RETRY_DELAY_MILLISECONDS = 1000;
+    private static final int SC_TOO_MANY_REQUESTS = 429;
 
     private HttpObservable http;
 
+    private int maxConcurrentAppends = DEFAULT_MAX_CONCURRENT_APPENDS;
+
+    private int appendRetries = DEFAULT_APPEND_RETRIES;
+
     @NotNull
     private List<NameValuePair> createDirReqParams;
 
     @NotNull
     private List<NameValuePair> createFileReqParams;
 
-    @NotNull
-    private List<NameValuePair> appendReqParams;
-
     @NotNull
     private ADLSGen2ParamsBuilder listReqBuilder;
 
-    @NotNull
-    private ADLSGen2ParamsBuilder flushReqParamsBuilder;
-
     public ADLSGen2FSOperation(@NotNull HttpObservable http) {
         this.http = http;
         this.createDirReqParams = new ADLSGen2ParamsBuilder()
@@ -77,14 +81,24 @@ public class ADLSGen2FSOperation {
         this.createFileReqParams = new ADLSGen2ParamsBuilder()
                 .setResource("file")
                 .build();
+    }
 
-        this.appendReqParams = new ADLSGen2ParamsBuilder()
-                .setAction("append")
-                .setPosition(0)
-                .build();
+    public int getMaxConcurrentAppends() {
+        return maxConcurrentAppends;
+    }
+
+    public ADLSGen2FSOperation setMaxConcurrentAppends(int maxConcurrentAppends) {
+        this.maxConcurrentAppends = maxConcurrentAppends;
+        return this;
+    }
 
-        this.flushReqParamsBuilder = new ADLSGen2ParamsBuilder()
-                .setAction("flush");
+    public int getAppendRetries() {
+        return appendRetries;
+    }
+
+    public ADLSGen2FSOperation setAppendRetries(int appendRetries) {
+        this.appendRetries = appendRetries;
+        return this;
     }
 
     public Observable<Boolean> createDir(String dirPath) {
@@ -128,8 +142,29 @@ public class ADLSGen2FSOperation {
     }
 
     public Observable<Boolean> uploadData(String destFilePath, File src) {
-        return appendData(destFilePath, src)
-                .flatMap(len -> flushData(destFilePath, len));
+        return uploadData(new ADLSGen2UploadSession(destFilePath, src, DEFAULT_BLOCK_SIZE));
+    }
+
+    /**
+     * Upload the source file of the session in blocks, several blocks are appended at the same time and each
+     * one is retried on its own. The blocks already completed in the session are skipped, so an interrupted
+     * upload can be continued with the same session. All the blocks are committed by one flush in the end.
+     *
+     * @param session the upload session, whose destination file should have been created
+     * @return the observable emitting true when the whole file is flushed
+     */
+    public Observable<Boolean> uploadData(@NotNull ADLSGen2UploadSession session) {
+        final File src = session.getSrcFile();
+        if (!session.isResumableFor(src)) {
+            return Observable.error(new IllegalArgumentException(
+                    "The artifact " + src + " is missing or modified since the upload started"));
+        }
+
+        return Observable.range(0, session.getBlockCount())
+                .filter(index -> !session.isBlockCompleted(index))
+                .flatMap(index -> appendBlock(session, index), Math.max(1, maxConcurrentAppends))
+                .count()
+                .flatMap(ignore -> flushData(session.getDestFilePath(), session.getSrcLength()));
     }
 
     public Observable<RemoteFile> list(String rootPath, String relativePath) {
@@ -137,41 +172,90 @@ public class ADLSGen2FSOperation {
                 .enableRecursive(false)
                 .setResource("filesystem");
 
-        return http.get(
+        // Decode the paths one by one from the response stream, since a directory could have a huge number of files
+        return http.getItems(
                 StringUtils.stripEnd(rootPath, "/"),
                 listReqBuilder.setDirectory(relativePath).build(),
                 null,
-                GetRemoteFilesResponse.class)
-                .flatMap(pathList -> Observable.from(pathList.getRemoteFiles()));
-    }
-
-    private Observable<Long> appendData(String filePath, File src) {
-        try {
-            InputStreamEntity reqEntity = new InputStreamEntity(
-                    new FileInputStream(src),
-                    -1,
-                    ContentType.APPLICATION_OCTET_STREAM);
-            BufferedHttpEntity entity = new BufferedHttpEntity(reqEntity);
-            long len = entity.getContentLength();
-
-            HttpPatch req = new HttpPatch(filePath);
-            http.setContentType("application/octet-stream");
-
-            return http.executeReqAndCheckStatus(req, entity, this.appendReqParams, Collections.emptyList(), 202)
-                    .map(ignore -> len);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not find the aritifact"));
-        } catch (IOException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not read the aritfact"));
+                GetRemoteFilesResponse.PATHS_POINTER,
+                RemoteFile.class);
+    }
+
+    private Observable<Integer> appendBlock(@NotNull ADLSGen2UploadSession session, int index) {
+        final long position = session.getBlockPosition(index);
+        final List<NameValuePair> appendReqParams = new ADLSGen2ParamsBuilder()
+                .setAction("append")
+                .setPosition(position)
+                .build();
+        // Set the content type per request rather than to the shared default headers, since the blocks are
+        // appended concurrently
+        final List<Header> headers = ImmutableList.of(
+                new BasicHeader("Content-Type", ContentType.APPLICATION_OCTET_STREAM.getMimeType()));
+
+        return Observable
+                .defer(() -> http.request(
+                        new HttpPatch(session.getDestFilePath()),
+                        new FileRegionEntity(session.getSrcFile(), position, session.getBlockLength(index),
+                                             ContentType.APPLICATION_OCTET_STREAM),
+                        appendReqParams,
+                        headers))
+                .flatMap(resp -> {
+                    try {
+                        if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_ACCEPTED) {
+                            return Observable.error(HttpObservable.classifyHttpError(resp));
+                        }
+
+                        EntityUtils.consumeQuietly(resp.getEntity());
+                        return Observable.just(resp);
+                    } catch (IOException ex) {
+                        return Observable.error(ex);
+                    }
+                })
+                // The request blocks the subscribing thread, so each block is sent from its own IO thread for the
+                // appends to run at the same time
+                .subscribeOn(Schedulers.io())
+                .retryWhen(errors -> errors
+                        .zipWith(Observable.range(1, appendRetries + 1), (err, attempt) ->
+                                attempt <= appendRetries && isRetriable(err)
+                                        ? Observable.timer(APPEND_RETRY_DELAY_MILLISECONDS * attempt,
+                                                           TimeUnit.MILLISECONDS)
+                                        : Observable.<Long>error(err))
+                        .flatMap(delay -> delay))
+                .map(ignore -> {
+                    session.markBlockCompleted(index);
+                    return index;
+                });
+    }
+
+    /**
+     * Only the lost connections and the server side failures are worth retrying, the requests rejected for the
+     * authorization or the path would be rejected again.
+     */
+    private static boolean isRetriable(@NotNull Throwable err) {
+        for (Throwable cause = err; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpErrorStatus) {
+                final int statusCode = ((HttpErrorStatus) cause).getStatusCode();
+                return statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR || statusCode == SC_TOO_MANY_REQUESTS;
+            }
+
+            if (cause instanceof IOException) {
+                return true;
+            }
         }
+
+        return false;
     }
 
     private Observable<Boolean> flushData(String filePath, long flushLen) {
         HttpPatch req = new HttpPatch(filePath);
-        List<NameValuePair> flushReqParams = this.flushReqParamsBuilder.setPosition(flushLen).build();
-        http.setContentType("application/json");
+        List<NameValuePair> flushReqParams = new ADLSGen2ParamsBuilder()
+                .setAction("flush")
+                .setPosition(flushLen)
+                .build();
+        final List<Header> headers = ImmutableList.of(
+                new BasicHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType()));
 
-        return http.executeReqAndCheckStatus(req, null, flushReqParams, Collections.emptyList(), 200)
+        return http.executeReqAndCheckStatus(req, null, flushReqParams, headers, 200)
                 .map(ignore -> true);
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * The resume token of a chunked ADLS Gen2 upload.
+ *
+ * The source file is split into fixed-size blocks, each one is appended at its own position. The blocks appended
+ * successfully are recorded here, so an interrupted upload can be continued by only appending the missing blocks
+ * before flushing, as long as the source file isn't changed and the destination file isn't re-created.
+ */
+public class ADLSGen2UploadSession implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    private final String destFilePath;
+
+    @NotNull
+    private final String srcPath;
+
+    private final long srcLength;
+
+    private final long srcLastModified;
+
+    private final long blockSize;
+
+    // Guarded by this
+    @NotNull
+    private final BitSet completedBlocks = new BitSet();
+
+    public ADLSGen2UploadSession(@NotNull String destFilePath, @NotNull File src, long blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The upload block size should be positive");
+        }
+
+        this.destFilePath = destFilePath;
+        this.srcPath = src.getAbsolutePath();
+        this.srcLength = src.length();
+        this.srcLastModified = src.lastModified();
+        this.blockSize = blockSize;
+    }
+
+    @NotNull
+    public String getDestFilePath() {
+        return destFilePath;
+    }
+
+    @NotNull
+    public File getSrcFile() {
+        return new File(srcPath);
+    }
+
+    public long getSrcLength() {
+        return srcLength;
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlockCount() {
+        return (int) ((srcLength + blockSize - 1) / blockSize);
+    }
+
+    public long getBlockPosition(int index) {
+        return index * blockSize;
+    }
+
+    public long getBlockLength(int index) {
+        return Math.min(blockSize, srcLength - getBlockPosition(index));
+    }
+
+    /**
+     * Check whether the upload can be continued with the source file, which must not be modified since the
+     * session started.
+     *
+     * @param src the local file to upload
+     * @return true if the completed blocks are still valid for the file
+     */
+    public boolean isResumableFor(@NotNull File src) {
+        return srcPath.equals(src.getAbsolutePath())
+                && src.isFile()
+                && srcLength == src.length()
+                && srcLastModified == src.lastModified();
+    }
+
+    public synchronized boolean isBlockCompleted(int index) {
+        return completedBlocks.get(index);
+    }
+
+    public synchronized void markBlockCompleted(int index) {
+        completedBlocks.set(index);
+    }
+
+    public synchronized int getCompletedBlockCount() {
+        return completedBlocks.cardinality();
+    }
+
+    public synchronized boolean isAllBlocksCompleted() {
+        return completedBlocks.cardinality() == getBlockCount();
+    }
+}
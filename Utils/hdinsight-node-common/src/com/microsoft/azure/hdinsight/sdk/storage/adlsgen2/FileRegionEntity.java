@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
+
+import com.google.common.io.ByteStreams;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A repeatable entity streaming a region of a local file, so that a block of a large artifact can be sent
+ * without loading it into memory.
+ */
+public class FileRegionEntity extends AbstractHttpEntity {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    @NotNull
+    private final File file;
+
+    private final long offset;
+
+    private final long length;
+
+    public FileRegionEntity(@NotNull File file, long offset, long length, @NotNull ContentType contentType) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("The file region offset and length must not be negative");
+        }
+
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        setContentType(contentType.toString());
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        channel.position(offset);
+
+        return ByteStreams.limit(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public void writeTo(final OutputStream outStream) throws IOException {
+        try (final InputStream inStream = getContent()) {
+            final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+            long remaining = length;
+            int read;
+            while (remaining > 0
+                    && (read = inStream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                outStream.write(buffer, 0, read);
+                remaining -= read;
+            }
+
+            if (remaining > 0) {
+                throw new IOException(String.format(
+                        "The file %s was truncated while uploading, %d bytes are missing", file, remaining));
+            }
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -26,7 +26,9 @@ import com.microsoft.azure.hdinsight.common.AbfsUri;
 import com.microsoft.azure.hdinsight.common.UriUtil;
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.common.errorresponse.HttpErrorStatus;
 import com.microsoft.azure.hdinsight.sdk.storage.adlsgen2.ADLSGen2FSOperation;
+import com.microsoft.azure.hdinsight.sdk.storage.adlsgen2.ADLSGen2UploadSession;
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
 import com.microsoft.azuretools.authmanage.AuthMethodManager;
@@ -37,9 +39,16 @@ import rx.Observer;
 import rx.exceptions.Exceptions;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
+import java.net.UnknownServiceException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ADLSGen2Deploy implements Deployable, ILogger {
+    // The upload sessions of interrupted deployments, keyed by the destination root path and the artifact path
+    private static final ConcurrentMap<String, ADLSGen2UploadSession> pendingUploads = new ConcurrentHashMap<>();
+
     @NotNull
     public HttpObservable http;
 
@@ -61,7 +70,7 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
         // four steps to upload via adls gen2 rest api
         // 1.put request to create new dir
         // 2.put request to create new file(artifact) which is empty
-        // 3.patch request to append data to file
+        // 3.patch requests to append data blocks to file
         // 4.patch request to flush data to file
 
         final URI destURI = getUploadDir();
@@ -72,6 +81,37 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
         final String filePath = String.format("%s/%s", dirPath, src.getName());
 
         final ADLSGen2FSOperation op = new ADLSGen2FSOperation(this.http);
+        final String uploadKey = destinationRootPath + "|" + src.getAbsolutePath();
+        final ADLSGen2UploadSession pendingUpload = pendingUploads.get(uploadKey);
+        if (pendingUpload != null && pendingUpload.isResumableFor(src)) {
+            // Continue the interrupted upload in its created file, re-creating the file would discard the blocks
+            // appended but not flushed yet
+            log().info(String.format("Resume uploading to file %s with %d of %d blocks completed.",
+                                     pendingUpload.getDestFilePath(),
+                                     pendingUpload.getCompletedBlockCount(),
+                                     pendingUpload.getBlockCount()));
+
+            return upload(op, uploadKey, pendingUpload)
+                    .onErrorResumeNext(err -> {
+                        if (!isUnexpectedStatus(err, HttpStatus.SC_NOT_FOUND, HttpStatus.SC_CONFLICT)) {
+                            return Observable.error(err);
+                        }
+
+                        // The file was deleted or overwritten since, upload the artifact again from scratch
+                        log().warn(String.format("Failed to resume uploading to file %s, upload to %s instead. %s",
+                                                 pendingUpload.getDestFilePath(), filePath, err.getMessage()));
+                        return createAndUpload(op, uploadKey, src, dirPath, filePath);
+                    });
+        }
+
+        return createAndUpload(op, uploadKey, src, dirPath, filePath);
+    }
+
+    private Observable<String> createAndUpload(@NotNull ADLSGen2FSOperation op,
+                                               @NotNull String uploadKey,
+                                               @NotNull File src,
+                                               @NotNull String dirPath,
+                                               @NotNull String filePath) {
         return op.createDir(dirPath, "0755")
                  .onErrorReturn(err -> {
                      if (err.getMessage() != null && (err.getMessage().contains(String.valueOf(HttpStatus.SC_FORBIDDEN))
@@ -92,11 +132,65 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
                  })
                  .doOnNext(ignore -> log().info(String.format("Create filesystem %s successfully.", dirPath)))
                  .flatMap(ignore -> op.createFile(filePath, "0755"))
-                 .flatMap(ignore -> op.uploadData(filePath, src))
-                 .doOnNext(ignore -> log().info(String.format("Append data to file %s successfully.", filePath)))
+                 .flatMap(ignore -> upload(
+                         op, uploadKey, new ADLSGen2UploadSession(filePath, src, ADLSGen2FSOperation.DEFAULT_BLOCK_SIZE)));
+    }
+
+    private Observable<String> upload(@NotNull ADLSGen2FSOperation op,
+                                      @NotNull String uploadKey,
+                                      @NotNull ADLSGen2UploadSession session) {
+        final String filePath = session.getDestFilePath();
+
+        pendingUploads.put(uploadKey, session);
+        return op.uploadData(session)
+                 .doOnNext(ignore -> {
+                     pendingUploads.remove(uploadKey, session);
+                     log().info(String.format("Append data to file %s successfully.", filePath));
+                 })
+                 .doOnError(err -> {
+                     // Only a lost connection leaves the session worth resuming, don't let the next deployments
+                     // run into the same failure again
+                     if (!isConnectionLost(err)) {
+                         pendingUploads.remove(uploadKey, session);
+                     }
+                 })
                  .map(ignored -> AbfsUri.parse(filePath).getUri().toString());
     }
 
+    private static boolean isUnexpectedStatus(@NotNull Throwable err, int... statusCodes) {
+        for (Throwable cause = err; cause != null; cause = cause.getCause()) {
+            // The appends fail with the status classified
+            if (cause instanceof HttpErrorStatus) {
+                for (int statusCode : statusCodes) {
+                    if (((HttpErrorStatus) cause).getStatusCode() == statusCode) {
+                        return true;
+                    }
+                }
+            }
+
+            if (cause instanceof UnknownServiceException && cause.getMessage() != null) {
+                for (int statusCode : statusCodes) {
+                    if (cause.getMessage().contains("unexpected code " + statusCode)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isConnectionLost(@NotNull Throwable err) {
+        for (Throwable cause = err; cause != null; cause = cause.getCause()) {
+            // The unexpected status codes are reported as UnknownServiceException
+            if (cause instanceof IOException && !(cause instanceof UnknownServiceException)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public static String getForbiddenErrorHints(String fileSystemRootPath) {
         final String signInUserEmail = AuthMethodManager.getInstance().getAuthMethodDetails().getAccountEmail();
         return " Please verify if\n"
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.HttpResponse;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+import rx.subjects.ReplaySubject;
+import rx.subjects.Subject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.UnknownServiceException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Livy batch state poller shared by all batch jobs of one Livy endpoint.
+ *
+ * Instead of every job polling GET /batches/{id} in its own loop, the poller issues one GET /batches listing call
+ * per tick and fans the states out to the watchers of each batch. The tick interval starts at
+ * {@link #MIN_INTERVAL_MILLIS}, doubles up to {@link #MAX_INTERVAL_MILLIS} while no watched batch changes its state,
+ * and drops back to the minimum once any state changes or a new batch is watched. The poller stops ticking
+ * when there is nothing to watch.
+ */
+public class LivyBatchStatePoller implements ILogger {
+    static final long MIN_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    static final long MAX_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final int PAGE_SIZE = 200;
+    static final int MAX_FAILURES = 3;
+
+    private static final Set<String> DONE_STATES = new HashSet<>(Arrays.asList(
+            SparkBatchJobState.SHUTTING_DOWN.toString(),
+            SparkBatchJobState.ERROR.toString(),
+            SparkBatchJobState.DEAD.toString(),
+            SparkBatchJobState.SUCCESS.toString()));
+
+    private static final ConcurrentMap<String, LivyBatchStatePoller> pollers = new ConcurrentHashMap<>();
+
+    private static class Watch {
+        private final Subject<SparkSubmitResponse, SparkSubmitResponse> subject =
+                ReplaySubject.<SparkSubmitResponse>createWithSize(1).toSerialized();
+        private int refs = 0;
+        @Nullable
+        private String lastState = null;
+    }
+
+    @NotNull
+    private final URI connectUri;
+    @NotNull
+    private volatile SparkBatchSubmission submission;
+    @NotNull
+    private final Scheduler scheduler;
+
+    // All the fields below are guarded by this
+    private final Map<Integer, Watch> watches = new HashMap<>();
+    @Nullable
+    private Scheduler.Worker worker = null;
+    @Nullable
+    private Subscription nextTick = null;
+    private boolean isTicking = false;
+    private boolean isWakeUpPending = false;
+    private long intervalMillis = MIN_INTERVAL_MILLIS;
+    private int failures = 0;
+
+    LivyBatchStatePoller(@NotNull SparkBatchSubmission submission,
+                         @NotNull URI connectUri,
+                         @NotNull Scheduler scheduler) {
+        this.submission = submission;
+        this.connectUri = connectUri;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Get the poller shared by all batch jobs of the Livy endpoint
+     *
+     * @param submission the submission to send requests with, the latest one wins since it carries the freshest
+     *                   credential for the endpoint
+     * @param connectUri the Livy batches URI, such as http://livy:8998/batches
+     * @return the shared poller
+     */
+    @NotNull
+    public static LivyBatchStatePoller getPoller(@NotNull SparkBatchSubmission submission, @NotNull URI connectUri) {
+        final LivyBatchStatePoller poller = pollers.computeIfAbsent(
+                connectUri.toString(), uri -> new LivyBatchStatePoller(submission, connectUri, Schedulers.io()));
+        poller.submission = submission;
+
+        return poller;
+    }
+
+    @NotNull
+    public URI getConnectUri() {
+        return connectUri;
+    }
+
+    /**
+     * Watch the Livy batch state
+     *
+     * The latest known state is replayed at subscribing, and then every state change is emitted. The observable
+     * completes after a done state is emitted, or when the batch can't be found on the Livy server any more.
+     * It fails with {@link UnknownServiceException} when the Livy server can't be reached for {@link #MAX_FAILURES}
+     * times in a row.
+     *
+     * @param batchId the Livy batch ID
+     * @return the batch state observable
+     */
+    @NotNull
+    public Observable<SparkSubmitResponse> watch(final int batchId) {
+        return Observable.defer(() -> {
+            final Watch watch = acquire(batchId);
+
+            return watch.subject.doOnUnsubscribe(() -> release(batchId, watch));
+        });
+    }
+
+    public static boolean isDone(@Nullable String state) {
+        return state != null && DONE_STATES.contains(state.toLowerCase());
+    }
+
+    @NotNull
+    private synchronized Watch acquire(final int batchId) {
+        Watch watch = watches.get(batchId);
+
+        if (watch == null) {
+            watch = new Watch();
+            watches.put(batchId, watch);
+
+            // Look at the new batch as soon as possible
+            wakeUp();
+        }
+
+        watch.refs++;
+
+        return watch;
+    }
+
+    private synchronized void release(final int batchId, @NotNull final Watch watch) {
+        if (--watch.refs <= 0 && watches.get(batchId) == watch) {
+            watches.remove(batchId);
+        }
+    }
+
+    private void wakeUp() {
+        intervalMillis = MIN_INTERVAL_MILLIS;
+
+        if (isTicking) {
+            // The ongoing tick will schedule the next one with the minimal interval
+            isWakeUpPending = true;
+            return;
+        }
+
+        if (nextTick != null) {
+            nextTick.unsubscribe();
+        }
+
+        if (worker == null) {
+            worker = scheduler.createWorker();
+        }
+
+        nextTick = worker.schedule(this::tick);
+    }
+
+    private void tick() {
+        final Set<Integer> batchIds;
+
+        synchronized (this) {
+            nextTick = null;
+
+            if (watches.isEmpty()) {
+                stop();
+                return;
+            }
+
+            isTicking = true;
+            isWakeUpPending = false;
+            batchIds = new HashSet<>(watches.keySet());
+        }
+
+        Map<Integer, Optional<SparkSubmitResponse>> states = null;
+        IOException failure = null;
+
+        try {
+            states = poll(batchIds);
+        } catch (IOException ex) {
+            log().debug("Got exception " + ex.toString() + " in polling Livy batches of " + connectUri, ex);
+            failure = ex;
+        }
+
+        final List<Runnable> notifications = new ArrayList<>();
+
+        synchronized (this) {
+            isTicking = false;
+
+            if (failure != null) {
+                if (++failures >= MAX_FAILURES) {
+                    final UnknownServiceException error = new UnknownServiceException(
+                            "Failed to get Livy batch states from " + connectUri + " after " + failures + " attempts: "
+                                    + failure.getMessage());
+                    for (Watch watch : watches.values()) {
+                        notifications.add(() -> watch.subject.onError(error));
+                    }
+
+                    watches.clear();
+                    failures = 0;
+                }
+            } else {
+                failures = 0;
+                boolean isChanged = false;
+
+                for (Map.Entry<Integer, Optional<SparkSubmitResponse>> entry : states.entrySet()) {
+                    final Watch watch = watches.get(entry.getKey());
+                    if (watch == null) {
+                        // Released during polling
+                        continue;
+                    }
+
+                    if (!entry.getValue().isPresent()) {
+                        // The batch is gone
+                        watches.remove(entry.getKey());
+                        notifications.add(watch.subject::onCompleted);
+                        continue;
+                    }
+
+                    final SparkSubmitResponse state = entry.getValue().get();
+                    if (!Objects.equals(state.getState(), watch.lastState)) {
+                        isChanged = true;
+                        watch.lastState = state.getState();
+                        notifications.add(() -> watch.subject.onNext(state));
+                    }
+
+                    if (isDone(state.getState())) {
+                        watches.remove(entry.getKey());
+                        notifications.add(watch.subject::onCompleted);
+                    }
+                }
+
+                intervalMillis = isChanged || isWakeUpPending
+                        ? MIN_INTERVAL_MILLIS
+                        : Math.min(intervalMillis * 2, MAX_INTERVAL_MILLIS);
+            }
+
+            if (watches.isEmpty()) {
+                stop();
+            } else if (worker != null) {
+                nextTick = worker.schedule(this::tick, isWakeUpPending ? 0 : intervalMillis, TimeUnit.MILLISECONDS);
+            }
+
+            isWakeUpPending = false;
+        }
+
+        // Notify out of the lock, since the watchers are free to watch or release batches in callbacks
+        notifications.forEach(Runnable::run);
+    }
+
+    private void stop() {
+        intervalMillis = MIN_INTERVAL_MILLIS;
+
+        if (worker != null) {
+            worker.unsubscribe();
+            worker = null;
+        }
+    }
+
+    /**
+     * Get the states of the batches, with the listing API first and then the single batch API for the missing ones
+     *
+     * @param batchIds the batches to get
+     * @return the batch states got, an empty one for the batch not found
+     * @throws IOException exceptions in transaction
+     */
+    @NotNull
+    Map<Integer, Optional<SparkSubmitResponse>> poll(@NotNull Set<Integer> batchIds) throws IOException {
+        final Map<Integer, Optional<SparkSubmitResponse>> states = new HashMap<>();
+
+        try {
+            int from = 0;
+            int total;
+
+            do {
+                final HttpResponse httpResponse = submission.getAllBatchesSparkJobs(
+                        String.format("%s?from=%d&size=%d", connectUri, from, PAGE_SIZE));
+
+                if (httpResponse.getCode() < 200 || httpResponse.getCode() >= 300) {
+                    break;
+                }
+
+                final SparkSubmitBatchesResponse page = ObjectConvertUtils.convertJsonToObject(
+                        httpResponse.getMessage(), SparkSubmitBatchesResponse.class)
+                        .orElseThrow(() -> new UnknownServiceException(
+                                "Bad spark batches response: " + httpResponse.getMessage()));
+
+                page.getSessions().stream()
+                        .filter(session -> batchIds.contains(session.getId()))
+                        .forEach(session -> states.put(session.getId(), Optional.of(session)));
+
+                total = page.getTotal();
+                from += page.getSessions().size();
+
+                if (page.getSessions().isEmpty()) {
+                    break;
+                }
+            } while (states.size() < batchIds.size() && from < total);
+        } catch (IOException ex) {
+            log().debug("Got exception " + ex.toString() + " in listing Livy batches, fall back to single batch API",
+                        ex);
+        }
+
+        for (Integer batchId : batchIds) {
+            if (states.containsKey(batchId)) {
+                continue;
+            }
+
+            final HttpResponse httpResponse = submission.getBatchSparkJobStatus(connectUri.toString(), batchId);
+
+            if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
+                states.put(batchId, Optional.of(ObjectConvertUtils.convertJsonToObject(
+                        httpResponse.getMessage(), SparkSubmitResponse.class)
+                        .orElseThrow(() -> new UnknownServiceException(
+                                "Bad spark job response: " + httpResponse.getMessage()))));
+            } else if (httpResponse.getCode() == 404) {
+                states.put(batchId, Optional.empty());
+            } else {
+                throw new UnknownServiceException("Failed to get Livy batch " + batchId + " state: "
+                        + httpResponse.getCode() + " " + httpResponse.getMessage());
+            }
+        }
+
+        return states;
+    }
+}
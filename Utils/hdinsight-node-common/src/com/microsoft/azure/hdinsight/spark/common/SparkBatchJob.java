@@ -22,7 +22,6 @@
 
 package com.microsoft.azure.hdinsight.spark.common;
 
-import com.gargoylesoftware.htmlunit.Cache;
 import com.microsoft.azure.hdinsight.common.ClusterManagerEx;
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
@@ -46,6 +45,8 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import rx.Observable;
 import rx.Observer;
 import rx.Subscriber;
+import rx.Subscription;
+import rx.observables.ConnectableObservable;
 import rx.subjects.PublishSubject;
 
 import java.io.File;
@@ -79,6 +80,16 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
     private int nextLivyLogOffset = 0;
     private final Object livyLogOffsetLock = new Object();
 
+    /**
+     * The Livy batch state watch held for the job's lifetime, replaying the latest state. Accessing with
+     * {@link #batchStateWatchLock}
+     */
+    @Nullable
+    private ConnectableObservable<SparkSubmitResponse> batchStateWatch;
+    @Nullable
+    private Subscription batchStateSubscription;
+    private final Object batchStateWatchLock = new Object();
+
     @Nullable
     private String getCurrentLogUrl() {
         return currentLogUrl;
@@ -148,11 +159,6 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
      */
     private int delaySeconds = 10;
 
-    /**
-     * The global cache for fetched Yarn UI page by browser
-     */
-    private final Cache globalCache = JobUtils.getGlobalCache();
-
     /**
      * The driver log conversion mode
      */
@@ -340,6 +346,10 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
      * @param batchId the LIVY Spark batch job ID
      */
     protected void setBatchId(int batchId) {
+        if (this.batchId != batchId) {
+            releaseBatchStateWatch();
+        }
+
         this.batchId = batchId;
     }
 
@@ -856,7 +866,8 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
 
                     // Retry interval
                     if (linesGot == 0) {
-                        isFetching = "starting".equals(this.getState()) && !isAppIdAllocated;
+                        final SparkSubmitResponse jobResp = getLatestBatchState();
+                        isFetching = jobResp != null && "starting".equals(jobResp.getState()) && !isAppIdAllocated;
 
                         sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
                     }
@@ -870,85 +881,96 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
         });
     }
 
-    public boolean isActive() throws IOException {
-        if (getConnectUri() == null) {
-            throw new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
-                    "please configure Spark cluster which the Spark job will be submitted.");
-        }
+    /**
+     * Get the poller of the Livy batch states, shared with other jobs on the same Livy endpoint
+     *
+     * @return the Livy batch state poller
+     */
+    @NotNull
+    protected LivyBatchStatePoller getBatchStatePoller() {
+        return LivyBatchStatePoller.getPoller(this.getSubmission(), this.getConnectUri());
+    }
 
-        int retries = 0;
+    /**
+     * Get the Livy batch state watch of the job, which is subscribed to the shared poller once and held until the
+     * batch is done or gone, rather than watching the batch again for every read, since each new watch wakes the
+     * poller up to send a request at once and resets its interval.
+     *
+     * @return the batch state observable replaying the latest state
+     */
+    @NotNull
+    private Observable<SparkSubmitResponse> getBatchStateWatch() {
+        synchronized (batchStateWatchLock) {
+            if (batchStateWatch == null) {
+                final ConnectableObservable<SparkSubmitResponse> watch = getBatchStatePoller().watch(batchId).replay(1);
 
-        do {
-            try {
-                final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                        this.getConnectUri().toString(), batchId);
+                batchStateWatch = watch;
+                batchStateSubscription = watch.connect();
+            }
 
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    final SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), SparkSubmitResponse.class)
-                                                                          .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark job response: " + httpResponse.getMessage()));
+            return batchStateWatch;
+        }
+    }
 
-                    return jobResp.isAlive();
-                }
-            } catch (final IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
+    /**
+     * Release the Livy batch state watch, the next read watches the batch again
+     */
+    private void releaseBatchStateWatch() {
+        synchronized (batchStateWatchLock) {
+            if (batchStateSubscription != null) {
+                batchStateSubscription.unsubscribe();
             }
 
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (final InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
+            batchStateWatch = null;
+            batchStateSubscription = null;
+        }
+    }
+
+    /**
+     * Get the latest Livy batch state from the job's batch state watch
+     *
+     * @return the Livy batch state, null for the batch not found
+     * @throws IOException exceptions in transaction
+     */
+    @Nullable
+    private SparkSubmitResponse getLatestBatchState() throws IOException {
+        try {
+            return getBatchStateWatch().toBlocking().firstOrDefault(null);
+        } catch (final RuntimeException ex) {
+            // The failure is replayed as well, watch the batch again for the next read
+            releaseBatchStateWatch();
+
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
             }
-        } while (++retries < this.getRetriesMax());
 
-        throw new UnknownServiceException("Failed to detect job activity: Unknown service error after " + --retries + " retries");
+            throw ex;
+        }
     }
 
-    protected Observable<SimpleImmutableEntry<String, String>> getJobDoneObservable() {
+    public boolean isActive() throws IOException {
         if (getConnectUri() == null) {
-            return Observable.error(new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
-                    "please configure Spark cluster which the Spark job will be submitted."));
+            throw new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
+                    "please configure Spark cluster which the Spark job will be submitted.");
         }
 
-        return Observable.create((Subscriber<? super SimpleImmutableEntry<String, String>> ob) -> {
-            try {
-                boolean isJobActive;
-                SparkBatchJobState state = SparkBatchJobState.NOT_STARTED;
-                String diagnostics = "";
-
-                do {
-                    final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                            this.getConnectUri().toString(), batchId);
-
-                    if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                        final SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                                httpResponse.getMessage(), SparkSubmitResponse.class)
-                                                                              .orElseThrow(() -> new UnknownServiceException(
-                                        "Bad spark job response: " + httpResponse.getMessage()));
-
-                        state = SparkBatchJobState.valueOf(jobResp.getState().toUpperCase());
-                        diagnostics = String.join("\n", jobResp.getLog());
-
-                        isJobActive = !isDone(state.toString());
-                    } else {
-                        isJobActive = false;
-                    }
+        final SparkSubmitResponse jobResp = getLatestBatchState();
 
+        return jobResp != null && jobResp.isAlive();
+    }
 
-                    // Retry interval
-                    sleep(1000);
-                } while (isJobActive);
+    protected Observable<SimpleImmutableEntry<String, String>> getJobDoneObservable() {
+        if (getConnectUri() == null) {
+            return Observable.error(new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
+                    "please configure Spark cluster which the Spark job will be submitted."));
+        }
 
-                ob.onNext(new SimpleImmutableEntry<>(state.toString(), diagnostics));
-                ob.onCompleted();
-            } catch (final IOException ex) {
-                ob.onError(ex);
-            } catch (final InterruptedException ignored) {
-                ob.onCompleted();
-            }
-        });
+        return getBatchStateWatch()
+                .doOnError(err -> releaseBatchStateWatch())
+                .map(jobResp -> new SimpleImmutableEntry<>(
+                        SparkBatchJobState.valueOf(jobResp.getState().toUpperCase()).toString(),
+                        String.join("\n", jobResp.getLog())))
+                .lastOrDefault(new SimpleImmutableEntry<>(SparkBatchJobState.NOT_STARTED.toString(), ""));
     }
 
     protected Observable<String> getJobLogAggregationDoneObservable() {
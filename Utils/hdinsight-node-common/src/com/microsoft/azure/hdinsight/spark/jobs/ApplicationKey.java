@@ -62,7 +62,7 @@ public class ApplicationKey {
         if (obj instanceof ApplicationKey) {
             ApplicationKey that = (ApplicationKey)obj;
             return getClusterConnString().equalsIgnoreCase(that.getClusterConnString()) &&
-                    getAppId().equalsIgnoreCase(that.getClusterConnString());
+                    getAppId().equalsIgnoreCase(that.getAppId());
         }
         return false;
     }
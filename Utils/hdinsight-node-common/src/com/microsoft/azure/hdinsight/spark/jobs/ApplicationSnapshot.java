@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.cache.AbstractCache.StatsCounter;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.executor.Executor;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
+import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
+import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.ApplicationMasterLogs;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The job view data of an application, each part is loaded once on the first access.
+ *
+ * The snapshot of a finished application never changes, its Spark data parts are written into the store once loaded.
+ * The snapshot of a running application is dropped after a while by JobViewCacheManager to get the latest data.
+ */
+public class ApplicationSnapshot {
+    @FunctionalInterface
+    public interface Loader<T> {
+        @NotNull
+        T load() throws Exception;
+    }
+
+    /**
+     * The Spark data parts persisted for a finished application, the parts not loaded yet are null
+     */
+    public static class Data {
+        @Nullable
+        private List<Job> jobs;
+
+        @Nullable
+        private List<Stage> stages;
+
+        @Nullable
+        private List<Executor> executors;
+
+        @Nullable
+        private List<Task> tasks;
+
+        @Nullable
+        public List<Job> getJobs() {
+            return jobs;
+        }
+
+        public void setJobs(@Nullable List<Job> jobs) {
+            this.jobs = jobs;
+        }
+
+        @Nullable
+        public List<Stage> getStages() {
+            return stages;
+        }
+
+        public void setStages(@Nullable List<Stage> stages) {
+            this.stages = stages;
+        }
+
+        @Nullable
+        public List<Executor> getExecutors() {
+            return executors;
+        }
+
+        public void setExecutors(@Nullable List<Executor> executors) {
+            this.executors = executors;
+        }
+
+        @Nullable
+        public List<Task> getTasks() {
+            return tasks;
+        }
+
+        public void setTasks(@Nullable List<Task> tasks) {
+            this.tasks = tasks;
+        }
+    }
+
+    private class Part<T> {
+        private final boolean isPersistent;
+
+        @Nullable
+        private volatile T value;
+
+        Part(@Nullable T value, boolean isPersistent) {
+            this.value = value;
+            this.isPersistent = isPersistent;
+        }
+
+        @Nullable
+        T peek() {
+            return value;
+        }
+
+        @NotNull
+        T get(@NotNull Loader<T> loader) throws ExecutionException {
+            T loaded = value;
+            if (loaded != null) {
+                statsCounter.recordHits(1);
+                return loaded;
+            }
+
+            // Only one loading for a part, the others wait for it
+            synchronized (this) {
+                loaded = value;
+                if (loaded != null) {
+                    statsCounter.recordHits(1);
+                    return loaded;
+                }
+
+                statsCounter.recordMisses(1);
+                final long startNanos = System.nanoTime();
+
+                try {
+                    loaded = loader.load();
+                } catch (Exception ex) {
+                    statsCounter.recordLoadException(System.nanoTime() - startNanos);
+                    throw new ExecutionException(ex);
+                }
+
+                statsCounter.recordLoadSuccess(System.nanoTime() - startNanos);
+                value = loaded;
+            }
+
+            if (isPersistent && store != null) {
+                store.save(key, toData());
+            }
+
+            return loaded;
+        }
+    }
+
+    @NotNull
+    private final ApplicationKey key;
+
+    private final boolean isFinished;
+
+    private final long createdTimeMillis = System.currentTimeMillis();
+
+    @Nullable
+    private final ApplicationSnapshotStore store;
+
+    @NotNull
+    private final StatsCounter statsCounter;
+
+    @NotNull
+    private final Part<List<Job>> jobs;
+
+    @NotNull
+    private final Part<List<Stage>> stages;
+
+    @NotNull
+    private final Part<List<Executor>> executors;
+
+    @NotNull
+    private final Part<List<Task>> tasks;
+
+    @NotNull
+    private final Part<App> yarnApp = new Part<>(null, false);
+
+    @NotNull
+    private final Part<ApplicationMasterLogs> yarnLogs = new Part<>(null, false);
+
+    /**
+     * @param key the application key
+     * @param isFinished is the application finished
+     * @param stored the data read from the store, null for nothing stored
+     * @param store the store to write the Spark data parts into, null for not persisting
+     * @param statsCounter the counter to record the hits and loadings of data parts
+     */
+    public ApplicationSnapshot(@NotNull ApplicationKey key,
+                               boolean isFinished,
+                               @Nullable Data stored,
+                               @Nullable ApplicationSnapshotStore store,
+                               @NotNull StatsCounter statsCounter) {
+        this.key = key;
+        this.isFinished = isFinished;
+        this.store = store;
+        this.statsCounter = statsCounter;
+
+        this.jobs = new Part<>(stored == null ? null : stored.getJobs(), true);
+        this.stages = new Part<>(stored == null ? null : stored.getStages(), true);
+        this.executors = new Part<>(stored == null ? null : stored.getExecutors(), true);
+        this.tasks = new Part<>(stored == null ? null : stored.getTasks(), true);
+    }
+
+    @NotNull
+    public ApplicationKey getKey() {
+        return key;
+    }
+
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    /**
+     * @param ttlMillis the time to live of a running application snapshot
+     * @return true if the snapshot is of a running application and lives longer than the TTL
+     */
+    public boolean isExpired(long ttlMillis) {
+        return !isFinished && System.currentTimeMillis() - createdTimeMillis >= ttlMillis;
+    }
+
+    @NotNull
+    public List<Job> getJobs(@NotNull Loader<List<Job>> loader) throws ExecutionException {
+        return jobs.get(loader);
+    }
+
+    @NotNull
+    public List<Stage> getStages(@NotNull Loader<List<Stage>> loader) throws ExecutionException {
+        return stages.get(loader);
+    }
+
+    @NotNull
+    public List<Executor> getExecutors(@NotNull Loader<List<Executor>> loader) throws ExecutionException {
+        return executors.get(loader);
+    }
+
+    @NotNull
+    public List<Task> getTasks(@NotNull Loader<List<Task>> loader) throws ExecutionException {
+        return tasks.get(loader);
+    }
+
+    @NotNull
+    public App getYarnApp(@NotNull Loader<App> loader) throws ExecutionException {
+        return yarnApp.get(loader);
+    }
+
+    @NotNull
+    public ApplicationMasterLogs getYarnLogs(@NotNull Loader<ApplicationMasterLogs> loader) throws ExecutionException {
+        return yarnLogs.get(loader);
+    }
+
+    @NotNull
+    private Data toData() {
+        final Data data = new Data();
+        data.setJobs(jobs.peek());
+        data.setStages(stages.peek());
+        data.setExecutors(executors.peek());
+        data.setTasks(tasks.peek());
+
+        return data;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.util.concurrent.Striped;
+import com.microsoft.azure.hdinsight.common.HDInsightLoader;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The on-disk store of the finished application snapshots, one GZip compressed JSON file per application, which
+ * keeps the job view data of finished applications across IDE restarts.
+ *
+ * The store is bounded: the applications not read for a long time are removed, then the least recently read ones
+ * while there are too many of them or they take too much space.
+ */
+public class ApplicationSnapshotStore implements ILogger {
+    public static final int DEFAULT_MAX_APPLICATIONS = 500;
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+
+    private static final String FILE_SUFFIX = ".json.gz";
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @NotNull
+    private final File rootDir;
+
+    private final int maxApplications;
+
+    private final long maxBytes;
+
+    private final long maxAgeMillis;
+
+    // The saves of an application are serialized, each one merges its parts into the stored ones
+    @NotNull
+    private final Striped<Lock> saveLocks = Striped.lock(16);
+
+    public ApplicationSnapshotStore(@NotNull File rootDir) {
+        this(rootDir, DEFAULT_MAX_APPLICATIONS, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE_MS);
+    }
+
+    public ApplicationSnapshotStore(@NotNull File rootDir, int maxApplications, long maxBytes, long maxAgeMillis) {
+        this.rootDir = rootDir;
+        this.maxApplications = maxApplications;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * @return the store under the plugin root path, or null if the plugin isn't loaded
+     */
+    @Nullable
+    public static ApplicationSnapshotStore createDefault() {
+        if (HDInsightLoader.getHDInsightHelper() == null) {
+            return null;
+        }
+
+        return new ApplicationSnapshotStore(
+                new File(HDInsightLoader.getHDInsightHelper().getPluginRootPath(), "SparkJobViewCache"));
+    }
+
+    @NotNull
+    File getFile(@NotNull ApplicationKey key) {
+        return new File(new File(rootDir, toFileName(key.getClusterDetails().getName())),
+                        toFileName(key.getAppId()) + FILE_SUFFIX);
+    }
+
+    /**
+     * @return the stored data, or null if nothing stored or the stored file is broken
+     */
+    @Nullable
+    public ApplicationSnapshot.Data load(@NotNull ApplicationKey key) {
+        final File file = getFile(key);
+        final ApplicationSnapshot.Data data = read(key, file);
+        if (data != null) {
+            // Keep the recently read applications from being removed first
+            file.setLastModified(System.currentTimeMillis());
+        }
+
+        return data;
+    }
+
+    @Nullable
+    private ApplicationSnapshot.Data read(@NotNull ApplicationKey key, @NotNull File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            return mapper.readValue(in, ApplicationSnapshot.Data.class);
+        } catch (IOException ex) {
+            log().warn("Failed to read the stored snapshot of application " + key.getAppId(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Save the data parts of the application, the parts stored before but absent in the data are kept
+     */
+    public void save(@NotNull ApplicationKey key, @NotNull ApplicationSnapshot.Data data) {
+        final File file = getFile(key);
+        final Lock lock = saveLocks.get(file);
+
+        lock.lock();
+        try {
+            write(key, file, merge(data, read(key, file)));
+        } finally {
+            lock.unlock();
+        }
+
+        trim();
+    }
+
+    @NotNull
+    private static ApplicationSnapshot.Data merge(@NotNull ApplicationSnapshot.Data data,
+                                                  @Nullable ApplicationSnapshot.Data stored) {
+        if (stored == null) {
+            return data;
+        }
+
+        final ApplicationSnapshot.Data merged = new ApplicationSnapshot.Data();
+        merged.setJobs(data.getJobs() != null ? data.getJobs() : stored.getJobs());
+        merged.setStages(data.getStages() != null ? data.getStages() : stored.getStages());
+        merged.setExecutors(data.getExecutors() != null ? data.getExecutors() : stored.getExecutors());
+        merged.setTasks(data.getTasks() != null ? data.getTasks() : stored.getTasks());
+
+        return merged;
+    }
+
+    private void write(@NotNull ApplicationKey key, @NotNull File file, @NotNull ApplicationSnapshot.Data data) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+
+            // Write to a temporary file first, so that a broken write never replaces the stored file
+            final File writing = File.createTempFile(file.getName(), ".writing", file.getParentFile());
+            try {
+                try (OutputStream out = new GZIPOutputStream(new FileOutputStream(writing))) {
+                    mapper.writeValue(out, data);
+                }
+
+                Files.move(writing.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(writing.toPath());
+            }
+        } catch (IOException ex) {
+            log().warn("Failed to store the snapshot of application " + key.getAppId(), ex);
+        }
+    }
+
+    /**
+     * Remove the files older than the max age, then the least recently used ones beyond the count and size limits
+     */
+    void trim() {
+        final File[] clusterDirs = rootDir.listFiles(File::isDirectory);
+        if (clusterDirs == null) {
+            return;
+        }
+
+        final List<StoredFile> files = new ArrayList<>();
+        for (File clusterDir : clusterDirs) {
+            // The temporary files being written by other threads are left alone
+            final File[] clusterFiles = clusterDir.listFiles(
+                    file -> file.isFile() && file.getName().endsWith(FILE_SUFFIX));
+            if (clusterFiles != null) {
+                for (File file : clusterFiles) {
+                    files.add(new StoredFile(file));
+                }
+            }
+        }
+
+        // Keep the most recently used ones
+        files.sort(Comparator.comparingLong((StoredFile stored) -> stored.lastModified).reversed());
+
+        final long now = System.currentTimeMillis();
+        long totalBytes = 0;
+        for (int i = 0; i < files.size(); i++) {
+            final StoredFile stored = files.get(i);
+            totalBytes += stored.length;
+
+            if (i >= maxApplications || totalBytes > maxBytes || now - stored.lastModified > maxAgeMillis) {
+                try {
+                    Files.deleteIfExists(stored.file.toPath());
+                } catch (IOException ex) {
+                    log().warn("Failed to remove the stored snapshot " + stored.file, ex);
+                }
+            }
+        }
+    }
+
+    private static class StoredFile {
+        @NotNull
+        private final File file;
+
+        // Read once, since the loading could touch the file meanwhile
+        private final long lastModified;
+
+        private final long length;
+
+        StoredFile(@NotNull File file) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+    }
+
+    @NotNull
+    private static String toFileName(@NotNull String name) {
+        return name.replaceAll("[^\\w.-]", "_");
+    }
+}
@@ -22,13 +22,25 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.AbstractCache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.microsoft.azure.hdinsight.common.JobViewManager;
+import com.microsoft.azure.hdinsight.common.task.TaskExecutor;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
+import com.microsoft.azure.hdinsight.sdk.rest.AttemptWithAppId;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogSummary;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.executor.Executor;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
@@ -37,109 +49,96 @@ import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.ApplicationMasterLogs;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+/**
+ * The job view data cache.
+ *
+ * The Spark and Yarn data of an application is cached in an application snapshot. The snapshot of a finished
+ * application is kept until it's evicted, and its Spark data is also stored on disk to survive IDE restarts. The
+ * snapshot of a running application is dropped after a short TTL, then the data is loaded again on the next access.
+ */
 public class JobViewCacheManager {
-    private static final LoadingCache<ApplicationKey, List<Job>> sparkJobLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Job>>() {
-                @Override
-                public List<Job> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getLastAttemptJobsFromApp(key);
-                }
-            });
+    public static final long RUNNING_APPLICATION_TTL_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final int MAX_CONCURRENT_STAGE_TASKS_LOADINGS = 4;
 
-    private static final LoadingCache<ApplicationKey, List<Stage>> sparkStageLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Stage>>() {
-                @Override
-                public List<Stage> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getAllStageFromApp(key);
-                }
-            });
+    private static final AbstractCache.SimpleStatsCounter snapshotDataStatsCounter = new AbstractCache.SimpleStatsCounter();
 
-    private static final LoadingCache<ApplicationKey, List<Executor>> sparkExecutorLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Executor>>() {
-                @Override
-                public List<Executor> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getAllExecutorFromApp(key);
-                }
-            });
+    private static final Supplier<Optional<ApplicationSnapshotStore>> snapshotStore =
+            Suppliers.memoize(() -> Optional.ofNullable(ApplicationSnapshotStore.createDefault()));
 
+    private static final ListeningExecutorService stageTasksLoaderExecutor = MoreExecutors.listeningDecorator(
+            Executors.newFixedThreadPool(MAX_CONCURRENT_STAGE_TASKS_LOADINGS,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("spark-stage-tasks-loader-%d").build()));
+
+    // The application list is refreshed by a background task after a while to get the new applications and the
+    // latest attempt status, the old list is returned when the refreshing is going on or failed.
     private static final LoadingCache<String, List<Application>> sparkApplicationsLocalCache = CacheBuilder.newBuilder()
             .maximumSize(100)
             .initialCapacity(20)
-            .build(new CacheLoader<String, List<Application>>() {
+            .refreshAfterWrite(RUNNING_APPLICATION_TTL_MS, TimeUnit.MILLISECONDS)
+            .build(CacheLoader.asyncReloading(new CacheLoader<String, List<Application>>() {
                 @Override
                 public List<Application> load(String key) throws Exception {
                     return SparkRestUtil.getSparkApplications(JobViewManager.getCluster(key));
                 }
-            });
+            }, TaskExecutor.getBackgroundExecutor()));
 
-    private static final LoadingCache<ApplicationKey, List<Task>> sparkTasksSummaryLocalCache = CacheBuilder.newBuilder()
+    private static final LoadingCache<ApplicationKey, ApplicationSnapshot> applicationSnapshotCache = CacheBuilder.newBuilder()
             .maximumSize(100)
             .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Task>>() {
+            .recordStats()
+            .build(new CacheLoader<ApplicationKey, ApplicationSnapshot>() {
                 @Override
-                public List<Task> load(ApplicationKey key) throws Exception {
-                    List<Task> allTasks = new ArrayList<>();
-                    List<Stage> stages = sparkStageLocalCache.get(key);
-                    for (Stage stage: stages) {
-                        int stageId = stage.getStageId();
-                        int attemptedId = stage.getAttemptId();
-                        List<Task> tasks = SparkRestUtil.getSparkTasks(key, stageId, attemptedId);
-                        allTasks.addAll(tasks);
+                public ApplicationSnapshot load(ApplicationKey key) throws Exception {
+                    if (!isApplicationFinished(key)) {
+                        return new ApplicationSnapshot(key, false, null, null, snapshotDataStatsCounter);
                     }
-                    return allTasks;
-                }
-            });
 
-    private static final LoadingCache<ApplicationKey, ApplicationMasterLogs> yarnAppLogLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, ApplicationMasterLogs>() {
-                @Override
-                public ApplicationMasterLogs load(ApplicationKey key) throws Exception {
-                    return JobUtils.getYarnLogs(key);
+                    final ApplicationSnapshotStore store = snapshotStore.get().orElse(null);
+
+                    return new ApplicationSnapshot(
+                            key, true, store == null ? null : store.load(key), store, snapshotDataStatsCounter);
                 }
             });
 
-    private static final LoadingCache<ApplicationKey, App> yarnApplicationLocalCache = CacheBuilder.newBuilder()
+    // The event log summary is refreshed by a background task after a while, the previous summary is returned when
+    // the refresh is going on, and also is reused directly if the event log isn't changed.
+    private static final LoadingCache<ApplicationKey, SparkEventLogSummary> sparkEventLogSummaryCache = CacheBuilder.newBuilder()
             .maximumSize(100)
             .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, App>() {
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .build(CacheLoader.asyncReloading(new CacheLoader<ApplicationKey, SparkEventLogSummary>() {
                 @Override
-                public App load(ApplicationKey key) throws Exception {
-                    return YarnRestUtil.getApp(key);
+                public SparkEventLogSummary load(ApplicationKey key) throws Exception {
+                    return SparkRestUtil.getSparkEventLogSummary(key, null);
                 }
-            });
 
-    private static final LoadingCache<ApplicationKey, List<JobStartEventLog>> sparkJobStartEventLogCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<JobStartEventLog>>() {
                 @Override
-                public List<JobStartEventLog> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getSparkEventLogs(key);
+                public ListenableFuture<SparkEventLogSummary> reload(ApplicationKey key, SparkEventLogSummary oldValue) throws Exception {
+                    return Futures.immediateFuture(SparkRestUtil.getSparkEventLogSummary(key, oldValue));
                 }
-            });
+            }, TaskExecutor.getBackgroundExecutor()));
 
     public static List<JobStartEventLog> getJobStartEventLogs(@NotNull ApplicationKey key) throws ExecutionException {
-        return sparkJobStartEventLogCache.get(key);
+        return sparkEventLogSummaryCache.get(key).getJobStartEvents();
+    }
+
+    public static SparkEventLogSummary getEventLogSummary(@NotNull ApplicationKey key) throws ExecutionException {
+        return sparkEventLogSummaryCache.get(key);
     }
 
     public static ApplicationMasterLogs getYarnLogs(@NotNull ApplicationKey key) throws ExecutionException {
-            return yarnAppLogLocalCache.get(key);
+        return getSnapshot(key).getYarnLogs(() -> JobUtils.getYarnLogs(key));
     }
 
     public static App getYarnApp(@NotNull ApplicationKey key) throws ExecutionException {
-        return yarnApplicationLocalCache.get(key);
+        return getSnapshot(key).getYarnApp(() -> YarnRestUtil.getApp(key));
     }
 
     public static List<Application> getSparkApplications(@NotNull IClusterDetail clusterDetail) throws ExecutionException {
@@ -157,18 +156,89 @@ public class JobViewCacheManager {
     }
 
     public static List<Executor> getExecutors(@NotNull ApplicationKey key) throws ExecutionException {
-        return sparkExecutorLocalCache.get(key);
+        return getSnapshot(key).getExecutors(() -> SparkRestUtil.getAllExecutorFromApp(key));
     }
 
     public static List<Job> getJob(@NotNull ApplicationKey key) throws ExecutionException {
-        return sparkJobLocalCache.get(key);
+        return getSnapshot(key).getJobs(() -> SparkRestUtil.getLastAttemptJobsFromApp(key));
     }
 
     public static List<Task> getTasks(@NotNull ApplicationKey key) throws ExecutionException {
-        return sparkTasksSummaryLocalCache.get(key);
+        final ApplicationSnapshot snapshot = getSnapshot(key);
+
+        return snapshot.getTasks(() -> loadAllStageTasks(key, getStages(snapshot)));
     }
 
     public static List<Stage> getStages(@NotNull ApplicationKey key) throws ExecutionException {
-        return sparkStageLocalCache.get(key);
+        return getStages(getSnapshot(key));
+    }
+
+    /**
+     * Drop the cached snapshot of the application, the data will be loaded again on the next access
+     */
+    public static void invalidate(@NotNull ApplicationKey key) {
+        applicationSnapshotCache.invalidate(key);
+    }
+
+    /**
+     * @return the statistics of application snapshot data parts, a miss means a part loaded from the cluster
+     */
+    @NotNull
+    public static CacheStats getStatistics() {
+        return snapshotDataStatsCounter.snapshot();
+    }
+
+    @NotNull
+    private static ApplicationSnapshot getSnapshot(@NotNull ApplicationKey key) throws ExecutionException {
+        final ApplicationSnapshot snapshot = applicationSnapshotCache.get(key);
+        if (!snapshot.isExpired(RUNNING_APPLICATION_TTL_MS)) {
+            return snapshot;
+        }
+
+        // Only drop the expired one, the snapshot could be replaced by others concurrently
+        applicationSnapshotCache.asMap().remove(key, snapshot);
+
+        return applicationSnapshotCache.get(key);
+    }
+
+    @NotNull
+    private static List<Stage> getStages(@NotNull ApplicationSnapshot snapshot) throws ExecutionException {
+        return snapshot.getStages(() -> SparkRestUtil.getAllStageFromApp(snapshot.getKey()));
+    }
+
+    private static boolean isApplicationFinished(@NotNull ApplicationKey key) {
+        try {
+            final Application application = getSingleSparkApplication(key);
+            if (application == null) {
+                return false;
+            }
+
+            final AttemptWithAppId lastAttempt = application.getLastAttemptWithAppId(key.getClusterDetails().getName());
+
+            return lastAttempt != null && Boolean.parseBoolean(lastAttempt.getCompleted());
+        } catch (Exception ignored) {
+            // Take it as a running one to get the data again later
+            return false;
+        }
+    }
+
+    /**
+     * Load the tasks of all stages in parallel, the tasks are in the order of stages
+     */
+    @NotNull
+    private static List<Task> loadAllStageTasks(@NotNull ApplicationKey key,
+                                                @NotNull List<Stage> stages) throws ExecutionException, InterruptedException {
+        final List<ListenableFuture<List<Task>>> stageTasks = stages.stream()
+                .map(stage -> stageTasksLoaderExecutor.submit(
+                        () -> SparkRestUtil.getSparkTasks(key, stage.getStageId(), stage.getAttemptId())))
+                .collect(Collectors.toList());
+
+        try {
+            return Futures.allAsList(stageTasks).get().stream()
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList());
+        } finally {
+            stageTasks.forEach(future -> future.cancel(true));
+        }
     }
 }
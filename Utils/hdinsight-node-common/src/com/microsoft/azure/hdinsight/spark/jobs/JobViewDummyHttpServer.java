@@ -52,6 +52,7 @@ public class JobViewDummyHttpServer {
     private static final int NO_OF_THREADS = 10;
     private static ExecutorService executorService;
     private static boolean isEnabled = false;
+    private static final String TASK_GROUP = "JobViewDummyHttpServer";
 
     public static RequestDetail getCurrentRequestDetail() {
         return requestDetail;
@@ -65,6 +66,8 @@ public class JobViewDummyHttpServer {
         if (server != null) {
             server.stop(0);
         }
+        // The requests of the closed job view are useless
+        TaskExecutor.cancel(TASK_GROUP);
         if (executorService != null) {
             executorService.shutdown();
             try {
@@ -120,7 +123,7 @@ public class JobViewDummyHttpServer {
                                 }
                             }
 
-                        }));
+                        }).setGroup(TASK_GROUP));
                     } else if (requestDetail.getApiType() == HttpRequestType.LivyBatchesRest) {
                         TaskExecutor.submit(new LivyTask(clusterDetail, queryUrl, new HttpFutureCallback(httpExchange) {
                             @Override
@@ -140,7 +143,7 @@ public class JobViewDummyHttpServer {
 //                                    LOGGER.error("Get job history error", e);
                                 }
                             }
-                        }));
+                        }).setGroup(TASK_GROUP));
                     } else if(requestDetail.getApiType() == HttpRequestType.MultiTask){
                         TaskExecutor.submit(new MultiRestTask(clusterDetail, requestDetail.getQueryUrls(), new MultiHttpFutureCallback(httpExchange){
                             public void onSuccess(List<String> strs) {
@@ -155,7 +158,7 @@ public class JobViewDummyHttpServer {
 //                                    LOGGER.error("Get job history error", e);
                                 }
                             }
-                        }));
+                        }).setGroup(TASK_GROUP));
                     } else {
                         TaskExecutor.submit(new RestTask(clusterDetail, queryUrl, new HttpFutureCallback(httpExchange) {
                             @Override
@@ -170,7 +173,7 @@ public class JobViewDummyHttpServer {
 //                                    LOGGER.error("Get job history error", e);
                                 }
                             }
-                        }));
+                        }).setGroup(TASK_GROUP));
                     }
                 }
             });
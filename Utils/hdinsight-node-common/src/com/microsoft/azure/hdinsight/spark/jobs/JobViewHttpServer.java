@@ -22,6 +22,11 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
+import com.microsoft.azure.hdinsight.common.task.TaskExecutor;
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azure.hdinsight.spark.jobs.framework.JobRequestDetails;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.StringHelper;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import com.sun.net.httpserver.HttpExchange;
@@ -41,6 +46,7 @@ public class JobViewHttpServer {
     private static ExecutorService executorService;
     private static boolean isEnabled = false;
     private static int port = -1;
+    private static final String TASK_GROUP = "JobViewHttpServer";
 
     public synchronized static boolean isEnabled() {
         return isEnabled;
@@ -50,6 +56,8 @@ public class JobViewHttpServer {
         if (server != null) {
             server.stop(0);
         }
+        // The requests of the closed job view are useless
+        TaskExecutor.cancel(TASK_GROUP);
         if (executorService != null) {
             executorService.shutdown();
             try {
@@ -83,9 +91,14 @@ public class JobViewHttpServer {
                     httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
                     JobUtils.setResponse(httpExchange, "Connect Successfully");
             });
-            server.createContext("/applications", new SparkJobHttpHandler());
-            server.createContext("/apps", new YarnJobHttpHandler());
-            server.createContext("/actions", new ActionHttpHandler());
+            server.createContext("/statistics", (httpExchange) -> {
+                    httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+                    JobUtils.setResponse(httpExchange,
+                            ObjectConvertUtils.convertObjectToJsonString(TaskExecutor.getStatistics()).orElse("{}"));
+            });
+            server.createContext("/applications", submitAsTask(new SparkJobHttpHandler()));
+            server.createContext("/apps", submitAsTask(new YarnJobHttpHandler()));
+            server.createContext("/actions", submitAsTask(new ActionHttpHandler()));
 
             executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
             server.setExecutor(executorService);
@@ -94,4 +107,19 @@ public class JobViewHttpServer {
         } catch (IOException e) {
         }
     }
+
+    /**
+     * Handle the requests as user visible tasks rather than in the server threads, so that the requests of a
+     * cluster are limited to run concurrently and the ones pending are cancelled with the view.
+     */
+    @NotNull
+    private static HttpHandler submitAsTask(@NotNull HttpHandler handler) {
+        return httpExchange -> {
+            final IClusterDetail cluster = JobRequestDetails.getJobRequestDetail(httpExchange).getCluster();
+
+            final String clusterName = cluster != null ? cluster.getName() : null;
+
+            TaskExecutor.submit(new JobViewRequestTask(handler, httpExchange, clusterName).setGroup(TASK_GROUP));
+        };
+    }
 }
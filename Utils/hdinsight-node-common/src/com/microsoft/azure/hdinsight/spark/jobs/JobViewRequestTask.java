@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.microsoft.azure.hdinsight.common.task.Task;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The task of a job view request, whose handler loads the data from the cluster and responds to the exchange.
+ * The requests of the same cluster share a concurrency key, and the ones cancelled or failed before the handler
+ * responds are answered with the error.
+ */
+public class JobViewRequestTask extends Task<Void> {
+    @NotNull
+    private final HttpHandler handler;
+
+    @NotNull
+    private final HttpExchange httpExchange;
+
+    @Nullable
+    private final String clusterName;
+
+    public JobViewRequestTask(@NotNull HttpHandler handler,
+                              @NotNull HttpExchange httpExchange,
+                              @Nullable String clusterName) {
+        super(new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                final int code = throwable instanceof CancellationException
+                                 ? HttpURLConnection.HTTP_UNAVAILABLE
+                                 : HttpURLConnection.HTTP_INTERNAL_ERROR;
+                JobUtils.setResponse(httpExchange,
+                                     throwable.getMessage() != null ? throwable.getMessage() : throwable.toString(),
+                                     code);
+            }
+        });
+
+        this.handler = handler;
+        this.httpExchange = httpExchange;
+        this.clusterName = clusterName;
+    }
+
+    @Nullable
+    @Override
+    public String getConcurrencyKey() {
+        return clusterName;
+    }
+
+    @Override
+    public Void call() throws Exception {
+        handler.handle(httpExchange);
+        return null;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogSummary;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogSummary.ExecutorTimeline;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The streaming Spark event log analyzer, which reads the event log line by line and keeps running aggregates.
+ *
+ * The event type of each line is scanned from the raw text, only the lines of the interesting events are decoded,
+ * and only the fields needed are read from them. So the memory used doesn't grow with the event log size except
+ * the job start events.
+ */
+public class SparkEventLogAnalyzer implements ILogger {
+    public static final String JOB_START_EVENT = "SparkListenerJobStart";
+    public static final String JOB_END_EVENT = "SparkListenerJobEnd";
+    public static final String STAGE_SUBMITTED_EVENT = "SparkListenerStageSubmitted";
+    public static final String STAGE_COMPLETED_EVENT = "SparkListenerStageCompleted";
+    public static final String TASK_END_EVENT = "SparkListenerTaskEnd";
+    public static final String EXECUTOR_ADDED_EVENT = "SparkListenerExecutorAdded";
+    public static final String EXECUTOR_REMOVED_EVENT = "SparkListenerExecutorRemoved";
+
+    private static final List<String> ANALYZED_EVENTS = Arrays.asList(
+            JOB_START_EVENT,
+            JOB_END_EVENT,
+            STAGE_SUBMITTED_EVENT,
+            STAGE_COMPLETED_EVENT,
+            TASK_END_EVENT,
+            EXECUTOR_ADDED_EVENT,
+            EXECUTOR_REMOVED_EVENT);
+
+    // Spark writes the event type as the first field without any spaces, such as {"Event":"SparkListenerJobStart",...
+    private static final String EVENT_FIELD = "\"Event\"";
+    private static final String COMPACT_EVENT_FIELD_PREFIX = EVENT_FIELD + ":\"";
+    private static final String JOB_SUCCEEDED_TOKEN = "\"Result\":\"JobSucceeded\"";
+    private static final String STAGE_FAILURE_TOKEN = "\"Failure Reason\"";
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final ObjectReader jobStartEventReader = new ObjectMapper(jsonFactory)
+            .readerFor(JobStartEventLog.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @NotNull
+    private final List<JobStartEventLog> jobStartEvents = new ArrayList<>();
+
+    @NotNull
+    private final Map<String, ExecutorTimeline> executorTimelines = new LinkedHashMap<>();
+
+    private long eventCount = 0;
+    private int jobCount = 0;
+    private int succeededJobCount = 0;
+    private int failedJobCount = 0;
+    private int stageCount = 0;
+    private int completedStageCount = 0;
+    private int failedStageCount = 0;
+    private long taskCount = 0;
+    private long failedTaskCount = 0;
+    private long totalTaskDuration = 0;
+
+    /**
+     * Analyze all events of the stream
+     *
+     * @param eventLogStream the UTF-8 Spark event log stream with one JSON event per line, which isn't closed
+     * @return this analyzer with the events aggregated
+     * @throws IOException for the stream reading exceptions
+     */
+    public SparkEventLogAnalyzer analyze(@NotNull InputStream eventLogStream) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(eventLogStream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            accept(line);
+        }
+
+        return this;
+    }
+
+    /**
+     * Aggregate one event log line, the broken lines are ignored
+     */
+    public void accept(@NotNull String line) {
+        final String event = scanEventType(line);
+        if (event == null) {
+            return;
+        }
+
+        eventCount++;
+
+        try {
+            switch (event) {
+                case JOB_START_EVENT:
+                    jobStartEvents.add(jobStartEventReader.readValue(line));
+                    jobCount++;
+                    break;
+                case JOB_END_EVENT:
+                    if (line.contains(JOB_SUCCEEDED_TOKEN)) {
+                        succeededJobCount++;
+                    } else {
+                        failedJobCount++;
+                    }
+                    break;
+                case STAGE_SUBMITTED_EVENT:
+                    stageCount++;
+                    break;
+                case STAGE_COMPLETED_EVENT:
+                    if (line.contains(STAGE_FAILURE_TOKEN)) {
+                        failedStageCount++;
+                    } else {
+                        completedStageCount++;
+                    }
+                    break;
+                case TASK_END_EVENT:
+                    onTaskEnd(line);
+                    break;
+                case EXECUTOR_ADDED_EVENT:
+                case EXECUTOR_REMOVED_EVENT:
+                    onExecutorEvent(event, line);
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException | NumberFormatException ex) {
+            log().debug("Skip the broken Spark event log line of " + event, ex);
+        }
+    }
+
+    @NotNull
+    public SparkEventLogSummary getSummary() {
+        final SparkEventLogSummary summary = new SparkEventLogSummary();
+        summary.setJobStartEvents(new ArrayList<>(jobStartEvents));
+        summary.setEventCount(eventCount);
+        summary.setJobCount(jobCount);
+        summary.setSucceededJobCount(succeededJobCount);
+        summary.setFailedJobCount(failedJobCount);
+        summary.setStageCount(stageCount);
+        summary.setCompletedStageCount(completedStageCount);
+        summary.setFailedStageCount(failedStageCount);
+        summary.setTaskCount(taskCount);
+        summary.setFailedTaskCount(failedTaskCount);
+        summary.setTotalTaskDuration(totalTaskDuration);
+        summary.setExecutorTimelines(new ArrayList<>(executorTimelines.values()));
+
+        return summary;
+    }
+
+    /**
+     * Scan the event type from the raw line without JSON parsing
+     *
+     * @return the event type if it's one of the analyzed events, otherwise null
+     */
+    @Nullable
+    static String scanEventType(@NotNull String line) {
+        int start = line.indexOf(COMPACT_EVENT_FIELD_PREFIX);
+        if (start >= 0) {
+            start += COMPACT_EVENT_FIELD_PREFIX.length();
+
+            for (String event : ANALYZED_EVENTS) {
+                if (line.startsWith(event, start)
+                        && line.length() > start + event.length()
+                        && line.charAt(start + event.length()) == '"') {
+                    return event;
+                }
+            }
+
+            return null;
+        }
+
+        if (!line.contains(EVENT_FIELD)) {
+            return null;
+        }
+
+        // Fall back to read the event type field for the lines not written in compact format
+        try {
+            final String event = readTopLevelFields(line, Arrays.asList("Event")).get("Event");
+            return ANALYZED_EVENTS.contains(event) ? event : null;
+        } catch (IOException ignored) {
+            return null;
+        }
+    }
+
+    private void onTaskEnd(@NotNull String line) throws IOException {
+        taskCount++;
+
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (!seekTopLevelField(parser, "Task Info") || parser.currentToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+
+            long launchTime = 0;
+            long finishTime = 0;
+            boolean isFailed = false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (fieldName) {
+                    case "Launch Time":
+                        launchTime = parser.getValueAsLong();
+                        break;
+                    case "Finish Time":
+                        finishTime = parser.getValueAsLong();
+                        break;
+                    case "Failed":
+                        isFailed = parser.getValueAsBoolean();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            if (isFailed) {
+                failedTaskCount++;
+            }
+
+            if (finishTime > launchTime && launchTime > 0) {
+                totalTaskDuration += finishTime - launchTime;
+            }
+        }
+    }
+
+    private void onExecutorEvent(@NotNull String event, @NotNull String line) throws IOException {
+        final Map<String, String> fields = readTopLevelFields(
+                line, Arrays.asList("Timestamp", "Executor ID", "Removed Reason"));
+        final String executorId = fields.get("Executor ID");
+        if (executorId == null) {
+            return;
+        }
+
+        // Parse before recording the executor, so that a malformed event leaves no timeline behind
+        final long timestamp = fields.get("Timestamp") == null ? 0 : Long.parseLong(fields.get("Timestamp"));
+        final ExecutorTimeline timeline = executorTimelines.computeIfAbsent(executorId, id -> {
+            final ExecutorTimeline created = new ExecutorTimeline();
+            created.setExecutorId(id);
+            return created;
+        });
+
+        if (event.equals(EXECUTOR_ADDED_EVENT)) {
+            timeline.setAddedTime(timestamp);
+        } else {
+            timeline.setRemovedTime(timestamp);
+            timeline.setRemovedReason(fields.get("Removed Reason"));
+        }
+    }
+
+    /**
+     * Move the parser to the value of the top level field by skipping all other fields
+     *
+     * @return true if the field is found, and the parser current token is the start of the value
+     */
+    private static boolean seekTopLevelField(@NotNull JsonParser parser, @NotNull String name) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            parser.nextToken();
+
+            if (fieldName.equals(name)) {
+                return true;
+            }
+
+            parser.skipChildren();
+        }
+
+        return false;
+    }
+
+    /**
+     * Read the scalar values of the top level fields as text, the nested values are skipped without decoding
+     */
+    @NotNull
+    private static Map<String, String> readTopLevelFields(@NotNull String line,
+                                                          @NotNull List<String> names) throws IOException {
+        final Map<String, String> fields = new LinkedHashMap<>();
+
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return fields;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+
+                if (valueToken.isScalarValue() && valueToken != JsonToken.VALUE_NULL && names.contains(fieldName)) {
+                    fields.put(fieldName, parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return fields;
+    }
+}
@@ -30,21 +30,22 @@ import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
 import com.microsoft.azure.hdinsight.sdk.rest.RestUtil;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogSummary;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.executor.Executor;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
-import org.json.JSONObject;
 
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -101,38 +102,82 @@ public class SparkRestUtil {
     }
 
     public static List<JobStartEventLog> getSparkEventLogs(@NotNull ApplicationKey key) throws HDIException, IOException {
-        String url = String.format("%s/logs", key.getAppId());
+        return getSparkEventLogSummary(key, null).getJobStartEvents();
+    }
+
+    /**
+     * Analyze the Spark event log of the application last attempt in streaming
+     *
+     * @param key the application key
+     * @param previous the summary analyzed previously, which is returned directly if the event log isn't changed
+     * @return the event log summary
+     */
+    @NotNull
+    public static SparkEventLogSummary getSparkEventLogSummary(@NotNull ApplicationKey key,
+                                                               @Nullable SparkEventLogSummary previous) throws HDIException, IOException {
         String eventLogsPath = String.format("%s/SparkEventLogs/%s/eventLogs.zip", HDInsightLoader.getHDInsightHelper().getPluginRootPath(), key.getAppId());
         File file = new File(eventLogsPath);
+
+        if (isLocalEventLogsUpToDate(key, file)) {
+            if (previous != null) {
+                return previous;
+            }
+        } else {
+            downloadSparkEventLogs(key, file);
+        }
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            // every application has an attempt in event log
+            // and the entity name should be in formation "{appId}_{attemptId}"
+            String entityName = String.format("%s_%s", key.getAppId(), zipFile.size());
+            ZipEntry lastEntity = zipFile.getEntry(entityName);
+            if (lastEntity == null) {
+                throw new HDIException(String.format("No Spark event log entity found for app: %s", key.getAppId()));
+            }
+
+            try (InputStream zipFileInputStream = zipFile.getInputStream(lastEntity)) {
+                return new SparkEventLogAnalyzer().analyze(zipFileInputStream).getSummary();
+            }
+        }
+    }
+
+    private static void downloadSparkEventLogs(@NotNull ApplicationKey key, @NotNull File file) throws HDIException, IOException {
+        String url = String.format("%s/logs", key.getAppId());
         HttpEntity entity = getSparkRestEntity(key.getClusterDetails(), url);
-        InputStream inputStream = entity.getContent();
-        FileUtils.copyInputStreamToFile(inputStream, file);
-        IOUtils.closeQuietly(inputStream);
-
-        ZipFile zipFile = new ZipFile(file);
-        List<? extends ZipEntry> entities =  Collections.list(zipFile.entries());
-        // every application has an attempt in event log
-        // and the entity name should be in formation "{appId}_{attemptId}"
-        String entityName = String.format("%s_%s", key.getAppId(), entities.size());
-        ZipEntry lastEntity = zipFile.getEntry(entityName);
-        if (lastEntity == null) {
-            throw new HDIException(String.format("No Spark event log entity found for app: %s", key.getAppId()));
+
+        // Download to a temporary file first, so that a broken download never replaces the local event logs
+        Files.createDirectories(file.getParentFile().toPath());
+        File downloading = File.createTempFile(file.getName(), ".download", file.getParentFile());
+        try {
+            try (InputStream inputStream = entity.getContent()) {
+                FileUtils.copyInputStreamToFile(inputStream, downloading);
+            }
+
+            Files.move(downloading.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(downloading.toPath());
         }
-        InputStream zipFileInputStream = zipFile.getInputStream(lastEntity);
-        String entityContent = IOUtils.toString(zipFileInputStream, Charset.forName("utf-8"));
-
-        String[] lines = entityContent.split("\n");
-        List<JobStartEventLog> jobStartEvents = Arrays.stream(lines)
-                .filter(line -> {
-                    JSONObject jsonObject = new JSONObject(line);
-                    String eventName = jsonObject.getString("Event");
-                    return eventName.equalsIgnoreCase("SparkListenerJobStart");
-                    })
-                .map(oneLine -> ObjectConvertUtils.convertToObjectQuietly(oneLine, JobStartEventLog.class))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    }
 
-        return jobStartEvents;
+    /**
+     * The event logs of a completed attempt won't change anymore, so the local copy downloaded after the attempt
+     * completed can be reused
+     */
+    private static boolean isLocalEventLogsUpToDate(@NotNull ApplicationKey key, @NotNull File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try {
+            final AttemptWithAppId attempt = getLastAttemptFromLocalCache(key);
+
+            return attempt != null
+                    && Boolean.parseBoolean(attempt.getCompleted())
+                    && attempt.getLastUpdatedEpoch() != null
+                    && Long.parseLong(attempt.getLastUpdatedEpoch()) <= file.lastModified();
+        } catch (ExecutionException | HDIException | NumberFormatException ex) {
+            return false;
+        }
     }
 
     private static AttemptWithAppId getLastAttemptFromLocalCache(@NotNull ApplicationKey key) throws ExecutionException, HDIException {
@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.HttpClientPool;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.util.EntityUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.apache.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * The lightweight Yarn container log fetcher, which gets a range of the log by a plain HTTP request over the
+ * pooled client, and extracts the log from the Yarn UI log page with a streaming tokenizer instead of a DOM.
+ *
+ * One fetcher is kept for each container log URL, so that the session cookies of Yarn UI are reused among polls.
+ */
+public class YarnContainerLogFetcher implements ILogger {
+    public static final long MIN_POLL_INTERVAL_MS = 1000;
+    public static final long MAX_POLL_INTERVAL_MS = 16000;
+
+    private static final Pattern LOG_TYPE_PATTERN = Pattern.compile("Log Type:\\s+(\\S+)");
+
+    // Keyed by the container log URL and the authCode itself, the fetchers are only held in memory and must never
+    // be shared by the callers with different credentials
+    private static final Cache<List<String>, YarnContainerLogFetcher> fetchers = CacheBuilder.newBuilder()
+            .maximumSize(100)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    @NotNull
+    private final String containerLogUrl;
+
+    @Nullable
+    private final String authCode;
+
+    @NotNull
+    private final HttpClientContext context = HttpClientContext.create();
+
+    YarnContainerLogFetcher(@NotNull String containerLogUrl, @Nullable String authCode) {
+        this.containerLogUrl = containerLogUrl;
+        this.authCode = authCode;
+        this.context.setCookieStore(new BasicCookieStore());
+    }
+
+    /**
+     * Get the long-lived fetcher of the container
+     *
+     * @param authCode the authCode in request's Authorization header
+     * @param containerLogUrl the container log URL
+     * @return the fetcher shared by the callers with the same container log URL and authCode
+     */
+    @NotNull
+    public static YarnContainerLogFetcher of(@Nullable String authCode, @NotNull String containerLogUrl) {
+        try {
+            return fetchers.get(Arrays.asList(containerLogUrl, authCode),
+                                () -> new YarnContainerLogFetcher(containerLogUrl, authCode));
+        } catch (ExecutionException ex) {
+            return new YarnContainerLogFetcher(containerLogUrl, authCode);
+        }
+    }
+
+    @NotNull
+    public String getContainerLogUrl() {
+        return containerLogUrl;
+    }
+
+    /**
+     * Fetch a range of the container log
+     *
+     * @param type the log type, such as stderr
+     * @param start the start offset of the log, the negative value for the offset from the end
+     * @param size the size to fetch, the value 0 or negative for as many as possible
+     * @return the log text fetched, or empty string for any errors
+     */
+    @NotNull
+    public String fetch(@NotNull String type, long start, int size) {
+        final URI url;
+
+        try {
+            url = new URI(containerLogUrl + "/").resolve(
+                    String.format("%s?start=%d", type, start) +
+                            (size <= 0 ? "" : String.format("&&end=%d", start + size)));
+        } catch (URISyntaxException e) {
+            log().error("baseUrl has syntax error: " + containerLogUrl);
+            return "";
+        }
+
+        final HttpGet get = new HttpGet(url);
+        if (authCode != null) {
+            get.setHeader(AUTHORIZATION, authCode);
+        }
+
+        try (CloseableHttpResponse response = HttpClientPool.getInstance()
+                .getClient(HttpClientPool.getSslProfile(true))
+                .execute(get, context)) {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            final HttpEntity entity = response.getEntity();
+
+            if (statusCode >= 300) {
+                // If the URL is wrong, will get 200 response with content:
+                //      Unable to locate 'xxx' log for container
+                //  OR
+                //      Logs not available for <user>. Aggregation may not be complete, Check back later or try the nodemanager at...
+                //  OR
+                //      Cannot get container logs without ...
+                //
+                // if fetching Yarn log hits the gap between the job running and stop, will get the status 403
+                // the log is moving to job history server, just wait and retry.
+                if (statusCode != HttpStatus.SC_FORBIDDEN) {
+                    log().warn("The GET request to " + url + " responded error: " + response.getStatusLine());
+                }
+
+                EntityUtils.consumeQuietly(entity);
+                return "";
+            }
+
+            if (entity == null) {
+                return "";
+            }
+
+            final Charset charset = ContentType.getOrDefault(entity).getCharset();
+            try (Reader reader = new BufferedReader(new InputStreamReader(
+                    entity.getContent(), charset == null ? StandardCharsets.UTF_8 : charset))) {
+                return extractLog(reader, type);
+            }
+        } catch (Exception e) {
+            log().warn("get Spark job log Error", e);
+        }
+
+        return "";
+    }
+
+    /**
+     * Get the interval to wait before the next poll, which is doubled each time no new log is fetched, up to
+     * {@link #MAX_POLL_INTERVAL_MS}, and is reset when there are new logs.
+     *
+     * @param current the current interval in milliseconds
+     * @param hasNewLogs whether the last poll got new logs
+     * @return the next interval in milliseconds
+     */
+    public static long nextPollInterval(long current, boolean hasNewLogs) {
+        return hasNewLogs ? MIN_POLL_INTERVAL_MS : Math.min(Math.max(current, MIN_POLL_INTERVAL_MS) * 2, MAX_POLL_INTERVAL_MS);
+    }
+
+    /**
+     * Extract the log of the type from the Yarn UI log page.
+     *
+     * In running, the page has the log in the only `pre` element. In history server, each log is a `pre` element
+     * following a paragraph of "Log Type: xxx", the first `pre` after the paragraph is the log of the type.
+     *
+     * @param page the log page HTML
+     * @param type the log type
+     * @return the log of the type, or the last `pre` text if the log type isn't found
+     */
+    @NotNull
+    static String extractLog(@NotNull Reader page, @NotNull String type) throws IOException {
+        final PushbackReader reader = new PushbackReader(page, 1);
+        final Map<String, String> logTypeMap = new HashMap<>();
+        final StringBuilder text = new StringBuilder();
+        String logType = null;
+        String logs = "";
+        boolean isInPre = false;
+        boolean isInParagraphHead = false;
+        int c;
+
+        while ((c = reader.read()) != -1) {
+            if (c != '<' || !isTagStart(reader)) {
+                if (isInPre || isInParagraphHead) {
+                    text.append((char) c);
+                }
+
+                continue;
+            }
+
+            final String tagName = readTag(reader);
+
+            if (isInParagraphHead) {
+                // Only the first text of the paragraph is checked for the log type
+                final Matcher matcher = LOG_TYPE_PATTERN.matcher(unescapeHtml(text.toString()).trim());
+                if (matcher.matches()) {
+                    logType = matcher.group(1);
+                }
+
+                isInParagraphHead = false;
+            }
+
+            if (tagName.equals("p")) {
+                isInParagraphHead = true;
+                text.setLength(0);
+            } else if (tagName.equals("pre")) {
+                isInPre = true;
+                text.setLength(0);
+            } else if (tagName.equals("/pre") && isInPre) {
+                logs = unescapeHtml(text.toString());
+
+                if (logType != null) {
+                    // Only get the first <pre>...</pre>
+                    logTypeMap.put(logType, logs);
+                    logType = null;
+                }
+
+                isInPre = false;
+            }
+        }
+
+        return logTypeMap.getOrDefault(type, logs);
+    }
+
+    private static boolean isTagStart(@NotNull PushbackReader reader) throws IOException {
+        final int next = reader.read();
+        if (next == -1) {
+            return false;
+        }
+
+        reader.unread(next);
+
+        return Character.isLetter(next) || next == '/' || next == '!' || next == '?';
+    }
+
+    /**
+     * Read the tag after '<' to the end '>', the comments and declarations are skipped
+     *
+     * @return the tag name in lower case, with '/' prefix for the end tag
+     */
+    @NotNull
+    private static String readTag(@NotNull PushbackReader reader) throws IOException {
+        final StringBuilder name = new StringBuilder();
+        boolean isNameEnded = false;
+        int quote = 0;
+        int c;
+
+        while ((c = reader.read()) != -1) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '>') {
+                break;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                isNameEnded = true;
+            } else if (!isNameEnded) {
+                if (Character.isWhitespace(c) || (c == '/' && name.length() > 0)) {
+                    isNameEnded = true;
+                } else {
+                    name.append(Character.toLowerCase((char) c));
+
+                    if (name.toString().equals("!--")) {
+                        skipComment(reader);
+                        return "!--";
+                    }
+                }
+            }
+        }
+
+        return name.toString();
+    }
+
+    private static void skipComment(@NotNull PushbackReader reader) throws IOException {
+        int dashes = 0;
+        int c;
+
+        while ((c = reader.read()) != -1) {
+            if (c == '>' && dashes >= 2) {
+                return;
+            }
+
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    @NotNull
+    static String unescapeHtml(@NotNull String escaped) {
+        int amp = escaped.indexOf('&');
+        if (amp < 0) {
+            return escaped;
+        }
+
+        final StringBuilder unescaped = new StringBuilder(escaped.length());
+        int last = 0;
+
+        while (amp >= 0) {
+            final int semicolon = escaped.indexOf(';', amp);
+            final String replacement = semicolon < 0 || semicolon - amp > 10
+                                       ? null
+                                       : unescapeEntity(escaped.substring(amp + 1, semicolon));
+
+            if (replacement == null) {
+                unescaped.append(escaped, last, amp + 1);
+                last = amp + 1;
+            } else {
+                unescaped.append(escaped, last, amp).append(replacement);
+                last = semicolon + 1;
+            }
+
+            amp = escaped.indexOf('&', last);
+        }
+
+        return unescaped.append(escaped, last, escaped.length()).toString();
+    }
+
+    @Nullable
+    private static String unescapeEntity(@NotNull String entity) {
+        switch (entity) {
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "amp":
+                return "&";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return " ";
+            default:
+                break;
+        }
+
+        if (entity.length() > 1 && entity.charAt(0) == '#') {
+            try {
+                final int codePoint = entity.charAt(1) == 'x' || entity.charAt(1) == 'X'
+                                      ? Integer.parseInt(entity.substring(2), 16)
+                                      : Integer.parseInt(entity.substring(1));
+
+                return new String(Character.toChars(codePoint));
+            } catch (IllegalArgumentException ignored) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+}
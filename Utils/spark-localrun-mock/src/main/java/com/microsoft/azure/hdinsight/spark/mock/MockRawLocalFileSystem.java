@@ -26,6 +26,7 @@ package com.microsoft.azure.hdinsight.spark.mock;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.util.Progressable;
 import org.apache.hadoop.util.Shell;
 import org.apache.hadoop.util.StringUtils;
 
@@ -35,7 +36,16 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 class MockRawLocalFileSystem extends RawLocalFileSystem {
@@ -43,50 +53,187 @@ class MockRawLocalFileSystem extends RawLocalFileSystem {
     private String scheme = "wasb";
     private URI uri;
 
+    private static final boolean IS_POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    // The file statuses and directory listings got, keyed by the local absolute path. They live as long as the
+    // file system instance, which is cached by Hadoop for the whole job, and are dropped by the changes made through
+    // this file system.
+    private final ConcurrentMap<String, RawLocalFileStatus> statusCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RawLocalFileStatus[]> listingCache = new ConcurrentHashMap<>();
+
     @Override
     public FileStatus getFileStatus(Path f) throws IOException {
         File path = pathToFile(f);
-        if (path.exists()) {
-            return new RawLocalFileStatus(pathToFile(f), getDefaultBlockSize(f), makeQualified(f));
-        } else {
-            throw new FileNotFoundException("File " + f + " does not exist");
+        Path qualified = makeQualified(f);
+        RawLocalFileStatus cached = statusCache.get(path.getAbsolutePath());
+        if (cached != null) {
+            return cached.withPath(qualified);
         }
+
+        RawLocalFileStatus status = RawLocalFileStatus.load(path, getDefaultBlockSize(f), qualified);
+        statusCache.put(path.getAbsolutePath(), status);
+
+        return status.withPath(qualified);
     }
 
     @Override
     public FileStatus[] listStatus(Path f) throws IOException {
         File localf = pathToFile(f);
-        FileStatus[] results;
+        Path qualified = makeQualified(f);
+        RawLocalFileStatus[] cached = listingCache.get(localf.getAbsolutePath());
+        if (cached != null) {
+            return withParent(cached, qualified);
+        }
 
-        if (!localf.exists()) {
+        RawLocalFileStatus status = (RawLocalFileStatus) getFileStatus(f);
+        if (!status.isDirectory()) {
+            return new FileStatus[] { status };
+        }
+
+        long blockSize = getDefaultBlockSize(f);
+        List<RawLocalFileStatus> results = new ArrayList<>();
+        try (DirectoryStream<java.nio.file.Path> children = Files.newDirectoryStream(localf.toPath())) {
+            for (java.nio.file.Path child : children) {
+                String name = child.getFileName().toString();
+                // Assemble the path using the Path 3 arg constructor to make sure
+                // paths with colon are properly resolved on Linux
+                Path childPath = new Path(qualified, new Path(null, null, name));
+                try {
+                    RawLocalFileStatus childStatus = RawLocalFileStatus.load(child.toFile(), blockSize, childPath);
+                    statusCache.put(child.toFile().getAbsolutePath(), childStatus);
+                    results.add(childStatus);
+                } catch (FileNotFoundException e) {
+                    // ignore the files not found since the dir list may have have changed
+                    // since the directory stream was opened.
+                }
+            }
+        } catch (NoSuchFileException e) {
             throw new FileNotFoundException("File " + f + " does not exist");
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
         }
-        if (localf.isFile()) {
-            return new FileStatus[] {
-                    new RawLocalFileStatus(localf, getDefaultBlockSize(f), makeQualified(f)) };
+
+        RawLocalFileStatus[] listing = results.toArray(new RawLocalFileStatus[0]);
+        listingCache.put(localf.getAbsolutePath(), listing);
+
+        return withParent(listing, qualified);
+    }
+
+    private static FileStatus[] withParent(RawLocalFileStatus[] listing, Path parent) {
+        FileStatus[] results = new FileStatus[listing.length];
+        for (int i = 0; i < listing.length; i++) {
+            results[i] = listing[i].withPath(new Path(parent, new Path(null, null, listing[i].getPath().getName())));
+        }
+
+        return results;
+    }
+
+    /**
+     * Drop the cached statuses of the path, its parent directory listing, and everything under it if it's a directory
+     */
+    private void invalidateStatus(Path f) {
+        File file = pathToFile(f);
+        String key = file.getAbsolutePath();
+        RawLocalFileStatus cached = statusCache.remove(key);
+        listingCache.remove(key);
+
+        if (file.getParentFile() != null) {
+            String parentKey = file.getParentFile().getAbsolutePath();
+            statusCache.remove(parentKey);
+            listingCache.remove(parentKey);
         }
 
-        String[] names = localf.list();
-        if (names == null) {
-            return null;
+        if (cached == null || cached.isDirectory()) {
+            String prefix = key + File.separator;
+            statusCache.keySet().removeIf(path -> path.startsWith(prefix));
+            listingCache.keySet().removeIf(path -> path.startsWith(prefix));
         }
-        results = new FileStatus[names.length];
-        int j = 0;
-        for (int i = 0; i < names.length; i++) {
-            try {
-                // Assemble the path using the Path 3 arg constructor to make sure
-                // paths with colon are properly resolved on Linux
-                results[j] = getFileStatus(new Path(f, new Path(null, null, names[i])));
-                j++;
-            } catch (FileNotFoundException e) {
-                // ignore the files not found since the dir list may have have changed
-                // since the names[] list was generated.
+    }
+
+    /**
+     * Wrap the output stream to drop the cached status again once the file content is settled
+     */
+    private FSDataOutputStream invalidateOnClose(Path f, FSDataOutputStream out) throws IOException {
+        return new FSDataOutputStream(out, null) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    invalidateStatus(f);
+                }
             }
+        };
+    }
+
+    @Override
+    public FSDataOutputStream create(Path f, boolean overwrite, int bufferSize, short replication, long blockSize,
+                                     Progressable progress) throws IOException {
+        invalidateStatus(f);
+        return invalidateOnClose(f, super.create(f, overwrite, bufferSize, replication, blockSize, progress));
+    }
+
+    @Override
+    public FSDataOutputStream append(Path f, int bufferSize, Progressable progress) throws IOException {
+        invalidateStatus(f);
+        return invalidateOnClose(f, super.append(f, bufferSize, progress));
+    }
+
+    @Override
+    public boolean rename(Path src, Path dst) throws IOException {
+        invalidateStatus(src);
+        invalidateStatus(dst);
+        try {
+            return super.rename(src, dst);
+        } finally {
+            invalidateStatus(src);
+            invalidateStatus(dst);
         }
-        if (j == names.length) {
-            return results;
+    }
+
+    @Override
+    public boolean delete(Path p, boolean recursive) throws IOException {
+        try {
+            return super.delete(p, recursive);
+        } finally {
+            invalidateStatus(p);
+        }
+    }
+
+    @Override
+    public boolean mkdirs(Path f) throws IOException {
+        try {
+            return super.mkdirs(f);
+        } finally {
+            invalidateStatus(f);
+        }
+    }
+
+    @Override
+    public void setOwner(Path p, String username, String groupname) throws IOException {
+        try {
+            super.setOwner(p, username, groupname);
+        } finally {
+            invalidateStatus(p);
+        }
+    }
+
+    @Override
+    public void setPermission(Path p, FsPermission permission) throws IOException {
+        try {
+            super.setPermission(p, permission);
+        } finally {
+            invalidateStatus(p);
+        }
+    }
+
+    @Override
+    public void setTimes(Path p, long mtime, long atime) throws IOException {
+        try {
+            super.setTimes(p, mtime, atime);
+        } finally {
+            invalidateStatus(p);
         }
-        return Arrays.copyOf(results, j);
     }
 
     @Override
@@ -136,6 +283,49 @@ class MockRawLocalFileSystem extends RawLocalFileSystem {
             this.file = f;
         }
 
+        RawLocalFileStatus(File f, long defaultBlockSize, Path p, PosixFileAttributes attributes) {
+            super(attributes.size(), attributes.isDirectory(), 1, defaultBlockSize,
+                    attributes.lastModifiedTime().toMillis(), 0,
+                    FsPermission.valueOf((attributes.isDirectory() ? "d" : "-") +
+                            PosixFilePermissions.toString(attributes.permissions())),
+                    attributes.owner().getName(), attributes.group().getName(), p);
+            this.file = f;
+        }
+
+        private RawLocalFileStatus(RawLocalFileStatus other, Path p) {
+            super(other.getLen(), other.isDirectory(), other.getReplication(), other.getBlockSize(),
+                    other.getModificationTime(), other.getAccessTime(),
+                    other.isPermissionLoaded() ? other.getPermission() : null,
+                    other.isPermissionLoaded() ? other.getOwner() : null,
+                    other.isPermissionLoaded() ? other.getGroup() : null,
+                    p);
+            this.file = other.file;
+        }
+
+        /// gets the status with the owner, group and permissions in one `stat` call where POSIX attributes are
+        /// supported, or falls back to loading them from `ls -ld` on demand
+        static RawLocalFileStatus load(File f, long defaultBlockSize, Path p) throws IOException {
+            if (IS_POSIX) {
+                try {
+                    return new RawLocalFileStatus(f, defaultBlockSize, p,
+                                                  Files.readAttributes(f.toPath(), PosixFileAttributes.class));
+                } catch (NoSuchFileException e) {
+                    throw new FileNotFoundException("File " + p + " does not exist");
+                }
+            }
+
+            if (!f.exists()) {
+                throw new FileNotFoundException("File " + p + " does not exist");
+            }
+
+            return new RawLocalFileStatus(f, defaultBlockSize, p);
+        }
+
+        /// copies the status for the path, the callers are free to change the copy
+        RawLocalFileStatus withPath(Path p) {
+            return new RawLocalFileStatus(this, p);
+        }
+
         @Override
         public FsPermission getPermission() {
             if (!isPermissionLoaded()) {
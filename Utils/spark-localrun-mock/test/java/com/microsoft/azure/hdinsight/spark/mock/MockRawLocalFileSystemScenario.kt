@@ -22,16 +22,48 @@
 
 package com.microsoft.azure.hdinsight.spark.mock
 
+import cucumber.api.Scenario
+import cucumber.api.java.Before
 import cucumber.api.java.en.Given
 import cucumber.api.java.en.Then
 import org.apache.hadoop.conf.Configuration
 import org.apache.hadoop.fs.Path
+import org.apache.hadoop.fs.RawLocalFileSystem
+import org.apache.hadoop.fs.permission.FsPermission
 import org.assertj.core.api.Assertions.assertThat
 import java.io.File
+import java.nio.file.Files
+import java.nio.file.FileSystems
+import java.nio.file.attribute.BasicFileAttributes
+import java.nio.file.attribute.PosixFileAttributes
+import java.nio.file.attribute.PosixFilePermissions
+import java.util.concurrent.TimeUnit
 import kotlin.test.assertNotNull
 
 class MockRawLocalFileSystemScenario {
     private var workDir = ""
+    private var tempDir: File? = null
+    private var scenario: Scenario? = null
+    private val isPosixSupported = FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+    private val fs: MockRawLocalFileSystem by lazy {
+        MockRawLocalFileSystem().apply { conf = Configuration() }
+    }
+
+    @Before
+    fun setUp(scenario: Scenario) {
+        this.scenario = scenario
+    }
+
+    private fun listModes(fs: RawLocalFileSystem, dir: Path): List<String> =
+            fs.listStatus(dir).map { "${it.owner}:${it.group}:${it.permission}" }
+
+    private fun <T> timed(name: String, block: () -> T): T {
+        val start = System.nanoTime()
+        val result = block()
+
+        scenario!!.write("$name: ${TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)} ms")
+        return result
+    }
 
     @Given("^set mocked file system local working directory to '(.*)'")
     fun setWorkingDirectory(workDir: String) {
@@ -51,4 +83,72 @@ class MockRawLocalFileSystemScenario {
         fs.conf = Configuration()
         assertNotNull(fs.getFileStatus(Path(path)))
     }
-}
\ No newline at end of file
+
+    @Given("^create a local temporary directory with (\\d+) files for mocked file system$")
+    fun createTempDirWithFiles(count: Int) {
+        tempDir = Files.createTempDirectory("mockfs").toFile().apply { deleteOnExit() }
+        (0 until count).forEach { File(tempDir, "part-%05d".format(it)).apply { writeText("$it"); deleteOnExit() } }
+    }
+
+    @Then("^list the local temporary directory with mocked file system should get (\\d+) files with local owners and permissions$")
+    fun verifyListTempDir(count: Int) {
+        val statuses = fs.listStatus(Path(tempDir!!.toURI()))
+
+        assertThat(statuses).hasSize(count)
+        statuses.forEach {
+            val file = File(it.path.toUri()).toPath()
+            val basicAttributes = Files.readAttributes(file, BasicFileAttributes::class.java)
+
+            assertThat(File(it.path.parent.toUri())).isEqualTo(tempDir)
+            assertThat(it.isDirectory).isEqualTo(basicAttributes.isDirectory)
+            assertThat(it.len).isEqualTo(basicAttributes.size())
+
+            if (isPosixSupported) {
+                val attributes = Files.readAttributes(file, PosixFileAttributes::class.java)
+
+                assertThat(it.owner).isEqualTo(attributes.owner().name)
+                assertThat(it.group).isEqualTo(attributes.group().name)
+                assertThat(it.permission).isEqualTo(
+                        FsPermission.valueOf("-" + PosixFilePermissions.toString(attributes.permissions())))
+            } else {
+                // The owner is got without the domain by the file system on Windows
+                assertThat(Files.getOwner(file).name).endsWith(it.owner)
+            }
+        }
+    }
+
+    @Then("^create file '(.*)' with content '(.*)' in the local temporary directory with mocked file system$")
+    fun createFileInTempDir(name: String, content: String) {
+        fs.create(Path(Path(tempDir!!.toURI()), name)).use { it.write(content.toByteArray()) }
+    }
+
+    @Then("^delete file '(.*)' in the local temporary directory with mocked file system$")
+    fun deleteFileInTempDir(name: String) {
+        assertThat(fs.delete(Path(Path(tempDir!!.toURI()), name), false)).isTrue()
+    }
+
+    @Then("^mocked file system status of '(.*)' in the local temporary directory should be with length (\\d+)$")
+    fun verifyFileLengthInTempDir(name: String, length: Long) {
+        assertThat(fs.getFileStatus(Path(Path(tempDir!!.toURI()), name)).len).isEqualTo(length)
+    }
+
+    @Then("^benchmark listing the local temporary directory with mocked file system for (\\d+) files$")
+    fun benchmarkListTempDir(count: Int) {
+        val coldFs = MockRawLocalFileSystem().apply { conf = Configuration() }
+        val dir = Path(tempDir!!.toURI())
+
+        val modes = timed("Cold listing of $count files") { listModes(coldFs, dir) }
+        val cachedModes = timed("Cached listing of $count files") { listModes(coldFs, dir) }
+
+        assertThat(modes).hasSize(count)
+        assertThat(cachedModes).isEqualTo(modes)
+
+        if (isPosixSupported) {
+            // The Hadoop local file system loads the owner and permission with one `ls -ld` process per file
+            val shellFs = RawLocalFileSystem().apply { conf = Configuration() }
+            val shellModes = timed("Per file `ls -ld` listing of $count files") { listModes(shellFs, dir) }
+
+            assertThat(shellModes).hasSize(count)
+        }
+    }
+}
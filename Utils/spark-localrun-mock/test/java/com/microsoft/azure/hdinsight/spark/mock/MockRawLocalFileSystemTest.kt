@@ -29,6 +29,7 @@ import org.junit.runner.RunWith
 @RunWith(Cucumber::class)
 @CucumberOptions(
         plugin = ["html:target/cucumber"],
-        name = ["Mock File System Unit Test"]
+        name = ["Mock File System Unit Test"],
+        tags = ["~@benchmark"]
 )
 class MockRawLocalFileSystemTest
\ No newline at end of file
@@ -26,3 +26,24 @@ Feature: Mock File System Unit Test
   Scenario: Resources file exists
     Given set mocked file system local working directory to 'test/resources/data/__default__/user/current'
     Then mocked file 'my_words.txt' should exists
+
+  Scenario: List directory statuses with owners and permissions
+    Given create a local temporary directory with 20 files for mocked file system
+    Then list the local temporary directory with mocked file system should get 20 files with local owners and permissions
+
+  Scenario: Cached statuses are dropped by the changes through mocked file system
+    Given create a local temporary directory with 3 files for mocked file system
+    Then list the local temporary directory with mocked file system should get 3 files with local owners and permissions
+    And mocked file system status of 'part-00001' in the local temporary directory should be with length 1
+    And create file 'part-00001' with content 'changed' in the local temporary directory with mocked file system
+    And mocked file system status of 'part-00001' in the local temporary directory should be with length 7
+    And create file 'new-file' with content 'new' in the local temporary directory with mocked file system
+    Then list the local temporary directory with mocked file system should get 4 files with local owners and permissions
+    And delete file 'part-00002' in the local temporary directory with mocked file system
+    Then list the local temporary directory with mocked file system should get 3 files with local owners and permissions
+
+  # Excluded by default, run with -Dcucumber.options="--tags @benchmark"
+  @benchmark
+  Scenario: Benchmark listing a large directory with mocked file system
+    Given create a local temporary directory with 50000 files for mocked file system
+    Then benchmark listing the local temporary directory with mocked file system for 50000 files